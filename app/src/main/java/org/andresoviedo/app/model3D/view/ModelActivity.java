@@ -345,6 +345,15 @@ public class ModelActivity extends Activity implements EventListener {
         return true;
     }
 
+    /**********************************************************************************************/
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (scene != null) {
+            scene.dispose();
+        }
+    }
+
     /**********************************************************************************************/
     @Override
     public void onBackPressed() {
@@ -0,0 +1,28 @@
+package android.net;
+/**************************************************************************************************/
+public final class Uri {
+    /**********************************************************************************************/
+    private final String uriString;
+
+    /**********************************************************************************************/
+    private Uri(String uriString) {
+        this.uriString = uriString;
+    }
+
+    /**********************************************************************************************/
+    public static Uri parse(String uriString) {
+        return new Uri(uriString);
+    }
+
+    /**********************************************************************************************/
+    public String getScheme() {
+        final int colon = uriString.indexOf(':');
+        return colon == -1 ? null : uriString.substring(0, colon);
+    }
+
+    /**********************************************************************************************/
+    @Override
+    public String toString() {
+        return uriString;
+    }
+}
@@ -0,0 +1,29 @@
+package android.opengl;
+/**************************************************************************************************/
+// only the constants. there is no GL context in the benchmarks, and the tests use a fake GLApi
+public final class GLES20 {
+    /**********************************************************************************************/
+    public static final int GL_POINTS = 0x0000;
+    public static final int GL_LINES = 0x0001;
+    public static final int GL_LINE_LOOP = 0x0002;
+    public static final int GL_LINE_STRIP = 0x0003;
+    public static final int GL_TRIANGLES = 0x0004;
+    public static final int GL_TRIANGLE_STRIP = 0x0005;
+    public static final int GL_TRIANGLE_FAN = 0x0006;
+    /**********************************************************************************************/
+    public static final int GL_UNSIGNED_SHORT = 0x1403;
+    public static final int GL_UNSIGNED_INT = 0x1405;
+    public static final int GL_FLOAT = 0x1406;
+    /**********************************************************************************************/
+    public static final int GL_ARRAY_BUFFER = 0x8892;
+    public static final int GL_ELEMENT_ARRAY_BUFFER = 0x8893;
+    public static final int GL_STATIC_DRAW = 0x88E4;
+    /**********************************************************************************************/
+    public static final int GL_TEXTURE_2D = 0x0DE1;
+    public static final int GL_TEXTURE_CUBE_MAP = 0x8513;
+    public static final int GL_TEXTURE0 = 0x84C0;
+
+    /**********************************************************************************************/
+    private GLES20() {
+    }
+}
@@ -0,0 +1,24 @@
+package android.opengl;
+/**************************************************************************************************/
+public final class GLU {
+    /**********************************************************************************************/
+    private GLU() {
+    }
+
+    /**********************************************************************************************/
+    public static int gluUnProject(float winX, float winY, float winZ, float[] model, int modelOffset,
+                                   float[] project, int projectOffset, int[] view, int viewOffset,
+                                   float[] obj, int objOffset) {
+        final float[] scratch = new float[32];
+        Matrix.multiplyMM(scratch, 0, project, projectOffset, model, modelOffset);
+        if (!Matrix.invertM(scratch, 16, scratch, 0)) {
+            return 0;
+        }
+        scratch[0] = 2.0f * (winX - view[viewOffset]) / view[viewOffset + 2] - 1.0f;
+        scratch[1] = 2.0f * (winY - view[viewOffset + 1]) / view[viewOffset + 3] - 1.0f;
+        scratch[2] = 2.0f * winZ - 1.0f;
+        scratch[3] = 1.0f;
+        Matrix.multiplyMV(obj, objOffset, scratch, 16, scratch, 0);
+        return 1;
+    }
+}
@@ -0,0 +1,53 @@
+package android.util;
+/**************************************************************************************************/
+// JVM replacement of the android logger. Only warnings and errors are printed, so the benchmarks
+// measure the engine and not the console
+public final class Log {
+    /**********************************************************************************************/
+    private Log() {
+    }
+
+    /**********************************************************************************************/
+    public static int v(String tag, String msg) {
+        return 0;
+    }
+
+    /**********************************************************************************************/
+    public static int d(String tag, String msg) {
+        return 0;
+    }
+
+    /**********************************************************************************************/
+    public static int i(String tag, String msg) {
+        return 0;
+    }
+
+    /**********************************************************************************************/
+    public static int w(String tag, String msg) {
+        return println("W", tag, msg, null);
+    }
+
+    /**********************************************************************************************/
+    public static int w(String tag, String msg, Throwable tr) {
+        return println("W", tag, msg, tr);
+    }
+
+    /**********************************************************************************************/
+    public static int e(String tag, String msg) {
+        return println("E", tag, msg, null);
+    }
+
+    /**********************************************************************************************/
+    public static int e(String tag, String msg, Throwable tr) {
+        return println("E", tag, msg, tr);
+    }
+
+    /**********************************************************************************************/
+    private static int println(String level, String tag, String msg, Throwable tr) {
+        System.err.println(level + "/" + tag + ": " + msg);
+        if (tr != null) {
+            tr.printStackTrace();
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,23 @@
+package android.util;
+
+import org.kxml2.io.KXmlParser;
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+/**************************************************************************************************/
+// same pull parser the platform returns (kxml2)
+public final class Xml {
+    /**********************************************************************************************/
+    private Xml() {
+    }
+
+    /**********************************************************************************************/
+    public static XmlPullParser newPullParser() {
+        try {
+            final KXmlParser parser = new KXmlParser();
+            parser.setFeature(XmlPullParser.FEATURE_PROCESS_NAMESPACES, true);
+            return parser;
+        } catch (XmlPullParserException e) {
+            throw new AssertionError(e);
+        }
+    }
+}
@@ -0,0 +1,6 @@
+package org.andresoviedo.android_3d_model_engine;
+/**************************************************************************************************/
+// generated by the android build. the benchmarks measure the release configuration
+public final class BuildConfig {
+    public static final boolean DEBUG = false;
+}
@@ -0,0 +1,5 @@
+package org.andresoviedo.android_3d_model_engine.drawer;
+/**************************************************************************************************/
+// the renderers need a GL context. only the type is referenced by the model classes
+public class RendererFactory {
+}
@@ -0,0 +1,16 @@
+package org.andresoviedo.util.android;
+
+import org.andresoviedo.util.event.EventListener;
+
+import java.util.EventObject;
+import java.util.List;
+/**************************************************************************************************/
+// the part of the engine AndroidUtils that does not need the platform
+public class AndroidUtils {
+    /**********************************************************************************************/
+    public static void fireEvent(List<EventListener> listeners, EventObject eventObject) {
+        for (int i = 0; i < listeners.size(); i++) {
+            listeners.get(i).onEvent(eventObject);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package org.andresoviedo.util.android;
+
+import android.net.Uri;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URL;
+/**************************************************************************************************/
+// the benchmark models are plain files, so every content is opened as an URL
+public class ContentUtils {
+    /**********************************************************************************************/
+    public static InputStream getInputStream(String path) throws IOException {
+        return new URL(path).openStream();
+    }
+
+    /**********************************************************************************************/
+    public static InputStream getInputStream(URI uri) throws IOException {
+        return uri.toURL().openStream();
+    }
+
+    /**********************************************************************************************/
+    public static InputStream getInputStream(Uri uri) throws IOException {
+        return new URL(uri.toString()).openStream();
+    }
+}
@@ -0,0 +1,65 @@
+package org.andresoviedo.android_3d_model_engine.animation;
+
+import org.andresoviedo.util.math.Quaternion;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+/**************************************************************************************************/
+// in the animation package because JointTransform.interpolate() is package private
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class JointTransformBenchmark {
+    /**********************************************************************************************/
+    private JointTransform eulerA;
+    private JointTransform eulerB;
+    private JointTransform quaternionA;
+    private JointTransform quaternionB;
+    /**********************************************************************************************/
+    private final float[] matrix = new float[16];
+    private float progression;
+
+    /**********************************************************************************************/
+    @Setup
+    public void setup() {
+        eulerA = JointTransform.of(new Float[]{1f, 1f, 1f}, new Float[]{10f, 20f, 30f}, null, new Float[]{0f, 1f, 0f});
+        eulerB = JointTransform.of(new Float[]{2f, 2f, 2f}, new Float[]{40f, 50f, 60f}, null, new Float[]{1f, 2f, 3f});
+
+        final Quaternion rotationA = new Quaternion(0, 0, 0, 1);
+        final Quaternion rotationB = new Quaternion(0, (float) Math.sin(Math.PI / 8), 0, (float) Math.cos(Math.PI / 8));
+        quaternionA = JointTransform.of(new Float[]{1f, 1f, 1f}, null, rotationA, new Float[]{0f, 1f, 0f});
+        quaternionB = JointTransform.of(new Float[]{2f, 2f, 2f}, null, rotationB, new Float[]{1f, 2f, 3f});
+    }
+
+    /**********************************************************************************************/
+    @Benchmark
+    public float[] euler() {
+        JointTransform.interpolate(eulerA, eulerB, nextProgression(), matrix);
+        return matrix;
+    }
+
+    /**********************************************************************************************/
+    @Benchmark
+    public float[] quaternion() {
+        JointTransform.interpolate(quaternionA, quaternionB, nextProgression(), matrix);
+        return matrix;
+    }
+
+    /**********************************************************************************************/
+    private float nextProgression() {
+        progression = progression >= 1 ? 0 : progression + 0.01f;
+        return progression;
+    }
+}
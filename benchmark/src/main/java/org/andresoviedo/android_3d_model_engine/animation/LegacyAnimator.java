@@ -0,0 +1,135 @@
+package org.andresoviedo.android_3d_model_engine.animation;
+/**************************************************************************************************/
+import android.opengl.Matrix;
+import android.os.SystemClock;
+import android.util.Log;
+
+import org.andresoviedo.android_3d_model_engine.model.AnimatedModel;
+import org.andresoviedo.util.math.Math3DUtils;
+
+import java.util.HashMap;
+import java.util.Map;
+/**************************************************************************************************/
+// Baseline: the pose evaluation Animator did before the clips were compiled, with the joints and their
+// transforms looked up by name every frame. in the animation package because JointTransform.interpolate()
+// is package private. the key frames must have been completed by Animator
+public final class LegacyAnimator {
+	/**********************************************************************************************/
+	private float animationTime = 0;
+	/**********************************************************************************************/
+	private float speed = 1f;
+	/**********************************************************************************************/
+	private final Map<String, Object> cache = new HashMap<>();
+	/**********************************************************************************************/
+	private final Map<String, float[]> currentPose = new HashMap<>();
+	private KeyFrame[] previousAndNextKeyFrames = new KeyFrame[2];
+
+	/**********************************************************************************************/
+	public void update(AnimatedModel animatedModel) {
+		increaseAnimationTime(animatedModel);
+
+		Map<String, float[]> currentPose = calculateCurrentAnimationPose(animatedModel);
+
+		applyPoseToJoints(animatedModel, currentPose, animatedModel.getRootJoint(), Math3DUtils.IDENTITY_MATRIX,
+				Integer.MAX_VALUE);
+	}
+
+	/**********************************************************************************************/
+	private void increaseAnimationTime(AnimatedModel obj) {
+		this.animationTime = SystemClock.uptimeMillis() / 1000f * speed;
+		this.animationTime %= obj.getAnimation().getLength();
+	}
+
+	/**********************************************************************************************/
+	private Map<String, float[]> calculateCurrentAnimationPose(AnimatedModel obj) {
+		KeyFrame[] frames = getPreviousAndNextFrames(obj);
+		float progression = calculateProgression(frames[0], frames[1]);
+		return interpolatePoses(frames[0], frames[1], progression);
+	}
+
+	/**********************************************************************************************/
+	private void applyPoseToJoints(AnimatedModel animatedModel, Map<String, float[]> currentPose, Joint joint, float[]
+			parentTransform, int limit) {
+
+		float[] currentTransform = (float[]) cache.get(joint.getName());
+		if (currentTransform == null) {
+			currentTransform = new float[16];
+			cache.put(joint.getName(), currentTransform);
+		}
+
+		if (currentPose.get(joint.getName()) != null) {
+			Matrix.multiplyMM(currentTransform, 0, parentTransform, 0, currentPose.get(joint.getName()), 0);
+		} else {
+			Matrix.multiplyMM(currentTransform, 0, parentTransform, 0, joint.getBindLocalTransform(), 0);
+		}
+
+		if (limit >= 0) {
+			if (joint.getInverseBindTransform() == null)
+				Log.e("Animator", "joint with inverseBindTransform null: " + joint.getName() + ", index: " + joint.getIndex());
+			Matrix.multiplyMM(joint.getAnimatedTransform(), 0, currentTransform, 0, joint.getInverseBindTransform(), 0);
+		} else {
+			System.arraycopy(Math3DUtils.IDENTITY_MATRIX, 0, joint.getAnimatedTransform(), 0, 16);
+		}
+		if (joint.getIndex() != -1) {
+			animatedModel.updateAnimatedTransform(joint);
+		}
+
+		for (int i = 0; i < joint.getChildren().size(); i++) {
+			Joint childJoint = joint.getChildren().get(i);
+			applyPoseToJoints(animatedModel, currentPose, childJoint, currentTransform, limit - 1);
+		}
+	}
+
+	/**********************************************************************************************/
+	private KeyFrame[] getPreviousAndNextFrames(AnimatedModel obj) {
+		KeyFrame[] allFrames = obj.getAnimation().getKeyFrames();
+		KeyFrame previousFrame = allFrames[0];
+		KeyFrame nextFrame = allFrames[0];
+		for (int i = 1; i < allFrames.length; i++) {
+			nextFrame = allFrames[i];
+			if (nextFrame.getTimeStamp() > animationTime) {
+				break;
+			}
+			previousFrame = allFrames[i];
+		}
+		previousAndNextKeyFrames[0] = previousFrame;
+		previousAndNextKeyFrames[1] = nextFrame;
+		return previousAndNextKeyFrames;
+	}
+
+	/**********************************************************************************************/
+	private float calculateProgression(KeyFrame previousFrame, KeyFrame nextFrame) {
+		float totalTime = nextFrame.getTimeStamp() - previousFrame.getTimeStamp();
+		float currentTime = animationTime - previousFrame.getTimeStamp();
+
+		return currentTime / totalTime * this.speed;
+	}
+
+	/**********************************************************************************************/
+	private Map<String, float[]> interpolatePoses(KeyFrame previousFrame, KeyFrame nextFrame, float progression) {
+		for (Map.Entry<String, JointTransform> entry : previousFrame.getTransforms().entrySet()) {
+
+			final String jointName = entry.getKey();
+			final JointTransform previousTransform = entry.getValue();
+
+			if (Math.signum(progression) == 0) {
+				currentPose.put(jointName, previousTransform.getMatrix());
+				continue;
+			}
+
+			float[] tempMatrix1 = (float[]) cache.get(jointName);
+			if (tempMatrix1 == null) {
+				tempMatrix1 = new float[16];
+				cache.put(jointName, tempMatrix1);
+			}
+
+			JointTransform nextTransform = nextFrame.getTransforms().get(jointName);
+
+			JointTransform.interpolate(previousTransform, nextTransform, progression, tempMatrix1);
+
+			currentPose.put(jointName, tempMatrix1);
+		}
+		return currentPose;
+	}
+}
+/**************************************************************************************************/
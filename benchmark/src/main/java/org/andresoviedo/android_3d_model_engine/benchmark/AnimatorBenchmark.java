@@ -0,0 +1,131 @@
+package org.andresoviedo.android_3d_model_engine.benchmark;
+
+import org.andresoviedo.android_3d_model_engine.animation.Animation;
+import org.andresoviedo.android_3d_model_engine.animation.Animator;
+import org.andresoviedo.android_3d_model_engine.animation.JointTransform;
+import org.andresoviedo.android_3d_model_engine.animation.KeyFrame;
+import org.andresoviedo.android_3d_model_engine.animation.LegacyAnimator;
+import org.andresoviedo.android_3d_model_engine.animation.ParallelAnimator;
+import org.andresoviedo.android_3d_model_engine.model.AnimatedModel;
+import org.andresoviedo.android_3d_model_engine.model.Object3DData;
+import org.andresoviedo.android_3d_model_engine.services.collada.entities.JointData;
+import org.andresoviedo.android_3d_model_engine.services.collada.entities.SkeletonData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+/**************************************************************************************************/
+// one frame of Animator.update() for a number of characters: key frame interpolation and pose of a
+// binary tree skeleton each. legacy is the name based evaluation it did before the clips were compiled,
+// parallel poses the characters on all the available processors
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class AnimatorBenchmark {
+    /**********************************************************************************************/
+    private static final int KEY_FRAMES = 30;
+    /**********************************************************************************************/
+    @Param({"16", "64", "256"})
+    public int joints;
+    /**********************************************************************************************/
+    @Param({"1", "30"})
+    public int characters;
+    /**********************************************************************************************/
+    private AnimatedModel[] models;
+    private Animator animator;
+    private LegacyAnimator legacyAnimator;
+    private ParallelAnimator parallelAnimator;
+    private List<Object3DData> objects;
+
+    /**********************************************************************************************/
+    @Setup
+    public void setup() {
+        final JointData[] jointData = new JointData[joints];
+        for (int i = 0; i < joints; i++) {
+            jointData[i] = new JointData("joint" + i);
+            jointData[i].setIndex(i);
+            if (i > 0) {
+                jointData[(i - 1) / 2].addChild(jointData[i]);
+            }
+        }
+        final SkeletonData skeleton = new SkeletonData(joints, jointData[0]);
+        for (int i = 0; i < joints; i++) {
+            skeleton.incrementBoneCount();
+        }
+
+        final KeyFrame[] keyFrames = new KeyFrame[KEY_FRAMES];
+        for (int k = 0; k < KEY_FRAMES; k++) {
+            final Map<String, JointTransform> transforms = new HashMap<>();
+            for (int i = 0; i < joints; i++) {
+                final float angle = (float) (30 * Math.sin(2 * Math.PI * k / KEY_FRAMES + i));
+                transforms.put(jointData[i].getId(), JointTransform.of(new Float[]{1f, 1f, 1f},
+                        new Float[]{angle, angle / 2, 0f}, null, new Float[]{0f, 1f, 0f}));
+            }
+            keyFrames[k] = new KeyFrame((float) k / KEY_FRAMES, transforms);
+        }
+
+        final Animation animation = new Animation(1f, keyFrames);
+        animator = new Animator();
+        legacyAnimator = new LegacyAnimator();
+        parallelAnimator = new ParallelAnimator(animator);
+        models = new AnimatedModel[characters];
+        objects = new ArrayList<>();
+        for (int i = 0; i < characters; i++) {
+            models[i] = new AnimatedModel();
+            models[i].setId("skeleton" + i);
+            models[i].setJointsData(skeleton);
+            models[i].doAnimation(animation);
+            // first update completes the key frames and compiles the clip
+            animator.update(models[i], false);
+            objects.add(models[i]);
+        }
+    }
+
+    /**********************************************************************************************/
+    @TearDown
+    public void tearDown() {
+        parallelAnimator.shutdown();
+    }
+
+    /**********************************************************************************************/
+    @Benchmark
+    public float[][] update() {
+        for (AnimatedModel model : models) {
+            animator.update(model, false);
+        }
+        return models[models.length - 1].getJointTransforms();
+    }
+
+    /**********************************************************************************************/
+    @Benchmark
+    public float[][] parallel() {
+        parallelAnimator.update(objects, false);
+        return models[models.length - 1].getJointTransforms();
+    }
+
+    /**********************************************************************************************/
+    @Benchmark
+    public float[][] legacy() {
+        for (AnimatedModel model : models) {
+            legacyAnimator.update(model);
+        }
+        return models[models.length - 1].getJointTransforms();
+    }
+}
@@ -0,0 +1,57 @@
+package org.andresoviedo.android_3d_model_engine.benchmark;
+
+import org.andresoviedo.android_3d_model_engine.services.collada.entities.MeshData;
+import org.andresoviedo.android_3d_model_engine.services.collada.loader.GeometryLoader;
+import org.andresoviedo.util.xml.XmlNode;
+import org.andresoviedo.util.xml.XmlParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+/**************************************************************************************************/
+// generated grid as a single collada geometry: xml with its numeric arrays, then the mesh decoding
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class ColladaGeometryBenchmark {
+    /**********************************************************************************************/
+    @Param({"10000", "1000000"})
+    public int triangles;
+    /**********************************************************************************************/
+    private byte[] model;
+    /**********************************************************************************************/
+    private XmlNode geometries;
+
+    /**********************************************************************************************/
+    @Setup
+    public void setup() throws IOException {
+        model = Models.read(Models.grid(triangles, Models.DAE));
+        geometries = XmlParser.parse(new ByteArrayInputStream(model)).getChild("library_geometries");
+    }
+
+    /**********************************************************************************************/
+    @Benchmark
+    public XmlNode parse() {
+        return XmlParser.parse(new ByteArrayInputStream(model));
+    }
+
+    /**********************************************************************************************/
+    @Benchmark
+    public MeshData loadGeometry() {
+        return new GeometryLoader(geometries).loadGeometry(geometries.getChild("geometry"));
+    }
+}
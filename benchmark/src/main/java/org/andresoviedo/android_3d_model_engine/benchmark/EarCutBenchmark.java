@@ -0,0 +1,67 @@
+package org.andresoviedo.android_3d_model_engine.benchmark;
+
+import org.andresoviedo.android_3d_model_engine.util.EarCut;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+/**************************************************************************************************/
+// concave star polygon of N points, alone and with a round hole of N/4 points
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class EarCutBenchmark {
+    /**********************************************************************************************/
+    @Param({"100", "1000", "10000"})
+    public int points;
+    /**********************************************************************************************/
+    private float[] polygon;
+    private float[] polygonWithHole;
+    private int[] holeIndices;
+
+    /**********************************************************************************************/
+    @Setup
+    public void setup() {
+        final int holePoints = Math.max(3, points / 4);
+        polygon = new float[points * 2];
+        polygonWithHole = new float[(points + holePoints) * 2];
+        for (int i = 0; i < points; i++) {
+            final double angle = 2 * Math.PI * i / points;
+            final double radius = i % 2 == 0 ? 1 : 0.8;
+            polygon[i * 2] = (float) (radius * Math.cos(angle));
+            polygon[i * 2 + 1] = (float) (radius * Math.sin(angle));
+        }
+        System.arraycopy(polygon, 0, polygonWithHole, 0, polygon.length);
+        for (int i = 0; i < holePoints; i++) {
+            final double angle = -2 * Math.PI * i / holePoints;
+            polygonWithHole[(points + i) * 2] = (float) (0.3 * Math.cos(angle));
+            polygonWithHole[(points + i) * 2 + 1] = (float) (0.3 * Math.sin(angle));
+        }
+        holeIndices = new int[]{points};
+    }
+
+    /**********************************************************************************************/
+    @Benchmark
+    public List<Integer> polygon() {
+        return EarCut.earcut(polygon, null, 2);
+    }
+
+    /**********************************************************************************************/
+    @Benchmark
+    public List<Integer> polygonWithHole() {
+        return EarCut.earcut(polygonWithHole, holeIndices, 2);
+    }
+}
@@ -0,0 +1,165 @@
+package org.andresoviedo.android_3d_model_engine.benchmark;
+
+import org.andresoviedo.android_3d_model_engine.collision.CollisionDetection;
+import org.andresoviedo.android_3d_model_engine.model.BoundingBox;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+/**************************************************************************************************/
+// one ray against every triangle (or box) of a random soup, so the kernels are measured and not the
+// acceleration structure. the score is rays per second
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g"})
+public class IntersectionBenchmark {
+    /**********************************************************************************************/
+    private static final int RAYS = 64;
+    /**********************************************************************************************/
+    @Param({"1000000"})
+    public int triangles;
+    /**********************************************************************************************/
+    // the same triangles, packed and as the Octree kept them
+    private float[] packed;
+    private List<float[]> legacy;
+    /**********************************************************************************************/
+    private float[] bounds;
+    private List<BoundingBox> boxes;
+    /**********************************************************************************************/
+    private final float[] origins = new float[RAYS * 3];
+    private final float[] directions = new float[RAYS * 3];
+    private final float[] origin = new float[3];
+    private final float[] direction = new float[3];
+    private final float[] intersection = new float[2];
+    private int ray;
+
+    /**********************************************************************************************/
+    @Setup
+    public void setup() {
+        final Random random = new Random(0);
+        packed = new float[triangles * 9];
+        legacy = new ArrayList<>(triangles);
+        bounds = new float[triangles * 6];
+        boxes = new ArrayList<>(triangles);
+        for (int i = 0; i < triangles; i++) {
+            final float x = random.nextFloat(), y = random.nextFloat(), z = random.nextFloat();
+            final float[] triangle = new float[12];
+            for (int v = 0; v < 3; v++) {
+                triangle[v * 4] = packed[i * 9 + v * 3] = x + random.nextFloat() * 0.01f;
+                triangle[v * 4 + 1] = packed[i * 9 + v * 3 + 1] = y + random.nextFloat() * 0.01f;
+                triangle[v * 4 + 2] = packed[i * 9 + v * 3 + 2] = z + random.nextFloat() * 0.01f;
+                triangle[v * 4 + 3] = 1;
+            }
+            legacy.add(triangle);
+
+            bounds[i * 6] = x;
+            bounds[i * 6 + 1] = y;
+            bounds[i * 6 + 2] = z;
+            bounds[i * 6 + 3] = x + 0.01f;
+            bounds[i * 6 + 4] = y + 0.01f;
+            bounds[i * 6 + 5] = z + 0.01f;
+            boxes.add(new BoundingBox("box", x, x + 0.01f, y, y + 0.01f, z, z + 0.01f));
+        }
+
+        // rays from behind the soup, through it
+        for (int i = 0; i < RAYS; i++) {
+            origins[i * 3] = random.nextFloat();
+            origins[i * 3 + 1] = random.nextFloat();
+            origins[i * 3 + 2] = -1;
+            directions[i * 3] = (random.nextFloat() - 0.5f) * 0.2f;
+            directions[i * 3 + 1] = (random.nextFloat() - 0.5f) * 0.2f;
+            directions[i * 3 + 2] = 1;
+        }
+    }
+
+    /**********************************************************************************************/
+    private void nextRay() {
+        final int i = ray++ % RAYS * 3;
+        System.arraycopy(origins, i, origin, 0, 3);
+        System.arraycopy(directions, i, direction, 0, 3);
+    }
+
+    /**********************************************************************************************/
+    @Benchmark
+    public float legacyTriangles() {
+        nextRay();
+        return LegacyIntersection.getNearestTriangle(legacy, origin, direction);
+    }
+
+    /**********************************************************************************************/
+    @Benchmark
+    public float triangles() {
+        nextRay();
+        final float ox = origin[0], oy = origin[1], oz = origin[2];
+        final float dx = direction[0], dy = direction[1], dz = direction[2];
+        float nearest = Float.MAX_VALUE;
+        for (int i = 0; i < packed.length; i += 9) {
+            final float t = CollisionDetection.intersectTriangle(packed, i, ox, oy, oz, dx, dy, dz);
+            if (t != -1 && t < nearest) {
+                nearest = t;
+            }
+        }
+        return nearest != Float.MAX_VALUE ? nearest : -1;
+    }
+
+    /**********************************************************************************************/
+    @Benchmark
+    public float legacyBoxes() {
+        nextRay();
+        float nearest = Float.MAX_VALUE;
+        for (int i = 0; i < boxes.size(); i++) {
+            final float[] t = LegacyIntersection.getBoxIntersection(origin, direction, boxes.get(i));
+            if (t[0] > 0 && t[0] <= t[1] && t[0] < nearest) {
+                nearest = t[0];
+            }
+        }
+        return nearest;
+    }
+
+    /**********************************************************************************************/
+    @Benchmark
+    public float boxes() {
+        nextRay();
+        float nearest = Float.MAX_VALUE;
+        for (int i = 0; i < boxes.size(); i++) {
+            CollisionDetection.getBoxIntersection(origin, direction, boxes.get(i), intersection);
+            if (intersection[0] > 0 && intersection[0] <= intersection[1] && intersection[0] < nearest) {
+                nearest = intersection[0];
+            }
+        }
+        return nearest;
+    }
+
+    /**********************************************************************************************/
+    @Benchmark
+    public float packedBoxes() {
+        nextRay();
+        final float ix = CollisionDetection.inverse(direction[0]);
+        final float iy = CollisionDetection.inverse(direction[1]);
+        final float iz = CollisionDetection.inverse(direction[2]);
+        float nearest = Float.MAX_VALUE;
+        for (int i = 0; i < bounds.length; i += 6) {
+            final float t = CollisionDetection.intersectBox(bounds, i, origin[0], origin[1], origin[2], ix, iy, iz,
+                    nearest);
+            if (t > 0 && t < nearest) {
+                nearest = t;
+            }
+        }
+        return nearest;
+    }
+}
@@ -0,0 +1,71 @@
+package org.andresoviedo.android_3d_model_engine.benchmark;
+
+import android.util.Log;
+
+import org.andresoviedo.android_3d_model_engine.model.BoundingBox;
+import org.andresoviedo.util.math.Math3DUtils;
+
+import java.util.List;
+/**************************************************************************************************/
+// Baseline: the Math3DUtils based kernels CollisionDetection used before the packed ones, and the
+// float[12] per triangle the Octree kept
+final class LegacyIntersection {
+    /**********************************************************************************************/
+    private LegacyIntersection() {
+    }
+
+    /**********************************************************************************************/
+    static float getNearestTriangle(List<float[]> triangles, float[] rayOrigin, float[] rayDirection) {
+        float min = Float.MAX_VALUE;
+        for (float[] triangle : triangles) {
+            float[] vertex0 = new float[]{triangle[0], triangle[1], triangle[2]};
+            float[] vertex1 = new float[]{triangle[4], triangle[5], triangle[6]};
+            float[] vertex2 = new float[]{triangle[8], triangle[9], triangle[10]};
+            float intersection = getTriangleIntersection(rayOrigin, rayDirection, vertex0, vertex1, vertex2);
+            if (intersection != -1 && intersection < min) {
+                min = intersection;
+            }
+        }
+        return min != Float.MAX_VALUE ? min : -1;
+    }
+
+    /**********************************************************************************************/
+    static float getTriangleIntersection(float[] rayOrigin, float[] rayVector,
+                                         float[] vertex0, float[] vertex1, float[] vertex2) {
+        float EPSILON = 0.0000001f;
+        float[] edge1, edge2, h, s, q;
+        float a, f, u, v;
+        edge1 = Math3DUtils.substract(vertex1, vertex0);
+        edge2 = Math3DUtils.substract(vertex2, vertex0);
+        h = Math3DUtils.crossProduct(rayVector, edge2);
+        a = Math3DUtils.dotProduct(edge1, h);
+        if (a > -EPSILON && a < EPSILON)
+            return -1;
+        f = 1 / a;
+        s = Math3DUtils.substract(rayOrigin, vertex0);
+        u = f * Math3DUtils.dotProduct(s, h);
+        if (u < 0.0 || u > 1.0)
+            return -1;
+        q = Math3DUtils.crossProduct(s, edge1);
+        v = f * Math3DUtils.dotProduct(rayVector, q);
+        if (v < 0.0 || u + v > 1.0)
+            return -1;
+        float t = f * Math3DUtils.dotProduct(edge2, q);
+        if (t > EPSILON) {
+            Log.d("CollisionDetection", "Triangle intersection at: " + t);
+            return t;
+        } else
+            return -1;
+    }
+
+    /**********************************************************************************************/
+    static float[] getBoxIntersection(float[] origin, float[] dir, BoundingBox b) {
+        float[] tMin = Math3DUtils.divide(Math3DUtils.substract(b.getMin(), origin), dir);
+        float[] tMax = Math3DUtils.divide(Math3DUtils.substract(b.getMax(), origin), dir);
+        float[] t1 = Math3DUtils.min(tMin, tMax);
+        float[] t2 = Math3DUtils.max(tMin, tMax);
+        float tNear = Math.max(Math.max(t1[0], t1[1]), t1[2]);
+        float tFar = Math.min(Math.min(t2[0], t2[1]), t2[2]);
+        return new float[]{tNear, tFar};
+    }
+}
@@ -0,0 +1,100 @@
+package org.andresoviedo.android_3d_model_engine.benchmark;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+/**************************************************************************************************/
+// Baseline: the line/String based parsing WavefrontLoader used before WavefrontTokenizer
+final class LegacyWavefrontParser {
+    /**********************************************************************************************/
+    final List<float[]> vertexList = new ArrayList<>();
+    final List<float[]> normalsList = new ArrayList<>();
+    final List<float[]> textureList = new ArrayList<>();
+    final List<int[]> verticesAttributes = new ArrayList<>();
+    final List<Integer> indices = new ArrayList<>();
+
+    /**********************************************************************************************/
+    void parse(InputStream is) throws IOException {
+        final BufferedReader br = new BufferedReader(new InputStreamReader(is));
+        String line;
+        while ((line = br.readLine()) != null) {
+            line = line.trim();
+            if (line.length() == 0) continue;
+            if (line.startsWith("v ")) {
+                parseVector(vertexList, line.substring(2).trim());
+            } else if (line.startsWith("vn")) {
+                parseVector(normalsList, line.substring(3).trim());
+            } else if (line.startsWith("vt")) {
+                parseVariableVector(textureList, line.substring(3).trim());
+            } else if (line.startsWith("f ")) {
+                parseFace(line.substring(2));
+            }
+        }
+    }
+
+    /**********************************************************************************************/
+    private static void parseVector(List<float[]> vectorList, String line) {
+        final String[] tokens = line.split(" +");
+        final float[] vector = new float[3];
+        vector[0] = Float.parseFloat(tokens[0]);
+        vector[1] = Float.parseFloat(tokens[1]);
+        vector[2] = Float.parseFloat(tokens[2]);
+        vectorList.add(vector);
+    }
+
+    /**********************************************************************************************/
+    private static void parseVariableVector(List<float[]> textureList, String line) {
+        final String[] tokens = line.split(" +");
+        final float[] vector = new float[2];
+        vector[0] = Float.parseFloat(tokens[0]);
+        if (tokens.length > 1) {
+            vector[1] = Float.parseFloat(tokens[1]);
+        }
+        textureList.add(vector);
+    }
+
+    /**********************************************************************************************/
+    private void parseFace(String line) {
+        final String[] tokens;
+        if (line.contains("  ")) {
+            tokens = line.split(" +");
+        } else {
+            tokens = line.split(" ");
+        }
+
+        final int numTokens = tokens.length;
+
+        for (int i = 0, faceIndex = 0; i < numTokens; i++, faceIndex++) {
+            if (faceIndex > 2) {
+                faceIndex = 0;
+                i -= 2;
+            }
+
+            final String faceToken = faceIndex == 0 ? tokens[0] : tokens[i];
+
+            final String[] faceTokens = faceToken.split("/");
+            final int numSeps = faceTokens.length;
+
+            int vertIdx = Integer.parseInt(faceTokens[0]);
+            vertIdx = vertIdx < 0 ? vertexList.size() + vertIdx : vertIdx - 1;
+
+            int textureIdx = -1;
+            if (numSeps > 1 && faceTokens[1].length() > 0) {
+                textureIdx = Integer.parseInt(faceTokens[1]);
+                textureIdx = textureIdx < 0 ? textureList.size() + textureIdx : textureIdx - 1;
+            }
+            int normalIdx = -1;
+            if (numSeps > 2 && faceTokens[2].length() > 0) {
+                normalIdx = Integer.parseInt(faceTokens[2]);
+                normalIdx = normalIdx < 0 ? normalsList.size() + normalIdx : normalIdx - 1;
+            }
+
+            final int idx = verticesAttributes.size();
+            verticesAttributes.add(new int[]{vertIdx, textureIdx, normalIdx});
+            indices.add(idx);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package org.andresoviedo.android_3d_model_engine.benchmark;
+
+import org.andresoviedo.android_3d_model_engine.services.collada.entities.MeshData;
+import org.andresoviedo.android_3d_model_engine.services.stl.STLFileReader;
+import org.andresoviedo.util.collection.DirectFloatArray;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+/**************************************************************************************************/
+// normals of an unindexed mesh with flat facet normals, as it comes out of the STL reader
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class MeshDataBenchmark {
+    /**********************************************************************************************/
+    @Param({"10000", "1000000"})
+    public int triangles;
+    /**********************************************************************************************/
+    private DirectFloatArray vertices;
+    private DirectFloatArray normals;
+    /**********************************************************************************************/
+    private MeshData mesh;
+
+    /**********************************************************************************************/
+    @Setup
+    public void setup() throws IOException {
+        final STLFileReader reader = new STLFileReader(Models.grid(triangles, Models.STL_BINARY).toURI().toURL());
+        try {
+            final int totalFaces = reader.getNumOfFacets()[0];
+            vertices = new DirectFloatArray(totalFaces * 9);
+            normals = new DirectFloatArray(totalFaces * 9);
+            reader.readFacets(vertices, normals);
+        } finally {
+            reader.close();
+        }
+        mesh = new MeshData.Builder().vertices(vertices).normals(normals).build();
+        // the loaders hand this buffer to the renderer, so smooth() has to refresh it
+        mesh.getNormalsBuffer();
+    }
+
+    /**********************************************************************************************/
+    @Benchmark
+    public MeshData fixNormals() {
+        mesh.fixNormals();
+        return mesh;
+    }
+
+    /**********************************************************************************************/
+    @Benchmark
+    public MeshData generateNormals() {
+        final MeshData ret = new MeshData.Builder().vertices(vertices).build();
+        ret.fixNormals();
+        return ret;
+    }
+
+    /**********************************************************************************************/
+    @Benchmark
+    public MeshData smooth() {
+        mesh.smooth();
+        // back to the facet normals for the next call
+        mesh.unSmooth();
+        return mesh;
+    }
+}
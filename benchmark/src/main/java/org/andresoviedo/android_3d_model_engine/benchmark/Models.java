@@ -0,0 +1,287 @@
+package org.andresoviedo.android_3d_model_engine.benchmark;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+/**************************************************************************************************/
+final class Models {
+    /**********************************************************************************************/
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    /**********************************************************************************************/
+    static final String OBJ = "obj";
+    static final String STL_BINARY = "stl";
+    static final String STL_ASCII = "ascii.stl";
+    static final String DAE = "dae";
+
+    /**********************************************************************************************/
+    private Models() {
+    }
+
+    /**********************************************************************************************/
+    static File file(String name) {
+        return new File(System.getProperty("models.dir", "../models"), name);
+    }
+
+    /**********************************************************************************************/
+    // wavy square grid of about the given number of triangles. generated once and kept in the build dir
+    static File grid(int triangles, String format) throws IOException {
+        final File dir = new File(System.getProperty("models.generated.dir", "build/models"));
+        final File file = new File(dir, "grid_" + triangles + "." + format);
+        if (file.isFile()) {
+            return file;
+        }
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create " + dir);
+        }
+
+        final Grid grid = new Grid(triangles);
+        final File temp = new File(dir, file.getName() + ".tmp");
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(temp), 1 << 16)) {
+            switch (format) {
+                case OBJ:
+                    grid.writeObj(out);
+                    break;
+                case STL_BINARY:
+                    grid.writeStlBinary(out);
+                    break;
+                case STL_ASCII:
+                    grid.writeStlAscii(out);
+                    break;
+                case DAE:
+                    grid.writeDae(out);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown format: " + format);
+            }
+        }
+        if (!temp.renameTo(file)) {
+            throw new IOException("Cannot create " + file);
+        }
+        return file;
+    }
+
+    /**********************************************************************************************/
+    static byte[] read(File file) throws IOException {
+        final byte[] ret = new byte[(int) file.length()];
+        try (FileInputStream in = new FileInputStream(file)) {
+            int read = 0;
+            while (read < ret.length) {
+                final int count = in.read(ret, read, ret.length - read);
+                if (count < 0) throw new IOException("Unexpected end of file: " + file);
+                read += count;
+            }
+        }
+        return ret;
+    }
+
+    /**********************************************************************************************/
+    static byte[] scaledObj(String name, int copies) throws IOException {
+        final List<String> lines = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file(name)), UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+        }
+
+        int vertices = 0, normals = 0, textures = 0;
+        for (String line : lines) {
+            if (line.startsWith("v ")) vertices++;
+            else if (line.startsWith("vn")) normals++;
+            else if (line.startsWith("vt")) textures++;
+        }
+
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (Writer writer = new OutputStreamWriter(bos, UTF_8)) {
+            for (int copy = 0; copy < copies; copy++) {
+                for (String line : lines) {
+                    if (line.startsWith("f ")) {
+                        writer.write(offsetFace(line, copy * vertices, copy * textures, copy * normals));
+                    } else {
+                        writer.write(line);
+                    }
+                    writer.write('\n');
+                }
+            }
+        }
+        return bos.toByteArray();
+    }
+
+    /**********************************************************************************************/
+    private static String offsetFace(String line, int vertexOffset, int textureOffset, int normalOffset) {
+        final StringBuilder ret = new StringBuilder("f");
+        final int[] offsets = {vertexOffset, textureOffset, normalOffset};
+        for (String token : line.substring(2).trim().split(" +")) {
+            ret.append(' ');
+            final String[] indices = token.split("/", -1);
+            for (int i = 0; i < indices.length; i++) {
+                if (i > 0) ret.append('/');
+                if (indices[i].isEmpty()) continue;
+                final int index = Integer.parseInt(indices[i]);
+                ret.append(index < 0 ? index : index + offsets[i]);
+            }
+        }
+        return ret.toString();
+    }
+
+    /**********************************************************************************************/
+    // (size + 1)^2 vertices on the xy plane, with a smooth height so the normals and the BVH vary
+    private static final class Grid {
+        private final int size;
+        private final float[] vertices;
+        private final float[] normals;
+
+        private Grid(int triangles) {
+            this.size = Math.max(1, (int) Math.ceil(Math.sqrt(triangles / 2.0)));
+            this.vertices = new float[(size + 1) * (size + 1) * 3];
+            this.normals = new float[vertices.length];
+            for (int i = 0, k = 0; i <= size; i++) {
+                for (int j = 0; j <= size; j++, k += 3) {
+                    final double x = (double) i / size - 0.5;
+                    final double y = (double) j / size - 0.5;
+                    vertices[k] = (float) x;
+                    vertices[k + 1] = (float) y;
+                    vertices[k + 2] = (float) (0.05 * Math.sin(x * 20) * Math.cos(y * 20));
+                    final double dx = Math.cos(x * 20) * Math.cos(y * 20);
+                    final double dy = -Math.sin(x * 20) * Math.sin(y * 20);
+                    final double length = Math.sqrt(dx * dx + dy * dy + 1);
+                    normals[k] = (float) (-dx / length);
+                    normals[k + 1] = (float) (-dy / length);
+                    normals[k + 2] = (float) (1 / length);
+                }
+            }
+        }
+
+        private int getTriangleCount() {
+            return size * size * 2;
+        }
+
+        // vertex index of a triangle corner, counter-clockwise seen from +z
+        private int getIndex(int triangle, int corner) {
+            final int quad = triangle / 2;
+            final int i = quad / size;
+            final int j = quad % size;
+            final int di = corner == 0 ? 0 : triangle % 2 == 0 ? 1 : corner == 1 ? 1 : 0;
+            final int dj = corner == 0 ? 0 : triangle % 2 == 0 ? corner - 1 : 1;
+            return (i + di) * (size + 1) + j + dj;
+        }
+
+        private void getFaceNormal(int triangle, float[] normal) {
+            final int a = getIndex(triangle, 0) * 3, b = getIndex(triangle, 1) * 3, c = getIndex(triangle, 2) * 3;
+            final float ux = vertices[b] - vertices[a], uy = vertices[b + 1] - vertices[a + 1], uz = vertices[b + 2] - vertices[a + 2];
+            final float vx = vertices[c] - vertices[a], vy = vertices[c + 1] - vertices[a + 1], vz = vertices[c + 2] - vertices[a + 2];
+            normal[0] = uy * vz - uz * vy;
+            normal[1] = uz * vx - ux * vz;
+            normal[2] = ux * vy - uy * vx;
+            final float length = (float) Math.sqrt(normal[0] * normal[0] + normal[1] * normal[1] + normal[2] * normal[2]);
+            normal[0] /= length;
+            normal[1] /= length;
+            normal[2] /= length;
+        }
+
+        private void writeObj(OutputStream out) throws IOException {
+            final Writer writer = new BufferedWriter(new OutputStreamWriter(out, UTF_8), 1 << 16);
+            for (int i = 0; i < vertices.length; i += 3) {
+                writer.write("v " + vertices[i] + " " + vertices[i + 1] + " " + vertices[i + 2] + "\n");
+            }
+            for (int i = 0; i < normals.length; i += 3) {
+                writer.write("vn " + normals[i] + " " + normals[i + 1] + " " + normals[i + 2] + "\n");
+            }
+            for (int t = 0; t < getTriangleCount(); t++) {
+                final int a = getIndex(t, 0) + 1, b = getIndex(t, 1) + 1, c = getIndex(t, 2) + 1;
+                writer.write("f " + a + "//" + a + " " + b + "//" + b + " " + c + "//" + c + "\n");
+            }
+            writer.flush();
+        }
+
+        private void writeStlBinary(OutputStream out) throws IOException {
+            final ByteBuffer buffer = ByteBuffer.allocate(84).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.put("binary grid".getBytes(UTF_8));
+            buffer.putInt(80, getTriangleCount());
+            out.write(buffer.array());
+
+            final ByteBuffer facet = ByteBuffer.allocate(50).order(ByteOrder.LITTLE_ENDIAN);
+            final float[] normal = new float[3];
+            for (int t = 0; t < getTriangleCount(); t++) {
+                getFaceNormal(t, normal);
+                facet.clear();
+                facet.putFloat(normal[0]).putFloat(normal[1]).putFloat(normal[2]);
+                for (int corner = 0; corner < 3; corner++) {
+                    final int v = getIndex(t, corner) * 3;
+                    facet.putFloat(vertices[v]).putFloat(vertices[v + 1]).putFloat(vertices[v + 2]);
+                }
+                facet.putShort((short) 0);
+                out.write(facet.array());
+            }
+        }
+
+        private void writeStlAscii(OutputStream out) throws IOException {
+            final Writer writer = new BufferedWriter(new OutputStreamWriter(out, UTF_8), 1 << 16);
+            final float[] normal = new float[3];
+            writer.write("solid grid\n");
+            for (int t = 0; t < getTriangleCount(); t++) {
+                getFaceNormal(t, normal);
+                writer.write("facet normal " + normal[0] + " " + normal[1] + " " + normal[2] + "\n");
+                writer.write("outer loop\n");
+                for (int corner = 0; corner < 3; corner++) {
+                    final int v = getIndex(t, corner) * 3;
+                    writer.write("vertex " + vertices[v] + " " + vertices[v + 1] + " " + vertices[v + 2] + "\n");
+                }
+                writer.write("endloop\n");
+                writer.write("endfacet\n");
+            }
+            writer.write("endsolid grid\n");
+            writer.flush();
+        }
+
+        private void writeDae(OutputStream out) throws IOException {
+            final Writer writer = new BufferedWriter(new OutputStreamWriter(out, UTF_8), 1 << 16);
+            final int count = vertices.length / 3;
+            writer.write("<?xml version=\"1.0\" encoding=\"utf-8\"?>\n");
+            writer.write("<COLLADA xmlns=\"http://www.collada.org/2005/11/COLLADASchema\" version=\"1.4.1\">\n");
+            writer.write("<library_geometries>\n<geometry id=\"grid\" name=\"grid\">\n<mesh>\n");
+            writeDaeSource(writer, "grid-positions", vertices, count);
+            writeDaeSource(writer, "grid-normals", normals, count);
+            writer.write("<vertices id=\"grid-vertices\"><input semantic=\"POSITION\" source=\"#grid-positions\"/></vertices>\n");
+            writer.write("<triangles count=\"" + getTriangleCount() + "\">\n");
+            writer.write("<input semantic=\"VERTEX\" source=\"#grid-vertices\" offset=\"0\"/>\n");
+            writer.write("<input semantic=\"NORMAL\" source=\"#grid-normals\" offset=\"1\"/>\n");
+            writer.write("<p>");
+            for (int t = 0; t < getTriangleCount(); t++) {
+                for (int corner = 0; corner < 3; corner++) {
+                    final int v = getIndex(t, corner);
+                    writer.write(v + " " + v + " ");
+                }
+            }
+            writer.write("</p>\n</triangles>\n</mesh>\n</geometry>\n</library_geometries>\n</COLLADA>\n");
+            writer.flush();
+        }
+
+        private static void writeDaeSource(Writer writer, String id, float[] data, int count) throws IOException {
+            writer.write("<source id=\"" + id + "\">\n");
+            writer.write("<float_array id=\"" + id + "-array\" count=\"" + data.length + "\">");
+            for (float value : data) {
+                writer.write(value + " ");
+            }
+            writer.write("</float_array>\n");
+            writer.write("<technique_common><accessor source=\"#" + id + "-array\" count=\"" + count + "\" stride=\"3\">"
+                    + "<param name=\"X\" type=\"float\"/><param name=\"Y\" type=\"float\"/><param name=\"Z\" type=\"float\"/>"
+                    + "</accessor></technique_common>\n");
+            writer.write("</source>\n");
+        }
+    }
+}
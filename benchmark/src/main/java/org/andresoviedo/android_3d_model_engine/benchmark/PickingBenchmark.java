@@ -0,0 +1,163 @@
+package org.andresoviedo.android_3d_model_engine.benchmark;
+
+import android.opengl.GLES20;
+import android.opengl.Matrix;
+
+import org.andresoviedo.android_3d_model_engine.collision.CollisionDetection;
+import org.andresoviedo.android_3d_model_engine.collision.RayCaster;
+import org.andresoviedo.android_3d_model_engine.model.AnimatedModel;
+import org.andresoviedo.android_3d_model_engine.model.Object3DData;
+import org.andresoviedo.android_3d_model_engine.services.LoadListenerAdapter;
+import org.andresoviedo.android_3d_model_engine.services.collada.entities.SkeletonData;
+import org.andresoviedo.android_3d_model_engine.services.wavefront.WavefrontLoader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.FloatBuffer;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+/**************************************************************************************************/
+// picking on the loaded grid, seen from above so that it fills the viewport
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class PickingBenchmark {
+    /**********************************************************************************************/
+    private static final int WIDTH = 1000;
+    private static final int HEIGHT = 1000;
+    private static final int RAYS = 64;
+    private static final int BATCH = 4096;
+    /**********************************************************************************************/
+    @Param({"10000", "2000000"})
+    public int triangles;
+    /**********************************************************************************************/
+    private Object3DData object;
+    /**********************************************************************************************/
+    // the same grid skinned to 2 joints, split at x = 0
+    private AnimatedModel skinned;
+    private float angle;
+    /**********************************************************************************************/
+    private final float[] viewMatrix = new float[16];
+    private final float[] projectionMatrix = new float[16];
+    private final float[] rays = new float[RAYS * 2];
+    private int ray;
+    /**********************************************************************************************/
+    private final float[] points = new float[BATCH * 2];
+    private List<Object3DData> scene;
+    private RayCaster rayCaster;
+
+    /**********************************************************************************************/
+    @Setup
+    public void setup() throws IOException {
+        object = new WavefrontLoader(GLES20.GL_TRIANGLE_FAN, new LoadListenerAdapter())
+                .load(Models.grid(triangles, Models.OBJ).toURI()).get(0);
+
+        Matrix.setIdentityM(viewMatrix, 0);
+        Matrix.orthoM(projectionMatrix, 0, -0.5f, 0.5f, -0.5f, 0.5f, -10, 10);
+        final Random random = new Random(0);
+        for (int i = 0; i < rays.length; i++) {
+            rays[i] = random.nextFloat() * WIDTH;
+        }
+        // a grid over the viewport, as when sampling a surface
+        final int side = (int) Math.sqrt(BATCH);
+        for (int i = 0; i < BATCH; i++) {
+            points[i * 2] = (i % side + 0.5f) * WIDTH / side;
+            points[i * 2 + 1] = (i / side + 0.5f) * HEIGHT / side;
+        }
+        scene = Collections.singletonList(object);
+        rayCaster = new RayCaster();
+
+        final FloatBuffer vertexBuffer = object.getVertexBuffer();
+        final FloatBuffer jointIds = FloatBuffer.allocate(vertexBuffer.capacity());
+        final FloatBuffer weights = FloatBuffer.allocate(vertexBuffer.capacity());
+        for (int i = 0; i < vertexBuffer.capacity(); i += 3) {
+            jointIds.put(vertexBuffer.get(i) < 0 ? 0 : 1).put(0).put(0);
+            weights.put(1).put(0).put(0);
+        }
+        final SkeletonData skeleton = new SkeletonData(2, null);
+        skeleton.incrementBoneCount();
+        skeleton.incrementBoneCount();
+        skinned = new AnimatedModel(vertexBuffer);
+        skinned.setJointsData(skeleton);
+        skinned.setJointIds(jointIds).setVertexWeights(weights);
+        skinned.setElements(object.getElements());
+        skinned.setDrawOrder(object.getDrawOrder());
+        skinned.setId("skinned");
+        for (float[] transform : skinned.getJointTransforms()) {
+            Matrix.setIdentityM(transform, 0);
+        }
+        CollisionDetection.getTriangleIntersection(skinned, WIDTH, HEIGHT, viewMatrix, projectionMatrix, 0, 0);
+    }
+
+    /**********************************************************************************************/
+    // BVH.build() is package private. the first query of an object builds it
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public float[] build() {
+        object.setBVH(null);
+        return query();
+    }
+
+    /**********************************************************************************************/
+    @Benchmark
+    public float[] rayQuery() {
+        if (object.getBVH() == null) {
+            query();
+        }
+        return query();
+    }
+
+    /**********************************************************************************************/
+    // the batch one point at a time
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public int sequential() {
+        int hits = 0;
+        for (int i = 0; i < points.length; i += 2) {
+            if (CollisionDetection.getTriangleIntersection(object, WIDTH, HEIGHT, viewMatrix, projectionMatrix,
+                    points[i], points[i + 1]) != null) {
+                hits++;
+            }
+        }
+        return hits;
+    }
+
+    /**********************************************************************************************/
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public RayCaster.Hits batch() {
+        return rayCaster.cast(scene, points, WIDTH, HEIGHT, viewMatrix, projectionMatrix);
+    }
+
+    /**********************************************************************************************/
+    // what Animator.update() does to a picked model after every new pose
+    @Benchmark
+    public Object refit() {
+        angle = (angle + 1) % 90;
+        Matrix.setRotateM(skinned.getJointTransforms()[1], 0, angle, 0, 1, 0);
+        skinned.getBVH().refit(skinned);
+        return skinned;
+    }
+
+    /**********************************************************************************************/
+    private float[] query() {
+        final int i = ray++ % RAYS * 2;
+        return CollisionDetection.getTriangleIntersection(object, WIDTH, HEIGHT, viewMatrix, projectionMatrix,
+                rays[i], rays[i + 1]);
+    }
+}
@@ -0,0 +1,152 @@
+package org.andresoviedo.android_3d_model_engine.benchmark;
+
+import org.andresoviedo.android_3d_model_engine.animation.Animation;
+import org.andresoviedo.android_3d_model_engine.animation.Animator;
+import org.andresoviedo.android_3d_model_engine.animation.JointTransform;
+import org.andresoviedo.android_3d_model_engine.animation.KeyFrame;
+import org.andresoviedo.android_3d_model_engine.animation.ParallelAnimator;
+import org.andresoviedo.android_3d_model_engine.animation.Skinning;
+import org.andresoviedo.android_3d_model_engine.model.AnimatedModel;
+import org.andresoviedo.android_3d_model_engine.model.Object3DData;
+import org.andresoviedo.android_3d_model_engine.services.collada.entities.JointData;
+import org.andresoviedo.android_3d_model_engine.services.collada.entities.SkeletonData;
+import org.andresoviedo.util.io.IOUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.FloatBuffer;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+/**************************************************************************************************/
+// CPU skinning of a random mesh with more bones than the animation shaders take. reference is the
+// per vertex AnimatedModel.getPoseVertices(), skin is Skinning on one thread, and sequential and
+// parallel are a whole Animator frame (pose and skinning) on one thread and on all the processors
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SkinningBenchmark {
+    /**********************************************************************************************/
+    private static final int BONES = 100;
+    private static final int KEY_FRAMES = 30;
+    /**********************************************************************************************/
+    @Param({"10000", "100000"})
+    public int vertices;
+    /**********************************************************************************************/
+    private AnimatedModel model;
+    private Skinning skinning;
+    private float[] poseVertices;
+    /**********************************************************************************************/
+    private Animator animator;
+    private ParallelAnimator parallelAnimator;
+    private List<Object3DData> objects;
+
+    /**********************************************************************************************/
+    @Setup
+    public void setup() {
+        final JointData[] jointData = new JointData[BONES];
+        for (int i = 0; i < BONES; i++) {
+            jointData[i] = new JointData("joint" + i);
+            jointData[i].setIndex(i);
+            if (i > 0) {
+                jointData[(i - 1) / 2].addChild(jointData[i]);
+            }
+        }
+        final SkeletonData skeleton = new SkeletonData(BONES, jointData[0]);
+        for (int i = 0; i < BONES; i++) {
+            skeleton.incrementBoneCount();
+        }
+
+        final KeyFrame[] keyFrames = new KeyFrame[KEY_FRAMES];
+        for (int k = 0; k < KEY_FRAMES; k++) {
+            final Map<String, JointTransform> transforms = new HashMap<>();
+            for (int i = 0; i < BONES; i++) {
+                final float angle = (float) (10 * Math.sin(2 * Math.PI * k / KEY_FRAMES + i));
+                transforms.put(jointData[i].getId(), JointTransform.of(new Float[]{1f, 1f, 1f},
+                        new Float[]{angle, angle / 2, 0f}, null, new Float[]{0f, 0.1f, 0f}));
+            }
+            keyFrames[k] = new KeyFrame((float) k / KEY_FRAMES, transforms);
+        }
+
+        // 3 random bones per vertex
+        final Random random = new Random(0);
+        final FloatBuffer vertexBuffer = IOUtils.createFloatBuffer(vertices * 3);
+        final FloatBuffer normalsBuffer = IOUtils.createFloatBuffer(vertices * 3);
+        final FloatBuffer jointIds = IOUtils.createFloatBuffer(vertices * 3);
+        final FloatBuffer weights = IOUtils.createFloatBuffer(vertices * 3);
+        for (int i = 0; i < vertices; i++) {
+            vertexBuffer.put(random.nextFloat()).put(random.nextFloat()).put(random.nextFloat());
+            normalsBuffer.put(0).put(0).put(1);
+            final float a = random.nextFloat();
+            final float b = random.nextFloat() * (1 - a);
+            jointIds.put(random.nextInt(BONES)).put(random.nextInt(BONES)).put(random.nextInt(BONES));
+            weights.put(a).put(b).put(1 - a - b);
+        }
+
+        model = new AnimatedModel(vertexBuffer);
+        model.setNormalsBuffer(normalsBuffer);
+        model.setJointIds(jointIds).setVertexWeights(weights);
+        model.setJointsData(skeleton);
+        model.setId("skinned");
+        model.doAnimation(new Animation(1f, keyFrames));
+        model.setCpuSkinning(true);
+
+        animator = new Animator();
+        parallelAnimator = new ParallelAnimator(animator);
+        objects = Collections.singletonList(model);
+        animator.update(model, false);
+
+        skinning = model.getAnimationState().getSkinning();
+        poseVertices = new float[vertices * 3];
+    }
+
+    /**********************************************************************************************/
+    @TearDown
+    public void tearDown() {
+        parallelAnimator.shutdown();
+    }
+
+    /**********************************************************************************************/
+    @Benchmark
+    public float[] reference() {
+        model.getPoseVertices(poseVertices);
+        return poseVertices;
+    }
+
+    /**********************************************************************************************/
+    @Benchmark
+    public FloatBuffer skin() {
+        skinning.skin(0, vertices);
+        return skinning.getVertexBuffer();
+    }
+
+    /**********************************************************************************************/
+    @Benchmark
+    public FloatBuffer sequential() {
+        animator.update(model, false);
+        return skinning.getVertexBuffer();
+    }
+
+    /**********************************************************************************************/
+    @Benchmark
+    public FloatBuffer parallel() {
+        parallelAnimator.update(objects, false);
+        return skinning.getVertexBuffer();
+    }
+}
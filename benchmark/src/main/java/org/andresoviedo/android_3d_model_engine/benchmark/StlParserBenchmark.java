@@ -0,0 +1,80 @@
+package org.andresoviedo.android_3d_model_engine.benchmark;
+
+import org.andresoviedo.android_3d_model_engine.services.stl.STLFileReader;
+import org.andresoviedo.util.collection.DirectFloatArray;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+/**************************************************************************************************/
+// facets of a generated grid, read the same way the STL loader task does
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class StlParserBenchmark {
+    /**********************************************************************************************/
+    @State(Scope.Benchmark)
+    public static class Binary {
+        @Param({"10000", "1000000", "5000000"})
+        public int triangles;
+        private URL model;
+
+        @Setup
+        public void setup() throws IOException {
+            model = Models.grid(triangles, Models.STL_BINARY).toURI().toURL();
+        }
+    }
+
+    /**********************************************************************************************/
+    // 5M ascii facets are more than 1GB of text, so the largest model is left out
+    @State(Scope.Benchmark)
+    public static class Ascii {
+        @Param({"10000", "1000000"})
+        public int triangles;
+        private URL model;
+
+        @Setup
+        public void setup() throws IOException {
+            model = Models.grid(triangles, Models.STL_ASCII).toURI().toURL();
+        }
+    }
+
+    /**********************************************************************************************/
+    @Benchmark
+    public DirectFloatArray binary(Binary state) throws IOException {
+        return read(state.model);
+    }
+
+    /**********************************************************************************************/
+    @Benchmark
+    public DirectFloatArray ascii(Ascii state) throws IOException {
+        return read(state.model);
+    }
+
+    /**********************************************************************************************/
+    private static DirectFloatArray read(URL model) throws IOException {
+        final STLFileReader reader = new STLFileReader(model);
+        try {
+            final int totalFaces = reader.getNumOfFacets()[0];
+            final DirectFloatArray vertices = new DirectFloatArray(totalFaces * 9);
+            final DirectFloatArray normals = new DirectFloatArray(totalFaces * 9);
+            reader.readFacets(vertices, normals);
+            return vertices;
+        } finally {
+            reader.close();
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package org.andresoviedo.android_3d_model_engine.benchmark;
+
+import android.opengl.GLES20;
+
+import org.andresoviedo.android_3d_model_engine.model.Object3DData;
+import org.andresoviedo.android_3d_model_engine.services.LoadListenerAdapter;
+import org.andresoviedo.android_3d_model_engine.services.wavefront.WavefrontLoader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+/**************************************************************************************************/
+// whole WavefrontLoader.load(): face and vertex parsing, normals and welding of a generated grid
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class WavefrontLoaderBenchmark {
+    /**********************************************************************************************/
+    @Param({"10000", "1000000", "5000000"})
+    public int triangles;
+    /**********************************************************************************************/
+    private URI model;
+
+    /**********************************************************************************************/
+    @Setup
+    public void setup() throws IOException {
+        model = Models.grid(triangles, Models.OBJ).toURI();
+    }
+
+    /**********************************************************************************************/
+    @Benchmark
+    public List<Object3DData> load() {
+        return new WavefrontLoader(GLES20.GL_TRIANGLE_FAN, new LoadListenerAdapter()).load(model);
+    }
+}
@@ -0,0 +1,104 @@
+package org.andresoviedo.android_3d_model_engine.benchmark;
+
+import org.andresoviedo.android_3d_model_engine.services.wavefront.WavefrontTokenizer;
+import org.andresoviedo.util.collection.FloatArray;
+import org.andresoviedo.util.collection.IntArray;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+/**************************************************************************************************/
+// Minotaur.obj repeated N times (~2.4K faces per copy), parsed from memory so disk is not measured
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g"})
+public class WavefrontParserBenchmark {
+    /**********************************************************************************************/
+    @Param({"1", "100", "1000"})
+    public int copies;
+    /**********************************************************************************************/
+    private byte[] model;
+
+    /**********************************************************************************************/
+    @Setup
+    public void setup() throws IOException {
+        model = Models.scaledObj("Minotaur.obj", copies);
+    }
+
+    /**********************************************************************************************/
+    @Benchmark
+    public Object legacy() throws IOException {
+        final LegacyWavefrontParser parser = new LegacyWavefrontParser();
+        parser.parse(new ByteArrayInputStream(model));
+        return parser;
+    }
+
+    /**********************************************************************************************/
+    @Benchmark
+    public Object tokenizer() throws IOException {
+        final FloatArray vertices = new FloatArray(1024);
+        final FloatArray normals = new FloatArray(1024);
+        final FloatArray textures = new FloatArray(1024);
+        final IntArray verticesAttributes = new IntArray(4096);
+        final IntArray indices = new IntArray(4096);
+        final IntArray face = new IntArray(12);
+        final int[] faceVertex = new int[3];
+
+        final WavefrontTokenizer tokenizer = new WavefrontTokenizer(new ByteArrayInputStream(model));
+        while (tokenizer.nextLine()) {
+            switch (tokenizer.nextKeyword()) {
+                case WavefrontTokenizer.KEYWORD_VERTEX:
+                    vertices.add(tokenizer.nextFloat(), tokenizer.nextFloat(), tokenizer.nextFloat());
+                    break;
+                case WavefrontTokenizer.KEYWORD_NORMAL:
+                    normals.add(tokenizer.nextFloat(), tokenizer.nextFloat(), tokenizer.nextFloat());
+                    break;
+                case WavefrontTokenizer.KEYWORD_TEXTURE:
+                    textures.add(tokenizer.nextFloat(), tokenizer.hasNext() ? tokenizer.nextFloat() : 0);
+                    break;
+                case WavefrontTokenizer.KEYWORD_FACE:
+                    face.clear();
+                    while (tokenizer.hasNext()) {
+                        tokenizer.nextFaceVertex(faceVertex, 0);
+                        face.add(resolve(faceVertex[0], vertices.size() / 3),
+                                resolve(faceVertex[1], textures.size() / 2),
+                                resolve(faceVertex[2], normals.size() / 3));
+                    }
+                    final int[] faceData = face.array();
+                    for (int i = 0, faceIndex = 0; i < face.size() / 3; i++, faceIndex++) {
+                        if (faceIndex > 2) {
+                            faceIndex = 0;
+                            i -= 2;
+                        }
+                        final int token = faceIndex == 0 ? 0 : i;
+                        indices.add(verticesAttributes.size() / 3);
+                        verticesAttributes.add(faceData[token * 3], faceData[token * 3 + 1], faceData[token * 3 + 2]);
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        return indices;
+    }
+
+    /**********************************************************************************************/
+    private static int resolve(int index, int count) {
+        if (index == 0) return -1;
+        return index < 0 ? count + index : index - 1;
+    }
+}
@@ -0,0 +1,148 @@
+package org.andresoviedo.android_3d_model_engine.drawer;
+
+import android.opengl.GLES20;
+
+import org.andresoviedo.android_3d_model_engine.model.Object3DData;
+import org.andresoviedo.util.io.IOUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+/**************************************************************************************************/
+public class GLBufferCacheTest {
+    /**********************************************************************************************/
+    private RecordingGLApi gl;
+    private GLBufferCache buffers;
+
+    /**********************************************************************************************/
+    @Before
+    public void setUp() {
+        gl = new RecordingGLApi();
+        buffers = new GLBufferCache(gl);
+    }
+
+    /**********************************************************************************************/
+    @Test
+    public void uploadsEachBufferOnce() {
+        final FloatBuffer vertices = vertices(3);
+        for (int frame = 0; frame < 3; frame++) {
+            buffers.bindArrayBuffer(vertices);
+            buffers.nextFrame();
+        }
+        assertEquals(1, gl.count("glGenBuffer"));
+        assertEquals(1, gl.count("glBufferData"));
+        assertEquals(0, gl.count("glBufferSubData"));
+        assertEquals(3, gl.count("glBindBuffer " + GLES20.GL_ARRAY_BUFFER));
+
+        // by identity, not by content
+        buffers.bindArrayBuffer(vertices(3));
+        assertEquals(2, gl.count("glGenBuffer"));
+        assertEquals(2, buffers.getBufferCount());
+        assertEquals(2 * 9 * 4, buffers.getAllocatedBytes());
+    }
+
+    /**********************************************************************************************/
+    @Test
+    public void uploadsChangedObjectInPlace() {
+        final Object3DData obj = new Object3DData(vertices(3), indices(3));
+        buffers.bindArrayBuffer(obj.getVertexBuffer());
+        buffers.bindElementBuffer(obj.getDrawOrder(), GLES20.GL_UNSIGNED_INT);
+        gl.clear();
+
+        // as the renderers do with the objects that are changed
+        obj.setChanged(true);
+        if (obj.isChanged()) {
+            buffers.invalidate(obj);
+        }
+        buffers.bindArrayBuffer(obj.getVertexBuffer());
+        buffers.bindElementBuffer(obj.getDrawOrder(), GLES20.GL_UNSIGNED_INT);
+
+        assertEquals(0, gl.count("glGenBuffer"));
+        assertEquals(0, gl.count("glBufferData"));
+        assertEquals(1, gl.count("glBufferSubData " + GLES20.GL_ARRAY_BUFFER + " 0 " + 9 * 4));
+        assertEquals(1, gl.count("glBufferSubData " + GLES20.GL_ELEMENT_ARRAY_BUFFER + " 0 " + 3 * 4));
+
+        // not again, until it's changed again
+        gl.clear();
+        buffers.bindArrayBuffer(obj.getVertexBuffer());
+        assertEquals(0, gl.count("glBufferSubData"));
+    }
+
+    /**********************************************************************************************/
+    @Test
+    public void reallocatesWhenSizeChanges() {
+        final IntBuffer indices = indices(6);
+        buffers.bindElementBuffer(indices, GLES20.GL_UNSIGNED_INT);
+        assertEquals(1, gl.count("glBufferData " + GLES20.GL_ELEMENT_ARRAY_BUFFER + " " + 6 * 4));
+        assertEquals(6 * 4, buffers.getAllocatedBytes());
+
+        buffers.bindElementBuffer(indices, GLES20.GL_UNSIGNED_SHORT);
+        assertEquals(1, gl.count("glBufferData " + GLES20.GL_ELEMENT_ARRAY_BUFFER + " " + 6 * 2));
+        assertEquals(0, gl.count("glBufferSubData"));
+        assertEquals(1, gl.count("glGenBuffer"));
+        assertEquals(6 * 2, buffers.getAllocatedBytes());
+    }
+
+    /**********************************************************************************************/
+    @Test
+    public void uploadsShortIndicesWithoutUintSupport() {
+        final IntBuffer indices = indices(4);
+        buffers.bindElementBuffer(indices, GLES20.GL_UNSIGNED_SHORT);
+
+        assertTrue(gl.lastData instanceof ShortBuffer);
+        final ShortBuffer uploaded = (ShortBuffer) gl.lastData;
+        assertEquals(4, uploaded.capacity());
+        assertEquals(0, uploaded.position());
+        for (int i = 0; i < 4; i++) {
+            assertEquals(indices.get(i), uploaded.get(i));
+        }
+    }
+
+    /**********************************************************************************************/
+    @Test
+    public void evictsBuffersNotBoundForMaxUnusedFrames() {
+        final FloatBuffer unused = vertices(3);
+        final FloatBuffer used = vertices(3);
+        buffers.bindArrayBuffer(unused);
+
+        for (int frame = 0; frame < GLBufferCache.MAX_UNUSED_FRAMES; frame++) {
+            buffers.bindArrayBuffer(used);
+            buffers.nextFrame();
+        }
+        assertEquals(0, gl.count("glDeleteBuffer"));
+        assertEquals(2, buffers.getBufferCount());
+
+        buffers.bindArrayBuffer(used);
+        buffers.nextFrame();
+        assertEquals(1, gl.count("glDeleteBuffer 1"));
+        assertEquals(1, buffers.getBufferCount());
+        assertEquals(9 * 4, buffers.getAllocatedBytes());
+
+        // it's uploaded again if it's needed again
+        buffers.bindArrayBuffer(unused);
+        assertEquals(3, gl.count("glGenBuffer"));
+    }
+
+    /**********************************************************************************************/
+    private static FloatBuffer vertices(int count) {
+        final FloatBuffer ret = IOUtils.createFloatBuffer(count * 3);
+        for (int i = 0; i < count * 3; i++) {
+            ret.put(i, i);
+        }
+        return ret;
+    }
+
+    /**********************************************************************************************/
+    private static IntBuffer indices(int count) {
+        final IntBuffer ret = IOUtils.createIntBuffer(count);
+        for (int i = 0; i < count; i++) {
+            ret.put(i, count - 1 - i);
+        }
+        return ret;
+    }
+}
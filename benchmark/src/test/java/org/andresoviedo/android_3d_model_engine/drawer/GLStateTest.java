@@ -0,0 +1,93 @@
+package org.andresoviedo.android_3d_model_engine.drawer;
+
+import android.opengl.GLES20;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+/**************************************************************************************************/
+public class GLStateTest {
+    /**********************************************************************************************/
+    private RecordingGLApi gl;
+    private GLState state;
+
+    /**********************************************************************************************/
+    @Before
+    public void setUp() {
+        gl = new RecordingGLApi();
+        state = new GLState(gl);
+    }
+
+    /**********************************************************************************************/
+    @Test
+    public void usesProgramOnlyWhenItChanges() {
+        state.useProgram(1);
+        state.useProgram(1);
+        state.useProgram(2);
+        state.useProgram(2);
+        state.useProgram(1);
+        assertEquals(3, gl.count("glUseProgram"));
+    }
+
+    /**********************************************************************************************/
+    @Test
+    public void bindsTextureOnlyWhenItChanges() {
+        state.bindTexture(GLES20.GL_TEXTURE_2D, 5);
+        state.bindTexture(GLES20.GL_TEXTURE_2D, 5);
+        state.bindTexture(GLES20.GL_TEXTURE_CUBE_MAP, 5);
+        state.bindTexture(GLES20.GL_TEXTURE_2D, 6);
+        state.bindTexture(GLES20.GL_TEXTURE_CUBE_MAP, 5);
+
+        assertEquals(1, gl.count("glActiveTexture"));
+        assertEquals(2, gl.count("glBindTexture " + GLES20.GL_TEXTURE_2D));
+        assertEquals(1, gl.count("glBindTexture " + GLES20.GL_TEXTURE_CUBE_MAP));
+    }
+
+    /**********************************************************************************************/
+    @Test
+    public void rebindsAfterResetOrDeletedTexture() {
+        state.useProgram(1);
+        state.bindTexture(GLES20.GL_TEXTURE_2D, 5);
+
+        // someone else may have changed them
+        state.reset();
+        state.useProgram(1);
+        state.bindTexture(GLES20.GL_TEXTURE_2D, 5);
+        assertEquals(2, gl.count("glUseProgram"));
+        assertEquals(2, gl.count("glBindTexture"));
+
+        // its id may be given to a new texture
+        state.forgetTexture(5);
+        state.bindTexture(GLES20.GL_TEXTURE_2D, 5);
+        assertEquals(3, gl.count("glBindTexture"));
+    }
+
+    /**********************************************************************************************/
+    @Test
+    public void changesOnlyTheAttributeArraysThatDiffer() {
+        state.setAttributes(0b0111);
+        assertEquals(3, gl.count("glEnableVertexAttribArray"));
+
+        state.setAttributes(0b0111);
+        assertEquals(3, gl.count("glEnableVertexAttribArray"));
+        assertEquals(0, gl.count("glDisableVertexAttribArray"));
+
+        state.setAttributes(0b1101);
+        assertEquals(1, gl.count("glEnableVertexAttribArray 3"));
+        assertEquals(1, gl.count("glDisableVertexAttribArray 1"));
+        assertEquals(4, gl.count("glEnableVertexAttribArray"));
+        assertEquals(1, gl.count("glDisableVertexAttribArray"));
+
+        // reset() keeps them. they only change through here
+        state.reset();
+        state.setAttributes(0b1101);
+        assertEquals(4, gl.count("glEnableVertexAttribArray"));
+
+        // a new context has none enabled
+        state.clear();
+        state.setAttributes(0b0001);
+        assertEquals(5, gl.count("glEnableVertexAttribArray"));
+        assertEquals(1, gl.count("glDisableVertexAttribArray"));
+    }
+}
@@ -0,0 +1,134 @@
+package org.andresoviedo.android_3d_model_engine.drawer;
+
+import java.nio.Buffer;
+import java.util.ArrayList;
+import java.util.List;
+/**************************************************************************************************/
+// records the GL calls instead of making them, so the caches can be checked without a GL context.
+// each call is its name and its arguments, separated by spaces
+final class RecordingGLApi implements GLApi {
+    /**********************************************************************************************/
+    final List<String> calls = new ArrayList<>();
+    // of the last glBufferData or glBufferSubData
+    Buffer lastData;
+    /**********************************************************************************************/
+    private int nextId = 1;
+
+    /**********************************************************************************************/
+    int count(String name) {
+        int ret = 0;
+        for (String call : calls) {
+            if (call.equals(name) || call.startsWith(name + " ")) ret++;
+        }
+        return ret;
+    }
+
+    /**********************************************************************************************/
+    void clear() {
+        calls.clear();
+        lastData = null;
+    }
+
+    /**********************************************************************************************/
+    private void record(String name, Object... args) {
+        final StringBuilder call = new StringBuilder(name);
+        for (Object arg : args) {
+            call.append(' ').append(arg);
+        }
+        calls.add(call.toString());
+    }
+
+    /**********************************************************************************************/
+    @Override
+    public int glGenBuffer() {
+        record("glGenBuffer");
+        return nextId++;
+    }
+
+    /**********************************************************************************************/
+    @Override
+    public void glDeleteBuffer(int buffer) {
+        record("glDeleteBuffer", buffer);
+    }
+
+    /**********************************************************************************************/
+    @Override
+    public void glBindBuffer(int target, int buffer) {
+        record("glBindBuffer", target, buffer);
+    }
+
+    /**********************************************************************************************/
+    @Override
+    public void glBufferData(int target, int size, Buffer data, int usage) {
+        record("glBufferData", target, size);
+        lastData = data;
+    }
+
+    /**********************************************************************************************/
+    @Override
+    public void glBufferSubData(int target, int offset, int size, Buffer data) {
+        record("glBufferSubData", target, offset, size);
+        lastData = data;
+    }
+
+    /**********************************************************************************************/
+    @Override
+    public void glUseProgram(int program) {
+        record("glUseProgram", program);
+    }
+
+    /**********************************************************************************************/
+    @Override
+    public void glActiveTexture(int texture) {
+        record("glActiveTexture", texture);
+    }
+
+    /**********************************************************************************************/
+    @Override
+    public void glBindTexture(int target, int texture) {
+        record("glBindTexture", target, texture);
+    }
+
+    /**********************************************************************************************/
+    @Override
+    public int glGenTexture() {
+        record("glGenTexture");
+        return nextId++;
+    }
+
+    /**********************************************************************************************/
+    @Override
+    public void glDeleteTexture(int texture) {
+        record("glDeleteTexture", texture);
+    }
+
+    /**********************************************************************************************/
+    @Override
+    public void glTexParameteri(int target, int name, int param) {
+        record("glTexParameteri", target, name, param);
+    }
+
+    /**********************************************************************************************/
+    @Override
+    public void glTexImage2D(int target, int level, int format, int width, int height, int type, Buffer pixels) {
+        record("glTexImage2D", target, level, width, height);
+    }
+
+    /**********************************************************************************************/
+    @Override
+    public void glTexSubImage2D(int target, int level, int x, int y, int width, int height, int format, int type, Buffer pixels) {
+        record("glTexSubImage2D", target, level, x, y, width, height);
+    }
+
+    /**********************************************************************************************/
+    @Override
+    public void glEnableVertexAttribArray(int index) {
+        record("glEnableVertexAttribArray", index);
+    }
+
+    /**********************************************************************************************/
+    @Override
+    public void glDisableVertexAttribArray(int index) {
+        record("glDisableVertexAttribArray", index);
+    }
+}
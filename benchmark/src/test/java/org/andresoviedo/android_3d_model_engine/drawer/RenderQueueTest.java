@@ -0,0 +1,222 @@
+package org.andresoviedo.android_3d_model_engine.drawer;
+
+import android.opengl.GLES20;
+import android.opengl.Matrix;
+
+import org.andresoviedo.android_3d_model_engine.model.Object3DData;
+import org.andresoviedo.util.io.IOUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+/**************************************************************************************************/
+public class RenderQueueTest {
+    /**********************************************************************************************/
+    // a renderer that changes the state as GLES20Renderer does: the attribute arrays when the object is
+    // bound, and the texture of each element when it's drawn
+    private final class FakeDrawer implements Renderer, RenderQueue.Drawer {
+        private final int program;
+        private final int attributes;
+        private final Map<Object3DData, int[]> textures = new HashMap<>();
+        private final Set<Object3DData> transparent = new HashSet<>();
+        private int frameUniforms;
+
+        private FakeDrawer(int program, int attributes) {
+            this.program = program;
+            this.attributes = attributes;
+        }
+
+        // one texture per element
+        private Object3DData add(String id, float depth, int... textures) {
+            final Object3DData obj = object(id, depth);
+            this.textures.put(obj, textures);
+            return obj;
+        }
+
+        @Override
+        public int getProgram() {
+            return program;
+        }
+
+        @Override
+        public int getElementCount(Object3DData obj) {
+            final int[] textures = this.textures.get(obj);
+            return textures.length == 1 ? -1 : textures.length;
+        }
+
+        @Override
+        public int getTexture(Object3DData obj, int element, int textureId) {
+            return textures.get(obj)[Math.max(element, 0)];
+        }
+
+        @Override
+        public boolean isTransparent(Object3DData obj, int element) {
+            return transparent.contains(obj);
+        }
+
+        @Override
+        public void setFrameUniforms(float[] pMatrix, float[] vMatrix, float[] lightPosInWorldSpace, float[] colorMask, float[] cameraPos) {
+            frameUniforms++;
+        }
+
+        @Override
+        public void bindObject(Object3DData obj, int textureId) {
+            state.setAttributes(attributes);
+            binds++;
+        }
+
+        @Override
+        public void drawElement(Object3DData obj, int element, int textureId) {
+            state.bindTexture(GLES20.GL_TEXTURE_2D, getTexture(obj, element, textureId));
+            draws.add(element < 0 ? obj.getId() : obj.getId() + "/" + element);
+        }
+
+        @Override
+        public void draw(Object3DData obj, float[] pMatrix, float[] vMatrix, int textureId, float[] lightPosInWorldSpace, float[] cameraPos) {
+        }
+
+        @Override
+        public void draw(Object3DData obj, float[] pMatrix, float[] vMatrix, int textureId, float[] lightPosInWorldSpace, float[] colorMask, float[] cameraPos) {
+        }
+
+        @Override
+        public void draw(Object3DData obj, float[] pMatrix, float[] vMatrix, int drawType, int drawSize, int textureId, float[]
+                lightPosInWorldSpace, float[] colorMask, float[] cameraPos) {
+        }
+    }
+
+    /**********************************************************************************************/
+    private final float[] viewMatrix = new float[16];
+    /**********************************************************************************************/
+    private RecordingGLApi gl;
+    private GLState state;
+    private RenderQueue queue;
+    /**********************************************************************************************/
+    private final List<String> draws = new ArrayList<>();
+    private int binds;
+
+    /**********************************************************************************************/
+    @Before
+    public void setUp() {
+        gl = new RecordingGLApi();
+        state = new GLState(gl);
+        queue = new RenderQueue(state, new GLBufferCache(gl));
+        Matrix.setIdentityM(viewMatrix, 0);
+    }
+
+    /**********************************************************************************************/
+    @Test
+    public void sortsOpaqueByProgramTextureAndDepth() {
+        final FakeDrawer second = new FakeDrawer(2, 0b11);
+        final FakeDrawer first = new FakeDrawer(1, 0b11);
+        add(second, second.add("far", 9, 3));
+        add(second, second.add("other", 1, 7));
+        add(second, second.add("near", 2, 3));
+        add(first, first.add("first", 5, 9));
+        flush();
+
+        assertEquals(Arrays.asList("first", "near", "far", "other"), draws);
+    }
+
+    /**********************************************************************************************/
+    @Test
+    public void drawsTransparentAfterOpaqueBackToFront() {
+        final FakeDrawer first = new FakeDrawer(1, 0b11);
+        final FakeDrawer second = new FakeDrawer(2, 0b11);
+        final Object3DData near = first.add("near", 2, 1);
+        final Object3DData far = second.add("far", 8, 1);
+        first.transparent.add(near);
+        second.transparent.add(far);
+        add(first, near);
+        add(second, far);
+        add(second, second.add("opaque", 10, 1));
+        flush();
+
+        assertEquals(Arrays.asList("opaque", "far", "near"), draws);
+    }
+
+    /**********************************************************************************************/
+    @Test
+    public void dropsRedundantStateChanges() {
+        final FakeDrawer first = new FakeDrawer(1, 0b111);
+        final FakeDrawer second = new FakeDrawer(2, 0b011);
+        for (int i = 0; i < 8; i++) {
+            final FakeDrawer drawer = i % 2 == 0 ? first : second;
+            add(drawer, drawer.add("object" + i, i, 1 + (i / 2) % 2));
+        }
+        flush();
+
+        assertEquals(8, draws.size());
+        assertEquals(2, gl.count("glUseProgram"));
+        assertEquals(1, gl.count("glActiveTexture"));
+        // two textures for each program
+        assertEquals(4, gl.count("glBindTexture"));
+        // the arrays of the first program, then the one the second doesn't have is disabled, and the
+        // rest at the end of the frame
+        assertEquals(3, gl.count("glEnableVertexAttribArray"));
+        assertEquals(3, gl.count("glDisableVertexAttribArray"));
+        assertEquals(1, first.frameUniforms);
+        assertEquals(1, second.frameUniforms);
+    }
+
+    /**********************************************************************************************/
+    @Test
+    public void drawsElementsThatShareTextureTogether() {
+        final FakeDrawer drawer = new FakeDrawer(1, 0b1);
+        add(drawer, drawer.add("a", 1, 1, 2, 1, 2));
+        add(drawer, drawer.add("b", 2, 2, 1));
+        flush();
+
+        assertEquals(Arrays.asList("a/0", "a/2", "b/1", "a/1", "a/3", "b/0"), draws);
+        assertEquals(2, gl.count("glBindTexture"));
+        // a, b, and then a and b again for the second texture
+        assertEquals(4, binds);
+    }
+
+    /**********************************************************************************************/
+    @Test
+    public void startsEachFlushFromUnknownState() {
+        final FakeDrawer drawer = new FakeDrawer(1, 0b1);
+        final Object3DData obj = drawer.add("a", 1, 1);
+        add(drawer, obj);
+        flush();
+        add(drawer, obj);
+        flush();
+
+        // the program and the texture may have been changed in between
+        assertEquals(2, gl.count("glUseProgram"));
+        assertEquals(2, gl.count("glBindTexture"));
+        assertEquals(2, drawer.frameUniforms);
+        assertEquals(0, queue.size());
+    }
+
+    /**********************************************************************************************/
+    private void add(FakeDrawer drawer, Object3DData obj) {
+        queue.add(drawer, obj, -1, viewMatrix, null);
+    }
+
+    /**********************************************************************************************/
+    private void flush() {
+        queue.flush(viewMatrix, viewMatrix, null, null, null);
+    }
+
+    /**********************************************************************************************/
+    // a triangle at that distance in front of the camera
+    private static Object3DData object(String id, float depth) {
+        final FloatBuffer vertices = IOUtils.createFloatBuffer(9);
+        vertices.put(new float[]{-1, -1, 0, 1, -1, 0, 0, 1, 0}).position(0);
+        final Object3DData ret = new Object3DData(vertices);
+        ret.setId(id);
+        ret.setLocation(new float[]{0, 0, -depth});
+        return ret;
+    }
+}
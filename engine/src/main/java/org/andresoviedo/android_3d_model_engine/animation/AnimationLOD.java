@@ -0,0 +1,130 @@
+package org.andresoviedo.android_3d_model_engine.animation;
+/**************************************************************************************************/
+import android.opengl.Matrix;
+import android.os.SystemClock;
+
+import org.andresoviedo.android_3d_model_engine.collision.Frustum;
+import org.andresoviedo.android_3d_model_engine.model.AnimatedModel;
+import org.andresoviedo.android_3d_model_engine.model.Dimensions;
+import org.andresoviedo.android_3d_model_engine.model.Object3DData;
+
+import java.util.List;
+/**************************************************************************************************/
+// how much animation each model gets, from where it is on the screen. the hidden ones and the ones out
+// of the view are not posed, the small ones are posed every few frames and interpolated in between, and
+// the bones that would be too small to see are left out. it runs before the Animator, once per frame
+public final class AnimationLOD {
+	/**********************************************************************************************/
+	// radius on the screen (in pixels) down to which a model is posed every frame. it is posed half as
+	// often each time it halves
+	private static final float FULL_RATE_PIXELS = 100;
+	private static final int MAX_INTERVAL = 8;
+	// bones that reach less than this on the screen are left out
+	private static final float MIN_BONE_PIXELS = 2;
+	// the dimensions are the ones of the bind pose. the poses may go a bit out of them
+	private static final float POSE_MARGIN = 1.5f;
+	/**********************************************************************************************/
+	private final Frustum frustum = new Frustum();
+	private final float[] viewProjectionMatrix = new float[16];
+	private final float[] corner = new float[8];
+	private final float[] corners = new float[24];
+	private final float[] center = new float[8];
+	/**********************************************************************************************/
+	private long lastUptime;
+	// of the last frame, in milliseconds
+	private long frameTime = 16;
+
+	/**********************************************************************************************/
+	public void update(List<Object3DData> objects, float[] viewMatrix, float[] projectionMatrix, int viewportHeight) {
+		final long uptime = SystemClock.uptimeMillis();
+		if (lastUptime > 0) {
+			frameTime = Math.max(1, Math.min(100, uptime - lastUptime));
+		}
+		lastUptime = uptime;
+
+		Matrix.multiplyMM(viewProjectionMatrix, 0, projectionMatrix, 0, viewMatrix, 0);
+		frustum.set(viewProjectionMatrix);
+
+		for (int i = 0; i < objects.size(); i++) {
+			final Object3DData obj = objects.get(i);
+			if (!(obj instanceof AnimatedModel)) continue;
+			final AnimationState state = ((AnimatedModel) obj).getAnimationState();
+			if (state == null) continue;
+			update((AnimatedModel) obj, state, projectionMatrix, viewportHeight);
+		}
+	}
+
+	/**********************************************************************************************/
+	private void update(AnimatedModel model, AnimationState state, float[] projectionMatrix, int viewportHeight) {
+		if (!model.isVisible()) {
+			state.setLevel(true, 0, 0);
+			return;
+		}
+
+		// bounding sphere of the bind pose, in model space
+		final Dimensions dimensions = model.getDimensions();
+		final float[] min = dimensions.getMin();
+		final float[] max = dimensions.getMax();
+		final float[] bindShape = model.getBindShapeMatrix();
+		corner[3] = 1;
+		center[4] = center[5] = center[6] = 0;
+		for (int c = 0; c < 8; c++) {
+			corner[0] = (c & 1) == 0 ? min[0] : max[0];
+			corner[1] = (c & 2) == 0 ? min[1] : max[1];
+			corner[2] = (c & 4) == 0 ? min[2] : max[2];
+			Matrix.multiplyMV(corner, 4, bindShape, 0, corner, 0);
+			System.arraycopy(corner, 4, corners, c * 3, 3);
+			center[4] += corner[4] / 8;
+			center[5] += corner[5] / 8;
+			center[6] += corner[6] / 8;
+		}
+		float localRadius = 0;
+		for (int c = 0; c < 24; c += 3) {
+			final float x = corners[c] - center[4];
+			final float y = corners[c + 1] - center[5];
+			final float z = corners[c + 2] - center[6];
+			localRadius = Math.max(localRadius, x * x + y * y + z * z);
+		}
+		localRadius = (float) Math.sqrt(localRadius) * POSE_MARGIN;
+
+		// in world space
+		final float[] modelMatrix = model.getModelMatrix();
+		center[7] = 1;
+		Matrix.multiplyMV(center, 0, modelMatrix, 0, center, 4);
+		final float scale = Math.max(Math.max(length(modelMatrix, 0), length(modelMatrix, 4)), length(modelMatrix, 8));
+		final float radius = localRadius * scale;
+
+		if (!frustum.intersectsSphere(center[0], center[1], center[2], radius)) {
+			state.setLevel(true, 0, 0);
+			return;
+		}
+
+		// radius on the screen
+		center[3] = 1;
+		Matrix.multiplyMV(center, 4, viewProjectionMatrix, 0, center, 0);
+		final float w = center[7];
+		if (w <= 0 || localRadius == 0) {
+			// the camera is in it
+			state.setLevel(false, 0, 0);
+			return;
+		}
+		final float pixelRadius = radius * projectionMatrix[5] / w * viewportHeight / 2;
+
+		int interval = 1;
+		while (interval < MAX_INTERVAL && pixelRadius * interval * 2 <= FULL_RATE_PIXELS) {
+			interval *= 2;
+		}
+
+		// pixels per unit of the model
+		final float pixelsPerUnit = pixelRadius / localRadius;
+		state.setLevel(false, interval > 1 ? interval * frameTime : 0,
+				pixelsPerUnit > 0 ? MIN_BONE_PIXELS / pixelsPerUnit : 0);
+	}
+
+	/**********************************************************************************************/
+	private static float length(float[] matrix, int offset) {
+		return (float) Math.sqrt(matrix[offset] * matrix[offset] + matrix[offset + 1] * matrix[offset + 1]
+				+ matrix[offset + 2] * matrix[offset + 2]);
+	}
+}
+/**************************************************************************************************/
@@ -0,0 +1,130 @@
+package org.andresoviedo.android_3d_model_engine.animation;
+/**************************************************************************************************/
+import org.andresoviedo.android_3d_model_engine.model.AnimatedModel;
+/**************************************************************************************************/
+// what is kept for each animated model: its compiled clip and the transforms of its joints, so different
+// models can be animated by different threads at the same time. it also has the level of detail the
+// model is animated with (see AnimationLOD)
+public final class AnimationState {
+	/**********************************************************************************************/
+	private final Clip clip;
+	/**********************************************************************************************/
+	// 16 floats per joint of the clip
+	private final float[] worldTransforms;
+	private final float[] poseTransforms;
+	/**********************************************************************************************/
+	// created the first time the model is skinned on the CPU
+	private Skinning skinning;
+	/**********************************************************************************************/
+	// level of detail
+	private boolean skipped;
+	private long period;
+	private float minExtent;
+	/**********************************************************************************************/
+	// with a period, the pose is evaluated ahead and the frames in between are interpolated from the
+	// pose that was shown when it was evaluated. allocated the first time
+	private float[] previousTransforms;
+	private float[] currentTransforms;
+	private long previousUptime;
+	private long targetUptime;
+	private boolean posed;
+	private boolean interpolated;
+
+	/**********************************************************************************************/
+	public AnimationState(Clip clip) {
+		this.clip = clip;
+		this.worldTransforms = new float[clip.getJointCount() * 16];
+		this.poseTransforms = new float[clip.getJointCount() * 16];
+	}
+
+	/**********************************************************************************************/
+	public Clip getClip() {
+		return clip;
+	}
+
+	/**********************************************************************************************/
+	// null unless the model is skinned on the CPU
+	public Skinning getSkinning() {
+		return skinning;
+	}
+
+	/**********************************************************************************************/
+	// the skinning of the model, with its current pose
+	Skinning prepareSkinning(AnimatedModel model) {
+		if (skinning == null) {
+			skinning = new Skinning(model);
+		}
+		skinning.setJointTransforms(model.getJointTransforms());
+		return skinning;
+	}
+
+	/**********************************************************************************************/
+	// skipped models are not posed at all. otherwise the pose is evaluated every period (in milliseconds,
+	// 0 is every frame), with the bones that reach less than minExtent (in model units) left out
+	public void setLevel(boolean skipped, long period, float minExtent) {
+		this.skipped = skipped;
+		this.period = Math.max(0, period);
+		this.minExtent = Math.max(0, minExtent);
+	}
+
+	/**********************************************************************************************/
+	public boolean isSkipped() {
+		return skipped;
+	}
+
+	/**********************************************************************************************/
+	public long getPeriod() {
+		return period;
+	}
+
+	/**********************************************************************************************/
+	// whether the pose has to be evaluated again at the uptime (in milliseconds)
+	boolean isDue(long uptime) {
+		return !posed || period == 0 || uptime >= targetUptime;
+	}
+
+	/**********************************************************************************************/
+	// evaluates the pose at the time (in seconds) that it will be shown at uptime + period. returns the
+	// number of joints evaluated
+	int evaluate(long uptime, float time) {
+		final int length = poseTransforms.length;
+		if (period > 0) {
+			if (previousTransforms == null) {
+				previousTransforms = new float[length];
+				currentTransforms = new float[length];
+			}
+			// it goes on from what is being shown
+			System.arraycopy(interpolated ? currentTransforms : poseTransforms, 0, previousTransforms, 0, length);
+			previousUptime = uptime;
+			targetUptime = uptime + period;
+		}
+		final int ret = clip.evaluate(time, worldTransforms, poseTransforms, minExtent);
+		if (!posed && period > 0) {
+			System.arraycopy(poseTransforms, 0, previousTransforms, 0, length);
+		}
+		posed = true;
+		return ret;
+	}
+
+	/**********************************************************************************************/
+	// the pose at the uptime into the joint transforms of the model, by bone index
+	void apply(long uptime, float[][] jointTransforms) {
+		float[] transforms = poseTransforms;
+		interpolated = period > 0 && targetUptime > previousUptime;
+		if (interpolated) {
+			final float progress = Math.min(1, Math.max(0,
+					(uptime - previousUptime) / (float) (targetUptime - previousUptime)));
+			for (int i = 0; i < transforms.length; i++) {
+				currentTransforms[i] = previousTransforms[i] + (poseTransforms[i] - previousTransforms[i]) * progress;
+			}
+			transforms = currentTransforms;
+		}
+		for (int i = 0; i < clip.getJointCount(); i++) {
+			final int bone = clip.getBone(i);
+			if (bone >= 0 && bone < jointTransforms.length) {
+				System.arraycopy(transforms, i * 16, jointTransforms[bone], 0, 16);
+			}
+		}
+	}
+}
+/**************************************************************************************************/
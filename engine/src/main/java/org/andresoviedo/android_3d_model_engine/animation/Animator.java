@@ -1,60 +1,112 @@
 package org.andresoviedo.android_3d_model_engine.animation;
 /**************************************************************************************************/
-import android.opengl.Matrix;
 import android.os.SystemClock;
 import android.util.Log;
 
+import org.andresoviedo.android_3d_model_engine.collision.BVH;
 import org.andresoviedo.android_3d_model_engine.model.AnimatedModel;
 import org.andresoviedo.android_3d_model_engine.model.Object3DData;
-import org.andresoviedo.util.math.Math3DUtils;
 
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 /**************************************************************************************************/
+// the state of each animation is kept in its model, so the same animator can update different models
+// from different threads at the same time (see ParallelAnimator)
 public class Animator {
-	/**********************************************************************************************/
-	private float animationTime = 0;
 	/**********************************************************************************************/
 	private float speed = 1f;
 	/**********************************************************************************************/
-	private final Map<String, Object> cache = new HashMap<>();
-	/**********************************************************************************************/
-	private final Map<String, float[]> currentPose = new HashMap<>();
-	;
-	private KeyFrame[] previousAndNextKeyFrames = new KeyFrame[2];
+	// joints posed and left as they were (see AnimationLOD) since the counters were reset
+	private final AtomicInteger evaluatedJoints = new AtomicInteger();
+	private final AtomicInteger skippedJoints = new AtomicInteger();
 
 	/**********************************************************************************************/
 	public Animator() {
 	}
 
+	/**********************************************************************************************/
+	public int getEvaluatedJoints() {
+		return evaluatedJoints.get();
+	}
+
+	/**********************************************************************************************/
+	public int getSkippedJoints() {
+		return skippedJoints.get();
+	}
+
+	/**********************************************************************************************/
+	// once per frame, before the models are updated
+	public void resetCounters() {
+		evaluatedJoints.set(0);
+		skippedJoints.set(0);
+	}
+
 	/**********************************************************************************************/
 	public void update(Object3DData obj, boolean bindPoseOnly) {
+		final Skinning skinning = pose(obj, bindPoseOnly);
+		if (skinning != null) {
+			skinning.skin(0, skinning.getVertexCount());
+		}
+	}
+
+	/**********************************************************************************************/
+	// returns the skinning still to be done, if the model is skinned on the CPU
+	Skinning pose(Object3DData obj, boolean bindPoseOnly) {
 		if (!(obj instanceof AnimatedModel)) {
-			return;
+			return null;
 		}
 
 		AnimatedModel animatedModel = (AnimatedModel) obj;
 
-		if (animatedModel.getAnimation() == null) return;
+		if (animatedModel.getAnimation() == null) return null;
 
 		initAnimation(animatedModel);
 
-		increaseAnimationTime((AnimatedModel) obj);
+		final AnimationState state = getState(animatedModel);
+		final int jointCount = state.getClip().getJointCount();
+		if (state.isSkipped()) {
+			skippedJoints.addAndGet(jointCount);
+			return null;
+		}
+
+		final long uptime = SystemClock.uptimeMillis();
+		if (state.isDue(uptime)) {
+			final int evaluated = state.evaluate(uptime, getAnimationTime(animatedModel, uptime + state.getPeriod()));
+			evaluatedJoints.addAndGet(evaluated);
+			skippedJoints.addAndGet(jointCount - evaluated);
+		} else {
+			skippedJoints.addAndGet(jointCount);
+		}
+		state.apply(uptime, animatedModel.getJointTransforms());
 
-		Map<String, float[]> currentPose = calculateCurrentAnimationPose(animatedModel);
+		// models that have been picked keep their BVH in the current pose
+		final BVH bvh = animatedModel.getBVH();
+		if (bvh != null) {
+			bvh.refit(animatedModel);
+		}
 
-		applyPoseToJoints(animatedModel, currentPose, animatedModel.getRootJoint(), Math3DUtils.IDENTITY_MATRIX,
-				Integer.MAX_VALUE);
+		return animatedModel.isCpuSkinning() ? state.prepareSkinning(animatedModel) : null;
 	}
 
 	/**********************************************************************************************/
 	private void initAnimation(AnimatedModel animatedModel) {
-		if (animatedModel.getAnimation().isInitialized()) {
+		final Animation animation = animatedModel.getAnimation();
+		if (animation.isInitialized()) {
 			return;
 		}
 
+		// the key frames may be being written to the model cache by the loader thread
+		synchronized (animation) {
+			if (!animation.isInitialized()) {
+				completeKeyFrames(animatedModel);
+			}
+		}
+	}
+
+	/**********************************************************************************************/
+	private void completeKeyFrames(AnimatedModel animatedModel) {
 		final KeyFrame[] keyFrames = animatedModel.getAnimation().getKeyFrames();
 		Log.i("Animator", "Initializing " + animatedModel.getId() + ". " + keyFrames.length + " key frames...");
 
@@ -214,101 +266,24 @@ public class Animator {
 	}
 
 	/**********************************************************************************************/
-	private void increaseAnimationTime(AnimatedModel obj) {
-		this.animationTime = SystemClock.uptimeMillis() / 1000f * speed;
-		this.animationTime %= obj.getAnimation().getLength();
-	}
-
-	/**********************************************************************************************/
-	private Map<String, float[]> calculateCurrentAnimationPose(AnimatedModel obj) {
-		KeyFrame[] frames = getPreviousAndNextFrames(obj);
-		float progression = calculateProgression(frames[0], frames[1]);
-		return interpolatePoses(frames[0], frames[1], progression);
-	}
-
-	/**********************************************************************************************/
-	private void applyPoseToJoints(AnimatedModel animatedModel, Map<String, float[]> currentPose, Joint joint, float[]
-			parentTransform, int limit) {
-
-		float[] currentTransform = (float[]) cache.get(joint.getName());
-		if (currentTransform == null) {
-			currentTransform = new float[16];
-			cache.put(joint.getName(), currentTransform);
-		}
-
-		if (currentPose.get(joint.getName()) != null) {
-			Matrix.multiplyMM(currentTransform, 0, parentTransform, 0, currentPose.get(joint.getName()), 0);
-		} else {
-			Matrix.multiplyMM(currentTransform, 0, parentTransform, 0, joint.getBindLocalTransform(), 0);
-		}
-
-		if (limit >= 0) {
-			if (joint.getInverseBindTransform() == null)
-				Log.e("Animator", "joint with inverseBindTransform null: " + joint.getName() + ", index: " + joint.getIndex());
-			Matrix.multiplyMM(joint.getAnimatedTransform(), 0, currentTransform, 0, joint.getInverseBindTransform(), 0);
-		} else {
-			System.arraycopy(Math3DUtils.IDENTITY_MATRIX, 0, joint.getAnimatedTransform(), 0, 16);
-		}
-		if (joint.getIndex() != -1) {
-			animatedModel.updateAnimatedTransform(joint);
-		}
-
-		for (int i = 0; i < joint.getChildren().size(); i++) {
-			Joint childJoint = joint.getChildren().get(i);
-			applyPoseToJoints(animatedModel, currentPose, childJoint, currentTransform, limit - 1);
-		}
-	}
-
-	/**********************************************************************************************/
-	private KeyFrame[] getPreviousAndNextFrames(AnimatedModel obj) {
-		KeyFrame[] allFrames = obj.getAnimation().getKeyFrames();
-		KeyFrame previousFrame = allFrames[0];
-		KeyFrame nextFrame = allFrames[0];
-		for (int i = 1; i < allFrames.length; i++) {
-			nextFrame = allFrames[i];
-			if (nextFrame.getTimeStamp() > animationTime) {
-				break;
-			}
-			previousFrame = allFrames[i];
-		}
-		previousAndNextKeyFrames[0] = previousFrame;
-		previousAndNextKeyFrames[1] = nextFrame;
-		return previousAndNextKeyFrames;
-	}
-
-	/**********************************************************************************************/
-	private float calculateProgression(KeyFrame previousFrame, KeyFrame nextFrame) {
-		float totalTime = nextFrame.getTimeStamp() - previousFrame.getTimeStamp();
-		float currentTime = animationTime - previousFrame.getTimeStamp();
-
-		return currentTime / totalTime * this.speed;
+	private float getAnimationTime(AnimatedModel obj, long uptime) {
+		return (float) (uptime / 1000.0 * speed % obj.getAnimation().getLength());
 	}
 
 	/**********************************************************************************************/
-	private Map<String, float[]> interpolatePoses(KeyFrame previousFrame, KeyFrame nextFrame, float progression) {
-		for (Map.Entry<String, JointTransform> entry : previousFrame.getTransforms().entrySet()) {
-
-			final String jointName = entry.getKey();
-			final JointTransform previousTransform = entry.getValue();
-
-			if (Math.signum(progression) == 0) {
-				currentPose.put(jointName, previousTransform.getMatrix());
-				continue;
-			}
-
-			float[] tempMatrix1 = (float[]) cache.get(jointName);
-			if (tempMatrix1 == null) {
-				tempMatrix1 = new float[16];
-				cache.put(jointName, tempMatrix1);
+	// the clip is compiled once per model, the first time it is animated
+	private static AnimationState getState(AnimatedModel animatedModel) {
+		AnimationState state = animatedModel.getAnimationState();
+		if (state == null) {
+			synchronized (animatedModel.getAnimation()) {
+				state = animatedModel.getAnimationState();
+				if (state == null) {
+					state = new AnimationState(Clip.compile(animatedModel.getAnimation(), animatedModel.getRootJoint()));
+					animatedModel.setAnimationState(state);
+				}
 			}
-
-			JointTransform nextTransform = nextFrame.getTransforms().get(jointName);
-
-			JointTransform.interpolate(previousTransform, nextTransform, progression, tempMatrix1);
-
-			currentPose.put(jointName, tempMatrix1);
 		}
-		return currentPose;
+		return state;
 	}
 	/**********************************************************************************************/
 }
@@ -0,0 +1,322 @@
+package org.andresoviedo.android_3d_model_engine.animation;
+/**************************************************************************************************/
+import android.opengl.Matrix;
+
+import org.andresoviedo.util.math.Math3DUtils;
+import org.andresoviedo.util.math.Quaternion;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+/**************************************************************************************************/
+// an animation compiled for a skeleton. the joints get dense indices, parents before children, and the
+// key frames are flat arrays of the translation, rotation (quaternion) and scale of every joint, so a
+// pose is evaluated with no maps and no allocation
+public final class Clip {
+	/**********************************************************************************************/
+	private final int jointCount;
+	// index of the parent joint, or -1
+	private final int[] parents;
+	// index of the joint transform in the model, or -1
+	private final int[] bones;
+	// whether the key frames move the joint. the others keep their bind transform
+	private final boolean[] animated;
+	// 16 floats per joint
+	private final float[] bindLocalTransforms;
+	private final float[] inverseBindTransforms;
+	// the joints of the subtree of each one go up to here (exclusive)
+	private final int[] subtreeEnds;
+	// how far the bones of the subtree of each joint reach, in the bind pose
+	private final float[] extents;
+	/**********************************************************************************************/
+	private final float[] times;
+	// (key * jointCount + joint) * 3, * 4 and * 3
+	private final float[] translations;
+	private final float[] rotations;
+	private final float[] scales;
+
+	/**********************************************************************************************/
+	private Clip(int jointCount, int keyCount) {
+		this.jointCount = jointCount;
+		this.parents = new int[jointCount];
+		this.bones = new int[jointCount];
+		this.animated = new boolean[jointCount];
+		this.bindLocalTransforms = new float[jointCount * 16];
+		this.inverseBindTransforms = new float[jointCount * 16];
+		this.subtreeEnds = new int[jointCount];
+		this.extents = new float[jointCount];
+		this.times = new float[keyCount];
+		this.translations = new float[keyCount * jointCount * 3];
+		this.rotations = new float[keyCount * jointCount * 4];
+		this.scales = new float[keyCount * jointCount * 3];
+	}
+
+	/**********************************************************************************************/
+	// the key frames must be complete (see Animator)
+	public static Clip compile(Animation animation, Joint rootJoint) {
+		final List<Joint> joints = new ArrayList<>();
+		final List<Integer> parents = new ArrayList<>();
+		if (rootJoint != null) {
+			addJoints(rootJoint, -1, joints, parents);
+		}
+
+		final KeyFrame[] keyFrames = animation.getKeyFrames();
+		final Clip ret = new Clip(joints.size(), keyFrames.length);
+		for (int j = 0; j < joints.size(); j++) {
+			final Joint joint = joints.get(j);
+			ret.parents[j] = parents.get(j);
+			ret.bones[j] = joint.getIndex();
+			copyMatrix(joint.getBindLocalTransform(), ret.bindLocalTransforms, j * 16);
+			copyMatrix(joint.getInverseBindTransform(), ret.inverseBindTransforms, j * 16);
+		}
+		computeExtents(ret);
+
+		final float[] matrix = new float[16];
+		for (int k = 0; k < keyFrames.length; k++) {
+			ret.times[k] = keyFrames[k].getTimeStamp();
+			final Map<String, JointTransform> transforms = keyFrames[k].getTransforms();
+			for (int j = 0; j < joints.size(); j++) {
+				final int key = k * joints.size() + j;
+				final JointTransform transform = transforms.get(joints.get(j).getName());
+				if (transform == null) {
+					// same as the previous key frame, or the identity
+					if (k > 0) {
+						System.arraycopy(ret.translations, key * 3 - joints.size() * 3, ret.translations, key * 3, 3);
+						System.arraycopy(ret.rotations, key * 4 - joints.size() * 4, ret.rotations, key * 4, 4);
+						System.arraycopy(ret.scales, key * 3 - joints.size() * 3, ret.scales, key * 3, 3);
+					} else {
+						ret.rotations[key * 4 + 3] = 1;
+						ret.scales[key * 3] = ret.scales[key * 3 + 1] = ret.scales[key * 3 + 2] = 1;
+					}
+					continue;
+				}
+				ret.animated[j] = true;
+				copyVector(transform.getLocation(), 0, ret.translations, key * 3);
+				copyVector(transform.getScale(), 1, ret.scales, key * 3);
+
+				Quaternion rotation = transform.getQRotation();
+				if (rotation == null) {
+					// the same order as JointTransform.interpolate()
+					final Float[] euler = transform.getRotation();
+					Matrix.setIdentityM(matrix, 0);
+					if (euler != null && euler[2] != null) Matrix.rotateM(matrix, 0, euler[2], 0, 0, 1);
+					if (euler != null && euler[1] != null) Matrix.rotateM(matrix, 0, euler[1], 0, 1, 0);
+					if (euler != null && euler[0] != null) Matrix.rotateM(matrix, 0, euler[0], 1, 0, 0);
+					rotation = Quaternion.fromMatrix(matrix);
+				}
+				ret.rotations[key * 4] = rotation.getX();
+				ret.rotations[key * 4 + 1] = rotation.getY();
+				ret.rotations[key * 4 + 2] = rotation.getZ();
+				ret.rotations[key * 4 + 3] = rotation.getW();
+			}
+		}
+		return ret;
+	}
+
+	/**********************************************************************************************/
+	private static void addJoints(Joint joint, int parent, List<Joint> joints, List<Integer> parents) {
+		final int index = joints.size();
+		joints.add(joint);
+		parents.add(parent);
+		for (int i = 0; i < joint.getChildren().size(); i++) {
+			addJoints(joint.getChildren().get(i), index, joints, parents);
+		}
+	}
+
+	/**********************************************************************************************/
+	private static void computeExtents(Clip clip) {
+		final int count = clip.jointCount;
+		final float[] positions = new float[count * 3];
+		final float[] matrix = new float[16];
+		for (int j = 0; j < count; j++) {
+			if (!Matrix.invertM(matrix, 0, clip.inverseBindTransforms, j * 16)) {
+				Matrix.setIdentityM(matrix, 0);
+			}
+			System.arraycopy(matrix, 12, positions, j * 3, 3);
+		}
+
+		// children come after their parents, so the subtrees are done backwards
+		for (int j = count - 1; j >= 0; j--) {
+			int end = j + 1;
+			while (end < count && isDescendant(clip.parents, end, j)) {
+				end = clip.subtreeEnds[end];
+			}
+			clip.subtreeEnds[j] = end;
+
+			// a leaf reaches as far as its bone
+			final int parent = clip.parents[j];
+			float extent = parent != -1 ? distance(positions, j, parent) : 0;
+			for (int d = j + 1; d < end; d++) {
+				extent = Math.max(extent, distance(positions, j, d));
+			}
+			clip.extents[j] = extent;
+		}
+	}
+
+	/**********************************************************************************************/
+	private static boolean isDescendant(int[] parents, int joint, int ancestor) {
+		for (int parent = parents[joint]; parent != -1; parent = parents[parent]) {
+			if (parent == ancestor) return true;
+		}
+		return false;
+	}
+
+	/**********************************************************************************************/
+	private static float distance(float[] positions, int a, int b) {
+		final float x = positions[a * 3] - positions[b * 3];
+		final float y = positions[a * 3 + 1] - positions[b * 3 + 1];
+		final float z = positions[a * 3 + 2] - positions[b * 3 + 2];
+		return (float) Math.sqrt(x * x + y * y + z * z);
+	}
+
+	/**********************************************************************************************/
+	private static void copyMatrix(float[] matrix, float[] ret, int offset) {
+		System.arraycopy(matrix != null ? matrix : Math3DUtils.IDENTITY_MATRIX, 0, ret, offset, 16);
+	}
+
+	/**********************************************************************************************/
+	private static void copyVector(Float[] vector, float missing, float[] ret, int offset) {
+		for (int i = 0; i < 3; i++) {
+			ret[offset + i] = vector != null && vector[i] != null ? vector[i] : missing;
+		}
+	}
+
+	/**********************************************************************************************/
+	public int getJointCount() {
+		return jointCount;
+	}
+
+	/**********************************************************************************************/
+	public int getBone(int joint) {
+		return bones[joint];
+	}
+
+	/**********************************************************************************************/
+	// skinning transform of every joint at the time (in seconds) into pose, 16 floats per joint.
+	// world is scratch of the same size, and ends with the transform of the joints in model space
+	public void evaluate(float time, float[] world, float[] pose) {
+		evaluate(time, world, pose, 0);
+	}
+
+	/**********************************************************************************************/
+	// the same, but the subtrees that reach less than minExtent (in model units) aren't evaluated. they
+	// follow their parent, as if they were in the bind pose. returns the number of joints evaluated
+	public int evaluate(float time, float[] world, float[] pose, float minExtent) {
+		if (times.length == 0) {
+			for (int j = 0; j < jointCount; j++) {
+				System.arraycopy(bindLocalTransforms, j * 16, pose, j * 16, 16);
+				concatenate(j, world, pose);
+			}
+			return jointCount;
+		}
+
+		// first key frame after the time. the last one holds until the end of the animation
+		int low = 0;
+		int high = times.length;
+		while (low < high) {
+			final int middle = (low + high) >>> 1;
+			if (times[middle] > time) {
+				high = middle;
+			} else {
+				low = middle + 1;
+			}
+		}
+		final int previous = Math.max(0, low - 1);
+		final int next = Math.min(low, times.length - 1);
+		float progression = 0;
+		if (next != previous) {
+			progression = (time - times[previous]) / (times[next] - times[previous]);
+			progression = Math.max(0, Math.min(1, progression));
+		}
+
+		int evaluated = 0;
+		for (int j = 0; j < jointCount; ) {
+			final int parent = parents[j];
+			if (parent != -1 && extents[j] < minExtent) {
+				// in the bind pose the skinning transform of a joint is the one of its parent
+				for (int d = j; d < subtreeEnds[j]; d++) {
+					System.arraycopy(pose, parent * 16, pose, d * 16, 16);
+				}
+				j = subtreeEnds[j];
+				continue;
+			}
+			if (animated[j]) {
+				interpolate(previous * jointCount + j, next * jointCount + j, progression, pose, j * 16);
+			} else {
+				System.arraycopy(bindLocalTransforms, j * 16, pose, j * 16, 16);
+			}
+			concatenate(j, world, pose);
+			evaluated++;
+			j++;
+		}
+		return evaluated;
+	}
+
+	/**********************************************************************************************/
+	// the local transform of the joint is in pose. parents are done before their children
+	private void concatenate(int joint, float[] world, float[] pose) {
+		final int offset = joint * 16;
+		if (parents[joint] == -1) {
+			System.arraycopy(pose, offset, world, offset, 16);
+		} else {
+			Matrix.multiplyMM(world, offset, world, parents[joint] * 16, pose, offset);
+		}
+		Matrix.multiplyMM(pose, offset, world, offset, inverseBindTransforms, offset);
+	}
+
+	/**********************************************************************************************/
+	// translation * rotation * scale, as JointTransform.interpolate()
+	private void interpolate(int a, int b, float progression, float[] ret, int offset) {
+		final float tx = lerp(translations[a * 3], translations[b * 3], progression);
+		final float ty = lerp(translations[a * 3 + 1], translations[b * 3 + 1], progression);
+		final float tz = lerp(translations[a * 3 + 2], translations[b * 3 + 2], progression);
+		final float sx = lerp(scales[a * 3], scales[b * 3], progression);
+		final float sy = lerp(scales[a * 3 + 1], scales[b * 3 + 1], progression);
+		final float sz = lerp(scales[a * 3 + 2], scales[b * 3 + 2], progression);
+
+		// normalized lerp, through the shortest arc
+		final float ax = rotations[a * 4], ay = rotations[a * 4 + 1], az = rotations[a * 4 + 2], aw = rotations[a * 4 + 3];
+		float bx = rotations[b * 4], by = rotations[b * 4 + 1], bz = rotations[b * 4 + 2], bw = rotations[b * 4 + 3];
+		if (ax * bx + ay * by + az * bz + aw * bw < 0) {
+			bx = -bx;
+			by = -by;
+			bz = -bz;
+			bw = -bw;
+		}
+		float x = lerp(ax, bx, progression);
+		float y = lerp(ay, by, progression);
+		float z = lerp(az, bz, progression);
+		float w = lerp(aw, bw, progression);
+		final float length = (float) Math.sqrt(x * x + y * y + z * z + w * w);
+		if (length > 0) {
+			x /= length;
+			y /= length;
+			z /= length;
+			w /= length;
+		}
+
+		// the same layout as Quaternion.toRotationMatrix(), with the columns scaled
+		ret[offset] = (1 - 2 * (y * y + z * z)) * sx;
+		ret[offset + 1] = 2 * (x * y - z * w) * sx;
+		ret[offset + 2] = 2 * (x * z + y * w) * sx;
+		ret[offset + 3] = 0;
+		ret[offset + 4] = 2 * (x * y + z * w) * sy;
+		ret[offset + 5] = (1 - 2 * (x * x + z * z)) * sy;
+		ret[offset + 6] = 2 * (y * z - x * w) * sy;
+		ret[offset + 7] = 0;
+		ret[offset + 8] = 2 * (x * z - y * w) * sz;
+		ret[offset + 9] = 2 * (y * z + x * w) * sz;
+		ret[offset + 10] = (1 - 2 * (x * x + y * y)) * sz;
+		ret[offset + 11] = 0;
+		ret[offset + 12] = tx;
+		ret[offset + 13] = ty;
+		ret[offset + 14] = tz;
+		ret[offset + 15] = 1;
+	}
+
+	/**********************************************************************************************/
+	private static float lerp(float a, float b, float progression) {
+		return a + (b - a) * progression;
+	}
+}
+/**************************************************************************************************/
@@ -46,6 +46,16 @@ public class JointTransform {
         return new JointTransform(null, (Float[]) null, location);
     }
 
+    /**********************************************************************************************/
+    public static JointTransform of(Float[] scale, Float[] rotation, Quaternion qRotation, Float[] location) {
+        if (qRotation == null) {
+            return new JointTransform(scale, rotation, location);
+        }
+        final JointTransform ret = new JointTransform(scale, qRotation, location);
+        ret.rotation = rotation;
+        return ret;
+    }
+
     /**********************************************************************************************/
     static JointTransform ofNull() {
         return new JointTransform(new Float[]{1f, 1f, 1f}, new Float[3], new Float[3]);
@@ -16,12 +16,12 @@ public class KeyFrame {
 	}
 
 	/**********************************************************************************************/
-	protected float getTimeStamp() {
+	public float getTimeStamp() {
 		return timeStamp;
 	}
 
 	/**********************************************************************************************/
-	protected Map<String, JointTransform> getTransforms() {
+	public Map<String, JointTransform> getTransforms() {
 		return pose;
 	}
 
@@ -0,0 +1,148 @@
+package org.andresoviedo.android_3d_model_engine.animation;
+/**************************************************************************************************/
+import org.andresoviedo.android_3d_model_engine.model.Object3DData;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+/**************************************************************************************************/
+// poses the models of a frame on worker threads, one model at a time each, then skins the vertices of
+// the ones skinned on the CPU by ranges. it returns when all of them are done, so the renderer only has
+// to upload the results
+public final class ParallelAnimator {
+	/**********************************************************************************************/
+	// vertices skinned by a thread each time, for the models skinned on the CPU
+	private static final int VERTICES_PER_TASK = 4096;
+	/**********************************************************************************************/
+	private final Animator animator;
+	/**********************************************************************************************/
+	private final int threads;
+	private final ExecutorService executor;
+	/**********************************************************************************************/
+	// skinning of each model of the frame, and the first of its tasks
+	private Skinning[] skinnings = new Skinning[0];
+	private int[] firstTasks = new int[0];
+
+	/**********************************************************************************************/
+	public ParallelAnimator(Animator animator) {
+		this(animator, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**********************************************************************************************/
+	// the calling thread is one of them
+	public ParallelAnimator(Animator animator, int threads) {
+		this.animator = animator;
+		this.threads = Math.max(1, threads);
+		this.executor = this.threads > 1 ? newExecutor(this.threads - 1) : null;
+	}
+
+	/**********************************************************************************************/
+	private static ExecutorService newExecutor(int threads) {
+		final AtomicInteger counter = new AtomicInteger();
+		return Executors.newFixedThreadPool(threads, runnable -> {
+			final Thread thread = new Thread(runnable, "Animator-" + counter.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**********************************************************************************************/
+	// the tasks already running finish. the frames after this are posed on the calling thread
+	public void shutdown() {
+		if (executor != null) {
+			executor.shutdown();
+		}
+	}
+
+	/**********************************************************************************************/
+	public void update(List<Object3DData> objects, boolean bindPoseOnly) {
+		final int count = objects.size();
+		if (skinnings.length < count) {
+			skinnings = new Skinning[count];
+			firstTasks = new int[count + 1];
+		}
+		final Skinning[] skinnings = this.skinnings;
+		final int[] firstTasks = this.firstTasks;
+
+		run(count, i -> skinnings[i] = animator.pose(objects.get(i), bindPoseOnly));
+
+		// then the vertices of the models skinned on the CPU, by ranges
+		int tasks = 0;
+		for (int i = 0; i < count; i++) {
+			firstTasks[i] = tasks;
+			if (skinnings[i] != null) {
+				tasks += (skinnings[i].getVertexCount() + VERTICES_PER_TASK - 1) / VERTICES_PER_TASK;
+			}
+		}
+		firstTasks[count] = tasks;
+		if (tasks > 0) {
+			run(tasks, task -> {
+				// the last model whose tasks start at or before this one
+				int low = 0;
+				int high = count;
+				while (high - low > 1) {
+					final int middle = (low + high) >>> 1;
+					if (firstTasks[middle] <= task) {
+						low = middle;
+					} else {
+						high = middle;
+					}
+				}
+				final Skinning skinning = skinnings[low];
+				final int first = (task - firstTasks[low]) * VERTICES_PER_TASK;
+				skinning.skin(first, Math.min(skinning.getVertexCount(), first + VERTICES_PER_TASK));
+			});
+		}
+		Arrays.fill(skinnings, 0, count, null);
+	}
+
+	/**********************************************************************************************/
+	private interface Task {
+		void run(int index);
+	}
+
+	/**********************************************************************************************/
+	// returns when all the tasks are done
+	private void run(int count, Task task) {
+		if (executor == null || executor.isShutdown() || count <= 1) {
+			for (int i = 0; i < count; i++) {
+				task.run(i);
+			}
+			return;
+		}
+
+		// the threads take the next task until there are none left
+		final AtomicInteger next = new AtomicInteger();
+		final Runnable worker = () -> {
+			for (int i = next.getAndIncrement(); i < count; i = next.getAndIncrement()) {
+				task.run(i);
+			}
+		};
+		final List<Future<?>> futures = new ArrayList<>();
+		try {
+			for (int i = 0; i < Math.min(threads - 1, count - 1); i++) {
+				futures.add(executor.submit(worker));
+			}
+		} catch (RejectedExecutionException ex) {
+			// shut down meanwhile. this thread takes the tasks left
+		}
+		worker.run();
+		try {
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(ex);
+		} catch (ExecutionException ex) {
+			throw new RuntimeException(ex.getCause());
+		}
+	}
+}
+/**************************************************************************************************/
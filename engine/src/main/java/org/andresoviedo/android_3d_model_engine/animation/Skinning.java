@@ -0,0 +1,169 @@
+package org.andresoviedo.android_3d_model_engine.animation;
+/**************************************************************************************************/
+import android.opengl.Matrix;
+
+import org.andresoviedo.android_3d_model_engine.model.AnimatedModel;
+import org.andresoviedo.util.io.IOUtils;
+
+import java.nio.FloatBuffer;
+/**************************************************************************************************/
+// the pose applied to the vertices and normals on the CPU, as the animation shaders do, for the models
+// that have more bones than the shader has joint transforms for. the vertex data is copied once into
+// packed arrays, and ranges of vertices can be skinned by different threads
+public final class Skinning {
+	/**********************************************************************************************/
+	private final int vertexCount;
+	// xyz of every vertex, with the bind shape matrix already applied
+	private final float[] positions;
+	private final float[] normals;
+	// 3 per vertex
+	private final int[] joints;
+	private final float[] weights;
+	/**********************************************************************************************/
+	// 16 floats per bone
+	private float[] jointTransforms = new float[0];
+	private int boneCount;
+	/**********************************************************************************************/
+	private final float[] skinnedPositions;
+	private final float[] skinnedNormals;
+	private final FloatBuffer vertexBuffer;
+	private final FloatBuffer normalsBuffer;
+
+	/**********************************************************************************************/
+	public Skinning(AnimatedModel model) {
+		final FloatBuffer vertices = model.getVertexBuffer().asReadOnlyBuffer();
+		final FloatBuffer normals = model.getNormalsBuffer() != null ? model.getNormalsBuffer().asReadOnlyBuffer() : null;
+		final FloatBuffer jointIds = model.getJointIds().asReadOnlyBuffer();
+		final FloatBuffer weights = model.getVertexWeights().asReadOnlyBuffer();
+		final float[] bindShape = model.getBindShapeMatrix();
+
+		this.vertexCount = vertices.capacity() / 3;
+		this.positions = new float[vertexCount * 3];
+		this.normals = normals != null ? new float[vertexCount * 3] : null;
+		this.joints = new int[vertexCount * 3];
+		this.weights = new float[vertexCount * 3];
+
+		final float[] vector = new float[8];
+		for (int i = 0; i < vertexCount * 3; i += 3) {
+			vector[0] = vertices.get(i);
+			vector[1] = vertices.get(i + 1);
+			vector[2] = vertices.get(i + 2);
+			vector[3] = 1;
+			Matrix.multiplyMV(vector, 4, bindShape, 0, vector, 0);
+			System.arraycopy(vector, 4, positions, i, 3);
+
+			if (normals != null) {
+				vector[0] = normals.get(i);
+				vector[1] = normals.get(i + 1);
+				vector[2] = normals.get(i + 2);
+				vector[3] = 0;
+				Matrix.multiplyMV(vector, 4, bindShape, 0, vector, 0);
+				System.arraycopy(vector, 4, this.normals, i, 3);
+			}
+
+			for (int j = 0; j < 3; j++) {
+				this.joints[i + j] = (int) jointIds.get(i + j);
+				this.weights[i + j] = weights.get(i + j);
+			}
+		}
+
+		this.skinnedPositions = new float[vertexCount * 3];
+		this.skinnedNormals = normals != null ? new float[vertexCount * 3] : null;
+		this.vertexBuffer = IOUtils.createFloatBuffer(vertexCount * 3);
+		this.normalsBuffer = normals != null ? IOUtils.createFloatBuffer(vertexCount * 3) : null;
+	}
+
+	/**********************************************************************************************/
+	public int getVertexCount() {
+		return vertexCount;
+	}
+
+	/**********************************************************************************************/
+	// the skinned vertices, to draw instead of the ones of the model
+	public FloatBuffer getVertexBuffer() {
+		return vertexBuffer;
+	}
+
+	/**********************************************************************************************/
+	// null if the model has no normals
+	public FloatBuffer getNormalsBuffer() {
+		return normalsBuffer;
+	}
+
+	/**********************************************************************************************/
+	// the pose to skin with, by bone index. it must be set before the ranges are skinned
+	public void setJointTransforms(float[][] jointTransforms) {
+		if (this.jointTransforms.length < jointTransforms.length * 16) {
+			this.jointTransforms = new float[jointTransforms.length * 16];
+		}
+		for (int i = 0; i < jointTransforms.length; i++) {
+			System.arraycopy(jointTransforms[i], 0, this.jointTransforms, i * 16, 16);
+		}
+		this.boneCount = jointTransforms.length;
+	}
+
+	/**********************************************************************************************/
+	// vertices from first (inclusive) to last (exclusive). different ranges can be skinned at the same time
+	public void skin(int first, int last) {
+		final float[] matrices = this.jointTransforms;
+		final int bones = this.boneCount;
+		final boolean hasNormals = normals != null;
+		for (int v = first; v < last; v++) {
+			final int i = v * 3;
+
+			// blend of the joint transforms by weight. the last row is always 0, 0, 0, 1
+			float m0 = 0, m1 = 0, m2 = 0, m4 = 0, m5 = 0, m6 = 0, m8 = 0, m9 = 0, m10 = 0, m12 = 0, m13 = 0, m14 = 0;
+			for (int j = i; j < i + 3; j++) {
+				final float weight = weights[j];
+				final int joint = joints[j];
+				if (weight == 0 || joint < 0 || joint >= bones) continue;
+				final int m = joint * 16;
+				m0 += matrices[m] * weight;
+				m1 += matrices[m + 1] * weight;
+				m2 += matrices[m + 2] * weight;
+				m4 += matrices[m + 4] * weight;
+				m5 += matrices[m + 5] * weight;
+				m6 += matrices[m + 6] * weight;
+				m8 += matrices[m + 8] * weight;
+				m9 += matrices[m + 9] * weight;
+				m10 += matrices[m + 10] * weight;
+				m12 += matrices[m + 12] * weight;
+				m13 += matrices[m + 13] * weight;
+				m14 += matrices[m + 14] * weight;
+			}
+
+			final float x = positions[i], y = positions[i + 1], z = positions[i + 2];
+			skinnedPositions[i] = m0 * x + m4 * y + m8 * z + m12;
+			skinnedPositions[i + 1] = m1 * x + m5 * y + m9 * z + m13;
+			skinnedPositions[i + 2] = m2 * x + m6 * y + m10 * z + m14;
+
+			if (hasNormals) {
+				final float nx = normals[i], ny = normals[i + 1], nz = normals[i + 2];
+				float sx = m0 * nx + m4 * ny + m8 * nz;
+				float sy = m1 * nx + m5 * ny + m9 * nz;
+				float sz = m2 * nx + m6 * ny + m10 * nz;
+				final float length = sx * sx + sy * sy + sz * sz;
+				if (length > 0) {
+					final float inverse = (float) (1 / Math.sqrt(length));
+					sx *= inverse;
+					sy *= inverse;
+					sz *= inverse;
+				}
+				skinnedNormals[i] = sx;
+				skinnedNormals[i + 1] = sy;
+				skinnedNormals[i + 2] = sz;
+			}
+		}
+
+		// each range writes its own part of the buffers
+		final FloatBuffer vertices = vertexBuffer.duplicate();
+		vertices.position(first * 3);
+		vertices.put(skinnedPositions, first * 3, (last - first) * 3);
+		if (hasNormals) {
+			final FloatBuffer normals = normalsBuffer.duplicate();
+			normals.position(first * 3);
+			normals.put(skinnedNormals, first * 3, (last - first) * 3);
+		}
+	}
+}
+/**************************************************************************************************/
@@ -0,0 +1,652 @@
+package org.andresoviedo.android_3d_model_engine.collision;
+
+import android.util.Log;
+
+import org.andresoviedo.android_3d_model_engine.model.AnimatedModel;
+import org.andresoviedo.android_3d_model_engine.model.Element;
+import org.andresoviedo.android_3d_model_engine.model.Object3DData;
+
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+/**************************************************************************************************/
+// bounding volume hierarchy of the triangles of a model, split with the surface area heuristic.
+// nodes and triangles are kept in flat arrays, so a query does not chase any object
+public final class BVH {
+    /**********************************************************************************************/
+    private static final int BINS = 12;
+    private static final int MAX_LEAF_SIZE = 4;
+    static final int MAX_DEPTH = 64;
+    // node and ray mask of the 2 children of every level, in the packet traversal
+    static final int PACKET_STACK_SIZE = MAX_DEPTH * 4 + 2;
+    /**********************************************************************************************/
+    // relative cost of visiting a node against testing a triangle
+    private static final float TRAVERSAL_COST = 1f;
+
+    /**********************************************************************************************/
+    // xyz of the 3 vertices of each triangle, in leaf order. object coordinates
+    private final float[] triangles;
+    /**********************************************************************************************/
+    // original index of each triangle
+    private final int[] triangleIndices;
+    /**********************************************************************************************/
+    // vertex of each corner of the triangles, in leaf order. only kept by the models that are refitted
+    private final int[] corners;
+    /**********************************************************************************************/
+    // min xyz and max xyz of each node
+    private float[] bounds;
+    /**********************************************************************************************/
+    // leaf: first triangle and triangle count. inner node: first child (the second follows) and 0
+    private int[] nodes;
+    private int nodeCount;
+    /**********************************************************************************************/
+    // queries share the read lock. a refit takes the write lock
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    /**********************************************************************************************/
+    // posed vertices of the last refit, reused
+    private float[] vertices;
+
+    /**********************************************************************************************/
+    // the triangles (xyz of the 3 vertices of each one) are sorted in place and kept
+    public BVH(float[] triangles) {
+        this(triangles, null);
+    }
+
+    /**********************************************************************************************/
+    private BVH(float[] triangles, int[] corners) {
+        final int count = triangles.length / 9;
+        final int[] order = new int[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+
+        // leaves hold a few triangles, so there are about as many nodes as triangles
+        this.bounds = new float[Math.max(1, count) * 6];
+        this.nodes = new int[Math.max(1, count) * 2];
+        this.nodeCount = 1;
+
+        // the build only looks at the box and the centroid of each triangle
+        final float[] boxes = new float[count * 6];
+        final float[] centroids = new float[count * 3];
+        for (int i = 0; i < count; i++) {
+            for (int j = 0; j < 3; j++) {
+                final float a = triangles[i * 9 + j], b = triangles[i * 9 + 3 + j], c = triangles[i * 9 + 6 + j];
+                boxes[i * 6 + j] = Math.min(a, Math.min(b, c));
+                boxes[i * 6 + 3 + j] = Math.max(a, Math.max(b, c));
+                centroids[i * 3 + j] = (a + b + c) / 3;
+            }
+        }
+
+        build(boxes, centroids, order, 0, 0, count, 0, new Bins());
+
+        sort(triangles, order);
+        this.triangles = triangles;
+        this.triangleIndices = order;
+
+        if (corners != null) {
+            this.corners = new int[count * 3];
+            for (int i = 0; i < count; i++) {
+                System.arraycopy(corners, order[i] * 3, this.corners, i * 3, 3);
+            }
+        } else {
+            this.corners = null;
+        }
+
+        if (bounds.length > nodeCount * 6) {
+            this.bounds = Arrays.copyOf(bounds, nodeCount * 6);
+            this.nodes = Arrays.copyOf(nodes, nodeCount * 2);
+        }
+    }
+
+    /**********************************************************************************************/
+    // moves the triangle order[i] to i, following the cycles of the permutation
+    private static void sort(float[] triangles, int[] order) {
+        final boolean[] done = new boolean[order.length];
+        final float[] temp = new float[9];
+        for (int i = 0; i < order.length; i++) {
+            if (done[i]) continue;
+            System.arraycopy(triangles, i * 9, temp, 0, 9);
+            int j = i;
+            while (order[j] != i) {
+                System.arraycopy(triangles, order[j] * 9, triangles, j * 9, 9);
+                done[j] = true;
+                j = order[j];
+            }
+            System.arraycopy(temp, 0, triangles, j * 9, 9);
+            done[j] = true;
+        }
+    }
+
+    /**********************************************************************************************/
+    // the BVH is built in object coordinates, so it is still valid after the model is moved, rotated
+    // or scaled. animated models keep their corners, to be refitted to every new pose
+    static BVH build(Object3DData object) {
+        Log.i("BVH", "Building BVH for " + object.getId());
+        final long start = System.currentTimeMillis();
+        final int[] corners = getCorners(object);
+        final float[] triangles = new float[corners.length * 3];
+        final FloatBuffer buffer = object.getVertexBuffer().asReadOnlyBuffer();
+        for (int i = 0; i < corners.length; i++) {
+            triangles[i * 3] = buffer.get(corners[i] * 3);
+            triangles[i * 3 + 1] = buffer.get(corners[i] * 3 + 1);
+            triangles[i * 3 + 2] = buffer.get(corners[i] * 3 + 2);
+        }
+        final BVH ret = new BVH(triangles, object instanceof AnimatedModel ? corners : null);
+        Log.i("BVH", "Built BVH for " + object.getId() + ". triangles: " + ret.getTriangleCount()
+                + ", nodes: " + ret.nodeCount + ", time: " + (System.currentTimeMillis() - start) + " ms");
+        return ret;
+    }
+
+    /**********************************************************************************************/
+    // vertex of each corner of every triangle of the model
+    private static int[] getCorners(Object3DData object) {
+        final IntBuffer drawOrder = object.getDrawOrder() != null ? object.getDrawOrder().asReadOnlyBuffer() : null;
+        final List<Element> elements = object.getElements();
+
+        if (drawOrder == null && elements != null) {
+            int count = 0;
+            for (int i = 0; i < elements.size(); i++) {
+                count += elements.get(i).getIndexBuffer().capacity() / 3;
+            }
+            final int[] ret = new int[count * 3];
+            int offset = 0;
+            for (int e = 0; e < elements.size(); e++) {
+                final IntBuffer indexBuffer = elements.get(e).getIndexBuffer().asReadOnlyBuffer();
+                final int end = indexBuffer.capacity() / 3 * 3;
+                for (int i = 0; i < end; i++) {
+                    ret[offset++] = indexBuffer.get(i);
+                }
+            }
+            return ret;
+        } else if (drawOrder == null) {
+            final int[] ret = new int[object.getVertexBuffer().capacity() / 9 * 3];
+            for (int i = 0; i < ret.length; i++) {
+                ret[i] = i;
+            }
+            return ret;
+        } else {
+            final int[] ret = new int[drawOrder.capacity() / 3 * 3];
+            for (int i = 0; i < ret.length; i++) {
+                ret[i] = drawOrder.get(i);
+            }
+            return ret;
+        }
+    }
+
+    /**********************************************************************************************/
+    // moves the triangles of the animated model to its current pose and updates the bounds of the nodes.
+    // the tree is kept, so it gets looser the farther the pose is from the one it was built with
+    public void refit(AnimatedModel model) {
+        if (corners == null || model.getJointIds() == null || model.getVertexWeights() == null) return;
+        final int size = model.getVertexBuffer().capacity();
+        if (vertices == null || vertices.length != size) {
+            vertices = new float[size];
+        }
+        model.getPoseVertices(vertices);
+        refit(vertices);
+    }
+
+    /**********************************************************************************************/
+    // new xyz of every vertex of the model the BVH was built from
+    public void refit(float[] vertices) {
+        if (corners == null) {
+            throw new IllegalStateException("BVH not built from a refittable model");
+        }
+        lock.writeLock().lock();
+        try {
+            for (int i = 0; i < corners.length; i++) {
+                System.arraycopy(vertices, corners[i] * 3, triangles, i * 3, 3);
+            }
+            // children always come after their parent
+            for (int node = nodeCount - 1; node >= 0; node--) {
+                final int first = nodes[node * 2];
+                final int count = nodes[node * 2 + 1];
+                final int offset = node * 6;
+                if (count > 0) {
+                    Arrays.fill(bounds, offset, offset + 3, Float.MAX_VALUE);
+                    Arrays.fill(bounds, offset + 3, offset + 6, -Float.MAX_VALUE);
+                    for (int i = first * 9; i < (first + count) * 9; i += 3) {
+                        for (int j = 0; j < 3; j++) {
+                            final float value = triangles[i + j];
+                            if (value < bounds[offset + j]) bounds[offset + j] = value;
+                            if (value > bounds[offset + 3 + j]) bounds[offset + 3 + j] = value;
+                        }
+                    }
+                } else {
+                    for (int j = 0; j < 3; j++) {
+                        bounds[offset + j] = Math.min(bounds[first * 6 + j], bounds[first * 6 + 6 + j]);
+                        bounds[offset + 3 + j] = Math.max(bounds[first * 6 + 3 + j], bounds[first * 6 + 9 + j]);
+                    }
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**********************************************************************************************/
+    public int getTriangleCount() {
+        return triangleIndices.length;
+    }
+
+    /**********************************************************************************************/
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    /**********************************************************************************************/
+    // min xyz and max xyz of all the triangles, in object coordinates
+    public void getBounds(float[] ret) {
+        lock.readLock().lock();
+        try {
+            System.arraycopy(bounds, 0, ret, 0, 6);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**********************************************************************************************/
+    // binned SAH split of order[start..end) into the children of the node
+    private void build(float[] boxes, float[] centroids, int[] order, int node, int start, int end, int depth,
+                       Bins bins) {
+        setBounds(node, boxes, order, start, end);
+
+        final int count = end - start;
+        if (count <= 2 || depth >= MAX_DEPTH) {
+            setLeaf(node, start, count);
+            return;
+        }
+
+        // bins are laid over the centroids, the triangles may go beyond
+        final float[] centroidBounds = bins.centroidBounds;
+        Arrays.fill(centroidBounds, 0, 3, Float.MAX_VALUE);
+        Arrays.fill(centroidBounds, 3, 6, -Float.MAX_VALUE);
+        for (int i = start; i < end; i++) {
+            for (int j = 0; j < 3; j++) {
+                final float c = centroids[order[i] * 3 + j];
+                if (c < centroidBounds[j]) centroidBounds[j] = c;
+                if (c > centroidBounds[3 + j]) centroidBounds[3 + j] = c;
+            }
+        }
+
+        float bestCost = Float.MAX_VALUE;
+        int bestAxis = -1;
+        int bestSplit = -1;
+        for (int axis = 0; axis < 3; axis++) {
+            final float min = centroidBounds[axis];
+            final float extent = centroidBounds[3 + axis] - min;
+            if (extent <= 0) continue;
+
+            bins.clear();
+            final float scale = BINS / extent;
+            for (int i = start; i < end; i++) {
+                final int triangle = order[i];
+                bins.add(bin(centroids[triangle * 3 + axis], min, scale), boxes, triangle);
+            }
+
+            final int split = bins.evaluate();
+            if (bins.cost < bestCost) {
+                bestCost = bins.cost;
+                bestAxis = axis;
+                bestSplit = split;
+            }
+        }
+
+        final float area = area(bounds, node * 6);
+        final float leafCost = count;
+        final float splitCost = area > 0 ? TRAVERSAL_COST + bestCost / area : Float.MAX_VALUE;
+
+        int middle;
+        if (bestAxis == -1) {
+            // all the centroids are in the same point
+            if (count <= MAX_LEAF_SIZE) {
+                setLeaf(node, start, count);
+                return;
+            }
+            middle = start + count / 2;
+        } else if (splitCost >= leafCost && count <= MAX_LEAF_SIZE) {
+            setLeaf(node, start, count);
+            return;
+        } else {
+            final float min = centroidBounds[bestAxis];
+            final float scale = BINS / (centroidBounds[3 + bestAxis] - min);
+            middle = partition(centroids, order, start, end, bestAxis, min, scale, bestSplit);
+            if (middle == start || middle == end) {
+                middle = start + count / 2;
+            }
+        }
+
+        final int left = nodeCount;
+        nodeCount += 2;
+        if (nodeCount * 2 > nodes.length) {
+            final int capacity = Math.max(nodeCount, nodes.length / 2 * 3 / 2);
+            bounds = Arrays.copyOf(bounds, capacity * 6);
+            nodes = Arrays.copyOf(nodes, capacity * 2);
+        }
+        nodes[node * 2] = left;
+        nodes[node * 2 + 1] = 0;
+
+        build(boxes, centroids, order, left, start, middle, depth + 1, bins);
+        build(boxes, centroids, order, left + 1, middle, end, depth + 1, bins);
+    }
+
+    /**********************************************************************************************/
+    private static int bin(float centroid, float min, float scale) {
+        return Math.min(BINS - 1, (int) ((centroid - min) * scale));
+    }
+
+    /**********************************************************************************************/
+    // triangles of the bins up to split go first
+    private static int partition(float[] centroids, int[] order, int start, int end, int axis, float min,
+                                 float scale, int split) {
+        int i = start;
+        int j = end - 1;
+        while (i <= j) {
+            if (bin(centroids[order[i] * 3 + axis], min, scale) <= split) {
+                i++;
+            } else {
+                final int temp = order[i];
+                order[i] = order[j];
+                order[j] = temp;
+                j--;
+            }
+        }
+        return i;
+    }
+
+    /**********************************************************************************************/
+    private void setLeaf(int node, int start, int count) {
+        nodes[node * 2] = start;
+        nodes[node * 2 + 1] = count;
+    }
+
+    /**********************************************************************************************/
+    private void setBounds(int node, float[] boxes, int[] order, int start, int end) {
+        final int offset = node * 6;
+        Arrays.fill(bounds, offset, offset + 3, Float.MAX_VALUE);
+        Arrays.fill(bounds, offset + 3, offset + 6, -Float.MAX_VALUE);
+        for (int i = start; i < end; i++) {
+            final int box = order[i] * 6;
+            for (int j = 0; j < 3; j++) {
+                if (boxes[box + j] < bounds[offset + j]) bounds[offset + j] = boxes[box + j];
+                if (boxes[box + 3 + j] > bounds[offset + 3 + j]) bounds[offset + 3 + j] = boxes[box + 3 + j];
+            }
+        }
+    }
+
+    /**********************************************************************************************/
+    private static float area(float[] bounds, int offset) {
+        final float dx = bounds[offset + 3] - bounds[offset];
+        final float dy = bounds[offset + 4] - bounds[offset + 1];
+        final float dz = bounds[offset + 5] - bounds[offset + 2];
+        return dx * dy + dy * dz + dz * dx;
+    }
+
+    /**********************************************************************************************/
+    // distance to the nearest triangle along the ray, or -1 if there is none
+    public float getNearestHit(float[] origin, float[] direction) {
+        final Hit hit = new Hit();
+        return getNearestHit(origin, direction, hit) ? hit.distance : -1;
+    }
+
+    /**********************************************************************************************/
+    public boolean getNearestHit(float[] origin, float[] direction, Hit hit) {
+        return intersect(origin, direction, Float.MAX_VALUE, false, hit);
+    }
+
+    /**********************************************************************************************/
+    // whether any triangle is closer than maxDistance along the ray. it stops at the first one found
+    public boolean isAnyHit(float[] origin, float[] direction, float maxDistance) {
+        return isAnyHit(origin, direction, maxDistance, new Hit());
+    }
+
+    /**********************************************************************************************/
+    public boolean isAnyHit(float[] origin, float[] direction, float maxDistance, Hit hit) {
+        return intersect(origin, direction, maxDistance, true, hit);
+    }
+
+    /**********************************************************************************************/
+    private boolean intersect(float[] origin, float[] direction, float maxDistance, boolean anyHit, Hit hit) {
+        lock.readLock().lock();
+        try {
+            return intersectLocked(origin, direction, maxDistance, anyHit, hit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**********************************************************************************************/
+    private boolean intersectLocked(float[] origin, float[] direction, float maxDistance, boolean anyHit, Hit hit) {
+        hit.reset();
+        if (triangleIndices.length == 0) return false;
+
+        final float ox = origin[0], oy = origin[1], oz = origin[2];
+        final float dx = direction[0], dy = direction[1], dz = direction[2];
+        final float ix = CollisionDetection.inverse(dx);
+        final float iy = CollisionDetection.inverse(dy);
+        final float iz = CollisionDetection.inverse(dz);
+
+        final float[] bounds = this.bounds;
+        final int[] nodes = this.nodes;
+        final int[] stack = hit.stack;
+        final float[] distances = hit.distances;
+
+        float nearest = maxDistance;
+        int nearestTriangle = -1;
+
+        int size = 0;
+        final float tRoot = CollisionDetection.intersectBox(bounds, 0, ox, oy, oz, ix, iy, iz, nearest);
+        if (tRoot == Float.MAX_VALUE) {
+            return false;
+        }
+        stack[size] = 0;
+        distances[size++] = tRoot;
+
+        while (size > 0) {
+            final int node = stack[--size];
+            if (distances[size] > nearest) continue;
+
+            final int first = nodes[node * 2];
+            final int count = nodes[node * 2 + 1];
+
+            if (count > 0) {
+                for (int i = first; i < first + count; i++) {
+                    final float t = CollisionDetection.intersectTriangle(triangles, i * 9, ox, oy, oz, dx, dy, dz);
+                    if (t != -1 && t < nearest) {
+                        nearest = t;
+                        nearestTriangle = i;
+                        if (anyHit) break;
+                    }
+                }
+                if (anyHit && nearestTriangle != -1) break;
+                continue;
+            }
+
+            // the nearest child is visited first, so the farther one is usually culled
+            final float tLeft = CollisionDetection.intersectBox(bounds, first * 6, ox, oy, oz, ix, iy, iz, nearest);
+            final float tRight = CollisionDetection.intersectBox(bounds, first * 6 + 6, ox, oy, oz, ix, iy, iz, nearest);
+            if (tLeft <= tRight) {
+                if (tRight != Float.MAX_VALUE) {
+                    stack[size] = first + 1;
+                    distances[size++] = tRight;
+                }
+                if (tLeft != Float.MAX_VALUE) {
+                    stack[size] = first;
+                    distances[size++] = tLeft;
+                }
+            } else {
+                if (tLeft != Float.MAX_VALUE) {
+                    stack[size] = first;
+                    distances[size++] = tLeft;
+                }
+                stack[size] = first + 1;
+                distances[size++] = tRight;
+            }
+        }
+
+        if (nearestTriangle == -1) return false;
+        hit.distance = nearest;
+        hit.triangle = triangleIndices[nearestTriangle];
+        return true;
+    }
+
+    /**********************************************************************************************/
+    // the rays of the packet (xyz of origin, direction and inverse direction of each one) are traversed
+    // together: a node is visited once for all the rays whose nearest hit may be in it. the nearest
+    // distance and triangle of each ray are updated when a closer triangle is found. returns the rays
+    // that got closer
+    int intersectPacket(float[] origins, float[] directions, float[] inverses, int mask, float[] nearest,
+                        int[] triangle, int[] stack) {
+        lock.readLock().lock();
+        try {
+            return intersectPacketLocked(origins, directions, inverses, mask, nearest, triangle, stack);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**********************************************************************************************/
+    private int intersectPacketLocked(float[] origins, float[] directions, float[] inverses, int mask,
+                                      float[] nearest, int[] triangle, int[] stack) {
+        if (triangleIndices.length == 0) return 0;
+
+        final float[] bounds = this.bounds;
+        final int[] nodes = this.nodes;
+        int closer = 0;
+
+        // node and the rays of the packet that hit its parent
+        int size = 0;
+        stack[size++] = 0;
+        stack[size++] = mask;
+
+        while (size > 0) {
+            final int parentMask = stack[--size];
+            final int node = stack[--size];
+
+            int nodeMask = 0;
+            for (int bits = parentMask; bits != 0; bits &= bits - 1) {
+                final int r = Integer.numberOfTrailingZeros(bits);
+                final int i = r * 3;
+                if (CollisionDetection.intersectBox(bounds, node * 6, origins[i], origins[i + 1], origins[i + 2],
+                        inverses[i], inverses[i + 1], inverses[i + 2], nearest[r]) != Float.MAX_VALUE) {
+                    nodeMask |= 1 << r;
+                }
+            }
+            if (nodeMask == 0) continue;
+
+            final int first = nodes[node * 2];
+            final int count = nodes[node * 2 + 1];
+            if (count > 0) {
+                for (int bits = nodeMask; bits != 0; bits &= bits - 1) {
+                    final int r = Integer.numberOfTrailingZeros(bits);
+                    final int i = r * 3;
+                    for (int t = first; t < first + count; t++) {
+                        final float distance = CollisionDetection.intersectTriangle(triangles, t * 9,
+                                origins[i], origins[i + 1], origins[i + 2],
+                                directions[i], directions[i + 1], directions[i + 2]);
+                        if (distance != -1 && distance < nearest[r]) {
+                            nearest[r] = distance;
+                            triangle[r] = triangleIndices[t];
+                            closer |= 1 << r;
+                        }
+                    }
+                }
+                continue;
+            }
+
+            // the child nearer to the first ray goes on top. the boxes are tested again when popped
+            final boolean leftFirst = isLeftNearer(first, directions, Integer.numberOfTrailingZeros(nodeMask) * 3);
+            stack[size++] = leftFirst ? first + 1 : first;
+            stack[size++] = nodeMask;
+            stack[size++] = leftFirst ? first : first + 1;
+            stack[size++] = nodeMask;
+        }
+        return closer;
+    }
+
+    /**********************************************************************************************/
+    // whether the direction goes from the center of the first child towards the center of the second
+    private boolean isLeftNearer(int first, float[] directions, int offset) {
+        float dot = 0;
+        for (int j = 0; j < 3; j++) {
+            final float separation = bounds[first * 6 + 6 + j] + bounds[first * 6 + 9 + j]
+                    - bounds[first * 6 + j] - bounds[first * 6 + 3 + j];
+            dot += separation * directions[offset + j];
+        }
+        return dot >= 0;
+    }
+
+    /**********************************************************************************************/
+    // bounds and triangle count of each bin along one axis, and the best split found
+    private static final class Bins {
+        private final float[] centroidBounds = new float[6];
+        private final float[] bounds = new float[BINS * 6];
+        private final int[] counts = new int[BINS];
+        // area and count of the bins on the right of each split
+        private final float[] rightAreas = new float[BINS];
+        private final int[] rightCounts = new int[BINS];
+        private final float[] box = new float[6];
+        private float cost;
+
+        private void clear() {
+            Arrays.fill(counts, 0);
+            for (int i = 0; i < BINS; i++) {
+                Arrays.fill(bounds, i * 6, i * 6 + 3, Float.MAX_VALUE);
+                Arrays.fill(bounds, i * 6 + 3, i * 6 + 6, -Float.MAX_VALUE);
+            }
+        }
+
+        private void add(int bin, float[] boxes, int triangle) {
+            counts[bin]++;
+            final int offset = bin * 6;
+            final int box = triangle * 6;
+            for (int j = 0; j < 3; j++) {
+                if (boxes[box + j] < bounds[offset + j]) bounds[offset + j] = boxes[box + j];
+                if (boxes[box + 3 + j] > bounds[offset + 3 + j]) bounds[offset + 3 + j] = boxes[box + 3 + j];
+            }
+        }
+
+        // the split leaves bins 0..split on the left. the cost (area * count of both sides) is kept in cost
+        private int evaluate() {
+            resetBox();
+            int count = 0;
+            for (int i = BINS - 1; i > 0; i--) {
+                count += counts[i];
+                growBox(i);
+                rightCounts[i] = count;
+                rightAreas[i] = count > 0 ? area(box, 0) : 0;
+            }
+
+            cost = Float.MAX_VALUE;
+            int split = -1;
+            resetBox();
+            count = 0;
+            for (int i = 0; i < BINS - 1; i++) {
+                count += counts[i];
+                growBox(i);
+                if (count == 0 || rightCounts[i + 1] == 0) continue;
+                final float splitCost = area(box, 0) * count + rightAreas[i + 1] * rightCounts[i + 1];
+                if (splitCost < cost) {
+                    cost = splitCost;
+                    split = i;
+                }
+            }
+            return split;
+        }
+
+        private void resetBox() {
+            Arrays.fill(box, 0, 3, Float.MAX_VALUE);
+            Arrays.fill(box, 3, 6, -Float.MAX_VALUE);
+        }
+
+        private void growBox(int bin) {
+            if (counts[bin] == 0) return;
+            for (int j = 0; j < 3; j++) {
+                box[j] = Math.min(box[j], bounds[bin * 6 + j]);
+                box[3 + j] = Math.max(box[3 + j], bounds[bin * 6 + 3 + j]);
+            }
+        }
+    }
+}
@@ -23,6 +23,8 @@ public class CollisionController implements EventListener {
     private final List<Object3DData> objects;
     /**********************************************************************************************/
     private final List<EventListener> listeners = new ArrayList<>();
+    /**********************************************************************************************/
+    private RayCaster rayCaster;
 
     /**********************************************************************************************/
     public CollisionController(ModelSurfaceView view, SceneLoader scene) {
@@ -41,6 +43,18 @@ public class CollisionController implements EventListener {
         this.listeners.add(listener);
     }
 
+    /**********************************************************************************************/
+    // nearest object and triangle under each screen point (x, y of each one), i.e. for hover or measures
+    public RayCaster.Hits pick(float[] points) {
+        synchronized (this) {
+            if (rayCaster == null) {
+                rayCaster = new RayCaster();
+            }
+        }
+        return rayCaster.cast(objects, points, view.getWidth(), view.getHeight(),
+                view.getViewMatrix(), view.getProjectionMatrix());
+    }
+
     /**********************************************************************************************/
     @Override
     public boolean onEvent(EventObject event) {
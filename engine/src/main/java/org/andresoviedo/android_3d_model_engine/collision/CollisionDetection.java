@@ -1,8 +1,10 @@
 package org.andresoviedo.android_3d_model_engine.collision;
 
 import android.opengl.GLU;
+import android.opengl.Matrix;
 import android.util.Log;
 
+import org.andresoviedo.android_3d_model_engine.BuildConfig;
 import org.andresoviedo.android_3d_model_engine.model.BoundingBox;
 import org.andresoviedo.android_3d_model_engine.model.Object3DData;
 import org.andresoviedo.util.math.Math3DUtils;
@@ -11,6 +13,11 @@ import java.util.Arrays;
 import java.util.List;
 /**************************************************************************************************/
 public class CollisionDetection {
+    /**********************************************************************************************/
+    private static final boolean DEBUG = BuildConfig.DEBUG;
+    /**********************************************************************************************/
+    private static final float EPSILON = 0.0000001f;
+
     /**********************************************************************************************/
     public static Object3DData getBoxIntersection(List<Object3DData> objects, int width, int height, float[] modelViewMatrix, float[] modelProjectionMatrix, float windowX, float windowY) {
         float[] nearHit = unProject(width, height, modelViewMatrix, modelProjectionMatrix, windowX, windowY, 0);
@@ -24,12 +31,13 @@ public class CollisionDetection {
     private static Object3DData getBoxIntersection(List<Object3DData> objects, float[] p1, float[] direction) {
         float min = Float.MAX_VALUE;
         Object3DData ret = null;
+        final float[] intersection = new float[2];
         for (Object3DData obj : objects) {
             if ("Point".equals(obj.getId()) || "Line".equals(obj.getId())) {
                 continue;
             }
             BoundingBox box = obj.getBoundingBox();
-            float[] intersection = getBoxIntersection(p1, direction, box);
+            getBoxIntersection(p1, direction, box, intersection);
             if (intersection[0] > 0 && intersection[0] <= intersection[1] && intersection[0] < min) {
                 min = intersection[0];
                 ret = obj;
@@ -42,20 +50,95 @@ public class CollisionDetection {
     }
 
     /**********************************************************************************************/
-    private static boolean isBoxIntersection(float[] origin, float[] dir, BoundingBox b) {
-        float[] intersection = getBoxIntersection(origin, dir, b);
-        return intersection[0] > 0 && intersection[0] < intersection[1];
+    public static float[] getBoxIntersection(float[] origin, float[] dir, BoundingBox b) {
+        final float[] ret = new float[2];
+        getBoxIntersection(origin, dir, b, ret);
+        return ret;
     }
 
     /**********************************************************************************************/
-    public static float[] getBoxIntersection(float[] origin, float[] dir, BoundingBox b) {
-        float[] tMin = Math3DUtils.divide(Math3DUtils.substract(b.getMin(), origin), dir);
-        float[] tMax = Math3DUtils.divide(Math3DUtils.substract(b.getMax(), origin), dir);
-        float[] t1 = Math3DUtils.min(tMin, tMax);
-        float[] t2 = Math3DUtils.max(tMin, tMax);
-        float tNear = Math.max(Math.max(t1[0], t1[1]), t1[2]);
-        float tFar = Math.min(Math.min(t2[0], t2[1]), t2[2]);
-        return new float[]{tNear, tFar};
+    // entry and exit distances of the ray into the box
+    public static void getBoxIntersection(float[] origin, float[] dir, BoundingBox b, float[] intersection) {
+        final float[] min = b.getMin();
+        final float[] max = b.getMax();
+        float tNear = -Float.MAX_VALUE;
+        float tFar = Float.MAX_VALUE;
+        for (int i = 0; i < 3; i++) {
+            final float t1 = (min[i] - origin[i]) / dir[i];
+            final float t2 = (max[i] - origin[i]) / dir[i];
+            tNear = Math.max(tNear, Math.min(t1, t2));
+            tFar = Math.min(tFar, Math.max(t1, t2));
+        }
+        intersection[0] = tNear;
+        intersection[1] = tFar;
+    }
+
+    /**********************************************************************************************/
+    // 1 / value, that avoids 0 * infinity in the slab test of rays parallel to an axis
+    public static float inverse(float value) {
+        if (Math.abs(value) < 1e-20f) {
+            value = value < 0 ? -1e-20f : 1e-20f;
+        }
+        return 1 / value;
+    }
+
+    /**********************************************************************************************/
+    // entry distance of the ray into the box (min xyz and max xyz at offset), or Float.MAX_VALUE if it misses
+    // or is farther than maxDistance. ix, iy, iz is the inverse of the direction
+    public static float intersectBox(float[] bounds, int offset, float ox, float oy, float oz,
+                                     float ix, float iy, float iz, float maxDistance) {
+        float t1 = (bounds[offset] - ox) * ix;
+        float t2 = (bounds[offset + 3] - ox) * ix;
+        float tNear = Math.min(t1, t2);
+        float tFar = Math.max(t1, t2);
+
+        t1 = (bounds[offset + 1] - oy) * iy;
+        t2 = (bounds[offset + 4] - oy) * iy;
+        tNear = Math.max(tNear, Math.min(t1, t2));
+        tFar = Math.min(tFar, Math.max(t1, t2));
+
+        t1 = (bounds[offset + 2] - oz) * iz;
+        t2 = (bounds[offset + 5] - oz) * iz;
+        tNear = Math.max(tNear, Math.min(t1, t2));
+        tFar = Math.min(tFar, Math.max(t1, t2));
+
+        if (tFar < 0 || tNear > tFar || tNear > maxDistance) {
+            return Float.MAX_VALUE;
+        }
+        return tNear;
+    }
+
+    /**********************************************************************************************/
+    // Moller-Trumbore on the triangle at offset (xyz of its 3 vertices). distance along the ray, or -1
+    public static float intersectTriangle(float[] triangles, int offset, float ox, float oy, float oz,
+                                          float dx, float dy, float dz) {
+        final float v0x = triangles[offset], v0y = triangles[offset + 1], v0z = triangles[offset + 2];
+        final float e1x = triangles[offset + 3] - v0x;
+        final float e1y = triangles[offset + 4] - v0y;
+        final float e1z = triangles[offset + 5] - v0z;
+        final float e2x = triangles[offset + 6] - v0x;
+        final float e2y = triangles[offset + 7] - v0y;
+        final float e2z = triangles[offset + 8] - v0z;
+
+        final float hx = dy * e2z - dz * e2y;
+        final float hy = dz * e2x - dx * e2z;
+        final float hz = dx * e2y - dy * e2x;
+        final float a = e1x * hx + e1y * hy + e1z * hz;
+        if (a > -EPSILON && a < EPSILON) return -1;
+
+        final float f = 1 / a;
+        final float sx = ox - v0x, sy = oy - v0y, sz = oz - v0z;
+        final float u = f * (sx * hx + sy * hy + sz * hz);
+        if (u < 0 || u > 1) return -1;
+
+        final float qx = sy * e1z - sz * e1y;
+        final float qy = sz * e1x - sx * e1z;
+        final float qz = sx * e1y - sy * e1x;
+        final float v = f * (dx * qx + dy * qy + dz * qz);
+        if (v < 0 || u + v > 1) return -1;
+
+        final float distance = f * (e2x * qx + e2y * qy + e2z * qz);
+        return distance > EPSILON ? distance : -1;
     }
 
     /**********************************************************************************************/
@@ -97,19 +180,29 @@ public class CollisionDetection {
 
     /**********************************************************************************************/
     private static float[] getTriangleIntersection(final Object3DData hit, float[] nearHit, float[] direction) {
-        Log.d("CollisionDetection", "Getting triangle intersection: " + hit.getId());
-        Octree octree;
-        synchronized (hit) {
-            octree = hit.getOctree();
-            if (octree == null) {
-                octree = Octree.build(hit);
-                hit.setOctree(octree);
-            }
+        if (DEBUG) {
+            Log.d("CollisionDetection", "Getting triangle intersection: " + hit.getId());
         }
-        float intersection = getTriangleIntersectionForOctree(octree, nearHit, direction);
-        if (intersection != -1) {
-            float[] intersectionPoint = Math3DUtils.add(nearHit, Math3DUtils.multiply(direction, intersection));
-            Log.d("CollisionDetection", "Interaction point: " + Arrays.toString(intersectionPoint));
+        final BVH bvh = getBVH(hit);
+        // the BVH is in object coordinates. the ray is moved there, and keeps its parameter
+        final float[] transform = new float[16];
+        if (!Matrix.invertM(transform, 0, hit.getModelMatrix(), 0)) {
+            return null;
+        }
+        final float[] origin = {nearHit[0], nearHit[1], nearHit[2], 1};
+        final float[] localOrigin = new float[4];
+        Matrix.multiplyMV(localOrigin, 0, transform, 0, origin, 0);
+        final float[] ray = {direction[0], direction[1], direction[2], 0};
+        final float[] localDirection = new float[4];
+        Matrix.multiplyMV(localDirection, 0, transform, 0, ray, 0);
+
+        final Hit result = new Hit();
+        if (bvh.getNearestHit(localOrigin, localDirection, result)) {
+            float[] intersectionPoint = new float[3];
+            result.getPoint(nearHit, direction, intersectionPoint);
+            if (DEBUG) {
+                Log.d("CollisionDetection", "Interaction point: " + Arrays.toString(intersectionPoint));
+            }
             return intersectionPoint;
         } else {
             return null;
@@ -117,74 +210,15 @@ public class CollisionDetection {
     }
 
     /**********************************************************************************************/
-    private static float getTriangleIntersectionForOctree(Octree octree, float[] rayOrigin, float[] rayDirection) {
-        if (!isBoxIntersection(rayOrigin, rayDirection, octree.boundingBox)) {
-            Log.d("CollisionDetection", "No octree intersection");
-            return -1;
-        }
-        Octree selected = null;
-        float min = Float.MAX_VALUE;
-        for (Octree child : octree.getChildren()) {
-            if (child == null) {
-                continue;
-            }
-            float intersection = getTriangleIntersectionForOctree(child, rayOrigin, rayDirection);
-            if (intersection != -1 && intersection < min) {
-                Log.d("CollisionDetection", "Octree intersection: " + intersection);
-                min = intersection;
-                selected = child;
-            }
-        }
-        float[] selectedTriangle = null;
-        for (float[] triangle : octree.getTriangles()) {
-            float[] vertex0 = new float[]{triangle[0], triangle[1], triangle[2]};
-            float[] vertex1 = new float[]{triangle[4], triangle[5], triangle[6]};
-            float[] vertex2 = new float[]{triangle[8], triangle[9], triangle[10]};
-            float intersection = getTriangleIntersection(rayOrigin, rayDirection, vertex0, vertex1, vertex2);
-            if (intersection != -1 && intersection < min) {
-                min = intersection;
-                selectedTriangle = triangle;
-                selected = octree;
-
+    // the BVH of the object, built on first use
+    static BVH getBVH(Object3DData object) {
+        synchronized (object) {
+            BVH bvh = object.getBVH();
+            if (bvh == null) {
+                bvh = BVH.build(object);
+                object.setBVH(bvh);
             }
+            return bvh;
         }
-        if (min != Float.MAX_VALUE) {
-            Log.d("CollisionDetection", "Intersection at distance: " + min);
-            Log.d("CollisionDetection", "Intersection at triangle: " + Arrays.toString(selectedTriangle));
-            Log.d("CollisionDetection", "Intersection at octree: " + selected);
-            return min;
-        }
-        return -1;
-    }
-
-    /**********************************************************************************************/
-    private static float getTriangleIntersection(float[] rayOrigin,
-                                                 float[] rayVector,
-                                                 float[] vertex0, float[] vertex1, float[] vertex2) {
-        float EPSILON = 0.0000001f;
-        float[] edge1, edge2, h, s, q;
-        float a, f, u, v;
-        edge1 = Math3DUtils.substract(vertex1, vertex0);
-        edge2 = Math3DUtils.substract(vertex2, vertex0);
-        h = Math3DUtils.crossProduct(rayVector, edge2);
-        a = Math3DUtils.dotProduct(edge1, h);
-        if (a > -EPSILON && a < EPSILON)
-            return -1;
-        f = 1 / a;
-        s = Math3DUtils.substract(rayOrigin, vertex0);
-        u = f * Math3DUtils.dotProduct(s, h);
-        if (u < 0.0 || u > 1.0)
-            return -1;
-        q = Math3DUtils.crossProduct(s, edge1);
-        v = f * Math3DUtils.dotProduct(rayVector, q);
-        if (v < 0.0 || u + v > 1.0)
-            return -1;
-        float t = f * Math3DUtils.dotProduct(edge2, q);
-        if (t > EPSILON) {
-            Log.d("CollisionDetection", "Triangle intersection at: " + t);
-            return t;
-        } else
-            return -1;
     }
 }
-
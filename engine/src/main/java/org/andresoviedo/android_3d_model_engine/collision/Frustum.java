@@ -0,0 +1,79 @@
+package org.andresoviedo.android_3d_model_engine.collision;
+/**************************************************************************************************/
+// the 6 planes of the view volume of a camera, in world coordinates
+public final class Frustum {
+    /**********************************************************************************************/
+    // a, b, c, d of each plane, normalized and facing inside
+    private final float[] planes = new float[24];
+
+    /**********************************************************************************************/
+    // projection * view, column major
+    public void set(float[] viewProjectionMatrix) {
+        final float[] m = viewProjectionMatrix;
+        for (int i = 0; i < 3; i++) {
+            // row 3 plus and minus row i: left and right, bottom and top, near and far
+            for (int j = 0; j < 4; j++) {
+                planes[i * 8 + j] = m[j * 4 + 3] + m[j * 4 + i];
+                planes[i * 8 + 4 + j] = m[j * 4 + 3] - m[j * 4 + i];
+            }
+        }
+        for (int p = 0; p < 24; p += 4) {
+            final float length = (float) Math.sqrt(planes[p] * planes[p] + planes[p + 1] * planes[p + 1]
+                    + planes[p + 2] * planes[p + 2]);
+            if (length > 0) {
+                for (int j = 0; j < 4; j++) {
+                    planes[p + j] /= length;
+                }
+            }
+        }
+    }
+
+    /**********************************************************************************************/
+    public boolean intersectsSphere(float x, float y, float z, float radius) {
+        for (int p = 0; p < 24; p += 4) {
+            if (planes[p] * x + planes[p + 1] * y + planes[p + 2] * z + planes[p + 3] < -radius) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**********************************************************************************************/
+    // box from min to max. it may say yes for some boxes that are near a corner of the frustum, but not in it
+    public boolean intersectsBox(float[] min, float[] max) {
+        for (int p = 0; p < 24; p += 4) {
+            // the corner furthest along the normal of the plane
+            final float x = planes[p] >= 0 ? max[0] : min[0];
+            final float y = planes[p + 1] >= 0 ? max[1] : min[1];
+            final float z = planes[p + 2] >= 0 ? max[2] : min[2];
+            if (planes[p] * x + planes[p + 1] * y + planes[p + 2] * z + planes[p + 3] < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**********************************************************************************************/
+    // box from min to max in the space of the matrix (the model matrix, for the dimensions of a model)
+    public boolean intersectsBox(float[] min, float[] max, float[] matrix) {
+        final float cx = (min[0] + max[0]) / 2, cy = (min[1] + max[1]) / 2, cz = (min[2] + max[2]) / 2;
+        final float ex = (max[0] - min[0]) / 2, ey = (max[1] - min[1]) / 2, ez = (max[2] - min[2]) / 2;
+
+        // the world box that contains it
+        final float x = matrix[0] * cx + matrix[4] * cy + matrix[8] * cz + matrix[12];
+        final float y = matrix[1] * cx + matrix[5] * cy + matrix[9] * cz + matrix[13];
+        final float z = matrix[2] * cx + matrix[6] * cy + matrix[10] * cz + matrix[14];
+        final float rx = Math.abs(matrix[0]) * ex + Math.abs(matrix[4]) * ey + Math.abs(matrix[8]) * ez;
+        final float ry = Math.abs(matrix[1]) * ex + Math.abs(matrix[5]) * ey + Math.abs(matrix[9]) * ez;
+        final float rz = Math.abs(matrix[2]) * ex + Math.abs(matrix[6]) * ey + Math.abs(matrix[10]) * ez;
+
+        for (int p = 0; p < 24; p += 4) {
+            final float distance = planes[p] * x + planes[p + 1] * y + planes[p + 2] * z + planes[p + 3];
+            final float radius = Math.abs(planes[p]) * rx + Math.abs(planes[p + 1]) * ry + Math.abs(planes[p + 2]) * rz;
+            if (distance < -radius) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
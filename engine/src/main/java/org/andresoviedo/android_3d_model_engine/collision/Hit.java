@@ -0,0 +1,43 @@
+package org.andresoviedo.android_3d_model_engine.collision;
+/**************************************************************************************************/
+// result of a ray query. it also holds the traversal stack, so a thread can reuse the same instance
+// for every query and they allocate nothing
+public final class Hit {
+    /**********************************************************************************************/
+    // nodes to visit, and the distance at which the ray enters them
+    final int[] stack = new int[BVH.MAX_DEPTH * 2];
+    final float[] distances = new float[BVH.MAX_DEPTH * 2];
+    /**********************************************************************************************/
+    float distance = -1;
+    int triangle = -1;
+
+    /**********************************************************************************************/
+    void reset() {
+        distance = -1;
+        triangle = -1;
+    }
+
+    /**********************************************************************************************/
+    public boolean isHit() {
+        return triangle != -1;
+    }
+
+    /**********************************************************************************************/
+    // distance along the ray, in units of its direction
+    public float getDistance() {
+        return distance;
+    }
+
+    /**********************************************************************************************/
+    // index of the triangle in draw order
+    public int getTriangle() {
+        return triangle;
+    }
+
+    /**********************************************************************************************/
+    public void getPoint(float[] origin, float[] direction, float[] point) {
+        point[0] = origin[0] + direction[0] * distance;
+        point[1] = origin[1] + direction[1] * distance;
+        point[2] = origin[2] + direction[2] * distance;
+    }
+}
@@ -0,0 +1,315 @@
+package org.andresoviedo.android_3d_model_engine.collision;
+
+import android.opengl.Matrix;
+
+import org.andresoviedo.android_3d_model_engine.model.Object3DData;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+/**************************************************************************************************/
+// casts batches of rays against all the objects of a scene. the objects are tested once per packet of
+// rays, the packets go down the BVH of each object together, and big batches are shared among threads
+public final class RayCaster {
+    /**********************************************************************************************/
+    // rays traversed together, one bit of a mask each
+    private static final int PACKET_SIZE = 8;
+    /**********************************************************************************************/
+    // packets cast by a thread each time. batches up to this size run on the calling thread only
+    private static final int PACKETS_PER_TASK = 16;
+
+    /**********************************************************************************************/
+    public static final class Hits {
+        // distance along the ray, in units of its direction, or -1 if it hit nothing
+        public final float[] distances;
+        // index of the object in the list, or -1
+        public final int[] objects;
+        // index of the triangle in the object, in draw order, or -1
+        public final int[] triangles;
+
+        private Hits(int count) {
+            this.distances = new float[count];
+            this.objects = new int[count];
+            this.triangles = new int[count];
+            Arrays.fill(distances, -1);
+            Arrays.fill(objects, -1);
+            Arrays.fill(triangles, -1);
+        }
+    }
+
+    /**********************************************************************************************/
+    // shared by all the casters, so none of them has threads of its own to stop. created on the first
+    // big batch, and daemon threads, so it never keeps the process alive
+    private static ExecutorService executor;
+
+    /**********************************************************************************************/
+    private final int threads;
+
+    /**********************************************************************************************/
+    public RayCaster() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**********************************************************************************************/
+    // the calling thread is one of them
+    public RayCaster(int threads) {
+        this.threads = Math.max(1, Math.min(threads, Runtime.getRuntime().availableProcessors()));
+    }
+
+    /**********************************************************************************************/
+    private static synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            final AtomicInteger counter = new AtomicInteger();
+            executor = Executors.newFixedThreadPool(Math.max(1, Runtime.getRuntime().availableProcessors() - 1),
+                    runnable -> {
+                        final Thread thread = new Thread(runnable, "RayCaster-" + counter.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+        }
+        return executor;
+    }
+
+    /**********************************************************************************************/
+    // rays through the screen points (x, y of each one), from the near plane. distances are in world units
+    public Hits cast(List<Object3DData> objects, float[] points, int width, int height, float[] viewMatrix,
+                     float[] projectionMatrix) {
+        final int count = points.length / 2;
+
+        // the same unprojection as CollisionDetection.unProject, with the matrix inverted once
+        final float[] matrix = new float[32];
+        Matrix.multiplyMM(matrix, 0, projectionMatrix, 0, viewMatrix, 0);
+        if (!Matrix.invertM(matrix, 16, matrix, 0)) {
+            return new Hits(count);
+        }
+
+        final float[] origins = new float[count * 3];
+        final float[] directions = new float[count * 3];
+        final float[] window = new float[4];
+        final float[] near = new float[4];
+        final float[] far = new float[4];
+        for (int i = 0; i < count; i++) {
+            window[0] = 2 * points[i * 2] / width - 1;
+            window[1] = 2 * (height - points[i * 2 + 1]) / height - 1;
+            window[2] = -1;
+            window[3] = 1;
+            Matrix.multiplyMV(near, 0, matrix, 16, window, 0);
+            window[2] = 1;
+            Matrix.multiplyMV(far, 0, matrix, 16, window, 0);
+
+            float length = 0;
+            for (int j = 0; j < 3; j++) {
+                origins[i * 3 + j] = near[j] / near[3];
+                directions[i * 3 + j] = far[j] / far[3] - origins[i * 3 + j];
+                length += directions[i * 3 + j] * directions[i * 3 + j];
+            }
+            length = (float) Math.sqrt(length);
+            if (length > 0) {
+                for (int j = 0; j < 3; j++) {
+                    directions[i * 3 + j] /= length;
+                }
+            }
+        }
+        return cast(objects, origins, directions);
+    }
+
+    /**********************************************************************************************/
+    // world rays: xyz of the origin and of the direction of each one
+    public Hits cast(List<Object3DData> objects, float[] origins, float[] directions) {
+        final int count = origins.length / 3;
+        final Hits ret = new Hits(count);
+        final Scene scene = new Scene(objects);
+        if (scene.size() == 0 || count == 0) {
+            return ret;
+        }
+
+        final int packets = (count + PACKET_SIZE - 1) / PACKET_SIZE;
+        if (threads == 1 || packets <= PACKETS_PER_TASK) {
+            new Caster(scene, origins, directions, ret).cast(0, packets);
+            return ret;
+        }
+
+        // the threads take the next group of packets until there are none left
+        final int tasks = (packets + PACKETS_PER_TASK - 1) / PACKETS_PER_TASK;
+        final AtomicInteger next = new AtomicInteger();
+        final Runnable worker = () -> {
+            final Caster caster = new Caster(scene, origins, directions, ret);
+            for (int task = next.getAndIncrement(); task < tasks; task = next.getAndIncrement()) {
+                caster.cast(task * PACKETS_PER_TASK, Math.min(packets, (task + 1) * PACKETS_PER_TASK));
+            }
+        };
+        final ExecutorService executor = getExecutor();
+        final List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < Math.min(threads - 1, tasks - 1); i++) {
+            futures.add(executor.submit(worker));
+        }
+        worker.run();
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(ex);
+        } catch (ExecutionException ex) {
+            throw new RuntimeException(ex.getCause());
+        }
+        return ret;
+    }
+
+    /**********************************************************************************************/
+    // what the rays are tested against: the BVH of each object, its inverse model matrix, and its bounds
+    // in world coordinates, so a packet can skip the objects none of its rays goes through
+    private static final class Scene {
+        private final int[] indices;
+        private final BVH[] bvhs;
+        private final float[] inverses;
+        private final float[] bounds;
+        private int size;
+
+        private Scene(List<Object3DData> objects) {
+            indices = new int[objects.size()];
+            bvhs = new BVH[objects.size()];
+            inverses = new float[objects.size() * 16];
+            bounds = new float[objects.size() * 6];
+
+            final float[] local = new float[6];
+            final float[] corner = new float[8];
+            for (int i = 0; i < objects.size(); i++) {
+                final Object3DData object = objects.get(i);
+                if ("Point".equals(object.getId()) || "Line".equals(object.getId())
+                        || object.getVertexBuffer() == null) {
+                    continue;
+                }
+                final float[] modelMatrix = object.getModelMatrix();
+                if (!Matrix.invertM(inverses, size * 16, modelMatrix, 0)) {
+                    continue;
+                }
+                final BVH bvh = CollisionDetection.getBVH(object);
+                if (bvh.getTriangleCount() == 0) {
+                    continue;
+                }
+
+                bvh.getBounds(local);
+                final int offset = size * 6;
+                Arrays.fill(bounds, offset, offset + 3, Float.MAX_VALUE);
+                Arrays.fill(bounds, offset + 3, offset + 6, -Float.MAX_VALUE);
+                for (int c = 0; c < 8; c++) {
+                    corner[0] = local[(c & 1) == 0 ? 0 : 3];
+                    corner[1] = local[(c & 2) == 0 ? 1 : 4];
+                    corner[2] = local[(c & 4) == 0 ? 2 : 5];
+                    corner[3] = 1;
+                    Matrix.multiplyMV(corner, 4, modelMatrix, 0, corner, 0);
+                    for (int j = 0; j < 3; j++) {
+                        bounds[offset + j] = Math.min(bounds[offset + j], corner[4 + j]);
+                        bounds[offset + 3 + j] = Math.max(bounds[offset + 3 + j], corner[4 + j]);
+                    }
+                }
+
+                indices[size] = i;
+                bvhs[size] = bvh;
+                size++;
+            }
+        }
+
+        private int size() {
+            return size;
+        }
+    }
+
+    /**********************************************************************************************/
+    // casts packets of rays. it holds the scratch of one thread
+    private static final class Caster {
+        private final Scene scene;
+        private final float[] origins;
+        private final float[] directions;
+        private final Hits hits;
+
+        private final float[] inverses = new float[PACKET_SIZE * 3];
+        private final float[] localOrigins = new float[PACKET_SIZE * 3];
+        private final float[] localDirections = new float[PACKET_SIZE * 3];
+        private final float[] localInverses = new float[PACKET_SIZE * 3];
+        private final float[] nearest = new float[PACKET_SIZE];
+        private final int[] triangles = new int[PACKET_SIZE];
+        private final int[] objects = new int[PACKET_SIZE];
+        private final int[] stack = new int[BVH.PACKET_STACK_SIZE];
+        private final float[] vector = new float[8];
+
+        private Caster(Scene scene, float[] origins, float[] directions, Hits hits) {
+            this.scene = scene;
+            this.origins = origins;
+            this.directions = directions;
+            this.hits = hits;
+        }
+
+        private void cast(int firstPacket, int lastPacket) {
+            final int count = origins.length / 3;
+            for (int packet = firstPacket; packet < lastPacket; packet++) {
+                final int first = packet * PACKET_SIZE;
+                final int size = Math.min(PACKET_SIZE, count - first);
+                for (int r = 0; r < size; r++) {
+                    for (int j = 0; j < 3; j++) {
+                        inverses[r * 3 + j] = CollisionDetection.inverse(directions[(first + r) * 3 + j]);
+                    }
+                    nearest[r] = Float.MAX_VALUE;
+                    objects[r] = -1;
+                }
+                castPacket(first, (1 << size) - 1);
+                for (int r = 0; r < size; r++) {
+                    if (objects[r] == -1) continue;
+                    hits.distances[first + r] = nearest[r];
+                    hits.objects[first + r] = scene.indices[objects[r]];
+                    hits.triangles[first + r] = triangles[r];
+                }
+            }
+        }
+
+        private void castPacket(int first, int mask) {
+            for (int o = 0; o < scene.size; o++) {
+                int objectMask = 0;
+                for (int bits = mask; bits != 0; bits &= bits - 1) {
+                    final int r = Integer.numberOfTrailingZeros(bits);
+                    final int i = (first + r) * 3;
+                    if (CollisionDetection.intersectBox(scene.bounds, o * 6, origins[i], origins[i + 1],
+                            origins[i + 2], inverses[r * 3], inverses[r * 3 + 1], inverses[r * 3 + 2],
+                            nearest[r]) != Float.MAX_VALUE) {
+                        objectMask |= 1 << r;
+                    }
+                }
+                if (objectMask == 0) continue;
+
+                // into object coordinates. the distances along the rays stay the same
+                for (int bits = objectMask; bits != 0; bits &= bits - 1) {
+                    final int r = Integer.numberOfTrailingZeros(bits);
+                    final int i = (first + r) * 3;
+                    vector[0] = origins[i];
+                    vector[1] = origins[i + 1];
+                    vector[2] = origins[i + 2];
+                    vector[3] = 1;
+                    Matrix.multiplyMV(vector, 4, scene.inverses, o * 16, vector, 0);
+                    System.arraycopy(vector, 4, localOrigins, r * 3, 3);
+                    vector[0] = directions[i];
+                    vector[1] = directions[i + 1];
+                    vector[2] = directions[i + 2];
+                    vector[3] = 0;
+                    Matrix.multiplyMV(vector, 4, scene.inverses, o * 16, vector, 0);
+                    System.arraycopy(vector, 4, localDirections, r * 3, 3);
+                    for (int j = 0; j < 3; j++) {
+                        localInverses[r * 3 + j] = CollisionDetection.inverse(localDirections[r * 3 + j]);
+                    }
+                }
+
+                final int closer = scene.bvhs[o].intersectPacket(localOrigins, localDirections, localInverses,
+                        objectMask, nearest, triangles, stack);
+                for (int bits = closer; bits != 0; bits &= bits - 1) {
+                    objects[Integer.numberOfTrailingZeros(bits)] = o;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package org.andresoviedo.android_3d_model_engine.drawer;
+
+import java.nio.Buffer;
+/**************************************************************************************************/
+interface GLApi {
+    /**********************************************************************************************/
+    int glGenBuffer();
+    /**********************************************************************************************/
+    void glDeleteBuffer(int buffer);
+    /**********************************************************************************************/
+    void glBindBuffer(int target, int buffer);
+    /**********************************************************************************************/
+    void glBufferData(int target, int size, Buffer data, int usage);
+    /**********************************************************************************************/
+    void glBufferSubData(int target, int offset, int size, Buffer data);
+    /**********************************************************************************************/
+    void glUseProgram(int program);
+    /**********************************************************************************************/
+    void glActiveTexture(int texture);
+    /**********************************************************************************************/
+    void glBindTexture(int target, int texture);
+    /**********************************************************************************************/
+    int glGenTexture();
+    /**********************************************************************************************/
+    void glDeleteTexture(int texture);
+    /**********************************************************************************************/
+    void glTexParameteri(int target, int name, int param);
+    /**********************************************************************************************/
+    void glTexImage2D(int target, int level, int format, int width, int height, int type, Buffer pixels);
+    /**********************************************************************************************/
+    void glTexSubImage2D(int target, int level, int x, int y, int width, int height, int format, int type, Buffer pixels);
+    /**********************************************************************************************/
+    void glEnableVertexAttribArray(int index);
+    /**********************************************************************************************/
+    void glDisableVertexAttribArray(int index);
+}
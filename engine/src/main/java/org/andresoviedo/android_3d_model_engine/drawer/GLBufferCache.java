@@ -0,0 +1,175 @@
+package org.andresoviedo.android_3d_model_engine.drawer;
+
+import android.opengl.GLES20;
+
+import org.andresoviedo.android_3d_model_engine.model.AnimatedModel;
+import org.andresoviedo.android_3d_model_engine.model.Element;
+import org.andresoviedo.android_3d_model_engine.model.Object3DData;
+import org.andresoviedo.util.io.IOUtils;
+
+import java.nio.Buffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+/**************************************************************************************************/
+final class GLBufferCache {
+    /**********************************************************************************************/
+    private static final class BufferObject {
+        private final int id;
+        private int type;
+        private int size;
+        private boolean dirty = true;
+        private long lastUsedFrame;
+
+        private BufferObject(int id) {
+            this.id = id;
+        }
+    }
+
+    /**********************************************************************************************/
+    static final int MAX_UNUSED_FRAMES = 120;
+    /**********************************************************************************************/
+    private final GLApi gl;
+    /**********************************************************************************************/
+    private final Map<Buffer, BufferObject> buffers = new IdentityHashMap<>();
+    /**********************************************************************************************/
+    private long frame;
+    private long allocatedBytes;
+
+    /**********************************************************************************************/
+    GLBufferCache(GLApi gl) {
+        this.gl = gl;
+    }
+
+    /**********************************************************************************************/
+    void bindArrayBuffer(FloatBuffer data) {
+        bind(GLES20.GL_ARRAY_BUFFER, data, GLES20.GL_FLOAT);
+    }
+
+    /**********************************************************************************************/
+    void bindElementBuffer(IntBuffer data, int type) {
+        bind(GLES20.GL_ELEMENT_ARRAY_BUFFER, data, type);
+    }
+
+    /**********************************************************************************************/
+    void unbind() {
+        gl.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
+        gl.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, 0);
+    }
+
+    /**********************************************************************************************/
+    private void bind(int target, Buffer data, int type) {
+        BufferObject bufferObject = buffers.get(data);
+        if (bufferObject == null) {
+            final int id = gl.glGenBuffer();
+            if (id == 0) {
+                throw new RuntimeException("Error creating buffer object");
+            }
+            bufferObject = new BufferObject(id);
+            buffers.put(data, bufferObject);
+        }
+
+        gl.glBindBuffer(target, bufferObject.id);
+
+        if (bufferObject.dirty || bufferObject.type != type) {
+            upload(target, bufferObject, data, type);
+        }
+        bufferObject.lastUsedFrame = frame;
+    }
+
+    /**********************************************************************************************/
+    private void upload(int target, BufferObject bufferObject, Buffer data, int type) {
+        final Buffer content;
+        final int size;
+        if (type == GLES20.GL_UNSIGNED_SHORT) {
+            content = toShortBuffer((IntBuffer) data);
+            size = content.capacity() * 2;
+        } else {
+            content = data;
+            size = content.capacity() * 4;
+        }
+        content.position(0);
+
+        if (bufferObject.size == size) {
+            gl.glBufferSubData(target, 0, size, content);
+        } else {
+            gl.glBufferData(target, size, content, GLES20.GL_STATIC_DRAW);
+            allocatedBytes += size - bufferObject.size;
+            bufferObject.size = size;
+        }
+        bufferObject.type = type;
+        bufferObject.dirty = false;
+    }
+
+    /**********************************************************************************************/
+    private static ShortBuffer toShortBuffer(IntBuffer data) {
+        final ShortBuffer ret = IOUtils.createShortBuffer(data.capacity());
+        for (int i = 0; i < data.capacity(); i++) {
+            ret.put(i, (short) data.get(i));
+        }
+        return ret;
+    }
+
+    /**********************************************************************************************/
+    void invalidate(Buffer data) {
+        if (data == null) return;
+        final BufferObject bufferObject = buffers.get(data);
+        if (bufferObject != null) {
+            bufferObject.dirty = true;
+        }
+    }
+
+    /**********************************************************************************************/
+    void invalidate(Object3DData obj) {
+        invalidate(obj.getVertexBuffer());
+        invalidate(obj.getNormalsBuffer());
+        invalidate(obj.getColorsBuffer());
+        invalidate(obj.getTextureBuffer());
+        invalidate(obj.getDrawOrder());
+        final List<Element> elements = obj.getElements();
+        if (elements != null) {
+            for (int i = 0; i < elements.size(); i++) {
+                invalidate(elements.get(i).getIndexBuffer());
+            }
+        }
+        if (obj instanceof AnimatedModel) {
+            invalidate(((AnimatedModel) obj).getJointIds());
+            invalidate(((AnimatedModel) obj).getVertexWeights());
+        }
+    }
+
+    /**********************************************************************************************/
+    void nextFrame() {
+        frame++;
+        final Iterator<BufferObject> it = buffers.values().iterator();
+        while (it.hasNext()) {
+            final BufferObject bufferObject = it.next();
+            if (frame - bufferObject.lastUsedFrame > MAX_UNUSED_FRAMES) {
+                gl.glDeleteBuffer(bufferObject.id);
+                allocatedBytes -= bufferObject.size;
+                it.remove();
+            }
+        }
+    }
+
+    /**********************************************************************************************/
+    void clear() {
+        // the GL context is gone, and so are the buffer objects
+        buffers.clear();
+        allocatedBytes = 0;
+    }
+
+    /**********************************************************************************************/
+    int getBufferCount() {
+        return buffers.size();
+    }
+
+    /**********************************************************************************************/
+    long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+}
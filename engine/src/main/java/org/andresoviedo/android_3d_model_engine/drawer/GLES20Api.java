@@ -0,0 +1,119 @@
+package org.andresoviedo.android_3d_model_engine.drawer;
+
+import android.opengl.GLES20;
+
+import java.nio.Buffer;
+/**************************************************************************************************/
+final class GLES20Api implements GLApi {
+    /**********************************************************************************************/
+    private final int[] handle = new int[1];
+
+    /**********************************************************************************************/
+    @Override
+    public int glGenBuffer() {
+        GLES20.glGenBuffers(1, handle, 0);
+        GLES20Renderer.checkGlError("glGenBuffers");
+        return handle[0];
+    }
+
+    /**********************************************************************************************/
+    @Override
+    public void glDeleteBuffer(int buffer) {
+        handle[0] = buffer;
+        GLES20.glDeleteBuffers(1, handle, 0);
+        GLES20Renderer.checkGlError("glDeleteBuffers");
+    }
+
+    /**********************************************************************************************/
+    @Override
+    public void glBindBuffer(int target, int buffer) {
+        GLES20.glBindBuffer(target, buffer);
+        GLES20Renderer.checkGlError("glBindBuffer");
+    }
+
+    /**********************************************************************************************/
+    @Override
+    public void glBufferData(int target, int size, Buffer data, int usage) {
+        GLES20.glBufferData(target, size, data, usage);
+        GLES20Renderer.checkGlError("glBufferData");
+    }
+
+    /**********************************************************************************************/
+    @Override
+    public void glBufferSubData(int target, int offset, int size, Buffer data) {
+        GLES20.glBufferSubData(target, offset, size, data);
+        GLES20Renderer.checkGlError("glBufferSubData");
+    }
+
+    /**********************************************************************************************/
+    @Override
+    public void glUseProgram(int program) {
+        GLES20.glUseProgram(program);
+        GLES20Renderer.checkGlError("glUseProgram");
+    }
+
+    /**********************************************************************************************/
+    @Override
+    public void glActiveTexture(int texture) {
+        GLES20.glActiveTexture(texture);
+        GLES20Renderer.checkGlError("glActiveTexture");
+    }
+
+    /**********************************************************************************************/
+    @Override
+    public void glBindTexture(int target, int texture) {
+        GLES20.glBindTexture(target, texture);
+        GLES20Renderer.checkGlError("glBindTexture");
+    }
+
+    /**********************************************************************************************/
+    @Override
+    public int glGenTexture() {
+        GLES20.glGenTextures(1, handle, 0);
+        GLES20Renderer.checkGlError("glGenTextures");
+        return handle[0];
+    }
+
+    /**********************************************************************************************/
+    @Override
+    public void glDeleteTexture(int texture) {
+        handle[0] = texture;
+        GLES20.glDeleteTextures(1, handle, 0);
+        GLES20Renderer.checkGlError("glDeleteTextures");
+    }
+
+    /**********************************************************************************************/
+    @Override
+    public void glTexParameteri(int target, int name, int param) {
+        GLES20.glTexParameteri(target, name, param);
+        GLES20Renderer.checkGlError("glTexParameteri");
+    }
+
+    /**********************************************************************************************/
+    @Override
+    public void glTexImage2D(int target, int level, int format, int width, int height, int type, Buffer pixels) {
+        GLES20.glTexImage2D(target, level, format, width, height, 0, format, type, pixels);
+        GLES20Renderer.checkGlError("glTexImage2D");
+    }
+
+    /**********************************************************************************************/
+    @Override
+    public void glTexSubImage2D(int target, int level, int x, int y, int width, int height, int format, int type, Buffer pixels) {
+        GLES20.glTexSubImage2D(target, level, x, y, width, height, format, type, pixels);
+        GLES20Renderer.checkGlError("glTexSubImage2D");
+    }
+
+    /**********************************************************************************************/
+    @Override
+    public void glEnableVertexAttribArray(int index) {
+        GLES20.glEnableVertexAttribArray(index);
+        GLES20Renderer.checkGlError("glEnableVertexAttribArray");
+    }
+
+    /**********************************************************************************************/
+    @Override
+    public void glDisableVertexAttribArray(int index) {
+        GLES20.glDisableVertexAttribArray(index);
+        GLES20Renderer.checkGlError("glDisableVertexAttribArray");
+    }
+}
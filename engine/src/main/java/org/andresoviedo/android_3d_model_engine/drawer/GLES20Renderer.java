@@ -3,32 +3,36 @@ package org.andresoviedo.android_3d_model_engine.drawer;
 import android.opengl.GLES20;
 import android.os.SystemClock;
 import android.util.Log;
-import android.util.SparseArray;
 
 import androidx.annotation.NonNull;
 
+import org.andresoviedo.android_3d_model_engine.BuildConfig;
+import org.andresoviedo.android_3d_model_engine.animation.AnimationState;
+import org.andresoviedo.android_3d_model_engine.animation.Skinning;
 import org.andresoviedo.android_3d_model_engine.model.AnimatedModel;
 import org.andresoviedo.android_3d_model_engine.model.Element;
+import org.andresoviedo.android_3d_model_engine.model.Material;
 import org.andresoviedo.android_3d_model_engine.model.Object3DData;
 import org.andresoviedo.util.android.GLUtil;
-import org.andresoviedo.util.io.IOUtils;
 
-import java.nio.Buffer;
 import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
-import java.nio.ShortBuffer;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 /**************************************************************************************************/
-class GLES20Renderer implements Renderer {
+class GLES20Renderer implements Renderer, RenderQueue.Drawer {
     /**********************************************************************************************/
     private static final int COORDS_PER_VERTEX = 3;
     private static final int TEXTURE_COORDS_PER_VERTEX = 2;
     private static final int COLOR_COORDS_PER_VERTEX = 4;
     /**********************************************************************************************/
+    private static final int MAX_JOINTS = 60;
+    /**********************************************************************************************/
+    static final boolean DEBUG = BuildConfig.DEBUG;
+    /**********************************************************************************************/
     private final static float[] DEFAULT_COLOR = {1.0f, 1.0f, 1.0f, 1.0f};
     private final static float[] NO_COLOR_MASK = {1.0f, 1.0f, 1.0f, 1.0f};
     /**********************************************************************************************/
@@ -37,18 +41,40 @@ class GLES20Renderer implements Renderer {
     /**********************************************************************************************/
     private final int mProgram;
     /**********************************************************************************************/
+    private final int mMMatrixUniform;
+    private final int mVMatrixUniform;
+    private final int mPMatrixUniform;
+    private final int mColorUniform;
+    private final int mColorMaskUniform;
+    private final int mTextureUniform;
+    private final int mTextureCubeUniform;
+    private final int mLightPosUniform;
+    private final int mCameraPosUniform;
+    private final int mBindShapeMatrixUniform;
+    private final int mJointTransformsUniform;
+    private final int mJointTransformsCount;
+    /**********************************************************************************************/
+    private final int mPositionAttribute;
+    private final int mNormalAttribute;
+    private final int mColorAttribute;
+    private final int mTexCoordinateAttribute;
+    private final int mWeightsAttribute;
+    private final int mJointIndicesAttribute;
+    /**********************************************************************************************/
+    private final GLBufferCache buffers;
+    private final GLState state;
+    /**********************************************************************************************/
     private long counter = -1;
     private double shift = -1d;
     /**********************************************************************************************/
-    private boolean drawUsingUnsignedInt = true;
-    /**********************************************************************************************/
-    private Map<Object, Integer> textures = new HashMap<>();
+    private boolean drawUsingUnsignedInt;
     /**********************************************************************************************/
-    private final SparseArray<String> cache1 = new SparseArray<>();
+    private float[] jointTransforms;
     /**********************************************************************************************/
     private static Map<Object, Object> flags = new HashMap<>();
     /**********************************************************************************************/
-    static GLES20Renderer getInstance(String id, String vertexShaderCode, String fragmentShaderCode) {
+    static GLES20Renderer getInstance(String id, String vertexShaderCode, String fragmentShaderCode, GLBufferCache buffers,
+                                      GLState state) {
         Set<String> shaderFeatures = new HashSet<>();
         testShaderFeature(shaderFeatures, vertexShaderCode, "u_MMatrix");
         testShaderFeature(shaderFeatures, vertexShaderCode, "a_Position");
@@ -59,7 +85,7 @@ class GLES20Renderer implements Renderer {
         testShaderFeature(shaderFeatures, vertexShaderCode, "in_jointIndices");
         testShaderFeature(shaderFeatures, vertexShaderCode, "in_weights");
         testShaderFeature(shaderFeatures, fragmentShaderCode, "u_TextureCube");
-        return new GLES20Renderer(id, vertexShaderCode, fragmentShaderCode, shaderFeatures);
+        return new GLES20Renderer(id, vertexShaderCode, fragmentShaderCode, shaderFeatures, buffers, state);
     }
     /**********************************************************************************************/
     private static void testShaderFeature(Set<String> outputFeatures, String shaderCode, String feature) {
@@ -68,9 +94,12 @@ class GLES20Renderer implements Renderer {
         }
     }
     /**********************************************************************************************/
-    private GLES20Renderer(String id, String vertexShaderCode, String fragmentShaderCode, Set<String> features) {
+    private GLES20Renderer(String id, String vertexShaderCode, String fragmentShaderCode, Set<String> features, GLBufferCache buffers,
+                           GLState state) {
         this.id = id;
         this.features = features;
+        this.buffers = buffers;
+        this.state = state;
 
         Log.i("GLES20Renderer", "Compiling 3D Drawer... " + id);
 
@@ -79,6 +108,40 @@ class GLES20Renderer implements Renderer {
 
         mProgram = GLUtil.createAndLinkProgram(vertexShader, fragmentShader, features.toArray(new String[0]));
 
+        mMMatrixUniform = GLES20.glGetUniformLocation(mProgram, "u_MMatrix");
+        mVMatrixUniform = GLES20.glGetUniformLocation(mProgram, "u_VMatrix");
+        mPMatrixUniform = GLES20.glGetUniformLocation(mProgram, "u_PMatrix");
+        mColorUniform = GLES20.glGetUniformLocation(mProgram, "vColor");
+        mColorMaskUniform = GLES20.glGetUniformLocation(mProgram, "vColorMask");
+        mTextureUniform = GLES20.glGetUniformLocation(mProgram, "u_Texture");
+        mTextureCubeUniform = GLES20.glGetUniformLocation(mProgram, "u_TextureCube");
+        mLightPosUniform = GLES20.glGetUniformLocation(mProgram, "u_LightPos");
+        mCameraPosUniform = GLES20.glGetUniformLocation(mProgram, "u_cameraPos");
+        mBindShapeMatrixUniform = GLES20.glGetUniformLocation(mProgram, "u_BindShapeMatrix");
+        mJointTransformsUniform = GLES20.glGetUniformLocation(mProgram, "jointTransforms[0]");
+
+        // the array may be shorter than MAX_JOINTS (it's capped to gl_MaxVertexUniformVectors)
+        int jointTransformsCount = 0;
+        if (mJointTransformsUniform != -1) {
+            do {
+                jointTransformsCount++;
+            } while (jointTransformsCount < MAX_JOINTS && GLES20.glGetUniformLocation(mProgram,
+                    "jointTransforms[" + jointTransformsCount + "]") != -1);
+        }
+        mJointTransformsCount = jointTransformsCount;
+
+        mPositionAttribute = GLES20.glGetAttribLocation(mProgram, "a_Position");
+        mNormalAttribute = GLES20.glGetAttribLocation(mProgram, "a_Normal");
+        mColorAttribute = GLES20.glGetAttribLocation(mProgram, "a_Color");
+        mTexCoordinateAttribute = GLES20.glGetAttribLocation(mProgram, "a_TexCoordinate");
+        mWeightsAttribute = GLES20.glGetAttribLocation(mProgram, "in_weights");
+        mJointIndicesAttribute = GLES20.glGetAttribLocation(mProgram, "in_jointIndices");
+        GLUtil.checkGlError("glGetUniformLocation");
+
+        // without OES_element_index_uint only GL_UNSIGNED_SHORT indices can be drawn
+        final String extensions = GLES20.glGetString(GLES20.GL_EXTENSIONS);
+        drawUsingUnsignedInt = extensions != null && extensions.contains("GL_OES_element_index_uint");
+
         flags.clear();
         Log.d("GLES20Renderer", "Compiled 3D Drawer (" + id + ") with id " + mProgram);
     }
@@ -102,110 +165,168 @@ class GLES20Renderer implements Renderer {
             flags.put(obj.getId(), this.id);
         }
 
-        GLES20.glUseProgram(mProgram);
-        if (GLUtil.checkGlError("glUseProgram")) {
-            return;
+        // someone else may have changed the program or the textures since the last draw
+        state.reset();
+        state.useProgram(mProgram);
+
+        setFrameUniforms(pMatrix, vMatrix, lightPosInWorldSpace, colorMask, cameraPos);
+        bindObject(obj, textureId);
+        drawShape(obj, drawMode, drawSize, textureId);
+
+        state.setAttributes(0);
+        buffers.unbind();
+    }
+    /**********************************************************************************************/
+    @Override
+    public int getProgram() {
+        return mProgram;
+    }
+    /**********************************************************************************************/
+    @Override
+    public int getElementCount(Object3DData obj) {
+        if (obj.getDrawModeList() != null || obj.isDrawUsingArrays() || obj.getDrawSize() > 0 || obj.getElements() == null) {
+            return -1;
+        }
+        return obj.getElements().size();
+    }
+    /**********************************************************************************************/
+    @Override
+    public int getTexture(Object3DData obj, int element, int textureId) {
+        if (!supportsTextures() && !supportsTextureCube()) {
+            return -1;
+        }
+        if (element >= 0 && supportsTextures()) {
+            final Material material = obj.getElements().get(element).getMaterial();
+            if (material != null && material.getTextureId() != -1) {
+                return material.getTextureId();
+            }
         }
+        return textureId;
+    }
+    /**********************************************************************************************/
+    @Override
+    public boolean isTransparent(Object3DData obj, int element) {
+        if (element >= 0 && !supportsColors()) {
+            final Material material = obj.getElements().get(element).getMaterial();
+            if (material != null && material.getColor() != null) {
+                return material.getColor()[3] < 1;
+            }
+        }
+        return obj.getColor() != null && obj.getColor()[3] < 1;
+    }
+    /**********************************************************************************************/
+    @Override
+    public void setFrameUniforms(float[] pMatrix, float[] vMatrix, float[] lightPosInWorldSpace, float[] colorMask,
+                                 float[] cameraPos) {
+        setUniformMatrix4(vMatrix, mVMatrixUniform);
+        setUniformMatrix4(pMatrix, mPMatrixUniform);
 
-        if(supportsMMatrix()) {
-            setUniformMatrix4(obj.getModelMatrix(), "u_MMatrix");
+        setUniform4(colorMask != null ? colorMask : NO_COLOR_MASK, mColorMaskUniform);
+
+        if (lightPosInWorldSpace != null && supportsLighting()) {
+            setUniform3(lightPosInWorldSpace, mLightPosUniform);
+            setUniform3(cameraPos, mCameraPosUniform);
         }
-        setUniformMatrix4(vMatrix, "u_VMatrix");
-        setUniformMatrix4(pMatrix, "u_PMatrix");
 
-        int mPositionHandle = setVBO("a_Position", obj.getVertexBuffer(), COORDS_PER_VERTEX);
+        // the textures are always bound to unit 0
+        if (supportsTextures()) {
+            GLES20.glUniform1i(mTextureUniform, 0);
+            checkGlError("glUniform1i");
+        }
+        if (supportsTextureCube()) {
+            GLES20.glUniform1i(mTextureCubeUniform, 0);
+            checkGlError("glUniform1i");
+        }
+    }
+    /**********************************************************************************************/
+    @Override
+    public void bindObject(Object3DData obj, int textureId) {
+        if (obj.isChanged()) {
+            buffers.invalidate(obj);
+        }
 
-        int mNormalHandle = -1;
-        if (supportsNormals()) {
-            mNormalHandle = setVBO("a_Normal", obj.getNormalsBuffer(), COORDS_PER_VERTEX);
+        if(supportsMMatrix()) {
+            setUniformMatrix4(obj.getModelMatrix(), mMMatrixUniform);
         }
 
-        int mColorHandle = -1;
-        if (supportsColors()) {
-            mColorHandle = setVBO("a_Color", obj.getColorsBuffer(), COLOR_COORDS_PER_VERTEX);
-        } else {
-            setUniform4(obj.getColor() != null? obj.getColor() : DEFAULT_COLOR,"vColor");
+        // models skinned on the CPU are drawn with their skinned vertices, that change every frame
+        FloatBuffer vertexBuffer = obj.getVertexBuffer();
+        FloatBuffer normalsBuffer = obj.getNormalsBuffer();
+        final Skinning skinning = getSkinning(obj);
+        if (skinning != null) {
+            vertexBuffer = skinning.getVertexBuffer();
+            buffers.invalidate(vertexBuffer);
+            if (skinning.getNormalsBuffer() != null) {
+                normalsBuffer = skinning.getNormalsBuffer();
+                buffers.invalidate(normalsBuffer);
+            }
         }
 
-        setUniform4(colorMask != null ? colorMask : NO_COLOR_MASK,"vColorMask");
+        int attributes = setVBO(mPositionAttribute, vertexBuffer, COORDS_PER_VERTEX);
 
-        int mTextureHandle = -1;
-        if (textureId != -1 && supportsTextures()) {
-            setTexture(textureId);
-            mTextureHandle = setVBO("a_TexCoordinate", obj.getTextureBuffer(), TEXTURE_COORDS_PER_VERTEX);
+        if (supportsNormals()) {
+            attributes |= setVBO(mNormalAttribute, normalsBuffer, COORDS_PER_VERTEX);
         }
 
-        if (textureId != -1 && supportsTextureCube()){
-            setTextureCube(textureId);
+        if (supportsColors()) {
+            attributes |= setVBO(mColorAttribute, obj.getColorsBuffer(), COLOR_COORDS_PER_VERTEX);
+        } else {
+            setUniform4(obj.getColor() != null? obj.getColor() : DEFAULT_COLOR, mColorUniform);
         }
 
-        if (lightPosInWorldSpace != null && supportsLighting()) {
-            setUniform3(lightPosInWorldSpace,"u_LightPos");
-            setUniform3(cameraPos,"u_cameraPos");
+        if (textureId != -1 && supportsTextures()) {
+            attributes |= setVBO(mTexCoordinateAttribute, obj.getTextureBuffer(), TEXTURE_COORDS_PER_VERTEX);
         }
 
-        int in_weightsHandle = -1;
-        int in_jointIndicesHandle = -1;
         if (supportsJoints() && obj instanceof AnimatedModel) {
-            in_weightsHandle = setVBO("in_weights", ((AnimatedModel) obj).getVertexWeights(), COORDS_PER_VERTEX);
-            in_jointIndicesHandle = setVBO("in_jointIndices", ((AnimatedModel) obj).getJointIds(), COORDS_PER_VERTEX);
-            setUniformMatrix4(((AnimatedModel) obj).getBindShapeMatrix(), "u_BindShapeMatrix");
+            attributes |= setVBO(mWeightsAttribute, ((AnimatedModel) obj).getVertexWeights(), COORDS_PER_VERTEX);
+            attributes |= setVBO(mJointIndicesAttribute, ((AnimatedModel) obj).getJointIds(), COORDS_PER_VERTEX);
+            setUniformMatrix4(((AnimatedModel) obj).getBindShapeMatrix(), mBindShapeMatrixUniform);
             setJointTransforms((AnimatedModel) obj);
         }
 
-        drawShape(obj, drawMode, drawSize);
-
-        disableVBO(mPositionHandle);
-        disableVBO(mColorHandle);
-        disableVBO(mNormalHandle);
-        disableVBO(mTextureHandle);
-        disableVBO(in_weightsHandle);
-        disableVBO(in_jointIndicesHandle);
+        state.setAttributes(attributes);
     }
     /**********************************************************************************************/
-    private int setVBO(final String shaderVariableName, final FloatBuffer vertexBufferObject, int coordsPerVertex) {
-        int handler = GLES20.glGetAttribLocation(mProgram, shaderVariableName);
-        GLUtil.checkGlError("glGetAttribLocation");
-
-        GLES20.glEnableVertexAttribArray(handler);
-        GLUtil.checkGlError("glEnableVertexAttribArray");
+    @Override
+    public void drawElement(Object3DData obj, int element, int textureId) {
+        if (element < 0) {
+            drawShape(obj, obj.getDrawMode(), obj.getDrawSize(), textureId);
+        } else {
+            drawElement(obj, element, obj.getDrawMode(), textureId);
+        }
+    }
+    /**********************************************************************************************/
+    // returns the bit of the attribute, to enable it
+    private int setVBO(final int handler, final FloatBuffer vertexBufferObject, int coordsPerVertex) {
+        if (handler == -1) {
+            return 0;
+        }
 
-        vertexBufferObject.position(0);
-        GLES20.glVertexAttribPointer(handler, coordsPerVertex, GLES20.GL_FLOAT, false, 0, vertexBufferObject);
-        GLUtil.checkGlError("glVertexAttribPointer");
+        buffers.bindArrayBuffer(vertexBufferObject);
+        GLES20.glVertexAttribPointer(handler, coordsPerVertex, GLES20.GL_FLOAT, false, 0, 0);
+        checkGlError("glVertexAttribPointer");
 
-        return handler;
+        return 1 << handler;
     }
     /**********************************************************************************************/
-    private void setUniform3(float[] uniform3f, String variableName) {
-        int handle = GLES20.glGetUniformLocation(mProgram, variableName);
-        GLUtil.checkGlError("glGetUniformLocation");
-
+    private void setUniform3(float[] uniform3f, int handle) {
         GLES20.glUniform3fv(handle, 1, uniform3f, 0);
-        GLUtil.checkGlError("glUniform3fv");
+        checkGlError("glUniform3fv");
     }
     /**********************************************************************************************/
-    private void setUniform4(float[] uniform4f, String variableName) {
-        int handle = GLES20.glGetUniformLocation(mProgram, variableName);
-        GLUtil.checkGlError("glGetUniformLocation");
-
+    private void setUniform4(float[] uniform4f, int handle) {
         GLES20.glUniform4fv(handle, 1, uniform4f, 0);
-        GLUtil.checkGlError("glUniform4fv");
+        checkGlError("glUniform4fv");
     }
     /**********************************************************************************************/
-    private void setUniformMatrix4(float[] matrix, String variableName) {
-        int handle = GLES20.glGetUniformLocation(mProgram, variableName);
-        GLUtil.checkGlError("glGetUniformLocation");
-
+    private void setUniformMatrix4(float[] matrix, int handle) {
         GLES20.glUniformMatrix4fv(handle, 1, false, matrix, 0);
-        GLUtil.checkGlError("glUniformMatrix4fv");
+        checkGlError("glUniformMatrix4fv");
     }
     /**********************************************************************************************/
-    private void disableVBO(int handle) {
-        if (handle != -1) {
-            GLES20.glDisableVertexAttribArray(handle);
-            GLUtil.checkGlError("glDisableVertexAttribArray");
-        }
+    static boolean checkGlError(String glOperation) {
+        return DEBUG && GLUtil.checkGlError(glOperation);
     }
     /**********************************************************************************************/
     private boolean supportsMMatrix(){
@@ -232,84 +353,72 @@ class GLES20Renderer implements Renderer {
         return features.contains("a_TexCoordinate");
     }
     /**********************************************************************************************/
-    private void setTexture(int textureId) {
-        int mTextureUniformHandle = GLES20.glGetUniformLocation(mProgram, "u_Texture");
-        GLUtil.checkGlError("glGetUniformLocation");
-
-        GLES20.glActiveTexture(GLES20.GL_TEXTURE0);
-        GLUtil.checkGlError("glActiveTexture");
-
-        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, textureId);
-        GLUtil.checkGlError("glBindTexture");
-
-        GLES20.glUniform1i(mTextureUniformHandle, 0);
-        GLUtil.checkGlError("glUniform1i");
-    }
-    /**********************************************************************************************/
-    private void setTextureCube(int textureId) {
-        int mTextureUniformHandle = GLES20.glGetUniformLocation(mProgram, "u_TextureCube");
-        GLUtil.checkGlError("glGetUniformLocation");
-
-        GLES20.glActiveTexture(GLES20.GL_TEXTURE0);
-        GLUtil.checkGlError("glActiveTexture");
-
-        GLES20.glBindTexture(GLES20.GL_TEXTURE_CUBE_MAP, textureId);
-        GLUtil.checkGlError("glBindTexture");
-
-        GLES20.glUniform1i(mTextureUniformHandle, 0);
-        GLUtil.checkGlError("glUniform1i");
-
+    private void setTextures(Object3DData obj, int element, int textureId) {
+        final int texture = getTexture(obj, element, textureId);
+        if (texture == -1) {
+            return;
+        }
+        if (supportsTextures()) {
+            state.bindTexture(GLES20.GL_TEXTURE_2D, texture);
+        }
+        if (supportsTextureCube()) {
+            state.bindTexture(GLES20.GL_TEXTURE_CUBE_MAP, texture);
+        }
     }
     /**********************************************************************************************/
     private boolean supportsJoints() {
         return features.contains("in_jointIndices") && features.contains("in_weights");
     }
     /**********************************************************************************************/
+    // joint transforms the shader has room for
+    int getJointCount() {
+        return mJointTransformsCount;
+    }
+    /**********************************************************************************************/
+    private Skinning getSkinning(Object3DData obj) {
+        if (supportsJoints() || !(obj instanceof AnimatedModel) || !((AnimatedModel) obj).isCpuSkinning()) {
+            return null;
+        }
+        final AnimationState state = ((AnimatedModel) obj).getAnimationState();
+        return state != null ? state.getSkinning() : null;
+    }
+    /**********************************************************************************************/
     private void setJointTransforms(AnimatedModel animatedModel) {
         float[][] jointTransformsArray = animatedModel.getJointTransforms();
 
-        for (int i = 0; i < jointTransformsArray.length; i++) {
-            float[] jointTransform = jointTransformsArray[i];
-            String jointTransformHandleName = cache1.get(i);
-            if (jointTransformHandleName == null) {
-                jointTransformHandleName = "jointTransforms[" + i + "]";
-                cache1.put(i, jointTransformHandleName);
-            }
-            setUniformMatrix4(jointTransform, jointTransformHandleName);
+        final int count = Math.min(jointTransformsArray.length, mJointTransformsCount);
+        if (count == 0) {
+            return;
         }
-    }
-    /**********************************************************************************************/
-    private void drawShape(Object3DData obj, int drawMode, int drawSize) {
-        int drawBufferType = -1;
-        final Buffer drawOrderBuffer;
-        final FloatBuffer vertexBuffer;
-        if (obj.isDrawUsingArrays()) {
-            drawOrderBuffer = null;
-            vertexBuffer = obj.getVertexBuffer();
-        } else {
-            vertexBuffer = obj.getVertexBuffer();
-            if (drawUsingUnsignedInt) {
-                drawOrderBuffer = obj.getDrawOrder();
-                drawBufferType = GLES20.GL_UNSIGNED_INT;
-            } else {
-                drawOrderBuffer = obj.getDrawOrderAsShort();
-                drawBufferType = GLES20.GL_UNSIGNED_SHORT;
-            }
+
+        if (jointTransforms == null || jointTransforms.length < count * 16) {
+            jointTransforms = new float[mJointTransformsCount * 16];
+        }
+        for (int i = 0; i < count; i++) {
+            System.arraycopy(jointTransformsArray[i], 0, jointTransforms, i * 16, 16);
         }
-        vertexBuffer.position(0);
 
+        GLES20.glUniformMatrix4fv(mJointTransformsUniform, count, false, jointTransforms, 0);
+        checkGlError("glUniformMatrix4fv");
+    }
+    /**********************************************************************************************/
+    private void drawShape(Object3DData obj, int drawMode, int drawSize, int textureId) {
         List<int[]> drawModeList = obj.getDrawModeList();
+        // the elements set their own
+        if (drawModeList != null || obj.isDrawUsingArrays() || drawSize > 0) {
+            setTextures(obj, -1, textureId);
+        }
         if (drawModeList != null) {
             if (obj.isDrawUsingArrays()) {
                 drawPolygonsUsingArrays(drawMode, drawModeList);
             } else {
-                drawPolygonsUsingIndex(drawOrderBuffer, drawBufferType, drawModeList);
+                drawPolygonsUsingIndex(obj.getDrawOrder(), drawModeList);
             }
         } else {
             if (obj.isDrawUsingArrays()) {
-                drawTrianglesUsingArrays(drawMode, drawSize, vertexBuffer.capacity() / COORDS_PER_VERTEX);
+                drawTrianglesUsingArrays(drawMode, drawSize, obj.getVertexBuffer().capacity() / COORDS_PER_VERTEX);
             } else {
-                drawTrianglesUsingIndex(obj, drawMode, drawSize, drawOrderBuffer, drawBufferType);
+                drawTrianglesUsingIndex(obj, drawMode, drawSize, textureId);
             }
         }
     }
@@ -325,16 +434,16 @@ class GLES20Renderer implements Renderer {
                 drawCount = (int) ((Math.sin(rotation - this.shift + Math.PI / 2 * 3) + 1) / 2f * drawCount);
             }
             GLES20.glDrawArrays(drawMode, 0, drawCount);
-            GLUtil.checkGlError("glDrawArrays");
+            checkGlError("glDrawArrays");
         } else {
             for (int i = 0; i < drawCount; i += drawSize) {
                 GLES20.glDrawArrays(drawMode, i, drawSize);
-                GLUtil.checkGlError("glDrawArrays");
+                checkGlError("glDrawArrays");
             }
         }
     }
     /**********************************************************************************************/
-    private void drawTrianglesUsingIndex(Object3DData obj, int drawMode, int drawSize, Buffer drawOrderBuffer, int drawBufferType) {
+    private void drawTrianglesUsingIndex(Object3DData obj, int drawMode, int drawSize, int textureId) {
         if (drawSize <= 0) {
             if (id != flags.get(obj.getElements())) {
                 Log.i("GLES20Renderer", "Rendering elements... obj: " + obj.getId()
@@ -345,41 +454,12 @@ class GLES20Renderer implements Renderer {
             for (int i = 0; i < obj.getElements().size(); i++) {
 
                 Element element = obj.getElements().get(i);
-                drawOrderBuffer = element.getIndexBuffer();
 
                 if (id != flags.get(element)) {
                     Log.v("GLES20Renderer", "Rendering element " + i + "....  " + element);
                 }
 
-                if (element.getMaterial() != null) {
-                    if (!supportsColors()) {
-                        setUniform4(element.getMaterial().getColor() != null ? element.getMaterial().getColor() :
-                                obj.getColor() != null ? obj.getColor() : DEFAULT_COLOR, "vColor");
-                    }
-                    if (element.getMaterial().getTextureId() != -1 && supportsTextures()) {
-                        setTexture(element.getMaterial().getTextureId());
-                    }
-                }
-
-                if(drawUsingUnsignedInt == false){
-                    ShortBuffer indexShortBuffer = null;
-                    drawOrderBuffer.position(0);
-                    if (indexShortBuffer == null && drawOrderBuffer != null) {
-                        indexShortBuffer = IOUtils.createShortBuffer(((IntBuffer) drawOrderBuffer).capacity());
-                        for (int j = 0; j < indexShortBuffer.capacity(); j++) {
-                            indexShortBuffer.put((short) ((IntBuffer) drawOrderBuffer).get(j));
-                        }
-                        drawOrderBuffer = indexShortBuffer;
-                    }
-                }
-
-                drawOrderBuffer.position(0);
-                GLES20.glDrawElements(drawMode, drawOrderBuffer.capacity(), drawBufferType,
-                        drawOrderBuffer);
-                boolean error = GLUtil.checkGlError("glDrawElements");
-                if (drawUsingUnsignedInt && error) {
-                    drawUsingUnsignedInt = false;
-                }
+                drawElement(obj, i, drawMode, textureId);
 
                 if (id != flags.get(element)) {
                     Log.v("GLES20Renderer", "Rendering element " + i + " finished");
@@ -387,30 +467,63 @@ class GLES20Renderer implements Renderer {
                 }
             }
         } else {
+            IntBuffer drawOrderBuffer = obj.getDrawOrder();
+            final int drawBufferType = bindIndexBuffer(drawOrderBuffer);
+            final int indexSize = getIndexSize(drawBufferType);
             for (int i = 0; i < drawOrderBuffer.capacity(); i += drawSize) {
-                drawOrderBuffer.position(i);
-                GLES20.glDrawElements(drawMode, drawSize, drawBufferType, drawOrderBuffer);
-                boolean error = GLUtil.checkGlError("glDrawElements");
-                if (drawUsingUnsignedInt && error) {
-                    drawUsingUnsignedInt = false;
-                }
+                GLES20.glDrawElements(drawMode, drawSize, drawBufferType, i * indexSize);
+                checkDrawElementsError();
             }
         }
     }
     /**********************************************************************************************/
-    private void drawPolygonsUsingIndex(Buffer drawOrderBuffer, int drawBufferType, List<int[]> polygonsList) {
+    private void drawElement(Object3DData obj, int index, int drawMode, int textureId) {
+        final Element element = obj.getElements().get(index);
+        final Material material = element.getMaterial();
+        if (!supportsColors()) {
+            setUniform4(material != null && material.getColor() != null ? material.getColor() :
+                    obj.getColor() != null ? obj.getColor() : DEFAULT_COLOR, mColorUniform);
+        }
+        setTextures(obj, index, textureId);
+
+        // the level of detail chosen for the object. the coarse ones may have nothing left of the element
+        final IntBuffer drawOrderBuffer = element.getIndexBuffer(obj.getLevel());
+        if (drawOrderBuffer.capacity() == 0) {
+            return;
+        }
+        final int drawBufferType = bindIndexBuffer(drawOrderBuffer);
+        GLES20.glDrawElements(drawMode, drawOrderBuffer.capacity(), drawBufferType, 0);
+        checkDrawElementsError();
+    }
+    /**********************************************************************************************/
+    private void drawPolygonsUsingIndex(IntBuffer drawOrderBuffer, List<int[]> polygonsList) {
         // Log.d(obj.getId(),"Drawing single polygons using elements...");
+        final int drawBufferType = bindIndexBuffer(drawOrderBuffer);
+        final int indexSize = getIndexSize(drawBufferType);
         for (int i = 0; i < polygonsList.size(); i++) {
             int[] drawPart = polygonsList.get(i);
             int drawModePolygon = drawPart[0];
             int vertexPos = drawPart[1];
             int drawSizePolygon = drawPart[2];
-            drawOrderBuffer.position(vertexPos);
-            GLES20.glDrawElements(drawModePolygon, drawSizePolygon, drawBufferType, drawOrderBuffer);
-            boolean error = GLUtil.checkGlError("glDrawElements");
-            if (drawUsingUnsignedInt && error) {
-                drawUsingUnsignedInt = false;
-            }
+            GLES20.glDrawElements(drawModePolygon, drawSizePolygon, drawBufferType, vertexPos * indexSize);
+            checkDrawElementsError();
+        }
+    }
+    /**********************************************************************************************/
+    private int bindIndexBuffer(IntBuffer drawOrderBuffer) {
+        final int drawBufferType = drawUsingUnsignedInt ? GLES20.GL_UNSIGNED_INT : GLES20.GL_UNSIGNED_SHORT;
+        buffers.bindElementBuffer(drawOrderBuffer, drawBufferType);
+        return drawBufferType;
+    }
+    /**********************************************************************************************/
+    private static int getIndexSize(int drawBufferType) {
+        return drawBufferType == GLES20.GL_UNSIGNED_INT ? 4 : 2;
+    }
+    /**********************************************************************************************/
+    private void checkDrawElementsError() {
+        boolean error = checkGlError("glDrawElements");
+        if (drawUsingUnsignedInt && error) {
+            drawUsingUnsignedInt = false;
         }
     }
     /**********************************************************************************************/
@@ -423,11 +536,11 @@ class GLES20Renderer implements Renderer {
             if (drawMode == GLES20.GL_LINE_LOOP && polygon[2] > 3) {
                 for (int i = 0; i < polygon[2] - 2; i++) {
                     GLES20.glDrawArrays(drawMode, polygon[1] + i, 3);
-                    GLUtil.checkGlError("glDrawArrays");
+                    checkGlError("glDrawArrays");
                 }
             } else {
                 GLES20.glDrawArrays(drawMode, polygon[1], polygon[2]);
-                GLUtil.checkGlError("glDrawArrays");
+                checkGlError("glDrawArrays");
             }
         }
     }
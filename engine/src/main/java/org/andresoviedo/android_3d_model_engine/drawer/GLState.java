@@ -0,0 +1,93 @@
+package org.andresoviedo.android_3d_model_engine.drawer;
+
+import android.opengl.GLES20;
+/**************************************************************************************************/
+// the GL state the renderers change between draws, so the calls that would not change it are not made.
+// only texture unit 0 is used
+final class GLState {
+    /**********************************************************************************************/
+    private static final int UNKNOWN = -1;
+    /**********************************************************************************************/
+    private final GLApi gl;
+    /**********************************************************************************************/
+    private int program = UNKNOWN;
+    private int activeTexture = UNKNOWN;
+    private int texture2D = UNKNOWN;
+    private int textureCubeMap = UNKNOWN;
+    // bit per attribute location. all the changes go through here, so it's always known
+    private int enabledAttributes;
+
+    /**********************************************************************************************/
+    GLState(GLApi gl) {
+        this.gl = gl;
+    }
+
+    /**********************************************************************************************/
+    void useProgram(int program) {
+        if (this.program != program) {
+            gl.glUseProgram(program);
+            this.program = program;
+        }
+    }
+
+    /**********************************************************************************************/
+    void bindTexture(int target, int texture) {
+        if (activeTexture != GLES20.GL_TEXTURE0) {
+            gl.glActiveTexture(GLES20.GL_TEXTURE0);
+            activeTexture = GLES20.GL_TEXTURE0;
+        }
+        if (target == GLES20.GL_TEXTURE_CUBE_MAP) {
+            if (textureCubeMap != texture) {
+                gl.glBindTexture(target, texture);
+                textureCubeMap = texture;
+            }
+        } else if (texture2D != texture) {
+            gl.glBindTexture(target, texture);
+            texture2D = texture;
+        }
+    }
+
+    /**********************************************************************************************/
+    // the texture has been deleted, so its id may be given to another one
+    void forgetTexture(int texture) {
+        if (texture2D == texture) {
+            texture2D = UNKNOWN;
+        }
+        if (textureCubeMap == texture) {
+            textureCubeMap = UNKNOWN;
+        }
+    }
+
+    /**********************************************************************************************/
+    // enables the attribute arrays of the mask, and disables the rest
+    void setAttributes(int mask) {
+        final int changed = enabledAttributes ^ mask;
+        if (changed == 0) return;
+        for (int i = 0; i < 32; i++) {
+            if ((changed & (1 << i)) == 0) continue;
+            if ((mask & (1 << i)) != 0) {
+                gl.glEnableVertexAttribArray(i);
+            } else {
+                gl.glDisableVertexAttribArray(i);
+            }
+        }
+        enabledAttributes = mask;
+    }
+
+    /**********************************************************************************************/
+    // the program and the textures may have been changed by someone else (the textures are loaded with
+    // GLUtil, for example)
+    void reset() {
+        program = UNKNOWN;
+        activeTexture = UNKNOWN;
+        texture2D = UNKNOWN;
+        textureCubeMap = UNKNOWN;
+    }
+
+    /**********************************************************************************************/
+    void clear() {
+        // a new GL context starts with no attribute arrays enabled
+        reset();
+        enabledAttributes = 0;
+    }
+}
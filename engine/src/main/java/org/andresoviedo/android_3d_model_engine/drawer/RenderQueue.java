@@ -0,0 +1,202 @@
+package org.andresoviedo.android_3d_model_engine.drawer;
+
+import android.opengl.Matrix;
+import android.util.Log;
+
+import org.andresoviedo.android_3d_model_engine.collision.Frustum;
+import org.andresoviedo.android_3d_model_engine.model.AnimatedModel;
+import org.andresoviedo.android_3d_model_engine.model.Dimensions;
+import org.andresoviedo.android_3d_model_engine.model.Object3DData;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+/**************************************************************************************************/
+// the draws of a frame, sorted so the program and the textures change as few times as possible. the
+// opaque ones go by program, texture and then front to back, and the transparent ones after them, back
+// to front. the objects drawn by elements are queued by element, so elements of different objects
+// that share a texture are drawn together, and the ones out of the view are left out
+public final class RenderQueue {
+    /**********************************************************************************************/
+    // what the queue needs from a renderer (see GLES20Renderer)
+    interface Drawer {
+        int getProgram();
+        // the elements the object is drawn by, or -1 if it's drawn as a whole
+        int getElementCount(Object3DData obj);
+        // the texture the element (-1 for the whole object) is drawn with, or -1
+        int getTexture(Object3DData obj, int element, int textureId);
+        boolean isTransparent(Object3DData obj, int element);
+        // the uniforms that are the same for all the draws of the frame. with its program in use
+        void setFrameUniforms(float[] pMatrix, float[] vMatrix, float[] lightPosInWorldSpace, float[] colorMask, float[] cameraPos);
+        void bindObject(Object3DData obj, int textureId);
+        // once the object is bound
+        void drawElement(Object3DData obj, int element, int textureId);
+    }
+
+    /**********************************************************************************************/
+    private static final class Item {
+        private Drawer drawer;
+        private Object3DData obj;
+        private int element;
+        private int textureId;
+        // to sort them
+        private int program;
+        private int texture;
+        private boolean transparent;
+        private float depth;
+        private int order;
+    }
+
+    /**********************************************************************************************/
+    private static final Comparator<Item> ORDER = (a, b) -> {
+        if (a.transparent != b.transparent) {
+            return a.transparent ? 1 : -1;
+        }
+        int ret;
+        if (a.transparent) {
+            ret = Float.compare(b.depth, a.depth);
+        } else {
+            ret = Integer.compare(a.program, b.program);
+            if (ret == 0) ret = Integer.compare(a.texture, b.texture);
+            if (ret == 0) ret = Float.compare(a.depth, b.depth);
+        }
+        return ret != 0 ? ret : Integer.compare(a.order, b.order);
+    };
+    /**********************************************************************************************/
+    private final GLState state;
+    private final GLBufferCache buffers;
+    /**********************************************************************************************/
+    // reused from frame to frame
+    private Item[] items = new Item[64];
+    private int size;
+    /**********************************************************************************************/
+    // the drawers whose frame uniforms are already set
+    private final List<Drawer> prepared = new ArrayList<>();
+    private final float[] center = new float[8];
+    // logged once
+    private final Set<String> errors = new HashSet<>();
+
+    /**********************************************************************************************/
+    RenderQueue(GLState state, GLBufferCache buffers) {
+        this.state = state;
+        this.buffers = buffers;
+    }
+
+    /**********************************************************************************************/
+    // the renderer must come from the RendererFactory of the queue. with a frustum, the elements out of
+    // it are left out. returns how many
+    public int add(Renderer renderer, Object3DData obj, int textureId, float[] viewMatrix, Frustum frustum) {
+        final Drawer drawer = (Drawer) renderer;
+
+        // distance to the camera, of the center of the object
+        final float[] objCenter = obj.getDimensions().getCenter();
+        center[4] = objCenter[0];
+        center[5] = objCenter[1];
+        center[6] = objCenter[2];
+        center[7] = 1;
+        Matrix.multiplyMV(center, 0, obj.getModelMatrix(), 0, center, 4);
+        Matrix.multiplyMV(center, 4, viewMatrix, 0, center, 0);
+        final float depth = -center[6];
+
+        final int elements = drawer.getElementCount(obj);
+        if (elements < 0) {
+            add(drawer, obj, -1, textureId, depth);
+            return 0;
+        }
+
+        // the poses of animated models go out of the dimensions of their elements
+        final boolean culling = frustum != null && !(obj instanceof AnimatedModel);
+        int ret = 0;
+        for (int i = 0; i < elements; i++) {
+            final Dimensions dimensions = culling ? obj.getElements().get(i).getDimensions() : null;
+            if (dimensions != null && !frustum.intersectsBox(dimensions.getMin(), dimensions.getMax(), obj.getModelMatrix())) {
+                ret++;
+                continue;
+            }
+            add(drawer, obj, i, textureId, depth);
+        }
+        return ret;
+    }
+
+    /**********************************************************************************************/
+    private void add(Drawer drawer, Object3DData obj, int element, int textureId, float depth) {
+        if (size == items.length) {
+            items = Arrays.copyOf(items, size * 2);
+        }
+        Item item = items[size];
+        if (item == null) {
+            item = new Item();
+            items[size] = item;
+        }
+        item.drawer = drawer;
+        item.obj = obj;
+        item.element = element;
+        item.textureId = textureId;
+        item.program = drawer.getProgram();
+        item.texture = drawer.getTexture(obj, element, textureId);
+        item.transparent = drawer.isTransparent(obj, element);
+        item.depth = depth;
+        item.order = size;
+        size++;
+    }
+
+    /**********************************************************************************************/
+    public int size() {
+        return size;
+    }
+
+    /**********************************************************************************************/
+    // draws everything queued, and empties the queue
+    public void flush(float[] pMatrix, float[] vMatrix, float[] lightPosInWorldSpace, float[] colorMask, float[] cameraPos) {
+        if (size == 0) {
+            return;
+        }
+        Arrays.sort(items, 0, size, ORDER);
+
+        // the textures may have been loaded, and bound, since the last draw
+        state.reset();
+
+        Drawer drawer = null;
+        Object3DData obj = null;
+        int textureId = -1;
+        for (int i = 0; i < size; i++) {
+            final Item item = items[i];
+            if (item.drawer != drawer) {
+                drawer = item.drawer;
+                state.useProgram(item.program);
+                if (!prepared.contains(drawer)) {
+                    drawer.setFrameUniforms(pMatrix, vMatrix, lightPosInWorldSpace, colorMask, cameraPos);
+                    prepared.add(drawer);
+                }
+                obj = null;
+            }
+            try {
+                if (item.obj != obj || item.textureId != textureId) {
+                    obj = item.obj;
+                    textureId = item.textureId;
+                    drawer.bindObject(obj, textureId);
+                }
+                drawer.drawElement(obj, item.element, textureId);
+            } catch (RuntimeException ex) {
+                // the rest are drawn anyway
+                obj = null;
+                if (errors.add(String.valueOf(ex.getMessage()))) {
+                    Log.e("RenderQueue", "There was a problem rendering the object '" + item.obj.getId() + "':" + ex.getMessage(), ex);
+                }
+            }
+        }
+
+        state.setAttributes(0);
+        buffers.unbind();
+
+        for (int i = 0; i < size; i++) {
+            items[i].drawer = null;
+            items[i].obj = null;
+        }
+        size = 0;
+        prepared.clear();
+    }
+}
@@ -19,6 +19,13 @@ public class RendererFactory {
     private Map<String, String> shadersCode = new HashMap<>();
     /**********************************************************************************************/
     private Map<Shader, GLES20Renderer> drawers = new HashMap<>();
+    /**********************************************************************************************/
+    private final GLApi gl = new GLES20Api();
+    private final GLBufferCache buffers = new GLBufferCache(gl);
+    private final GLState state = new GLState(gl);
+    /**********************************************************************************************/
+    private final RenderQueue renderQueue = new RenderQueue(state, buffers);
+    private final TextureLoader textures = new TextureLoader(gl, state);
 
     /**********************************************************************************************/
     public RendererFactory(Context context) throws IllegalAccessException, IOException {
@@ -45,7 +52,29 @@ public class RendererFactory {
                 .getColorsBuffer() != null);
 
         final Shader shader = getShader(usingSkyBox, isAnimated, isUsingLights, isTextured, isColoured);
+        final GLES20Renderer drawer = getDrawer(shader);
+        if (!isAnimated || drawer == null) {
+            return drawer;
+        }
+
+        // with more bones than the shader has joint transforms for, the vertices are skinned on the CPU
+        // and drawn with the shader without animation
+        final AnimatedModel animatedModel = (AnimatedModel) obj;
+        final boolean cpuSkinning = animatedModel.getJointsData() != null
+                && animatedModel.getBoneCount() > drawer.getJointCount();
+        if (cpuSkinning != animatedModel.isCpuSkinning()) {
+            Log.i("RendererFactory", "Skinning on the " + (cpuSkinning ? "CPU" : "GPU") + ": " + animatedModel.getId()
+                    + ", bones: " + animatedModel.getBoneCount() + ", shader joints: " + drawer.getJointCount());
+            animatedModel.setCpuSkinning(cpuSkinning);
+        }
+        if (!cpuSkinning) {
+            return drawer;
+        }
+        return getDrawer(getShader(usingSkyBox, false, isUsingLights, isTextured, isColoured));
+    }
 
+    /**********************************************************************************************/
+    private GLES20Renderer getDrawer(Shader shader) {
         GLES20Renderer drawer = drawers.get(shader);
         if (drawer != null) return drawer;
 
@@ -58,20 +87,52 @@ public class RendererFactory {
 
         vertexShaderCode = vertexShaderCode.replace("void main(){", "void main(){\n\tgl_PointSize = 5.0;");
 
-        vertexShaderCode = vertexShaderCode.replace("const int MAX_JOINTS = 60;", "const int MAX_JOINTS = gl_MaxVertexUniformVectors > 60 ? 60 : gl_MaxVertexUniformVectors;");
+        // a mat4 takes 4 uniform vectors, and the other uniforms of the animation shaders take up to 20
+        vertexShaderCode = vertexShaderCode.replace("const int MAX_JOINTS = 60;", "const int MAX_JOINTS = "
+                + "(gl_MaxVertexUniformVectors - 20) / 4 > 60 ? 60 : (gl_MaxVertexUniformVectors - 20) / 4;");
 
         Log.v("RendererFactory", "\n---------- Vertex shader ----------\n");
         Log.v("RendererFactory", vertexShaderCode);
         Log.v("RendererFactory", "---------- Fragment shader ----------\n");
         Log.v("RendererFactory", fragmentShaderCode);
         Log.v("RendererFactory", "-------------------------------------\n");
-        drawer = GLES20Renderer.getInstance(shader.id, vertexShaderCode, fragmentShaderCode);
+        drawer = GLES20Renderer.getInstance(shader.id, vertexShaderCode, fragmentShaderCode, buffers, state);
 
         drawers.put(shader, drawer);
 
         return drawer;
     }
 
+    /**********************************************************************************************/
+    public void invalidate(Object3DData obj) {
+        buffers.invalidate(obj);
+    }
+
+    /**********************************************************************************************/
+    public void nextFrame() {
+        buffers.nextFrame();
+        textures.nextFrame();
+    }
+
+    /**********************************************************************************************/
+    public void onSurfaceCreated() {
+        buffers.clear();
+        state.clear();
+        textures.clear();
+    }
+
+    /**********************************************************************************************/
+    // for the drawers of this factory
+    public RenderQueue getRenderQueue() {
+        return renderQueue;
+    }
+
+    /**********************************************************************************************/
+    // on the GL thread
+    public TextureLoader getTextures() {
+        return textures;
+    }
+
     /**********************************************************************************************/
     @NonNull
     private Shader getShader(boolean isUsingSkyBox, boolean isAnimated, boolean isUsingLights, boolean isTextured, boolean
@@ -0,0 +1,453 @@
+package org.andresoviedo.android_3d_model_engine.drawer;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.opengl.GLES20;
+import android.util.Log;
+
+import org.andresoviedo.android_3d_model_engine.model.Material;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+/**************************************************************************************************/
+// decodes the textures on a pool of threads, and uploads them on the GL thread a few rows at a time, no
+// more than the budget of each frame, so a big texture doesn't stop the drawing. until a texture is
+// uploaded, a white pixel is bound instead.
+// the textures are kept by the hash of their bytes, so the same image is uploaded once whatever the
+// materials that have it. when they take more than the budget of the cache, the least recently used
+// are deleted: first the ones no material has anymore, then the ones not drawn lately
+public final class TextureLoader {
+    /**********************************************************************************************/
+    private static final class Texture {
+        // until it's decoded
+        private byte[] data;
+        // the hash of the bytes. null until it's known
+        private String key;
+        private int id = -1;
+        // set by the decoder, before it's queued
+        private ByteBuffer pixels;
+        private int width;
+        private int height;
+        private int uploadedRows;
+        private boolean ready;
+        private boolean deleted;
+        // on the GPU
+        private long bytes;
+        private long lastUsedFrame;
+        // the materials that have it. the ones of the models that are gone are forgotten with them
+        private final Map<Material, Boolean> users = new WeakHashMap<>();
+        // the arrays of bytes seen with this content
+        private final List<byte[]> aliases = new ArrayList<>();
+
+        private Texture(byte[] data) {
+            this.data = data;
+        }
+    }
+
+    /**********************************************************************************************/
+    public static final int DEFAULT_BUDGET_BYTES = 4 * 1024 * 1024;
+    public static final int DEFAULT_BUDGET_MILLIS = 4;
+    public static final long DEFAULT_CACHE_BYTES = 128 * 1024 * 1024;
+    /**********************************************************************************************/
+    private static final int DECODER_THREADS = 2;
+    private static final int BYTES_PER_PIXEL = 4;
+    /**********************************************************************************************/
+    // the textures of the materials are deleted only if they have not been drawn for this long
+    static final int MIN_UNUSED_FRAMES = 120;
+    // how often the unused arrays of bytes are let go, even under the budget
+    private static final int TRIM_FRAMES = 60;
+    /**********************************************************************************************/
+    private static final AtomicInteger threads = new AtomicInteger();
+    private static final ExecutorService decoder = Executors.newFixedThreadPool(DECODER_THREADS, runnable -> {
+        final Thread thread = new Thread(runnable, "TextureLoader-" + threads.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+    /**********************************************************************************************/
+    private final GLApi gl;
+    private final GLState state;
+    /**********************************************************************************************/
+    // on the GL thread
+    private final Map<byte[], Texture> byData = new IdentityHashMap<>();
+    // in the order they were used, the least recent first
+    private final LinkedHashMap<String, Texture> byKey = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<Material, Texture> materials = new WeakHashMap<>();
+    private Texture uploading;
+    private int placeholder = -1;
+    private long frame;
+    private long allocatedBytes;
+    /**********************************************************************************************/
+    // from the decoder to the GL thread
+    private final Queue<Texture> hashed = new ConcurrentLinkedQueue<>();
+    private final Queue<Texture> decoded = new ConcurrentLinkedQueue<>();
+    /**********************************************************************************************/
+    private int budgetBytes = DEFAULT_BUDGET_BYTES;
+    private long budgetNanos = DEFAULT_BUDGET_MILLIS * 1000000L;
+    private long cacheBytes = DEFAULT_CACHE_BYTES;
+    /**********************************************************************************************/
+    private int hits;
+    private int misses;
+    private int evictions;
+
+    /**********************************************************************************************/
+    TextureLoader(GLApi gl, GLState state) {
+        this.gl = gl;
+        this.state = state;
+    }
+
+    /**********************************************************************************************/
+    // how much is uploaded in each frame at most. at least a row is uploaded, so it always goes on
+    public void setBudget(int bytes, int millis) {
+        this.budgetBytes = bytes;
+        this.budgetNanos = millis * 1000000L;
+    }
+
+    /**********************************************************************************************/
+    // how much the textures may take on the GPU. the ones drawn lately are kept anyway
+    public void setCacheBudget(long bytes) {
+        this.cacheBytes = bytes;
+    }
+
+    /**********************************************************************************************/
+    // whether it has been asked for already
+    public boolean contains(byte[] data) {
+        return byData.containsKey(data);
+    }
+
+    /**********************************************************************************************/
+    // on the GL thread. the texture of the material, or -1 if it has none. the first time, it starts
+    // decoding it
+    public int getTexture(Material material) {
+        final byte[] data = material.getTextureData();
+        if (data == null) {
+            release(material);
+            return -1;
+        }
+
+        Texture texture = byData.get(data);
+        if (texture == null) {
+            texture = new Texture(data);
+            byData.put(data, texture);
+            final Texture hashing = texture;
+            decoder.execute(() -> hash(hashing));
+        }
+
+        final Texture old = materials.put(material, texture);
+        if (old != texture) {
+            if (old != null) {
+                old.users.remove(material);
+            }
+            texture.users.put(material, Boolean.TRUE);
+        }
+
+        texture.lastUsedFrame = frame;
+        if (!texture.ready) {
+            return getPlaceholder();
+        }
+        // so it's the most recently used
+        byKey.get(texture.key);
+        return texture.id;
+    }
+
+    /**********************************************************************************************/
+    // the material doesn't need its texture anymore. it's kept in the cache while there is room
+    public void release(Material material) {
+        final Texture texture = materials.remove(material);
+        if (texture != null) {
+            texture.users.remove(material);
+        }
+    }
+
+    /**********************************************************************************************/
+    // the ones that are not ready yet
+    public int getPending() {
+        int ret = 0;
+        for (Texture texture : byData.values()) {
+            if (!texture.ready) ret++;
+        }
+        return ret;
+    }
+
+    /**********************************************************************************************/
+    public int getTextureCount() {
+        return byKey.size();
+    }
+
+    /**********************************************************************************************/
+    // on the GPU
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    /**********************************************************************************************/
+    // the images that were already loaded when asked for
+    public int getHits() {
+        return hits;
+    }
+
+    /**********************************************************************************************/
+    // the images that had to be decoded
+    public int getMisses() {
+        return misses;
+    }
+
+    /**********************************************************************************************/
+    public int getEvictions() {
+        return evictions;
+    }
+
+    /**********************************************************************************************/
+    private void hash(Texture texture) {
+        try {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            final byte[] hash = digest.digest(texture.data);
+            final StringBuilder key = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                key.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            texture.key = key.toString();
+            hashed.add(texture);
+        } catch (Exception ex) {
+            Log.e("TextureLoader", "Error hashing texture: " + ex.getMessage(), ex);
+        }
+    }
+
+    /**********************************************************************************************/
+    private void decode(Texture texture) {
+        try {
+            final long start = System.currentTimeMillis();
+            final BitmapFactory.Options options = new BitmapFactory.Options();
+            options.inScaled = false;
+            options.inPreferredConfig = Bitmap.Config.ARGB_8888;
+
+            Bitmap bitmap = BitmapFactory.decodeByteArray(texture.data, 0, texture.data.length, options);
+            if (bitmap == null) {
+                Log.e("TextureLoader", "Couldn't decode texture. bytes: " + texture.data.length);
+                return;
+            }
+            if (bitmap.getConfig() != Bitmap.Config.ARGB_8888) {
+                final Bitmap copy = bitmap.copy(Bitmap.Config.ARGB_8888, false);
+                bitmap.recycle();
+                bitmap = copy;
+            }
+
+            // the bytes of an ARGB_8888 bitmap are in the order of GL_RGBA
+            final ByteBuffer pixels = ByteBuffer.allocateDirect(bitmap.getWidth() * bitmap.getHeight() * BYTES_PER_PIXEL)
+                    .order(ByteOrder.nativeOrder());
+            bitmap.copyPixelsToBuffer(pixels);
+            pixels.position(0);
+
+            texture.width = bitmap.getWidth();
+            texture.height = bitmap.getHeight();
+            texture.pixels = pixels;
+            bitmap.recycle();
+
+            Log.i("TextureLoader", "Decoded texture: " + texture.width + "x" + texture.height
+                    + ", time: " + (System.currentTimeMillis() - start) + " ms");
+            decoded.add(texture);
+        } catch (Exception ex) {
+            Log.e("TextureLoader", "Error decoding texture: " + ex.getMessage(), ex);
+        } catch (OutOfMemoryError ex) {
+            // the white pixel is drawn instead
+            Log.e("TextureLoader", "Not enough memory to decode texture. bytes: " + texture.data.length);
+        }
+    }
+
+    /**********************************************************************************************/
+    // on the GL thread, before drawing
+    void nextFrame() {
+        frame++;
+
+        Texture texture;
+        while ((texture = hashed.poll()) != null) {
+            if (byData.get(texture.data) == texture) {
+                resolve(texture);
+            }
+        }
+
+        final long start = System.nanoTime();
+        int bytes = 0;
+        while (bytes < budgetBytes && System.nanoTime() - start < budgetNanos) {
+            if (uploading == null) {
+                uploading = decoded.poll();
+                if (uploading == null) break;
+                if (uploading.deleted || byKey.get(uploading.key) != uploading) {
+                    // from before the GL context was lost
+                    uploading = null;
+                    continue;
+                }
+            }
+            bytes += upload(uploading, budgetBytes - bytes);
+            if (uploading.ready) {
+                uploading = null;
+            }
+        }
+
+        if (allocatedBytes > cacheBytes || frame % TRIM_FRAMES == 0) {
+            trim();
+        }
+    }
+
+    /**********************************************************************************************/
+    // once its hash is known, it's the texture of its content, or the one already there
+    private void resolve(Texture texture) {
+        final Texture existing = byKey.get(texture.key);
+        if (existing == null) {
+            misses++;
+            texture.aliases.add(texture.data);
+            byKey.put(texture.key, texture);
+            decoder.execute(() -> decode(texture));
+            return;
+        }
+
+        hits++;
+        existing.aliases.add(texture.data);
+        existing.lastUsedFrame = Math.max(existing.lastUsedFrame, texture.lastUsedFrame);
+        byData.put(texture.data, existing);
+        for (Map.Entry<Material, Texture> entry : materials.entrySet()) {
+            if (entry.getValue() == texture) {
+                entry.setValue(existing);
+                existing.users.put(entry.getKey(), Boolean.TRUE);
+            }
+        }
+        texture.data = null;
+    }
+
+    /**********************************************************************************************/
+    // returns the bytes uploaded
+    private int upload(Texture texture, int maxBytes) {
+        final int rowBytes = texture.width * BYTES_PER_PIXEL;
+        final int rows = Math.min(texture.height - texture.uploadedRows, Math.max(1, maxBytes / rowBytes));
+
+        if (texture.id == -1) {
+            texture.id = gl.glGenTexture();
+            if (texture.id == 0) {
+                throw new RuntimeException("Error creating texture");
+            }
+            texture.bytes = (long) rowBytes * texture.height;
+            allocatedBytes += texture.bytes;
+            state.bindTexture(GLES20.GL_TEXTURE_2D, texture.id);
+            gl.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MIN_FILTER, GLES20.GL_NEAREST);
+            gl.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MAG_FILTER, GLES20.GL_NEAREST);
+            if (rows == texture.height) {
+                // all at once
+                gl.glTexImage2D(GLES20.GL_TEXTURE_2D, 0, GLES20.GL_RGBA, texture.width, texture.height,
+                        GLES20.GL_UNSIGNED_BYTE, texture.pixels);
+                texture.uploadedRows = rows;
+                onUploaded(texture);
+                return rows * rowBytes;
+            }
+            gl.glTexImage2D(GLES20.GL_TEXTURE_2D, 0, GLES20.GL_RGBA, texture.width, texture.height,
+                    GLES20.GL_UNSIGNED_BYTE, null);
+        } else {
+            state.bindTexture(GLES20.GL_TEXTURE_2D, texture.id);
+        }
+
+        texture.pixels.position(texture.uploadedRows * rowBytes);
+        gl.glTexSubImage2D(GLES20.GL_TEXTURE_2D, 0, 0, texture.uploadedRows, texture.width, rows,
+                GLES20.GL_RGBA, GLES20.GL_UNSIGNED_BYTE, texture.pixels);
+        texture.uploadedRows += rows;
+        if (texture.uploadedRows == texture.height) {
+            onUploaded(texture);
+        }
+        return rows * rowBytes;
+    }
+
+    /**********************************************************************************************/
+    private void onUploaded(Texture texture) {
+        texture.pixels = null;
+        texture.data = null;
+        texture.ready = true;
+        Log.i("TextureLoader", "Uploaded texture. id: " + texture.id + ", size: " + texture.width + "x" + texture.height
+                + ", textures: " + byKey.size() + ", bytes: " + allocatedBytes);
+    }
+
+    /**********************************************************************************************/
+    private void trim() {
+        // first the ones no material has, then the ones not drawn lately. the least recently used first
+        for (int pass = 0; pass < 2 && allocatedBytes > cacheBytes; pass++) {
+            final Iterator<Texture> it = byKey.values().iterator();
+            while (allocatedBytes > cacheBytes && it.hasNext()) {
+                final Texture texture = it.next();
+                if (!texture.ready) continue;
+                if (pass == 0 ? !texture.users.isEmpty() : frame - texture.lastUsedFrame < MIN_UNUSED_FRAMES) {
+                    continue;
+                }
+                it.remove();
+                delete(texture);
+                evictions++;
+            }
+        }
+
+        // the bytes of the images no material has are let go. if they come again, they are hashed again
+        for (Texture texture : byKey.values()) {
+            if (texture.users.isEmpty() && !texture.aliases.isEmpty()) {
+                forget(texture);
+            }
+        }
+    }
+
+    /**********************************************************************************************/
+    private void delete(Texture texture) {
+        Log.d("TextureLoader", "Deleting texture. id: " + texture.id + ", bytes: " + texture.bytes
+                + ", users: " + texture.users.size());
+        gl.glDeleteTexture(texture.id);
+        state.forgetTexture(texture.id);
+        allocatedBytes -= texture.bytes;
+        texture.deleted = true;
+        forget(texture);
+        for (Material material : texture.users.keySet()) {
+            materials.remove(material);
+        }
+    }
+
+    /**********************************************************************************************/
+    private void forget(Texture texture) {
+        for (int i = 0; i < texture.aliases.size(); i++) {
+            byData.remove(texture.aliases.get(i));
+        }
+        texture.aliases.clear();
+    }
+
+    /**********************************************************************************************/
+    private int getPlaceholder() {
+        if (placeholder == -1) {
+            placeholder = gl.glGenTexture();
+            final ByteBuffer white = ByteBuffer.allocateDirect(BYTES_PER_PIXEL);
+            for (int i = 0; i < BYTES_PER_PIXEL; i++) {
+                white.put(i, (byte) 0xFF);
+            }
+            state.bindTexture(GLES20.GL_TEXTURE_2D, placeholder);
+            gl.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MIN_FILTER, GLES20.GL_NEAREST);
+            gl.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MAG_FILTER, GLES20.GL_NEAREST);
+            gl.glTexImage2D(GLES20.GL_TEXTURE_2D, 0, GLES20.GL_RGBA, 1, 1, GLES20.GL_UNSIGNED_BYTE, white);
+        }
+        return placeholder;
+    }
+
+    /**********************************************************************************************/
+    void clear() {
+        // the GL context is gone, and so are the textures. they are decoded again when asked for
+        byData.clear();
+        byKey.clear();
+        materials.clear();
+        hashed.clear();
+        decoded.clear();
+        uploading = null;
+        placeholder = -1;
+        allocatedBytes = 0;
+    }
+}
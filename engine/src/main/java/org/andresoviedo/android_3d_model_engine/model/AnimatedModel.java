@@ -4,6 +4,7 @@ import android.opengl.Matrix;
 import android.util.Log;
 
 import org.andresoviedo.android_3d_model_engine.animation.Animation;
+import org.andresoviedo.android_3d_model_engine.animation.AnimationState;
 import org.andresoviedo.android_3d_model_engine.animation.Joint;
 import org.andresoviedo.android_3d_model_engine.services.collada.entities.SkeletonData;
 import org.andresoviedo.util.math.Math3DUtils;
@@ -20,6 +21,10 @@ public class AnimatedModel extends Object3DData {
     private FloatBuffer jointIds;
     private FloatBuffer vertexWeigths;
     private Animation animation;
+    // the animation compiled for the joints of this model, and their transforms
+    private volatile AnimationState animationState;
+    // whether the vertices are skinned on the CPU, because the shader can't take all the bones
+    private volatile boolean cpuSkinning;
     /**********************************************************************************************/
     private Joint rootJoint;
     /**********************************************************************************************/
@@ -104,6 +109,7 @@ public class AnimatedModel extends Object3DData {
     /**********************************************************************************************/
     public AnimatedModel doAnimation(Animation animation) {
         this.animation = animation;
+        this.animationState = null;
         return this;
     }
 
@@ -112,6 +118,26 @@ public class AnimatedModel extends Object3DData {
         return animation;
     }
 
+    /**********************************************************************************************/
+    public AnimationState getAnimationState() {
+        return animationState;
+    }
+
+    /**********************************************************************************************/
+    public void setAnimationState(AnimationState animationState) {
+        this.animationState = animationState;
+    }
+
+    /**********************************************************************************************/
+    public boolean isCpuSkinning() {
+        return cpuSkinning;
+    }
+
+    /**********************************************************************************************/
+    public void setCpuSkinning(boolean cpuSkinning) {
+        this.cpuSkinning = cpuSkinning;
+    }
+
     /**********************************************************************************************/
     public Joint getRootJoint() {
         if (this.rootJoint == null && this.jointsData != null) {
@@ -133,6 +159,38 @@ public class AnimatedModel extends Object3DData {
         getJointTransforms()[joint.getIndex()] = joint.getAnimatedTransform();
     }
 
+    /**********************************************************************************************/
+    // xyz of every vertex in the current pose, as the animation shaders compute it
+    public void getPoseVertices(float[] ret) {
+        final float[][] jointTransforms = getJointTransforms();
+        final float[] bindShape = getBindShapeMatrix();
+        final FloatBuffer vertices = vertexBuffer.asReadOnlyBuffer();
+        final FloatBuffer jointIds = this.jointIds.asReadOnlyBuffer();
+        final FloatBuffer weights = this.vertexWeigths.asReadOnlyBuffer();
+        final float[] vertex = new float[8];
+        final float[] posed = new float[4];
+        for (int i = 0; i < vertices.capacity(); i += 3) {
+            vertex[0] = vertices.get(i);
+            vertex[1] = vertices.get(i + 1);
+            vertex[2] = vertices.get(i + 2);
+            vertex[3] = 1;
+            Matrix.multiplyMV(vertex, 4, bindShape, 0, vertex, 0);
+            float x = 0, y = 0, z = 0;
+            for (int j = 0; j < 3; j++) {
+                final float weight = weights.get(i + j);
+                final int joint = (int) jointIds.get(i + j);
+                if (weight == 0 || joint < 0 || joint >= jointTransforms.length) continue;
+                Matrix.multiplyMV(posed, 0, jointTransforms[joint], 0, vertex, 4);
+                x += posed[0] * weight;
+                y += posed[1] * weight;
+                z += posed[2] * weight;
+            }
+            ret[i] = x;
+            ret[i + 1] = y;
+            ret[i + 2] = z;
+        }
+    }
+
     /**********************************************************************************************/
     public Dimensions getCurrentDimensions() {
         if (true) return super.getCurrentDimensions();
@@ -189,6 +247,11 @@ public class AnimatedModel extends Object3DData {
         ret.setJointIds(this.getJointIds());
         ret.setVertexWeights(this.getVertexWeights());
         ret.doAnimation(this.getAnimation());
+        // the same clip, with transforms of its own
+        final AnimationState animationState = this.animationState;
+        if (animationState != null) {
+            ret.animationState = new AnimationState(animationState.getClip());
+        }
         ret.jointMatrices = this.jointMatrices;
         ret.bindShapeMatrix = this.bindShapeMatrix;
         return ret;
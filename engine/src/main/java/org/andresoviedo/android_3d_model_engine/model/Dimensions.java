@@ -66,6 +66,9 @@ public class Dimensions {
 
     /**********************************************************************************************/
     private void refresh() {
+        // with the points set
+        initialized = true;
+
         this.min[0] = getLeftPt();
         this.min[1] = getBottomPt();
         this.min[2] = getFarPt();
@@ -77,8 +80,6 @@ public class Dimensions {
         this.center[0] = (getRightPt() + getLeftPt()) / 2.0f;
         this.center[1] = (getTopPt() + getBottomPt()) / 2.0f;
         this.center[2] = (getNearPt() + getFarPt()) / 2.0f;
-
-        initialized = true;
     }
 
     /**********************************************************************************************/
@@ -2,6 +2,7 @@ package org.andresoviedo.android_3d_model_engine.model;
 
 import androidx.annotation.NonNull;
 
+import org.andresoviedo.util.collection.IntArray;
 import org.andresoviedo.util.io.IOUtils;
 
 import java.nio.IntBuffer;
@@ -13,7 +14,7 @@ public class Element {
         /******************************************************************************************/
         private String id;
         /******************************************************************************************/
-        private List<Integer> indices;
+        private IntArray indices;
         /******************************************************************************************/
         private String materialId;
 
@@ -33,7 +34,7 @@ public class Element {
         }
 
         /******************************************************************************************/
-        public Builder indices(List<Integer> indices) {
+        public Builder indices(IntArray indices) {
             this.indices = indices;
             return this;
         }
@@ -59,17 +60,33 @@ public class Element {
     /**********************************************************************************************/
     private final String id;
     /**********************************************************************************************/
-    private final List<Integer> indicesArray;
+    private final IntArray indicesArray;
     /**********************************************************************************************/
     private IntBuffer indexBuffer;
     /**********************************************************************************************/
     private String materialId;
     private Material material;
+    /**********************************************************************************************/
+    // of its vertices, in model space. set with the dimensions of the model
+    private Dimensions dimensions;
+    /**********************************************************************************************/
+    // the indices of its levels of detail, from the finest (see MeshSimplifier)
+    private IntBuffer[] levels;
+
+    /**********************************************************************************************/
+    public Element(String id, IntArray indices, String material) {
+        this.id = id;
+        this.indicesArray = indices;
+        this.materialId = material;
+    }
 
     /**********************************************************************************************/
-    public Element(String id, List<Integer> indexBuffer, String material) {
+    public Element(String id, List<Integer> indices, String material) {
         this.id = id;
-        this.indicesArray = indexBuffer;
+        this.indicesArray = new IntArray(indices.size());
+        for (int i = 0; i < indices.size(); i++) {
+            this.indicesArray.add(indices.get(i));
+        }
         this.materialId = material;
     }
 
@@ -87,7 +104,7 @@ public class Element {
     }
 
     /**********************************************************************************************/
-    public List<Integer> getIndices() {
+    public IntArray getIndices() {
         return this.indicesArray;
     }
 
@@ -95,14 +112,32 @@ public class Element {
     public IntBuffer getIndexBuffer() {
         if (indexBuffer == null) {
             this.indexBuffer = IOUtils.createIntBuffer(indicesArray.size());
+            this.indexBuffer.put(indicesArray.array(), 0, indicesArray.size());
             this.indexBuffer.position(0);
-            for (int i = 0; i < indicesArray.size(); i++) {
-                this.indexBuffer.put(indicesArray.get(i));
-            }
         }
         return indexBuffer;
     }
 
+    /**********************************************************************************************/
+    // the indices of the level of detail (0 is the full one), or of the coarsest it has
+    public IntBuffer getIndexBuffer(int level) {
+        final IntBuffer[] levels = this.levels;
+        if (level <= 0 || levels == null || levels.length == 0) {
+            return getIndexBuffer();
+        }
+        return levels[Math.min(level, levels.length) - 1];
+    }
+
+    /**********************************************************************************************/
+    public void setLevels(IntBuffer[] levels) {
+        this.levels = levels;
+    }
+
+    /**********************************************************************************************/
+    public IntBuffer[] getLevels() {
+        return levels;
+    }
+
     /**********************************************************************************************/
     public String getMaterialId() {
         return materialId;
@@ -118,6 +153,17 @@ public class Element {
         return material;
     }
 
+    /**********************************************************************************************/
+    public void setDimensions(Dimensions dimensions) {
+        this.dimensions = dimensions;
+    }
+
+    /**********************************************************************************************/
+    // null until the dimensions of the model are calculated
+    public Dimensions getDimensions() {
+        return dimensions;
+    }
+
     /**********************************************************************************************/
     @NonNull
     @Override
@@ -6,7 +6,7 @@ import android.util.Log;
 
 import androidx.annotation.NonNull;
 
-import org.andresoviedo.android_3d_model_engine.collision.Octree;
+import org.andresoviedo.android_3d_model_engine.collision.BVH;
 import org.andresoviedo.android_3d_model_engine.drawer.RendererFactory;
 import org.andresoviedo.android_3d_model_engine.services.collada.entities.MeshData;
 import org.andresoviedo.util.android.AndroidUtils;
@@ -93,7 +93,13 @@ public class Object3DData {
     private Dimensions dimensions = null;
     protected Dimensions currentDimensions = null;
     /**********************************************************************************************/
-    private Octree octree = null;
+    private BVH bvh = null;
+    /**********************************************************************************************/
+    // the error (in model units) of each level of detail after the full one. their indices are in the
+    // elements. they are built in the background, so this is set once the elements have them
+    private volatile float[] levelErrors;
+    // the one drawn
+    private int level;
     /**********************************************************************************************/
     private List<String> errors = new ArrayList<>();
     /**********************************************************************************************/
@@ -287,10 +293,17 @@ public class Object3DData {
             } else {
                 for (Element element : getElements()) {
                     final IntBuffer indexBuffer = element.getIndexBuffer();
+                    final Dimensions elementDimensions = new Dimensions();
                     for (int i = 0; i < indexBuffer.capacity(); i++) {
                         final int idx = indexBuffer.get(i);
-                        dimensions.update(vertexBuffer.get(idx * 3), vertexBuffer.get(idx * 3 + 1), vertexBuffer.get(idx * 3 + 2));
+                        final float x = vertexBuffer.get(idx * 3);
+                        final float y = vertexBuffer.get(idx * 3 + 1);
+                        final float z = vertexBuffer.get(idx * 3 + 2);
+                        dimensions.update(x, y, z);
+                        elementDimensions.update(x, y, z);
                     }
+                    // so the elements out of the view can be left out (see RenderQueue)
+                    element.setDimensions(elementDimensions);
                 }
             }
             this.dimensions = dimensions;
@@ -340,13 +353,34 @@ public class Object3DData {
     }
 
     /**********************************************************************************************/
-    public void setOctree(Octree octree) {
-        this.octree = octree;
+    public void setBVH(BVH bvh) {
+        this.bvh = bvh;
+    }
+
+    /**********************************************************************************************/
+    public BVH getBVH() {
+        return bvh;
+    }
+
+    /**********************************************************************************************/
+    public void setLevelErrors(float[] levelErrors) {
+        this.levelErrors = levelErrors;
+    }
+
+    /**********************************************************************************************/
+    // null if it has no levels of detail
+    public float[] getLevelErrors() {
+        return levelErrors;
+    }
+
+    /**********************************************************************************************/
+    public void setLevel(int level) {
+        this.level = level;
     }
 
     /**********************************************************************************************/
-    public Octree getOctree() {
-        return octree;
+    public int getLevel() {
+        return level;
     }
 
     /**********************************************************************************************/
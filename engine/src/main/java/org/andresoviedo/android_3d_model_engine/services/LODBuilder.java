@@ -0,0 +1,65 @@
+package org.andresoviedo.android_3d_model_engine.services;
+
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import org.andresoviedo.android_3d_model_engine.model.Object3DData;
+import org.andresoviedo.android_3d_model_engine.services.cache.ModelCache;
+import org.andresoviedo.android_3d_model_engine.util.MeshSimplifier;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+/**************************************************************************************************/
+// builds the levels of detail of the loaded models in the background, one model at a time, so they are
+// drawn at full detail until they have them. the ones of a cached model are read from the cache, and a
+// model that wasn't cached is written to it first
+public final class LODBuilder {
+    /**********************************************************************************************/
+    private static final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "LODBuilder");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+
+    /**********************************************************************************************/
+    private LODBuilder() {
+    }
+
+    /**********************************************************************************************/
+    public static void submit(@Nullable ModelCache cache, URI uri, List<Object3DData> objects, boolean write) {
+        final List<Object3DData> copy = new ArrayList<>(objects);
+        executor.execute(() -> build(cache, uri, copy, write));
+    }
+
+    /**********************************************************************************************/
+    private static void build(@Nullable ModelCache cache, URI uri, List<Object3DData> objects, boolean write) {
+        try {
+            if (write && cache != null) {
+                cache.write(uri, objects);
+            }
+            if (cache != null && cache.readLevels(uri, objects)) {
+                return;
+            }
+
+            final MeshSimplifier simplifier = new MeshSimplifier(MeshSimplifier.DEFAULT_RATIO, MeshSimplifier.DEFAULT_LEVELS);
+            boolean built = false;
+            for (int i = 0; i < objects.size(); i++) {
+                built |= simplifier.build(objects.get(i));
+            }
+
+            if (built && cache != null) {
+                cache.writeLevels(uri, objects);
+            }
+        } catch (Exception ex) {
+            Log.e("LODBuilder", "Error building levels of detail. uri: " + uri, ex);
+        } catch (OutOfMemoryError ex) {
+            // the model is drawn as it is
+            Log.e("LODBuilder", "Not enough memory to build levels of detail. uri: " + uri);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package org.andresoviedo.android_3d_model_engine.services;
 
+import org.andresoviedo.android_3d_model_engine.model.Dimensions;
 import org.andresoviedo.android_3d_model_engine.model.Object3DData;
 /**************************************************************************************************/
 public interface LoadListener {
@@ -15,6 +16,11 @@ public interface LoadListener {
     /**********************************************************************************************/
     void onLoad(Object3DData data);
 
+    /**********************************************************************************************/
+    // part of the model, while the rest is still being loaded, so it can be drawn meanwhile. the bounds
+    // are the ones of the model as far as they are known. the parts are replaced by the model once it's loaded
+    void onLoadPreview(Object3DData data, Dimensions bounds);
+
     /**********************************************************************************************/
     void onLoadComplete();
 }
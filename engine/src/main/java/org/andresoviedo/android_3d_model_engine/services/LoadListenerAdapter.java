@@ -1,5 +1,6 @@
 package org.andresoviedo.android_3d_model_engine.services;
 
+import org.andresoviedo.android_3d_model_engine.model.Dimensions;
 import org.andresoviedo.android_3d_model_engine.model.Object3DData;
 /**************************************************************************************************/
 public class LoadListenerAdapter implements LoadListener {
@@ -17,6 +18,9 @@ public class LoadListenerAdapter implements LoadListener {
     public void onLoad(Object3DData data) { }
     /**********************************************************************************************/
     @Override
+    public void onLoadPreview(Object3DData data, Dimensions bounds) { }
+    /**********************************************************************************************/
+    @Override
     public void onLoadComplete() {
 
     }
@@ -0,0 +1,206 @@
+package org.andresoviedo.android_3d_model_engine.services;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+/**************************************************************************************************/
+// runs the loads on a pool of threads. the ones with more priority go first (i.e. the model on the
+// screen before the thumbnails), and the ones with the same priority in the order they came. the loads
+// are cancelled cooperatively: the parsers call checkCancelled() every so often, and tell how far they
+// are with setProgress(). it doesn't depend on android, so it runs on a plain jvm
+public final class LoadScheduler {
+    /**********************************************************************************************/
+    public static final int PRIORITY_LOW = -10;
+    public static final int PRIORITY_NORMAL = 0;
+    public static final int PRIORITY_HIGH = 10;
+    /**********************************************************************************************/
+    // the loads take a lot of memory, so not many of them at once
+    public static final int DEFAULT_THREADS = 2;
+    /**********************************************************************************************/
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    /**********************************************************************************************/
+    public interface Job {
+        // on a thread of the scheduler
+        void run() throws Exception;
+
+        // from 0 to 1. on the thread of the job
+        void onProgress(float progress);
+
+        // once it's done, with its error if any. the ones that are cancelled end with a
+        // CancellationException. if they had not started, on the thread that cancelled them
+        void onDone(Exception error);
+    }
+
+    /**********************************************************************************************/
+    public static final class Task implements Runnable, Comparable<Task> {
+        private static final int QUEUED = 0;
+        private static final int RUNNING = 1;
+        private static final int DONE = 2;
+
+        private final LoadScheduler scheduler;
+        private final Job job;
+        private final long sequence;
+        // only changed while it's out of the queue
+        private volatile int priority;
+        // guarded by this
+        private int state = QUEUED;
+        private volatile boolean cancelled;
+        private volatile float progress;
+
+        private Task(LoadScheduler scheduler, Job job, int priority, long sequence) {
+            this.scheduler = scheduler;
+            this.job = job;
+            this.priority = priority;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(Task other) {
+            if (priority != other.priority) {
+                return priority > other.priority ? -1 : 1;
+            }
+            return Long.compare(sequence, other.sequence);
+        }
+
+        @Override
+        public void run() {
+            synchronized (this) {
+                if (state != QUEUED) return;
+                state = RUNNING;
+            }
+
+            Exception error = null;
+            current.set(this);
+            try {
+                job.run();
+            } catch (Exception ex) {
+                // the parsers may wrap it
+                error = cancelled ? cancellation() : ex;
+            } finally {
+                current.remove();
+                synchronized (this) {
+                    state = DONE;
+                }
+            }
+            job.onDone(error);
+        }
+
+        // returns false if it's already done or cancelled. if it's running, it ends on its next check
+        public boolean cancel() {
+            synchronized (this) {
+                if (state == DONE || cancelled) return false;
+                cancelled = true;
+                if (state == RUNNING) return true;
+                state = DONE;
+            }
+            scheduler.executor.remove(this);
+            job.onDone(cancellation());
+            return true;
+        }
+
+        // if it has not started yet, it's moved in the queue
+        public void setPriority(int priority) {
+            if (scheduler.executor.remove(this)) {
+                this.priority = priority;
+                scheduler.executor.execute(this);
+            } else {
+                this.priority = priority;
+            }
+        }
+
+        public int getPriority() {
+            return priority;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        public synchronized boolean isDone() {
+            return state == DONE;
+        }
+
+        public float getProgress() {
+            return progress;
+        }
+    }
+
+    /**********************************************************************************************/
+    // the task of each thread of the schedulers
+    private static final ThreadLocal<Task> current = new ThreadLocal<>();
+    /**********************************************************************************************/
+    private static LoadScheduler defaultScheduler;
+    /**********************************************************************************************/
+    private final ThreadPoolExecutor executor;
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**********************************************************************************************/
+    public LoadScheduler(int threads) {
+        final AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new PriorityBlockingQueue<>(), runnable -> {
+            final Thread thread = new Thread(runnable, "LoadScheduler-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        // so there are no threads while there is nothing to load
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**********************************************************************************************/
+    public static synchronized LoadScheduler getDefault() {
+        if (defaultScheduler == null) {
+            defaultScheduler = new LoadScheduler(DEFAULT_THREADS);
+        }
+        return defaultScheduler;
+    }
+
+    /**********************************************************************************************/
+    public Task submit(Job job, int priority) {
+        final Task task = new Task(this, job, priority, sequence.getAndIncrement());
+        executor.execute(task);
+        return task;
+    }
+
+    /**********************************************************************************************/
+    // the ones that have not started yet
+    public int getQueued() {
+        return executor.getQueue().size();
+    }
+
+    /**********************************************************************************************/
+    // the ones that have not started are cancelled, and the running ones are let finish
+    public void shutdown() {
+        for (Runnable runnable : executor.getQueue().toArray(new Runnable[0])) {
+            ((Task) runnable).cancel();
+        }
+        executor.shutdown();
+    }
+
+    /**********************************************************************************************/
+    // for the parsers. it throws a CancellationException if the load of the thread has been cancelled
+    public static void checkCancelled() {
+        final Task task = current.get();
+        if (task != null && task.cancelled) {
+            throw cancellation();
+        }
+    }
+
+    /**********************************************************************************************/
+    // for the parsers. from 0 to 1, how much of the load of the thread is done
+    public static void setProgress(float progress) {
+        final Task task = current.get();
+        if (task == null) return;
+        task.progress = Math.max(0, Math.min(1, progress));
+        task.job.onProgress(task.progress);
+    }
+
+    /**********************************************************************************************/
+    private static CancellationException cancellation() {
+        return new CancellationException("Load cancelled");
+    }
+}
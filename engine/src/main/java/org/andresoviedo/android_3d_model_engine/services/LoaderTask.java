@@ -2,52 +2,125 @@ package org.andresoviedo.android_3d_model_engine.services;
 
 import android.app.Activity;
 import android.app.ProgressDialog;
-import android.os.AsyncTask;
+import android.util.Log;
 
+import org.andresoviedo.android_3d_model_engine.model.Dimensions;
 import org.andresoviedo.android_3d_model_engine.model.Object3DData;
+import org.andresoviedo.android_3d_model_engine.services.cache.ModelCache;
 
 import java.net.URI;
 import java.util.List;
+import java.util.concurrent.CancellationException;
 /**************************************************************************************************/
-public abstract class LoaderTask extends AsyncTask<Void, String, List<Object3DData>> implements LoadListener {
+// loads a model on the LoadScheduler, showing how far it is. the dialog cancels it
+public abstract class LoaderTask implements LoadListener, LoadScheduler.Job {
 	/**********************************************************************************************/
 	protected final URI uri;
 	/**********************************************************************************************/
 	private final LoadListener callback;
 	/**********************************************************************************************/
+	private final Activity parent;
 	private final ProgressDialog dialog;
+	// whether the model is already being drawn, while it's loaded
+	private boolean previewing;
+	// the last progress shown, in percent
+	private int percent = -1;
+	/**********************************************************************************************/
+	private final ModelCache cache;
+	/**********************************************************************************************/
+	private volatile LoadScheduler.Task task;
 
 	/**********************************************************************************************/
 	public LoaderTask(Activity parent, URI uri, LoadListener callback) {
 		this.uri = uri;
+		this.parent = parent;
 		this.dialog = new ProgressDialog(parent);
 		this.callback = callback;
+		this.cache = uri != null ? new ModelCache(parent) : null;
 	}
 
 	/**********************************************************************************************/
-	@Override
-	protected void onPreExecute() {
-		super.onPreExecute();
+	// on the ui thread
+	public final LoaderTask execute() {
+		return execute(LoadScheduler.PRIORITY_NORMAL);
+	}
+
+	/**********************************************************************************************/
+	// on the ui thread
+	public final LoaderTask execute(int priority) {
 		this.dialog.setMessage("Loading...");
-		this.dialog.setCancelable(false);
+		this.dialog.setProgressStyle(ProgressDialog.STYLE_HORIZONTAL);
+		this.dialog.setIndeterminate(true);
+		this.dialog.setMax(100);
+		this.dialog.setCancelable(true);
+		this.dialog.setOnCancelListener(dialog -> cancel());
 		this.dialog.show();
+		this.task = LoadScheduler.getDefault().submit(this, priority);
+		return this;
+	}
+
+	/**********************************************************************************************/
+	public boolean cancel() {
+		final LoadScheduler.Task task = this.task;
+		return task != null && task.cancel();
+	}
+
+	/**********************************************************************************************/
+	// null until it's executed
+	public LoadScheduler.Task getTask() {
+		return task;
+	}
+
+	/**********************************************************************************************/
+	@Override
+	public void run() throws Exception {
+		callback.onStart();
+		List<Object3DData> data = loadFromCache();
+		final boolean cached = data != null;
+		if (!cached) {
+			data = build();
+			LoadScheduler.checkCancelled();
+		}
+		LoadScheduler.setProgress(1);
+		callback.onLoadComplete();
+		if (data != null) {
+			// the model is cached in the background, once it's shown
+			LODBuilder.submit(cache, uri, data, !cached);
+		}
 	}
 
 	/**********************************************************************************************/
 	@Override
-	protected List<Object3DData> doInBackground(Void... params) {
-		try {
-			callback.onStart();
-			List<Object3DData> data = build();
-			callback.onLoadComplete();
-			return data;
-		} catch (Exception ex) {
-			callback.onLoadError(ex);
-			return null;
+	public void onDone(Exception error) {
+		if (error instanceof CancellationException) {
+			Log.i("LoaderTask", "Load cancelled. uri: " + uri);
+		}
+		if (error != null) {
+			callback.onLoadError(error);
+		}
+		parent.runOnUiThread(() -> {
+			if (dialog.isShowing()) {
+				dialog.dismiss();
+			}
+		});
+	}
+
+	/**********************************************************************************************/
+	private List<Object3DData> loadFromCache() {
+		if (cache == null) return null;
+
+		final List<Object3DData> data = cache.read(uri);
+		if (data == null) return null;
+
+		publishProgress("Loading cached model...");
+		for (int i = 0; i < data.size(); i++) {
+			onLoad(data.get(i));
 		}
+		return data;
 	}
 
 	/**********************************************************************************************/
+	// on a thread of the scheduler. the long loops should call LoadScheduler.checkCancelled()
 	protected abstract List<Object3DData> build() throws Exception;
 
 	/**********************************************************************************************/
@@ -57,18 +130,34 @@ public abstract class LoaderTask extends AsyncTask<Void, String, List<Object3DDa
 
 	/**********************************************************************************************/
 	@Override
-	protected void onProgressUpdate(String... values) {
-		super.onProgressUpdate(values);
-		this.dialog.setMessage(values[0]);
+	public void onLoadPreview(Object3DData data, Dimensions bounds) {
+		if (!previewing) {
+			previewing = true;
+			// so it can be seen
+			parent.runOnUiThread(() -> {
+				if (dialog.isShowing()) {
+					dialog.dismiss();
+				}
+			});
+		}
+		callback.onLoadPreview(data, bounds);
+	}
+
+	/**********************************************************************************************/
+	protected final void publishProgress(String... values) {
+		parent.runOnUiThread(() -> dialog.setMessage(values[0]));
 	}
 
 	/**********************************************************************************************/
 	@Override
-	protected void onPostExecute(List<Object3DData> data) {
-		super.onPostExecute(data);
-		if (dialog.isShowing()) {
-			dialog.dismiss();
-		}
+	public void onProgress(float progress) {
+		final int percent = Math.round(progress * 100);
+		if (percent == this.percent) return;
+		this.percent = percent;
+		parent.runOnUiThread(() -> {
+			dialog.setIndeterminate(false);
+			dialog.setProgress(percent);
+		});
 	}
 
 	/**********************************************************************************************/
@@ -80,7 +169,7 @@ public abstract class LoaderTask extends AsyncTask<Void, String, List<Object3DDa
 	/**********************************************************************************************/
 	@Override
 	public void onProgress(String progress) {
-		super.publishProgress(progress);
+		publishProgress(progress);
 		callback.onProgress(progress);
 	}
 
@@ -95,4 +184,4 @@ public abstract class LoaderTask extends AsyncTask<Void, String, List<Object3DDa
 	public void onLoadComplete() {
 		callback.onLoadComplete();
 	}
-}
\ No newline at end of file
+}
@@ -8,7 +8,9 @@ import android.os.SystemClock;
 import android.util.Log;
 import android.widget.Toast;
 
+import org.andresoviedo.android_3d_model_engine.animation.AnimationLOD;
 import org.andresoviedo.android_3d_model_engine.animation.Animator;
+import org.andresoviedo.android_3d_model_engine.animation.ParallelAnimator;
 import org.andresoviedo.android_3d_model_engine.collision.CollisionEvent;
 import org.andresoviedo.android_3d_model_engine.controller.TouchEvent;
 import org.andresoviedo.android_3d_model_engine.model.AnimatedModel;
@@ -29,10 +31,12 @@ import java.io.IOException;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.EventObject;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CancellationException;
 /**************************************************************************************************/
 public class SceneLoader implements LoadListener, EventListener {
     /**********************************************************************************************/
@@ -100,9 +104,25 @@ public class SceneLoader implements LoadListener, EventListener {
     /**********************************************************************************************/
     private Animator animator = new Animator();
     /**********************************************************************************************/
+    // poses all the models of the frame on worker threads. its threads are let go on dispose()
+    private volatile ParallelAnimator parallelAnimator;
+    private volatile boolean disposed;
+    // skips or slows down the animation of the models that are hidden, out of the view or far
+    private final AnimationLOD animationLOD = new AnimationLOD();
+    /**********************************************************************************************/
     private boolean userHasInteracted;
     /**********************************************************************************************/
-    private long startTime;
+    private LoaderTask loaderTask;
+    /**********************************************************************************************/
+    private volatile long startTime;
+    // since the load started, or -1 until something of the model is drawn
+    private volatile long timeToFirstFrame = -1;
+    /**********************************************************************************************/
+    // the parts of the model drawn while it's loaded. the list is replaced on every new part, so the
+    // renderer can draw the one it has while the loader adds more
+    private volatile List<Object3DData> previews = Collections.emptyList();
+    private float[] previewScale;
+    private float[] previewLocation;
     /**********************************************************************************************/
     private Map<Object3DData, Dimensions> originalDimensions = new HashMap<>();
     private Map<Object3DData, Transform> originalTransforms = new HashMap<>();
@@ -127,14 +147,34 @@ public class SceneLoader implements LoadListener, EventListener {
         }
 
         Log.i("SceneLoader", "Loading model " + uri + ". async and parallel..");
+        // it's the one on the screen, so it goes before the ones loaded in the background
         if (uri.toString().toLowerCase().endsWith(".obj") || type == 0) {
-            new WavefrontLoaderTask(parent, uri, this).execute();
+            loaderTask = new WavefrontLoaderTask(parent, uri, this).execute(LoadScheduler.PRIORITY_HIGH);
         } else if (uri.toString().toLowerCase().endsWith(".stl") || type == 1) {
             Log.i("SceneLoader", "Loading STL object from: " + uri);
-            new STLLoaderTask(parent, uri, this).execute();
+            loaderTask = new STLLoaderTask(parent, uri, this).execute(LoadScheduler.PRIORITY_HIGH);
         } else if (uri.toString().toLowerCase().endsWith(".dae") || type == 2) {
             Log.i("SceneLoader", "Loading Collada object from: " + uri);
-            new ColladaLoaderTask(parent, uri, this).execute();
+            loaderTask = new ColladaLoaderTask(parent, uri, this).execute(LoadScheduler.PRIORITY_HIGH);
+        }
+    }
+
+    /**********************************************************************************************/
+    // i.e. when the scene is closed while the model is still being loaded
+    public void cancelLoad() {
+        if (loaderTask != null) {
+            loaderTask.cancel();
+        }
+    }
+
+    /**********************************************************************************************/
+    // when the scene is closed. the load is cancelled, and the threads of the animation are stopped
+    public void dispose() {
+        disposed = true;
+        cancelLoad();
+        final ParallelAnimator parallelAnimator = this.parallelAnimator;
+        if (parallelAnimator != null) {
+            parallelAnimator.shutdown();
         }
     }
 
@@ -182,14 +222,43 @@ public class SceneLoader implements LoadListener, EventListener {
             animateCamera();
         }
 
-        if (objects.isEmpty()) return;
+        if (timeToFirstFrame == -1 && startTime != 0 && (!objects.isEmpty() || !previews.isEmpty())) {
+            timeToFirstFrame = SystemClock.uptimeMillis() - startTime;
+            Log.i("SceneLoader", "Time to first frame: " + timeToFirstFrame + " ms");
+        }
+    }
 
-        if (doAnimation) {
-            for (int i = 0; i < objects.size(); i++) {
-                Object3DData obj = objects.get(i);
-                animator.update(obj, isShowBindPose());
+    /**********************************************************************************************/
+    // in milliseconds, or -1 if nothing of the model has been drawn yet
+    public final long getTimeToFirstFrame() {
+        return timeToFirstFrame;
+    }
+
+    /**********************************************************************************************/
+    // once the camera of the frame is set, before the models are drawn
+    public final void animate(float[] viewMatrix, float[] projectionMatrix, int viewportHeight) {
+        if (objects.isEmpty() || !doAnimation) return;
+
+        ParallelAnimator parallelAnimator = this.parallelAnimator;
+        if (parallelAnimator == null) {
+            // once disposed, the frames that are still drawn are posed on this thread
+            parallelAnimator = disposed ? new ParallelAnimator(animator, 1) : new ParallelAnimator(animator);
+            this.parallelAnimator = parallelAnimator;
+            // dispose() may have run on the ui thread before it could see it
+            if (disposed) {
+                parallelAnimator.shutdown();
             }
         }
+        animator.resetCounters();
+        animationLOD.update(objects, viewMatrix, projectionMatrix, viewportHeight);
+        // returns when every pose is done, before the renderer reads them
+        parallelAnimator.update(objects, isShowBindPose());
+    }
+
+    /**********************************************************************************************/
+    // the joints it evaluated and skipped in the last frame
+    public final Animator getAnimator() {
+        return animator;
     }
 
     /**********************************************************************************************/
@@ -236,6 +305,12 @@ public class SceneLoader implements LoadListener, EventListener {
         return guiObjects;
     }
 
+    /**********************************************************************************************/
+    // the parts of the model that is being loaded (see onLoadPreview)
+    public final List<Object3DData> getPreviews() {
+        return previews;
+    }
+
     /**********************************************************************************************/
     public final void toggleWireframe() {
         final int module = 4;
@@ -345,6 +420,11 @@ public class SceneLoader implements LoadListener, EventListener {
 
     /**********************************************************************************************/
     public final void toggleSmooth() {
+        if (getObjects().isEmpty() || getObjects().get(0).getMeshData() == null) {
+            // models restored from the model cache don't keep the mesh data
+            makeToastText("Smoothing not available", Toast.LENGTH_SHORT);
+            return;
+        }
         for (int i = 0; i < getObjects().size(); i++) {
             if (!this.isSmooth) {
                 getObjects().get(0).getMeshData().smooth();
@@ -352,6 +432,7 @@ public class SceneLoader implements LoadListener, EventListener {
                 getObjects().get(0).getMeshData().unSmooth();
             }
             getObjects().get(0).getMeshData().refreshNormalsBuffer();
+            getObjects().get(0).setChanged(true);
         }
         this.isSmooth = !this.isSmooth;
     }
@@ -554,6 +635,34 @@ public class SceneLoader implements LoadListener, EventListener {
         addObject(data);
     }
 
+    /**********************************************************************************************/
+    @Override
+    public synchronized void onLoadPreview(Object3DData data, Dimensions bounds) {
+        // all the parts go where the model will go once it's loaded and rescaled
+        if (previewScale == null) {
+            final float ratio = DEFAULT_MAX_MODEL_SIZE / Math.max(bounds.getLargest(), Float.MIN_NORMAL);
+            final float[] center = bounds.getCenter();
+            previewScale = new float[]{ratio, ratio, ratio};
+            previewLocation = new float[]{-center[0] * ratio, -center[1] * ratio, -center[2] * ratio};
+        }
+        data.setScale(previewScale.clone());
+        data.setLocation(previewLocation.clone());
+
+        final List<Object3DData> previews = new ArrayList<>(this.previews);
+        previews.add(data);
+        this.previews = previews;
+        requestRender();
+    }
+
+    /**********************************************************************************************/
+    private synchronized void clearPreviews() {
+        if (previews.isEmpty()) return;
+        Log.i("SceneLoader", "Removing preview. parts: " + previews.size());
+        previews = Collections.emptyList();
+        previewScale = null;
+        previewLocation = null;
+    }
+
     /**********************************************************************************************/
     @Override
     public synchronized void onLoadComplete() {
@@ -567,13 +676,18 @@ public class SceneLoader implements LoadListener, EventListener {
             makeToastText(allErrors.toString(), Toast.LENGTH_LONG);
         }
 
-        final String elapsed = (SystemClock.uptimeMillis() - startTime) / 1000 + " secs";
+        String elapsed = (SystemClock.uptimeMillis() - startTime) / 1000 + " secs";
+        if (timeToFirstFrame != -1) {
+            elapsed += ", first frame after " + timeToFirstFrame + " ms";
+        }
         makeToastText("Load complete (" + elapsed + ")", Toast.LENGTH_LONG);
 
         ContentUtils.setThreadActivity(null);
 
         rescale(this.getObjects(), DEFAULT_MAX_MODEL_SIZE, new float[3]);
 
+        clearPreviews();
+
         fixCoordinateSystem();
     }
 
@@ -605,9 +719,14 @@ public class SceneLoader implements LoadListener, EventListener {
     /**********************************************************************************************/
     @Override
     public void onLoadError(Exception ex) {
-        Log.e("SceneLoader", ex.getMessage(), ex);
-        makeToastText("There was a problem building the model: " + ex.getMessage(), Toast.LENGTH_LONG);
+        if (ex instanceof CancellationException) {
+            makeToastText("Load cancelled", Toast.LENGTH_SHORT);
+        } else {
+            Log.e("SceneLoader", ex.getMessage(), ex);
+            makeToastText("There was a problem building the model: " + ex.getMessage(), Toast.LENGTH_LONG);
+        }
         ContentUtils.setThreadActivity(null);
+        clearPreviews();
     }
 
     /**********************************************************************************************/
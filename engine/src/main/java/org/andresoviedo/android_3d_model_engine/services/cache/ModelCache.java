@@ -0,0 +1,898 @@
+package org.andresoviedo.android_3d_model_engine.services.cache;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.net.Uri;
+import android.provider.DocumentsContract;
+import android.provider.OpenableColumns;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import org.andresoviedo.android_3d_model_engine.animation.Animation;
+import org.andresoviedo.android_3d_model_engine.animation.JointTransform;
+import org.andresoviedo.android_3d_model_engine.animation.KeyFrame;
+import org.andresoviedo.android_3d_model_engine.model.AnimatedModel;
+import org.andresoviedo.android_3d_model_engine.model.Element;
+import org.andresoviedo.android_3d_model_engine.model.Material;
+import org.andresoviedo.android_3d_model_engine.model.Object3DData;
+import org.andresoviedo.android_3d_model_engine.services.collada.entities.JointData;
+import org.andresoviedo.android_3d_model_engine.services.collada.entities.SkeletonData;
+import org.andresoviedo.util.math.Quaternion;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.URI;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+/**************************************************************************************************/
+// Binary cache of already loaded models, keyed by source uri, size and modification time.
+//
+// A small header (magic, version, byte order, metadata length) is followed by the metadata (objects,
+// elements, materials, skeletons and animations) and then by the raw vertex, index and texture
+// buffers, 8 byte aligned and in native byte order. Reading maps the file and hands views of the
+// mapping straight to the objects, so the buffers are neither parsed nor copied.
+//
+// The levels of detail of the objects are built later, so they go to a file of their own, next to the
+// model's, with the same layout.
+public final class ModelCache {
+    /**********************************************************************************************/
+    private static final int MAGIC = 0x41334443; // A3DC
+    private static final int VERSION = 1;
+    /**********************************************************************************************/
+    // magic, version, byte order, metadata length
+    private static final int HEADER_SIZE = 16;
+    private static final int ALIGNMENT = 8;
+    /**********************************************************************************************/
+    private static final byte BUFFER_FLOAT = 0;
+    private static final byte BUFFER_INT = 1;
+    private static final byte BUFFER_BYTE = 2;
+    /**********************************************************************************************/
+    private static final byte OBJECT_STATIC = 0;
+    private static final byte OBJECT_ANIMATED = 1;
+    /**********************************************************************************************/
+    private static final int NATIVE_ORDER = ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN ? 0 : 1;
+
+    /**********************************************************************************************/
+    private final Context context;
+    /**********************************************************************************************/
+    private final File directory;
+
+    /**********************************************************************************************/
+    public ModelCache(Context context) {
+        this(context, new File(context.getCacheDir(), "models"));
+    }
+
+    /**********************************************************************************************/
+    public ModelCache(Context context, File directory) {
+        this.context = context;
+        this.directory = directory;
+    }
+
+    /**********************************************************************************************/
+    @Nullable
+    public List<Object3DData> read(URI uri) {
+        final File file = getFile(uri, ".bin");
+        final Reader reader = open(uri, file);
+        if (reader == null) return null;
+        try {
+            final long start = System.currentTimeMillis();
+            final List<Object3DData> ret = reader.read();
+            Log.i("ModelCache", "Loaded " + ret.size() + " objects from cache in "
+                    + (System.currentTimeMillis() - start) + " ms. uri: " + uri);
+            return ret;
+        } catch (Exception ex) {
+            Log.e("ModelCache", "Error reading cache file: " + file, ex);
+            return null;
+        }
+    }
+
+    /**********************************************************************************************/
+    // the levels of detail of the objects of the model, if they were cached. returns whether they were
+    public boolean readLevels(URI uri, List<Object3DData> objects) {
+        final File file = getFile(uri, ".lod");
+        final Reader reader = open(uri, file);
+        if (reader == null) return false;
+        try {
+            if (!reader.readLevels(objects)) {
+                Log.i("ModelCache", "Discarding levels of detail of another model: " + file);
+                return false;
+            }
+            Log.i("ModelCache", "Loaded levels of detail from cache. uri: " + uri);
+            return true;
+        } catch (Exception ex) {
+            Log.e("ModelCache", "Error reading cache file: " + file, ex);
+            return false;
+        }
+    }
+
+    /**********************************************************************************************/
+    // the reader of the file, after its header and the model attributes it was written for
+    @Nullable
+    private Reader open(URI uri, File file) {
+        final long[] stat = stat(uri);
+        if (stat == null) return null;
+        if (!file.isFile()) return null;
+
+        // private (copy on write) mapping: the model can still modify its buffers (i.e. the exploder)
+        // without touching the file. it needs a writable channel, though nothing is ever written back
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw"); FileChannel channel = raf.getChannel()) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                Log.i("ModelCache", "Discarding cache file too big to be mapped: " + file);
+                return null;
+            }
+            final MappedByteBuffer mapped = channel.map(FileChannel.MapMode.PRIVATE, 0, channel.size());
+            if (mapped.capacity() < HEADER_SIZE || mapped.getInt(0) != MAGIC || mapped.getInt(4) != VERSION
+                    || mapped.getInt(8) != NATIVE_ORDER) {
+                Log.i("ModelCache", "Discarding incompatible cache file: " + file);
+                return null;
+            }
+
+            final byte[] metadata = new byte[mapped.getInt(12)];
+            mapped.position(HEADER_SIZE);
+            mapped.get(metadata);
+            final DataInputStream in = new DataInputStream(new ByteArrayInputStream(metadata));
+
+            if (!uri.toString().equals(in.readUTF()) || in.readLong() != stat[0] || in.readLong() != stat[1]) {
+                Log.i("ModelCache", "Model changed since it was cached: " + uri);
+                return null;
+            }
+
+            return new Reader(in, mapped, align(HEADER_SIZE + metadata.length));
+        } catch (Exception ex) {
+            Log.e("ModelCache", "Error reading cache file: " + file, ex);
+            return null;
+        }
+    }
+
+    /**********************************************************************************************/
+    public void write(URI uri, List<Object3DData> objects) {
+        if (objects == null || objects.isEmpty()) return;
+
+        final long start = System.currentTimeMillis();
+        final File file = getFile(uri, ".bin");
+        if (write(uri, file, objects, false)) {
+            Log.i("ModelCache", "Cached " + objects.size() + " objects (" + file.length() + " bytes) in "
+                    + (System.currentTimeMillis() - start) + " ms. uri: " + uri);
+        }
+    }
+
+    /**********************************************************************************************/
+    // next to the model, so they are not built again
+    public void writeLevels(URI uri, List<Object3DData> objects) {
+        if (objects == null || objects.isEmpty()) return;
+
+        final File file = getFile(uri, ".lod");
+        if (write(uri, file, objects, true)) {
+            Log.i("ModelCache", "Cached levels of detail (" + file.length() + " bytes). uri: " + uri);
+        }
+    }
+
+    /**********************************************************************************************/
+    private boolean write(URI uri, File file, List<Object3DData> objects, boolean levels) {
+        final long[] stat = stat(uri);
+        if (stat == null) {
+            Log.d("ModelCache", "Not caching model. Unknown size or modification time: " + uri);
+            return false;
+        }
+
+        final File temp = new File(directory, file.getName() + ".tmp");
+        try {
+            if (!directory.isDirectory() && !directory.mkdirs()) {
+                throw new IOException("Error creating directory " + directory);
+            }
+
+            final Writer writer = new Writer();
+            final byte[] body = levels ? writer.writeLevels(objects) : writer.write(objects);
+
+            final ByteArrayOutputStream metadata = new ByteArrayOutputStream(body.length + 1024);
+            final DataOutputStream out = new DataOutputStream(metadata);
+            out.writeUTF(uri.toString());
+            out.writeLong(stat[0]);
+            out.writeLong(stat[1]);
+            writer.writeBufferTable(out);
+            out.write(body);
+            out.flush();
+
+            // the file is read with a single mapping, indexed with ints. an older one of the model goes too
+            final long size = align(HEADER_SIZE + metadata.size()) + writer.getBuffersSize();
+            if (size > Integer.MAX_VALUE) {
+                Log.i("ModelCache", "Not caching model. Too big to be mapped (" + size + " bytes): " + uri);
+                file.delete();
+                return false;
+            }
+
+            try (RandomAccessFile raf = new RandomAccessFile(temp, "rw"); FileChannel channel = raf.getChannel()) {
+                raf.setLength(0);
+
+                final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                header.putInt(MAGIC).putInt(VERSION).putInt(NATIVE_ORDER).putInt(metadata.size());
+                header.flip();
+                writeFully(channel, header);
+                writeFully(channel, ByteBuffer.wrap(metadata.toByteArray()));
+
+                writer.writeBuffers(channel, align(HEADER_SIZE + metadata.size()));
+            }
+
+            if (!temp.renameTo(file)) {
+                throw new IOException("Error renaming " + temp + " to " + file);
+            }
+            return true;
+        } catch (Exception ex) {
+            Log.e("ModelCache", "Error writing cache file: " + file, ex);
+            temp.delete();
+            return false;
+        }
+    }
+
+    /**********************************************************************************************/
+    private File getFile(URI uri, String extension) {
+        return new File(directory, Integer.toHexString(uri.toString().hashCode()) + extension);
+    }
+
+    /**********************************************************************************************/
+    @Nullable
+    private long[] stat(URI uri) {
+        if (uri == null || uri.getScheme() == null) return null;
+        try {
+            if ("file".equals(uri.getScheme())) {
+                final File file = new File(uri);
+                return file.isFile() ? new long[]{file.length(), file.lastModified()} : null;
+            }
+            if ("content".equals(uri.getScheme())) {
+                try (Cursor cursor = context.getContentResolver().query(Uri.parse(uri.toString()), null, null, null, null)) {
+                    if (cursor == null || !cursor.moveToFirst()) return null;
+                    final int size = cursor.getColumnIndex(OpenableColumns.SIZE);
+                    final int lastModified = cursor.getColumnIndex(DocumentsContract.Document.COLUMN_LAST_MODIFIED);
+                    if (size == -1 || lastModified == -1 || cursor.isNull(size) || cursor.isNull(lastModified)) {
+                        return null;
+                    }
+                    return new long[]{cursor.getLong(size), cursor.getLong(lastModified)};
+                }
+            }
+        } catch (Exception ex) {
+            Log.w("ModelCache", "Error reading model attributes: " + uri + ". " + ex.getMessage());
+        }
+        return null;
+    }
+
+    /**********************************************************************************************/
+    private static long align(long offset) {
+        return (offset + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+    }
+
+    /**********************************************************************************************/
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**********************************************************************************************/
+    private static final class Writer {
+        /******************************************************************************************/
+        private static final int CHUNK_SIZE = 64 * 1024;
+        /******************************************************************************************/
+        // the same buffer, material, skeleton or animation may be shared by several objects
+        private final Map<Buffer, Integer> bufferIds = new IdentityHashMap<>();
+        private final List<Buffer> buffers = new ArrayList<>();
+        private final Map<Material, Integer> materialIds = new IdentityHashMap<>();
+        private final Map<SkeletonData, Integer> skeletonIds = new IdentityHashMap<>();
+        private final Map<Animation, Integer> animationIds = new IdentityHashMap<>();
+        /******************************************************************************************/
+        private final ByteArrayOutputStream materials = new ByteArrayOutputStream();
+        private final ByteArrayOutputStream skeletons = new ByteArrayOutputStream();
+        private final ByteArrayOutputStream animations = new ByteArrayOutputStream();
+
+        /******************************************************************************************/
+        byte[] write(List<Object3DData> objects) throws IOException {
+            final ByteArrayOutputStream ret = new ByteArrayOutputStream();
+            final DataOutputStream out = new DataOutputStream(ret);
+            out.writeInt(objects.size());
+            for (int i = 0; i < objects.size(); i++) {
+                writeObject(out, objects.get(i));
+            }
+            out.flush();
+
+            // objects reference the shared tables by index, so the tables go first
+            final ByteArrayOutputStream body = new ByteArrayOutputStream(ret.size() + materials.size()
+                    + skeletons.size() + animations.size() + 12);
+            final DataOutputStream tables = new DataOutputStream(body);
+            tables.writeInt(materialIds.size());
+            materials.writeTo(tables);
+            tables.writeInt(skeletonIds.size());
+            skeletons.writeTo(tables);
+            tables.writeInt(animationIds.size());
+            animations.writeTo(tables);
+            ret.writeTo(tables);
+            tables.flush();
+            return body.toByteArray();
+        }
+
+        /******************************************************************************************/
+        // the errors of the levels of detail of each object, and the indices of each level of each element
+        byte[] writeLevels(List<Object3DData> objects) throws IOException {
+            final ByteArrayOutputStream ret = new ByteArrayOutputStream();
+            final DataOutputStream out = new DataOutputStream(ret);
+            out.writeInt(objects.size());
+            for (int i = 0; i < objects.size(); i++) {
+                final Object3DData obj = objects.get(i);
+                writeFloats(out, obj.getLevelErrors());
+
+                final List<Element> elements = obj.getElements();
+                out.writeInt(elements != null ? elements.size() : -1);
+                for (int j = 0; elements != null && j < elements.size(); j++) {
+                    final IntBuffer[] levels = elements.get(j).getLevels();
+                    out.writeInt(levels != null ? levels.length : -1);
+                    for (int k = 0; levels != null && k < levels.length; k++) {
+                        out.writeInt(addBuffer(levels[k]));
+                    }
+                }
+            }
+            out.flush();
+            return ret.toByteArray();
+        }
+
+        /******************************************************************************************/
+        void writeBufferTable(DataOutputStream out) throws IOException {
+            out.writeInt(buffers.size());
+            long offset = 0;
+            for (int i = 0; i < buffers.size(); i++) {
+                final Buffer buffer = buffers.get(i);
+                out.writeByte(getType(buffer));
+                out.writeInt(buffer.capacity());
+                out.writeLong(offset);
+                offset = align(offset + (long) buffer.capacity() * getSize(buffer));
+            }
+        }
+
+        /******************************************************************************************/
+        long getBuffersSize() {
+            long ret = 0;
+            for (int i = 0; i < buffers.size(); i++) {
+                ret = align(ret + (long) buffers.get(i).capacity() * getSize(buffers.get(i)));
+            }
+            return ret;
+        }
+
+        /******************************************************************************************/
+        void writeBuffers(FileChannel channel, long start) throws IOException {
+            final ByteBuffer chunk = ByteBuffer.allocateDirect(CHUNK_SIZE).order(ByteOrder.nativeOrder());
+            long offset = start;
+            for (int i = 0; i < buffers.size(); i++) {
+                channel.position(offset);
+
+                final Buffer buffer = buffers.get(i);
+                final int size = getSize(buffer);
+                final int step = CHUNK_SIZE / size;
+                for (int position = 0; position < buffer.capacity(); position += step) {
+                    final int count = Math.min(step, buffer.capacity() - position);
+                    chunk.clear();
+                    if (buffer instanceof FloatBuffer) {
+                        final FloatBuffer src = ((FloatBuffer) buffer).duplicate();
+                        src.limit(position + count).position(position);
+                        chunk.asFloatBuffer().put(src);
+                    } else if (buffer instanceof IntBuffer) {
+                        final IntBuffer src = ((IntBuffer) buffer).duplicate();
+                        src.limit(position + count).position(position);
+                        chunk.asIntBuffer().put(src);
+                    } else {
+                        final ByteBuffer src = ((ByteBuffer) buffer).duplicate();
+                        src.limit(position + count).position(position);
+                        chunk.put(src);
+                    }
+                    chunk.position(0).limit(count * size);
+                    writeFully(channel, chunk);
+                }
+                offset = align(offset + (long) buffer.capacity() * size);
+            }
+        }
+
+        /******************************************************************************************/
+        private void writeObject(DataOutputStream out, Object3DData obj) throws IOException {
+            if (obj.getClass() != Object3DData.class && obj.getClass() != AnimatedModel.class) {
+                throw new IOException("Unsupported object type: " + obj.getClass());
+            }
+            final boolean animated = obj instanceof AnimatedModel;
+            out.writeByte(animated ? OBJECT_ANIMATED : OBJECT_STATIC);
+
+            writeString(out, obj.getId());
+            writeString(out, obj.getName());
+            writeString(out, obj.getAuthoringTool());
+            writeString(out, obj.getUri() != null ? obj.getUri().toString() : null);
+            out.writeInt(obj.getDrawMode());
+            out.writeBoolean(obj.isDrawUsingArrays());
+
+            out.writeInt(addBuffer(obj.getVertexBuffer()));
+            out.writeInt(addBuffer(obj.getNormalsBuffer()));
+            out.writeInt(addBuffer(obj.getColorsBuffer()));
+            out.writeInt(addBuffer(obj.getTextureBuffer()));
+            out.writeInt(addBuffer(obj.getDrawOrder()));
+            writeFloats(out, obj.getBindTransform());
+
+            final List<Element> elements = obj.getElements();
+            out.writeInt(elements != null ? elements.size() : -1);
+            for (int i = 0; elements != null && i < elements.size(); i++) {
+                final Element element = elements.get(i);
+                writeString(out, element.getId());
+                writeString(out, element.getMaterialId());
+                out.writeInt(addBuffer(element.getIndexBuffer()));
+                out.writeInt(addMaterial(element.getMaterial()));
+            }
+
+            if (animated) {
+                final AnimatedModel model = (AnimatedModel) obj;
+                out.writeInt(addBuffer(model.getJointIds()));
+                out.writeInt(addBuffer(model.getVertexWeights()));
+                out.writeInt(addSkeleton(model.getJointsData()));
+                out.writeInt(addAnimation(model.getAnimation()));
+            }
+        }
+
+        /******************************************************************************************/
+        private int addBuffer(Buffer buffer) {
+            if (buffer == null) return -1;
+            Integer ret = bufferIds.get(buffer);
+            if (ret == null) {
+                ret = buffers.size();
+                bufferIds.put(buffer, ret);
+                buffers.add(buffer);
+            }
+            return ret;
+        }
+
+        /******************************************************************************************/
+        private int addMaterial(Material material) throws IOException {
+            if (material == null) return -1;
+            Integer ret = materialIds.get(material);
+            if (ret != null) return ret;
+
+            ret = materialIds.size();
+            materialIds.put(material, ret);
+
+            final DataOutputStream out = new DataOutputStream(materials);
+            writeString(out, material.getName());
+            writeFloats(out, material.getAmbient());
+            writeFloats(out, material.getDiffuse());
+            writeFloats(out, material.getSpecular());
+            out.writeFloat(material.getShininess());
+            out.writeFloat(material.getAlpha());
+            writeString(out, material.getTextureFile());
+            out.writeInt(material.getTextureData() != null ? addBuffer(ByteBuffer.wrap(material.getTextureData())) : -1);
+            out.flush();
+            return ret;
+        }
+
+        /******************************************************************************************/
+        private int addSkeleton(SkeletonData skeleton) throws IOException {
+            if (skeleton == null) return -1;
+            Integer ret = skeletonIds.get(skeleton);
+            if (ret != null) return ret;
+
+            ret = skeletonIds.size();
+            skeletonIds.put(skeleton, ret);
+
+            final DataOutputStream out = new DataOutputStream(skeletons);
+            out.writeInt(skeleton.getJointCount());
+            out.writeInt(skeleton.getBoneCount());
+            writeJoint(out, skeleton.getHeadJoint());
+            out.flush();
+            return ret;
+        }
+
+        /******************************************************************************************/
+        private static void writeJoint(DataOutputStream out, JointData joint) throws IOException {
+            writeString(out, joint.getId());
+            writeString(out, joint.getName());
+            writeString(out, joint.getSid());
+            writeFloats(out, joint.getBindLocalMatrix());
+            writeFloats(out, joint.getBindLocalScale());
+            writeFloats(out, joint.getBindLocalRotation());
+            writeFloats(out, joint.getBindLocalLocation());
+            writeFloats(out, joint.getBindLocalTransform());
+            writeFloats(out, joint.getBindTransform());
+            writeString(out, joint.getGeometryId());
+
+            final Map<String, String> materials = joint.getMaterials();
+            out.writeInt(materials != null ? materials.size() : -1);
+            if (materials != null) {
+                for (Map.Entry<String, String> entry : materials.entrySet()) {
+                    writeString(out, entry.getKey());
+                    writeString(out, entry.getValue());
+                }
+            }
+
+            out.writeInt(joint.getIndex());
+            writeFloats(out, joint.getInverseBindTransform());
+
+            out.writeInt(joint.getChildren().size());
+            for (int i = 0; i < joint.getChildren().size(); i++) {
+                writeJoint(out, joint.getChildren().get(i));
+            }
+        }
+
+        /******************************************************************************************/
+        private int addAnimation(Animation animation) throws IOException {
+            if (animation == null) return -1;
+            Integer ret = animationIds.get(animation);
+            if (ret != null) return ret;
+
+            ret = animationIds.size();
+            animationIds.put(animation, ret);
+
+            final DataOutputStream out = new DataOutputStream(animations);
+
+            // the animator completes the key frames in place the first time the model is animated
+            synchronized (animation) {
+                out.writeFloat(animation.getLength());
+                out.writeBoolean(animation.isInitialized());
+
+                final KeyFrame[] keyFrames = animation.getKeyFrames();
+                out.writeInt(keyFrames.length);
+                for (KeyFrame keyFrame : keyFrames) {
+                    out.writeFloat(keyFrame.getTimeStamp());
+                    out.writeInt(keyFrame.getTransforms().size());
+                    for (Map.Entry<String, JointTransform> entry : keyFrame.getTransforms().entrySet()) {
+                        writeString(out, entry.getKey());
+                        writeTransform(out, entry.getValue());
+                    }
+                }
+            }
+            out.flush();
+            return ret;
+        }
+
+        /******************************************************************************************/
+        private static void writeTransform(DataOutputStream out, JointTransform transform) throws IOException {
+            writeFloats(out, transform.getScale());
+            writeFloats(out, transform.getRotation());
+            writeFloats(out, transform.getLocation());
+
+            final Quaternion qRotation = transform.getQRotation();
+            out.writeBoolean(qRotation != null);
+            if (qRotation != null) {
+                out.writeFloat(qRotation.getX());
+                out.writeFloat(qRotation.getY());
+                out.writeFloat(qRotation.getZ());
+                out.writeFloat(qRotation.getW());
+            }
+            out.writeBoolean(transform.isVisible());
+        }
+
+        /******************************************************************************************/
+        private static byte getType(Buffer buffer) {
+            if (buffer instanceof FloatBuffer) return BUFFER_FLOAT;
+            if (buffer instanceof IntBuffer) return BUFFER_INT;
+            return BUFFER_BYTE;
+        }
+
+        /******************************************************************************************/
+        private static int getSize(Buffer buffer) {
+            return buffer instanceof ByteBuffer ? 1 : 4;
+        }
+
+        /******************************************************************************************/
+        private static void writeString(DataOutputStream out, String value) throws IOException {
+            out.writeBoolean(value != null);
+            if (value != null) {
+                out.writeUTF(value);
+            }
+        }
+
+        /******************************************************************************************/
+        private static void writeFloats(DataOutputStream out, float[] value) throws IOException {
+            out.writeInt(value != null ? value.length : -1);
+            for (int i = 0; value != null && i < value.length; i++) {
+                out.writeFloat(value[i]);
+            }
+        }
+
+        /******************************************************************************************/
+        private static void writeFloats(DataOutputStream out, Float[] value) throws IOException {
+            out.writeInt(value != null ? value.length : -1);
+            for (int i = 0; value != null && i < value.length; i++) {
+                out.writeBoolean(value[i] != null);
+                if (value[i] != null) {
+                    out.writeFloat(value[i]);
+                }
+            }
+        }
+    }
+
+    /**********************************************************************************************/
+    private static final class Reader {
+        /******************************************************************************************/
+        private final DataInputStream in;
+        /******************************************************************************************/
+        private final Buffer[] buffers;
+        /******************************************************************************************/
+        private Material[] materials;
+        private SkeletonData[] skeletons;
+        private Animation[] animations;
+
+        /******************************************************************************************/
+        Reader(DataInputStream in, MappedByteBuffer mapped, long start) throws IOException {
+            this.in = in;
+            this.buffers = new Buffer[in.readInt()];
+            for (int i = 0; i < buffers.length; i++) {
+                final byte type = in.readByte();
+                final int count = in.readInt();
+                final long offset = start + in.readLong();
+
+                final ByteBuffer view = mapped.duplicate();
+                view.position((int) offset);
+                view.limit((int) (offset + (long) count * (type == BUFFER_BYTE ? 1 : 4)));
+                final ByteBuffer slice = view.slice().order(ByteOrder.nativeOrder());
+
+                if (type == BUFFER_FLOAT) {
+                    buffers[i] = slice.asFloatBuffer();
+                } else if (type == BUFFER_INT) {
+                    buffers[i] = slice.asIntBuffer();
+                } else {
+                    buffers[i] = slice;
+                }
+            }
+        }
+
+        /******************************************************************************************/
+        List<Object3DData> read() throws IOException {
+            materials = new Material[in.readInt()];
+            for (int i = 0; i < materials.length; i++) {
+                materials[i] = readMaterial();
+            }
+            skeletons = new SkeletonData[in.readInt()];
+            for (int i = 0; i < skeletons.length; i++) {
+                skeletons[i] = readSkeleton();
+            }
+            animations = new Animation[in.readInt()];
+            for (int i = 0; i < animations.length; i++) {
+                animations[i] = readAnimation();
+            }
+
+            final int count = in.readInt();
+            final List<Object3DData> ret = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                ret.add(readObject());
+            }
+            return ret;
+        }
+
+        /******************************************************************************************/
+        private Object3DData readObject() throws IOException {
+            final boolean animated = in.readByte() == OBJECT_ANIMATED;
+            final Object3DData ret = animated ? new AnimatedModel() : new Object3DData();
+
+            ret.setId(readString());
+            ret.setName(readString());
+            ret.setAuthoringTool(readString());
+            final String uri = readString();
+            if (uri != null) {
+                ret.setUri(URI.create(uri));
+            }
+            ret.setDrawMode(in.readInt());
+            ret.setDrawUsingArrays(in.readBoolean());
+
+            ret.setVertexBuffer((FloatBuffer) getBuffer(in.readInt()));
+            ret.setNormalsBuffer((FloatBuffer) getBuffer(in.readInt()));
+            ret.setColorsBuffer((FloatBuffer) getBuffer(in.readInt()));
+            ret.setTextureBuffer((FloatBuffer) getBuffer(in.readInt()));
+            ret.setDrawOrder((IntBuffer) getBuffer(in.readInt()));
+            final float[] bindTransform = readFloats();
+            if (bindTransform != null) {
+                ret.setBindTransform(bindTransform);
+            }
+
+            final int elementCount = in.readInt();
+            if (elementCount >= 0) {
+                final List<Element> elements = new ArrayList<>(elementCount);
+                for (int i = 0; i < elementCount; i++) {
+                    final String id = readString();
+                    final String materialId = readString();
+                    final Element element = new Element(id, (IntBuffer) getBuffer(in.readInt()), materialId);
+                    final int material = in.readInt();
+                    if (material >= 0) {
+                        element.setMaterial(materials[material]);
+                    }
+                    elements.add(element);
+                }
+                ret.setElements(elements);
+            }
+
+            if (animated) {
+                final AnimatedModel model = (AnimatedModel) ret;
+                model.setJointIds((FloatBuffer) getBuffer(in.readInt()));
+                model.setVertexWeights((FloatBuffer) getBuffer(in.readInt()));
+                final int skeleton = in.readInt();
+                if (skeleton >= 0) {
+                    model.setJointsData(skeletons[skeleton]);
+                }
+                final int animation = in.readInt();
+                if (animation >= 0) {
+                    model.doAnimation(animations[animation]);
+                }
+            }
+            return ret;
+        }
+
+        /******************************************************************************************/
+        // returns false, and sets nothing, if they are not of these objects
+        boolean readLevels(List<Object3DData> objects) throws IOException {
+            if (in.readInt() != objects.size()) return false;
+
+            final float[][] errors = new float[objects.size()][];
+            final IntBuffer[][][] levels = new IntBuffer[objects.size()][][];
+            for (int i = 0; i < objects.size(); i++) {
+                errors[i] = readFloats();
+
+                final List<Element> elements = objects.get(i).getElements();
+                final int elementCount = in.readInt();
+                if (elementCount != (elements != null ? elements.size() : -1)) return false;
+                levels[i] = new IntBuffer[Math.max(0, elementCount)][];
+                for (int j = 0; j < elementCount; j++) {
+                    final int count = in.readInt();
+                    if (count < 0) continue;
+                    levels[i][j] = new IntBuffer[count];
+                    for (int k = 0; k < count; k++) {
+                        levels[i][j][k] = (IntBuffer) getBuffer(in.readInt());
+                    }
+                }
+            }
+
+            for (int i = 0; i < objects.size(); i++) {
+                if (errors[i] == null) continue;
+                final List<Element> elements = objects.get(i).getElements();
+                for (int j = 0; j < levels[i].length; j++) {
+                    elements.get(j).setLevels(levels[i][j]);
+                }
+                objects.get(i).setLevelErrors(errors[i]);
+            }
+            return true;
+        }
+
+        /******************************************************************************************/
+        private Buffer getBuffer(int index) {
+            return index >= 0 ? buffers[index] : null;
+        }
+
+        /******************************************************************************************/
+        private Material readMaterial() throws IOException {
+            final Material ret = new Material(readString());
+            ret.setAmbient(readFloats());
+            ret.setDiffuse(readFloats());
+            ret.setSpecular(readFloats());
+            ret.setShininess(in.readFloat());
+            ret.setAlpha(in.readFloat());
+            ret.setTextureFile(readString());
+
+            final int texture = in.readInt();
+            if (texture >= 0) {
+                final ByteBuffer data = ((ByteBuffer) buffers[texture]).duplicate();
+                final byte[] textureData = new byte[data.remaining()];
+                data.get(textureData);
+                ret.setTextureData(textureData);
+            }
+            return ret;
+        }
+
+        /******************************************************************************************/
+        private SkeletonData readSkeleton() throws IOException {
+            final int jointCount = in.readInt();
+            final int boneCount = in.readInt();
+            final SkeletonData ret = new SkeletonData(jointCount, readJoint());
+            for (int i = 0; i < boneCount; i++) {
+                ret.incrementBoneCount();
+            }
+            return ret;
+        }
+
+        /******************************************************************************************/
+        private JointData readJoint() throws IOException {
+            final String id = readString();
+            final String name = readString();
+            final String sid = readString();
+            final float[] bindLocalMatrix = readFloats();
+            final Float[] bindLocalScale = readObjectFloats();
+            final Float[] bindLocalRotation = readObjectFloats();
+            final Float[] bindLocalLocation = readObjectFloats();
+            final float[] bindLocalTransform = readFloats();
+            final float[] bindTransform = readFloats();
+            final String geometryId = readString();
+
+            Map<String, String> materials = null;
+            final int materialCount = in.readInt();
+            if (materialCount >= 0) {
+                materials = new HashMap<>();
+                for (int i = 0; i < materialCount; i++) {
+                    materials.put(readString(), readString());
+                }
+            }
+
+            final JointData ret = new JointData(id, name, sid, bindLocalMatrix, bindLocalScale, bindLocalRotation,
+                    bindLocalLocation, bindLocalTransform, bindTransform, geometryId, materials);
+            ret.setIndex(in.readInt());
+            ret.setInverseBindTransform(readFloats());
+
+            final int children = in.readInt();
+            for (int i = 0; i < children; i++) {
+                ret.addChild(readJoint());
+            }
+            return ret;
+        }
+
+        /******************************************************************************************/
+        private Animation readAnimation() throws IOException {
+            final float length = in.readFloat();
+            final boolean initialized = in.readBoolean();
+
+            final KeyFrame[] keyFrames = new KeyFrame[in.readInt()];
+            for (int i = 0; i < keyFrames.length; i++) {
+                final float timeStamp = in.readFloat();
+                final int count = in.readInt();
+                final Map<String, JointTransform> transforms = new HashMap<>();
+                for (int j = 0; j < count; j++) {
+                    transforms.put(readString(), readTransform());
+                }
+                keyFrames[i] = new KeyFrame(timeStamp, transforms);
+            }
+
+            final Animation ret = new Animation(length, keyFrames);
+            ret.setInitialized(initialized);
+            return ret;
+        }
+
+        /******************************************************************************************/
+        private JointTransform readTransform() throws IOException {
+            final Float[] scale = readObjectFloats();
+            final Float[] rotation = readObjectFloats();
+            final Float[] location = readObjectFloats();
+            final Quaternion qRotation = in.readBoolean() ?
+                    new Quaternion(in.readFloat(), in.readFloat(), in.readFloat(), in.readFloat()) : null;
+
+            final JointTransform ret = JointTransform.of(scale, rotation, qRotation, location);
+            ret.setVisible(in.readBoolean());
+            return ret;
+        }
+
+        /******************************************************************************************/
+        private String readString() throws IOException {
+            return in.readBoolean() ? in.readUTF() : null;
+        }
+
+        /******************************************************************************************/
+        private float[] readFloats() throws IOException {
+            final int length = in.readInt();
+            if (length < 0) return null;
+            final float[] ret = new float[length];
+            for (int i = 0; i < length; i++) {
+                ret[i] = in.readFloat();
+            }
+            return ret;
+        }
+
+        /******************************************************************************************/
+        private Float[] readObjectFloats() throws IOException {
+            final int length = in.readInt();
+            if (length < 0) return null;
+            final Float[] ret = new Float[length];
+            for (int i = 0; i < length; i++) {
+                ret[i] = in.readBoolean() ? in.readFloat() : null;
+            }
+            return ret;
+        }
+    }
+}
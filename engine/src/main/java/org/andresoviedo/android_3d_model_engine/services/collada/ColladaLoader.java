@@ -9,6 +9,7 @@ import org.andresoviedo.android_3d_model_engine.model.AnimatedModel;
 import org.andresoviedo.android_3d_model_engine.model.Element;
 import org.andresoviedo.android_3d_model_engine.model.Object3DData;
 import org.andresoviedo.android_3d_model_engine.services.LoadListener;
+import org.andresoviedo.android_3d_model_engine.services.LoadScheduler;
 import org.andresoviedo.android_3d_model_engine.services.collada.entities.JointData;
 import org.andresoviedo.android_3d_model_engine.services.collada.entities.MeshData;
 import org.andresoviedo.android_3d_model_engine.services.collada.entities.SkeletonData;
@@ -30,8 +31,29 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
 /**************************************************************************************************/
 public final class ColladaLoader {
+    /**********************************************************************************************/
+    private final int threads;
+
+    /**********************************************************************************************/
+    public ColladaLoader() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**********************************************************************************************/
+    public ColladaLoader(int threads) {
+        this.threads = threads;
+    }
+
     /**********************************************************************************************/
     public static List<String> getImages(InputStream is) {
         try {
@@ -49,6 +71,7 @@ public final class ColladaLoader {
     public List<Object3DData> load(URI uri, LoadListener callback) {
         final List<Object3DData> ret = new ArrayList<>();
         final List<MeshData> allMeshes = new ArrayList<>();
+        final ExecutorService executor = threads > 1 ? newExecutor(threads) : null;
 
         try (InputStream is = ContentUtils.getInputStream(uri)) {
 
@@ -64,10 +87,24 @@ public final class ColladaLoader {
             } catch (Exception ignored) {
             }
 
+            // skins and animations only depend on the xml, so they are decoded along with the geometries
+            final XmlNode library_controllers = xml.getChild("library_controllers");
+            final Future<Map<String, SkinningData>> skinsFuture;
+            if (library_controllers != null && !library_controllers.getChildren("controller").isEmpty()) {
+                skinsFuture = submit(executor, () -> new SkinLoader(library_controllers, 3).loadSkinData());
+            } else {
+                skinsFuture = null;
+            }
+
+            final AnimationLoader loader = new AnimationLoader(xml);
+            final Future<Animation> animationFuture = loader.isAnimated() ? submit(executor, loader::load) : null;
+
             Log.i("ColladaLoaderTask", "--------------------------------------------------");
             Log.i("ColladaLoaderTask", "Loading visual nodes...");
             Log.i("ColladaLoaderTask", "--------------------------------------------------");
 
+            LoadScheduler.checkCancelled();
+            LoadScheduler.setProgress(0.2f);
             callback.onProgress("Loading visual nodes...");
 
             Map<String, SkeletonData> skeletons = null;
@@ -83,19 +120,28 @@ public final class ColladaLoader {
             Log.i("ColladaLoaderTask", "Loading geometries...");
             Log.i("ColladaLoaderTask", "--------------------------------------------------");
 
+            LoadScheduler.checkCancelled();
+            LoadScheduler.setProgress(0.3f);
             callback.onProgress("Loading geometries...");
             List<MeshData> meshDatas = null;
             try {
-                GeometryLoader g = new GeometryLoader(xml.getChild("library_geometries"));
-                List<XmlNode> geometries = xml.getChild("library_geometries").getChildren("geometry");
-                meshDatas = new ArrayList<>();
+                final XmlNode library_geometries = xml.getChild("library_geometries");
+                List<XmlNode> geometries = library_geometries.getChildren("geometry");
+
+                // geometries are independent. decode them on the pool and merge them in document order
+                final List<Future<MeshData>> futures = new ArrayList<>(geometries.size());
                 for (int i = 0; i < geometries.size(); i++) {
+                    final XmlNode geometry = geometries.get(i);
+                    futures.add(submit(executor, () -> new GeometryLoader(library_geometries).loadGeometry(geometry)));
+                }
+
+                meshDatas = new ArrayList<>();
+                for (int i = 0; i < futures.size(); i++) {
+                    MeshData meshData = await(futures.get(i));
                     if (geometries.size() > 1) {
                         callback.onProgress("Loading geometries... " + (i + 1) + " / " + geometries.size());
                     }
 
-                    XmlNode geometry = geometries.get(i);
-                    MeshData meshData = g.loadGeometry(geometry);
                     if (meshData == null) continue;
                     meshDatas.add(meshData);
                     allMeshes.add(meshData);
@@ -142,6 +188,8 @@ public final class ColladaLoader {
             Log.i("ColladaLoaderTask", "Loading materials...");
             Log.i("ColladaLoaderTask", "--------------------------------------------------");
 
+            LoadScheduler.checkCancelled();
+            LoadScheduler.setProgress(0.6f);
             callback.onProgress("Loading materials...");
 
             try {
@@ -163,6 +211,8 @@ public final class ColladaLoader {
             Log.i("ColladaLoaderTask", "Loading visual scene...");
             Log.i("ColladaLoaderTask", "--------------------------------------------------");
 
+            LoadScheduler.checkCancelled();
+            LoadScheduler.setProgress(0.7f);
             callback.onProgress("Loading visual scene...");
 
             try {
@@ -231,6 +281,8 @@ public final class ColladaLoader {
             Log.i("ColladaLoaderTask", "Loading textures...");
             Log.i("ColladaLoaderTask", "--------------------------------------------------");
 
+            LoadScheduler.checkCancelled();
+            LoadScheduler.setProgress(0.8f);
             callback.onProgress("Loading textures...");
 
             try {
@@ -266,14 +318,11 @@ public final class ColladaLoader {
                 Log.i("ColladaLoaderTask", "Loading skinning data...");
                 Log.i("ColladaLoaderTask", "--------------------------------------------------");
 
-                XmlNode library_controllers = xml.getChild("library_controllers");
-                if (library_controllers != null && !library_controllers.getChildren("controller").isEmpty()) {
+                if (skinsFuture != null) {
 
                     callback.onProgress("Loading skinning data...");
 
-                    SkinLoader skinLoader = new SkinLoader(library_controllers, 3);
-
-                    skins = skinLoader.loadSkinData();
+                    skins = await(skinsFuture);
 
                     for (int i = 0; i < allMeshes.size(); i++) {
                         SkinningData skinningData = skins.get(allMeshes.get(i).getId());
@@ -292,8 +341,6 @@ public final class ColladaLoader {
                 Log.e("ColladaLoaderTask", "Error loading skinning data", ex);
             }
 
-            final AnimationLoader loader = new AnimationLoader(xml);
-
             try {
                 if (loader.isAnimated()) {
 
@@ -319,8 +366,6 @@ public final class ColladaLoader {
 
                         SkinLoader.loadSkinningData(meshData, skins != null ? skins.get(meshData.getId()) : null, skeletonData);
 
-                        SkinLoader.loadSkinningArrays(meshData);
-
                         data3D.setJointIds(meshData.getJointsBuffer());
                         data3D.setVertexWeights(meshData.getWeightsBuffer());
                         Log.d("ColladaLoader", "Loaded skinning data: "
@@ -342,7 +387,7 @@ public final class ColladaLoader {
 
                     callback.onProgress("Loading animation...");
 
-                    final Animation animation = loader.load();
+                    final Animation animation = await(animationFuture);
 
                     for (int i = 0; i < allMeshes.size(); i++) {
                         final MeshData meshData = allMeshes.get(i);
@@ -368,9 +413,43 @@ public final class ColladaLoader {
             }
             Log.i("ColladaLoaderTask", "Loading model finished. Objects: " + ret.size());
 
+        } catch (CancellationException ex) {
+            throw ex;
         } catch (Exception ex) {
             Log.e("ColladaLoaderTask", "Problem loading model", ex);
+        } finally {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
         }
         return ret;
     }
+
+    /**********************************************************************************************/
+    private static ExecutorService newExecutor(int threads) {
+        final AtomicInteger counter = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, runnable -> {
+            final Thread thread = new Thread(runnable, "ColladaLoader-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**********************************************************************************************/
+    private static <T> Future<T> submit(ExecutorService executor, Callable<T> task) {
+        if (executor == null) {
+            // no pool: the task runs on the loading thread when awaited
+            return new FutureTask<>(task);
+        }
+        return executor.submit(task);
+    }
+
+    /**********************************************************************************************/
+    private static <T> T await(Future<T> future) throws Exception {
+        // run the task here if no worker has picked it up yet. it's a no-op if it already started
+        if (future instanceof RunnableFuture) {
+            ((RunnableFuture<T>) future).run();
+        }
+        return future.get();
+    }
 }
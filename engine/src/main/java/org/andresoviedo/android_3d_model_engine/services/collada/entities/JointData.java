@@ -110,6 +110,11 @@ public class JointData {
 		return index;
 	}
 
+	/**********************************************************************************************/
+	public float[] getBindLocalMatrix() {
+		return bindLocalMatrix;
+	}
+
 	/**********************************************************************************************/
 	public Float[] getBindLocalScale() {
 		return bindLocalScale;
@@ -188,6 +193,11 @@ public class JointData {
 		return ret;
 	}
 
+	/**********************************************************************************************/
+	public Map<String, String> getMaterials() {
+		return materials;
+	}
+
 	/**********************************************************************************************/
 	public boolean containsMaterial(String materialId) {
 		return materials.containsKey(materialId);
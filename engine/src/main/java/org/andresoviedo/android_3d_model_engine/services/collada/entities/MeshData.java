@@ -5,13 +5,14 @@ import android.util.Log;
 import androidx.annotation.NonNull;
 
 import org.andresoviedo.android_3d_model_engine.model.Element;
+import org.andresoviedo.util.collection.DirectFloatArray;
+import org.andresoviedo.util.collection.IntArray;
 import org.andresoviedo.util.io.IOUtils;
 import org.andresoviedo.util.math.Math3DUtils;
 
 import java.nio.FloatBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 /**************************************************************************************************/
@@ -25,50 +26,54 @@ public class MeshData {
         private String id;
         private String name;
 
-        private List<float[]> vertices;
-        private List<float[]> normals;
-        private List<float[]> colors;
-        private List<float[]> textures;
+        private DirectFloatArray vertices;
+        private DirectFloatArray normals;
+        private DirectFloatArray colors;
+        private DirectFloatArray textures;
 
-        private List<Vertex> vertexAttributes;
+        private IntArray vertexIndices;
         private List<Element> elements;
 
         private String materialFile;
 
-        private Map<String, List<Vertex>> smoothingGroups;
+        private Map<String, IntArray> smoothingGroups;
 
         public Builder id(String id) {
             this.id = id;
             return this;
         }
 
+        public String getId() {
+            return id;
+        }
+
         public Builder name(String name) {
             this.name = name;
             return this;
         }
 
-        public Builder vertices(List<float[]> vertices) {
+        public Builder vertices(DirectFloatArray vertices) {
             this.vertices = vertices;
             return this;
         }
 
-        public Builder normals(List<float[]> normals) {
+        public Builder normals(DirectFloatArray normals) {
             this.normals = normals;
             return this;
         }
 
-        public Builder colors(List<float[]> colors) {
+        public Builder colors(DirectFloatArray colors) {
             this.colors = colors;
             return this;
         }
 
-        public Builder textures(List<float[]> textures) {
+        public Builder textures(DirectFloatArray textures) {
             this.textures = textures;
             return this;
         }
 
-        public Builder vertexAttributes(List<Vertex> vertices) {
-            this.vertexAttributes = vertices;
+        public Builder vertexIndices(IntArray vertexIndices) {
+            this.vertexIndices = vertexIndices;
             return this;
         }
 
@@ -85,13 +90,13 @@ public class MeshData {
             return this;
         }
 
-        public Builder smoothingGroups(Map<String, List<Vertex>> smoothingGroups) {
+        public Builder smoothingGroups(Map<String, IntArray> smoothingGroups) {
             this.smoothingGroups = smoothingGroups;
             return this;
         }
 
         public MeshData build() {
-            return new MeshData(id, name, vertices, normals, colors, textures, vertexAttributes, elements, materialFile, smoothingGroups);
+            return new MeshData(id, name, vertices, normals, colors, textures, vertexIndices, elements, materialFile, smoothingGroups);
         }
     }
 
@@ -99,14 +104,16 @@ public class MeshData {
     private final String id;
     private final String name;
     /**********************************************************************************************/
-    private List<Vertex> verticesAttributes;
+    // all the channels are already expanded to one entry per drawn vertex (xyz, xyz, uv, rgba)
+    private final DirectFloatArray vertices;
+    private final DirectFloatArray textures;
     /**********************************************************************************************/
-    private final List<float[]> vertices;
-    private final List<float[]> textures;
+    private DirectFloatArray normals;
     /**********************************************************************************************/
-    private List<float[]> normals;
+    private final DirectFloatArray colors;
     /**********************************************************************************************/
-    private final List<float[]> colors;
+    // original (shared) vertex of each drawn vertex. null means every vertex is unique
+    private final IntArray vertexIndices;
     /**********************************************************************************************/
     private final List<Element> elements;
     /**********************************************************************************************/
@@ -123,13 +130,13 @@ public class MeshData {
     /**********************************************************************************************/
     private final String materialFile;
     /**********************************************************************************************/
-    private final Map<String, List<Vertex>> smoothingGroups;
-    private List<float[]> normalsOriginal;
-    private List<Vertex> verticesAttributesOriginal;
+    private final Map<String, IntArray> smoothingGroups;
+    private float[] normalsOriginal;
 
     /**********************************************************************************************/
-    public MeshData(String id, String name, List<float[]> vertices, List<float[]> normals, List<float[]> colors, List<float[]> textures, List<Vertex> verticesAttributes,
-                    List<Element> elements, String materialFile, Map<String, List<Vertex>> smoothingGroups) {
+    public MeshData(String id, String name, DirectFloatArray vertices, DirectFloatArray normals, DirectFloatArray colors,
+                    DirectFloatArray textures, IntArray vertexIndices, List<Element> elements, String materialFile,
+                    Map<String, IntArray> smoothingGroups) {
         this.id = id;
         this.name = name;
 
@@ -138,7 +145,7 @@ public class MeshData {
         this.colors = colors;
         this.textures = textures;
 
-        this.verticesAttributes = verticesAttributes;
+        this.vertexIndices = vertexIndices;
         this.elements = elements;
 
         this.materialFile = materialFile;
@@ -157,10 +164,40 @@ public class MeshData {
     }
 
     /**********************************************************************************************/
-    public List<float[]> getNormals() {
+    public int getVertexCount() {
+        return vertices.size() / 3;
+    }
+
+    /**********************************************************************************************/
+    public DirectFloatArray getVertices() {
+        return this.vertices;
+    }
+
+    /**********************************************************************************************/
+    public DirectFloatArray getNormals() {
         return this.normals;
     }
 
+    /**********************************************************************************************/
+    public DirectFloatArray getColors() {
+        return this.colors;
+    }
+
+    /**********************************************************************************************/
+    public DirectFloatArray getTextures() {
+        return this.textures;
+    }
+
+    /**********************************************************************************************/
+    public IntArray getVertexIndices() {
+        return vertexIndices;
+    }
+
+    /**********************************************************************************************/
+    public Map<String, IntArray> getSmoothingGroups() {
+        return smoothingGroups;
+    }
+
     /**********************************************************************************************/
     public List<Element> getElements() {
         return elements;
@@ -168,19 +205,9 @@ public class MeshData {
 
     /**********************************************************************************************/
     public void smooth() {
-        this.normalsOriginal = new ArrayList<>(this.normals.size());
-        for (int i = 0; i < this.normals.size(); i++) {
-            this.normalsOriginal.add(this.normals.get(i).clone());
-        }
-        if (this.verticesAttributes != null) {
-            try {
-                this.verticesAttributesOriginal = new ArrayList<>(this.verticesAttributes.size());
-                for (int i = 0; i < this.verticesAttributes.size(); i++) {
-                    this.verticesAttributesOriginal.add(this.verticesAttributes.get(i).clone());
-                }
-            } catch (CloneNotSupportedException ignored) {
-            }
-        }
+        if (this.normals == null || this.normals.isEmpty()) return;
+
+        this.normalsOriginal = this.normals.toArray();
 
         if (smoothingGroups == null || smoothingGroups.isEmpty()) {
             smoothAuto();
@@ -193,15 +220,10 @@ public class MeshData {
 
     /**********************************************************************************************/
     public void unSmooth() {
-        if (this.normalsOriginal != null) {
-            this.normals.clear();
-            this.normals = this.normalsOriginal;
+        if (this.normalsOriginal != null && this.normalsOriginal.length == this.normals.size()) {
+            this.normals.asBuffer().put(this.normalsOriginal);
+            this.normalsOriginal = null;
         }
-        if (this.verticesAttributesOriginal != null) {
-            this.verticesAttributes.clear();
-            this.verticesAttributes = verticesAttributesOriginal;
-        }
-
     }
 
     /**********************************************************************************************/
@@ -217,37 +239,40 @@ public class MeshData {
     private void smoothGroups() {
         Log.i("MeshData", "Smoothing groups... Total: " + smoothingGroups.size());
 
-        for (Map.Entry<String, List<Vertex>> smoothingGroup : smoothingGroups.entrySet()) {
+        final float[] v1 = new float[3];
+        final float[] v2 = new float[3];
+        final float[] v3 = new float[3];
+
+        for (Map.Entry<String, IntArray> smoothingGroup : smoothingGroups.entrySet()) {
 
-            Log.v("MeshData", "Smoothing group... Total vertices: " + smoothingGroup.getValue().size());
+            final IntArray groupVertices = smoothingGroup.getValue();
+
+            Log.v("MeshData", "Smoothing group... Total vertices: " + groupVertices.size());
 
             float[] smoothNormal = new float[3];
 
-            for (int i = 0; i < smoothingGroup.getValue().size(); i += 3) {
-                Vertex va1 = smoothingGroup.getValue().get(i);
-                Vertex va2 = smoothingGroup.getValue().get(i + 1);
-                Vertex va3 = smoothingGroup.getValue().get(i + 2);
-                float[] v1 = this.vertices.get(va1.getVertexIndex());
-                float[] v2 = this.vertices.get(va2.getVertexIndex());
-                float[] v3 = this.vertices.get(va3.getVertexIndex());
+            for (int i = 0; i + 2 < groupVertices.size(); i += 3) {
+                getVertex(groupVertices.get(i), v1);
+                getVertex(groupVertices.get(i + 1), v2);
+                getVertex(groupVertices.get(i + 2), v3);
                 float[] normal = calculateNormalFailsafe(v1, v2, v3);
                 smoothNormal = Math3DUtils.add(smoothNormal, normal);
             }
 
-            Math3DUtils.normalize(smoothNormal);
+            if (Math3DUtils.length(smoothNormal) == 0) continue;
 
-            final int newSmoothNormalIdx = this.normals.size();
-            this.normals.add(newSmoothNormalIdx, smoothNormal);
+            Math3DUtils.normalize(smoothNormal);
 
-            for (int i = 0; i < smoothingGroup.getValue().size(); i++) {
+            for (int i = 0; i < groupVertices.size(); i++) {
 
-                Vertex va = smoothingGroup.getValue().get(i);
+                final int idx = groupVertices.get(i);
 
-                if (va.getNormalIndex() != -1) {
+                // only vertices without normal
+                if (getNormalLength(idx) != 0) {
                     continue;
                 }
 
-                va.setNormalIndex(newSmoothNormalIdx);
+                setNormal(idx, smoothNormal);
             }
         }
     }
@@ -267,6 +292,35 @@ public class MeshData {
         return normal;
     }
 
+    /**********************************************************************************************/
+    private void getVertex(int index, float[] vertex) {
+        vertex[0] = vertices.get(index * 3);
+        vertex[1] = vertices.get(index * 3 + 1);
+        vertex[2] = vertices.get(index * 3 + 2);
+    }
+
+    /**********************************************************************************************/
+    private boolean isSameVertex(int index1, int index2) {
+        for (int i = 0; i < 3; i++) {
+            if (Float.floatToIntBits(vertices.get(index1 * 3 + i)) != Float.floatToIntBits(vertices.get(index2 * 3 + i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**********************************************************************************************/
+    private float getNormalLength(int index) {
+        return Math3DUtils.length(normals.get(index * 3), normals.get(index * 3 + 1), normals.get(index * 3 + 2));
+    }
+
+    /**********************************************************************************************/
+    private void setNormal(int index, float[] normal) {
+        normals.set(index * 3, normal[0]);
+        normals.set(index * 3 + 1, normal[1]);
+        normals.set(index * 3 + 2, normal[2]);
+    }
+
     /**********************************************************************************************/
     public void fixNormals() {
         Log.i("MeshData", "Fixing missing or wrong normals...");
@@ -286,118 +340,43 @@ public class MeshData {
     private void generateNormals() {
         Log.i("MeshData", "Generating normals...");
 
-        final List<float[]> newNormals = new ArrayList<>();
-
-        int counter = 0;
-
-        for (Element element : getElements()) {
-
-            for (int i = 0; i < element.getIndices().size(); i += 3) {
-
-                final int idx1 = element.getIndices().get(i);
-                final int idx2 = element.getIndices().get(i + 1);
-                final int idx3 = element.getIndices().get(i + 2);
-
-                final Vertex vertexAttribute1 = this.verticesAttributes.get(idx1);
-                final Vertex vertexAttribute2 = this.verticesAttributes.get(idx2);
-                final Vertex vertexAttribute3 = this.verticesAttributes.get(idx3);
-
-                final int idxV1 = vertexAttribute1.getVertexIndex();
-                final int idxV2 = vertexAttribute2.getVertexIndex();
-                final int idxV3 = vertexAttribute3.getVertexIndex();
-
-                final float[] v1 = this.vertices.get(idxV1);
-                final float[] v2 = this.vertices.get(idxV2);
-                final float[] v3 = this.vertices.get(idxV3);
-
-                if (Arrays.equals(v1, v2) || Arrays.equals(v2, v3) || Arrays.equals(v1, v3)) {
+        this.normals = new DirectFloatArray(this.vertices.size());
+        for (int i = 0; i < this.vertices.size(); i++) {
+            this.normals.add(0);
+        }
+        this.normalsBuffer = null;
 
-                    vertexAttribute1.setNormalIndex(newNormals.size());
-                    vertexAttribute2.setNormalIndex(newNormals.size());
-                    vertexAttribute3.setNormalIndex(newNormals.size());
+        final float[][] triangle = new float[3][3];
 
-                    newNormals.add(newNormals.size(), WRONG_NORMAL);
+        int counter = 0;
 
-                    counter++;
-                    continue;
+        if (this.elements != null) {
+            for (Element element : getElements()) {
+                final IntArray indices = element.getIndices();
+                for (int i = 0; i + 2 < indices.size(); i += 3) {
+                    counter += fixNormals(indices.get(i), indices.get(i + 1), indices.get(i + 2), true, triangle);
                 }
-
-                final float[] calculatedNormal = calculateNormalFailsafe(v1, v2, v3);
-
-                vertexAttribute1.setNormalIndex(newNormals.size());
-                vertexAttribute2.setNormalIndex(newNormals.size());
-                vertexAttribute3.setNormalIndex(newNormals.size());
-
-                newNormals.add(newNormals.size(), calculatedNormal);
-
+            }
+        } else {
+            for (int i = 0; i + 2 < getVertexCount(); i += 3) {
+                counter += fixNormals(i, i + 1, i + 2, true, triangle);
             }
         }
 
-        this.normals = newNormals;
-
-        Log.i("MeshData", "Generated normals. Total: " + this.normals.size() + ", Faces/Lines: " + counter);
+        Log.i("MeshData", "Generated normals. Total: " + getVertexCount() + ", Faces/Lines: " + counter);
     }
 
     /**********************************************************************************************/
     private void fixNormalsForArrays() {
         Log.i("MeshData", "Fixing normals...");
 
-        final List<float[]> newNormals = new ArrayList<>();
+        final float[][] triangle = new float[3][3];
 
         int counter = 0;
-        for (int i = 0; i < vertices.size(); i += 3) {
-
-            final float[] v1 = this.vertices.get(i);
-            final float[] v2 = this.vertices.get(i + 1);
-            final float[] v3 = this.vertices.get(i + 2);
-
-            if (Arrays.equals(v1, v2) || Arrays.equals(v2, v3) || Arrays.equals(v1, v3)) {
-
-                newNormals.add(newNormals.size(), WRONG_NORMAL);
-                newNormals.add(newNormals.size(), WRONG_NORMAL);
-                newNormals.add(newNormals.size(), WRONG_NORMAL);
-
-                counter++;
-                continue;
-            }
-
-            final float[] normalV1 = normals.get(i);
-            final float[] normalV2 = normals.get(i + 1);
-            final float[] normalV3 = normals.get(i + 2);
-
-            float[] calculatedNormal = calculateNormalFailsafe(v1, v2, v3);
-
-            if (Math3DUtils.length(normalV1) < 0.1f) {
-
-                newNormals.add(calculatedNormal);
-
-                counter++;
-
-            } else {
-                newNormals.add(normalV1);
-            }
-
-            if (Math3DUtils.length(normalV2) < 0.1f) {
-                newNormals.add(calculatedNormal);
-
-                counter++;
-
-            } else {
-                newNormals.add(normalV2);
-            }
-
-            if (Math3DUtils.length(normalV3) < 0.1f) {
-                newNormals.add(calculatedNormal);
-
-                counter++;
-
-            } else {
-                newNormals.add(normalV3);
-            }
+        for (int i = 0; i + 2 < getVertexCount(); i += 3) {
+            counter += fixNormals(i, i + 1, i + 2, false, triangle);
         }
 
-        this.normals = newNormals;
-
         Log.i("MeshData", "Fixed normals. Total: " + counter);
     }
 
@@ -406,203 +385,189 @@ public class MeshData {
 
         Log.i("MeshData", "Fixing normals for all elements...");
 
-        final List<float[]> newNormals = new ArrayList<>();
+        final float[][] triangle = new float[3][3];
 
         int counter = 0;
 
         for (Element element : getElements()) {
+            final IntArray indices = element.getIndices();
+            for (int i = 0; i + 2 < indices.size(); i += 3) {
+                counter += fixNormals(indices.get(i), indices.get(i + 1), indices.get(i + 2), false, triangle);
+            }
+        }
 
-            for (int i = 0; i < element.getIndices().size(); i += 3) {
-
-                final int idx1 = element.getIndices().get(i);
-                final int idx2 = element.getIndices().get(i + 1);
-                final int idx3 = element.getIndices().get(i + 2);
-
-                final Vertex vertexAttribute1 = this.verticesAttributes.get(idx1);
-                final Vertex vertexAttribute2 = this.verticesAttributes.get(idx2);
-                final Vertex vertexAttribute3 = this.verticesAttributes.get(idx3);
-
-                final int idxV1 = vertexAttribute1.getVertexIndex();
-                final int idxV2 = vertexAttribute2.getVertexIndex();
-                final int idxV3 = vertexAttribute3.getVertexIndex();
-
-                final float[] v1 = this.vertices.get(idxV1);
-                final float[] v2 = this.vertices.get(idxV2);
-                final float[] v3 = this.vertices.get(idxV3);
-
-                if (Arrays.equals(v1, v2) || Arrays.equals(v2, v3) || Arrays.equals(v1, v3)) {
-
-                    vertexAttribute1.setNormalIndex(newNormals.size());
-                    vertexAttribute2.setNormalIndex(newNormals.size());
-                    vertexAttribute3.setNormalIndex(newNormals.size());
-
-                    newNormals.add(newNormals.size(), WRONG_NORMAL);
-
-                    counter++;
-                    continue;
-                }
-
-                final int normalIdxV1 = vertexAttribute1.getNormalIndex();
-                final int normalIdxV2 = vertexAttribute2.getNormalIndex();
-                final int normalIdxV3 = vertexAttribute3.getNormalIndex();
-
-                final float[] normalV1 = normals.get(normalIdxV1);
-                final float[] normalV2 = normals.get(normalIdxV2);
-                final float[] normalV3 = normals.get(normalIdxV3);
-
-                float[] calculatedNormal = calculateNormalFailsafe(v1, v2, v3);
+        Log.i("MeshData", "Fixed normals. Total: " + counter);
+    }
 
-                if (normalIdxV1 == -1 || Math3DUtils.length(normalV1) < 0.1f) {
+    /**********************************************************************************************/
+    private int fixNormals(int idx1, int idx2, int idx3, boolean overwrite, float[][] triangle) {
 
-                    vertexAttribute1.setNormalIndex(newNormals.size());
+        if (isSameVertex(idx1, idx2) || isSameVertex(idx2, idx3) || isSameVertex(idx1, idx3)) {
+            setNormal(idx1, WRONG_NORMAL);
+            setNormal(idx2, WRONG_NORMAL);
+            setNormal(idx3, WRONG_NORMAL);
+            return 1;
+        }
 
-                    newNormals.add(calculatedNormal);
+        final boolean fixV1 = overwrite || getNormalLength(idx1) < 0.1f;
+        final boolean fixV2 = overwrite || getNormalLength(idx2) < 0.1f;
+        final boolean fixV3 = overwrite || getNormalLength(idx3) < 0.1f;
+        if (!fixV1 && !fixV2 && !fixV3) {
+            return 0;
+        }
 
-                    counter++;
+        getVertex(idx1, triangle[0]);
+        getVertex(idx2, triangle[1]);
+        getVertex(idx3, triangle[2]);
+        final float[] calculatedNormal = calculateNormalFailsafe(triangle[0], triangle[1], triangle[2]);
 
-                } else {
-                    vertexAttribute1.setNormalIndex(newNormals.size());
+        int counter = 0;
+        if (fixV1) {
+            setNormal(idx1, calculatedNormal);
+            counter++;
+        }
+        if (fixV2) {
+            setNormal(idx2, calculatedNormal);
+            counter++;
+        }
+        if (fixV3) {
+            setNormal(idx3, calculatedNormal);
+            counter++;
+        }
+        return overwrite ? 0 : counter;
+    }
 
-                    newNormals.add(normalV1);
-                }
+    /**********************************************************************************************/
+    private void smoothAutoForArrays() {
+        Log.i("MeshData", "Auto smoothing normals for arrays...");
 
-                if (normalIdxV2 == -1 || Math3DUtils.length(normalV2) < 0.1f) {
-                    vertexAttribute2.setNormalIndex(newNormals.size());
+        final int[] sameVertex = findSameVertices();
 
-                    newNormals.add(calculatedNormal);
+        // the first vertex of each position keeps the running smooth normal
+        final float[] normal = new float[3];
+        final float[] smoothNormal = new float[3];
+        for (int i = 0; i < sameVertex.length; i++) {
 
-                    counter++;
+            final int first = sameVertex[i];
+            if (first == i) continue;
 
-                } else {
-                    vertexAttribute2.setNormalIndex(newNormals.size());
+            for (int j = 0; j < 3; j++) {
+                normal[j] = normals.get(i * 3 + j);
+                smoothNormal[j] = normals.get(first * 3 + j);
+            }
 
-                    newNormals.add(normalV2);
-                }
+            if (Arrays.equals(normal, smoothNormal)) {
+                continue;
+            }
 
-                if (normalIdxV3 == -1 || Math3DUtils.length(normalV3) < 0.1f) {
-                    vertexAttribute3.setNormalIndex(newNormals.size());
+            final float[] newSmoothNormal = Math3DUtils.mean(smoothNormal, normal);
 
-                    newNormals.add(calculatedNormal);
+            if (Math3DUtils.length(newSmoothNormal) == 0) continue;
 
-                    counter++;
+            Math3DUtils.normalize(newSmoothNormal);
 
-                } else {
-                    vertexAttribute3.setNormalIndex(newNormals.size());
+            setNormal(first, newSmoothNormal);
+        }
 
-                    newNormals.add(normalV3);
-                }
+        for (int i = 0; i < sameVertex.length; i++) {
+            final int first = sameVertex[i];
+            if (first == i) continue;
+            for (int j = 0; j < 3; j++) {
+                normals.set(i * 3 + j, normals.get(first * 3 + j));
             }
         }
-
-        this.normals = newNormals;
-
-        Log.i("MeshData", "Fixed normals. Total: " + counter);
     }
 
     /**********************************************************************************************/
-    private void smoothAutoForArrays() {
-        Log.i("MeshData", "Auto smoothing normals for arrays...");
+    private int[] findSameVertices() {
+        // open addressing hash table of the first vertex found at each position
+        final int vertexCount = getVertexCount();
+        int tableSize = Integer.highestOneBit(Math.max(vertexCount, 1)) << 2;
+        final int[] table = new int[tableSize];
+        Arrays.fill(table, -1);
 
-        final Map<String, float[]> smoothNormals = new HashMap<>();
+        final int[] ret = new int[vertexCount];
+        for (int i = 0; i < vertexCount; i++) {
+            int hash = Float.floatToIntBits(vertices.get(i * 3));
+            hash = 31 * hash + Float.floatToIntBits(vertices.get(i * 3 + 1));
+            hash = 31 * hash + Float.floatToIntBits(vertices.get(i * 3 + 2));
+            hash ^= (hash >>> 16);
 
-        for (int i = 0; i < vertices.size(); i++) {
-
-            final String idxKey = Arrays.toString(vertices.get(i));
-            final float[] smoothNormal = smoothNormals.get(idxKey);
-            if (smoothNormal == null) {
-                smoothNormals.put(idxKey, this.normals.get(i));
-                continue;
+            int slot = hash & (tableSize - 1);
+            while (table[slot] != -1 && !isSameVertex(table[slot], i)) {
+                slot = (slot + 1) & (tableSize - 1);
             }
-
-            final float[] normal = this.normals.get(i);
-
-            if (normal == smoothNormal || Arrays.equals(normal, smoothNormal)) {
-                normals.set(i, smoothNormal);
-                continue;
+            if (table[slot] == -1) {
+                table[slot] = i;
             }
-
-            final float[] newSmoothNormal = Math3DUtils.mean(smoothNormal, normal);
-
-            Math3DUtils.normalize(newSmoothNormal);
-
-            smoothNormal[0] = newSmoothNormal[0];
-            smoothNormal[1] = newSmoothNormal[1];
-            smoothNormal[2] = newSmoothNormal[2];
-
-            this.normals.set(i, smoothNormal);
+            ret[i] = table[slot];
         }
+        return ret;
     }
 
     /**********************************************************************************************/
     private void smoothAutoForElements() {
         Log.i("MeshData", "Auto smoothing normals for all elements...");
 
-        final Map<Integer, List<float[]>> vertexNormals = new HashMap<>();
+        final int[] sameVertex = vertexIndices == null ? findSameVertices() : null;
 
+        int maxVertexIndex = -1;
         for (Element element : getElements()) {
+            final IntArray indices = element.getIndices();
+            for (int i = 0; i < indices.size(); i++) {
+                maxVertexIndex = Math.max(maxVertexIndex, getVertexIndex(indices.get(i), sameVertex));
+            }
+        }
 
-            for (int i = 0; i < element.getIndices().size(); i++) {
-
-                final int idx = element.getIndices().get(i);
+        // running mean of the normals of every drawn vertex sharing the same original vertex
+        final float[] smoothNormals = new float[(maxVertexIndex + 1) * 3];
+        final int[] counters = new int[maxVertexIndex + 1];
 
-                final int vertexIndex = this.verticesAttributes.get(idx).getVertexIndex();
-                final int normalIndex = this.verticesAttributes.get(idx).getNormalIndex();
+        for (Element element : getElements()) {
+            final IntArray indices = element.getIndices();
+            for (int i = 0; i < indices.size(); i++) {
 
-                final float[] normal = this.normals.get(normalIndex);
+                final int idx = indices.get(i);
+                final int vertexIndex = getVertexIndex(idx, sameVertex);
 
-                List<float[]> normals = vertexNormals.get(vertexIndex);
-                if (normals == null) {
-                    normals = new ArrayList<>();
-                    normals.add(normal);
-                    vertexNormals.put(vertexIndex, normals);
-                } else {
-                    normals.add(normal);
+                for (int j = 0; j < 3; j++) {
+                    final float value = normals.get(idx * 3 + j);
+                    if (counters[vertexIndex] == 0) {
+                        smoothNormals[vertexIndex * 3 + j] = value;
+                    } else {
+                        smoothNormals[vertexIndex * 3 + j] = (smoothNormals[vertexIndex * 3 + j] + value) / 2;
+                    }
                 }
+                counters[vertexIndex]++;
             }
         }
 
-        final Map<Integer, float[]> vertexSmooths = new HashMap<>();
+        for (int i = 0; i < counters.length; i++) {
+            if (counters[i] < 2) continue;
 
-        for (Map.Entry<Integer, List<float[]>> entry : vertexNormals.entrySet()) {
-            final List<float[]> normals = entry.getValue();
-
-            if (normals.size() == 1) {
-                vertexSmooths.put(entry.getKey(), normals.get(0));
-                continue;
-            }
-
-            final float[] smoothNormal = Math3DUtils.mean(normals);
-
-            Math3DUtils.normalize(smoothNormal);
+            final float length = Math3DUtils.length(smoothNormals[i * 3], smoothNormals[i * 3 + 1], smoothNormals[i * 3 + 2]);
+            if (length == 0) continue;
 
-            vertexSmooths.put(entry.getKey(), smoothNormal);
+            smoothNormals[i * 3] /= length;
+            smoothNormals[i * 3 + 1] /= length;
+            smoothNormals[i * 3 + 2] /= length;
         }
 
-        this.normals.clear();
         for (Element element : getElements()) {
-
-            for (int i = 0; i < element.getIndices().size(); i++) {
-                final int idx = element.getIndices().get(i);
-
-                final int vertexIndex = this.verticesAttributes.get(idx).getVertexIndex();
-                final int normalIndex = this.verticesAttributes.get(idx).getNormalIndex();
-
-                float[] smoothNormal = vertexSmooths.get(vertexIndex);
-
-                this.verticesAttributes.get(idx).setNormalIndex(this.normals.size());
-                this.normals.add(smoothNormal);
+            final IntArray indices = element.getIndices();
+            for (int i = 0; i < indices.size(); i++) {
+                final int idx = indices.get(i);
+                final int vertexIndex = getVertexIndex(idx, sameVertex);
+                for (int j = 0; j < 3; j++) {
+                    normals.set(idx * 3 + j, smoothNormals[vertexIndex * 3 + j]);
+                }
             }
         }
     }
 
     /**********************************************************************************************/
-    private static float[] search(List<float[]> list, float[] search) {
-        for (int i = 0; i < list.size(); i++) {
-            if (list.get(i) == search) {
-                return list.get(i);
-            }
-        }
-        return null;
+    private int getVertexIndex(int index, int[] sameVertex) {
+        return vertexIndices != null ? vertexIndices.get(index) : sameVertex[index];
     }
 
     /**********************************************************************************************/
@@ -610,132 +575,82 @@ public class MeshData {
 
         if (normals == null) return;
 
-        for (int i = 0; i < normals.size(); i++) {
-            float[] normal = normals.get(i);
-            if (Float.isNaN(normal[0])) throw new IllegalArgumentException("NaN");
-            if (Float.isNaN(normal[1])) throw new IllegalArgumentException("NaN");
-            if (Float.isNaN(normal[2])) throw new IllegalArgumentException("NaN");
-
-            if (Math3DUtils.length(normal) < 0.9f) {
-                throw new IllegalArgumentException("Wrong normal. Length < 1.0");
+        if (elements == null) {
+            for (int i = 0; i < getVertexCount(); i++) {
+                validateNormal(i);
             }
+            return;
         }
 
         for (Element element : elements) {
-            for (int i = 0; i < element.getIndices().size(); i++) {
-                final int idx = element.getIndices().get(i);
-                Vertex vertexAttribute = verticesAttributes.get(idx);
-
-                if (vertexAttribute.getNormalIndex() < 0 || vertexAttribute.getNormalIndex() >= normals.size()) {
-                    throw new IllegalArgumentException("Wrong normal index: " + vertexAttribute.getNormalIndex());
+            final IntArray indices = element.getIndices();
+            for (int i = 0; i < indices.size(); i++) {
+                final int idx = indices.get(i);
+                if (idx < 0 || idx * 3 >= normals.size()) {
+                    throw new IllegalArgumentException("Wrong normal index: " + idx);
                 }
+                validateNormal(idx);
             }
         }
     }
 
+    /**********************************************************************************************/
+    private void validateNormal(int index) {
+        final float x = normals.get(index * 3);
+        final float y = normals.get(index * 3 + 1);
+        final float z = normals.get(index * 3 + 2);
+        if (Float.isNaN(x)) throw new IllegalArgumentException("NaN");
+        if (Float.isNaN(y)) throw new IllegalArgumentException("NaN");
+        if (Float.isNaN(z)) throw new IllegalArgumentException("NaN");
+
+        if (Math3DUtils.length(x, y, z) < 0.9f) {
+            throw new IllegalArgumentException("Wrong normal. Length < 1.0");
+        }
+    }
+
     /**********************************************************************************************/
     public FloatBuffer getVertexBuffer() {
         if (this.vertexBuffer == null) {
-            if (this.verticesAttributes != null) {
-                this.vertexBuffer = IOUtils.createFloatBuffer(verticesAttributes.size() * 3);
-                for (int i = 0; i < verticesAttributes.size(); i++)
-                    this.vertexBuffer.put(vertices.get(verticesAttributes.get(i).getVertexIndex()));
-            } else {
-                this.vertexBuffer = IOUtils.createFloatBuffer(vertices.size() * 3);
-                for (int i = 0; i < vertices.size(); i++)
-                    this.vertexBuffer.put(vertices.get(i));
-            }
+            this.vertexBuffer = this.vertices.asBuffer();
         }
         return vertexBuffer;
     }
 
     /**********************************************************************************************/
     public FloatBuffer getNormalsBuffer() {
-        if (this.normalsBuffer == null && !this.normals.isEmpty()) {
-            if (this.verticesAttributes != null) {
-                this.normalsBuffer = IOUtils.createFloatBuffer(this.verticesAttributes.size() * 3);
-                for (int i = 0; i < verticesAttributes.size(); i++) {
-                    float[] normal = WRONG_NORMAL; // no normal in case of error
-                    final int index = verticesAttributes.get(i).getNormalIndex();
-                    if (index >= 0 && index < normals.size()) {
-                        normal = normals.get(index);
-                    } else {
-                        Log.e("MeshData", "Wrong normal index: " + index);
-                    }
-                    this.normalsBuffer.put(normal);
-                }
-            } else {
-                this.normalsBuffer = IOUtils.createFloatBuffer(normals.size() * 3);
-                for (int i = 0; i < normals.size(); i++)
-                    this.normalsBuffer.put(normals.get(i));
-            }
+        if (this.normalsBuffer == null && this.normals != null && !this.normals.isEmpty()) {
+            this.normalsBuffer = this.normals.asBuffer();
         }
         return normalsBuffer;
     }
 
     /**********************************************************************************************/
     public void refreshNormalsBuffer() {
-        if (this.normalsBuffer == null || this.normals.isEmpty()) {
+        if (this.normalsBuffer == null || this.normals == null || this.normals.isEmpty()) {
             Log.e("MeshData", "Can't refresh normals buffer. Either normals or normalsBuffer is empty");
             return;
-        } else if (this.verticesAttributes != null && this.verticesAttributes.size() * 3 != this.normalsBuffer.capacity()) {
-            Log.e("MeshData", "Can't refresh normals buffer. Buffer size doesn't match actual data");
-        } else if (this.verticesAttributes == null && this.normals.size() * 3 != this.normalsBuffer.capacity()) {
+        } else if (this.normals.size() != this.normalsBuffer.capacity()) {
             Log.e("MeshData", "Can't refresh normals buffer. Buffer size doesn't match actual data");
+            return;
         }
 
+        // normals buffer is a view of the normals, so there is nothing to copy
         Log.i("MeshData", "Refreshing normals buffer...");
-        if (this.verticesAttributes != null) {
-            for (int i = 0; i < verticesAttributes.size(); i++) {
-                float[] normal = WRONG_NORMAL;
-                final int index = verticesAttributes.get(i).getNormalIndex();
-                if (index >= 0 && index < normals.size()) {
-                    normal = this.normals.get(index);
-                } else {
-                    Log.e("MeshData", "Wrong normal index: " + index);
-                }
-                this.normalsBuffer.put(i * 3, normal[0]);
-                this.normalsBuffer.put(i * 3 + 1, normal[1]);
-                this.normalsBuffer.put(i * 3 + 2, normal[2]);
-            }
-        } else {
-            for (int i = 0; i < this.normals.size(); i++) {
-                this.normalsBuffer.put(i * 3, this.normals.get(i)[0]);
-                this.normalsBuffer.put(i * 3 + 1, this.normals.get(i)[1]);
-                this.normalsBuffer.put(i * 3 + 2, this.normals.get(i)[2]);
-            }
-        }
+        this.normalsBuffer.position(0);
     }
 
     /**********************************************************************************************/
     public FloatBuffer getColorsBuffer() {
-        if (this.colorsBuffer == null && !this.colors.isEmpty()) {
-            this.colorsBuffer = IOUtils.createFloatBuffer(this.verticesAttributes.size() * 4);
-            for (int i = 0; i < verticesAttributes.size() && i < colors.size(); i++) {
-                float[] color = new float[]{1, 0, 0, 1}; // red to warn about error
-                final int index = verticesAttributes.get(i).getColorIndex();
-                if (index >= 0 && index < colors.size()) {
-                    color = colors.get(index);
-                }
-                this.colorsBuffer.put(color);
-            }
+        if (this.colorsBuffer == null && this.colors != null && !this.colors.isEmpty()) {
+            this.colorsBuffer = this.colors.asBuffer();
         }
         return colorsBuffer;
     }
 
     /**********************************************************************************************/
     public FloatBuffer getTextureBuffer() {
-        if (this.textureBuffer == null && !this.textures.isEmpty()) {
-            this.textureBuffer = IOUtils.createFloatBuffer(this.verticesAttributes.size() * 2);
-            for (int i = 0; i < verticesAttributes.size(); i++) {
-                float[] texture = new float[2]; // no texture in case of error
-                int index = verticesAttributes.get(i).getTextureIndex();
-                if (index >= 0 && index < textures.size()) {
-                    texture = textures.get(index);
-                    texture = new float[]{texture[0], 1 - texture[1]};
-                }
-                this.textureBuffer.put(texture);
-            }
+        if (this.textureBuffer == null && this.textures != null && !this.textures.isEmpty()) {
+            this.textureBuffer = this.textures.asBuffer();
         }
         return textureBuffer;
     }
@@ -765,11 +680,6 @@ public class MeshData {
         return weightsBuffer;
     }
 
-    /**********************************************************************************************/
-    public List<Vertex> getVerticesAttributes() {
-        return verticesAttributes;
-    }
-
     /**********************************************************************************************/
     public void setBindShapeMatrix(float[] bindShapeMatrix) {
         this.bindShapeMatrix = bindShapeMatrix;
@@ -804,7 +714,7 @@ public class MeshData {
     @NonNull
     public MeshData clone() {
         final MeshData ret = new MeshData(getId(), getName(), this.vertices, this.normals, this.colors, this.textures,
-                getVerticesAttributes(), getElements(), materialFile, smoothingGroups);
+                this.vertexIndices, getElements(), materialFile, smoothingGroups);
         ret.setBindShapeMatrix(getBindShapeMatrix());
         ret.setJointsArray(getJointsArray());
         ret.setWeightsArray(getWeightsArray());
@@ -9,6 +9,7 @@ import org.andresoviedo.android_3d_model_engine.animation.JointTransform;
 import org.andresoviedo.android_3d_model_engine.animation.KeyFrame;
 import org.andresoviedo.android_3d_model_engine.services.collada.entities.JointTransformData;
 import org.andresoviedo.android_3d_model_engine.services.collada.entities.KeyFrameData;
+import org.andresoviedo.util.collection.FloatArray;
 import org.andresoviedo.util.xml.XmlNode;
 
 import java.util.ArrayList;
@@ -165,10 +166,9 @@ public class AnimationLoader {
                 animation = animation.getChild("animation");
             }
             XmlNode timeData = animation.getChild("source").getChild("float_array");
-            String[] rawTimes = timeData.getData().trim().split("\\s+");
-            for (String rawTime : rawTimes) {
-                ret.add(Float.parseFloat(rawTime));
-
+            FloatArray rawTimes = timeData.getFloatData();
+            for (int i = 0; i < rawTimes.size(); i++) {
+                ret.add(rawTimes.get(i));
             }
         }
         return ret;
@@ -184,9 +184,9 @@ public class AnimationLoader {
         String output = getOutput(animationNode);
         try {
             XmlNode timeData = animationNode.getChildWithAttribute("source", "id", input);
-            String[] rawTimes = timeData.getChild("float_array").getData().trim().split("\\s+");
+            FloatArray rawTimes = timeData.getChild("float_array").getFloatData();
             XmlNode transformData = animationNode.getChildWithAttribute("source", "id", output);
-            String[] rawData = transformData.getChild("float_array").getData().trim().split("\\s+");
+            FloatArray rawData = transformData.getChild("float_array").getFloatData();
             XmlNode technique_common = transformData.getChild("technique_common");
             XmlNode accessor = technique_common.getChild("accessor");
             String stride = accessor.getAttribute("stride") != null ? accessor.getAttribute("stride") : "1";
@@ -211,7 +211,7 @@ public class AnimationLoader {
             } else if (transform.equals("location.Z") || transform.equals("translate.Z")) {
                 process_location_Z(jointNameId, rawTimes, rawData);
             }
-            Log.v("AnimationLoader", "Animation (key frames: " + rawTimes.length + ") " + jointNameId);
+            Log.v("AnimationLoader", "Animation (key frames: " + rawTimes.size() + ") " + jointNameId);
         } catch (Exception e) {
             Log.e("AnimationLoader", "Problem loading animation for joint '" + jointNameId + "' with source '" + output + "'", e);
             throw new RuntimeException(e);
@@ -238,92 +238,92 @@ public class AnimationLoader {
     }
 
     /**********************************************************************************************/
-    private void processMatrixTransforms(String jointName, String[] rawTimes, String[] rawData) {
+    private void processMatrixTransforms(String jointName, FloatArray rawTimes, FloatArray rawData) {
 
         float[] tempMatrix = new float[16];
 
-        for (int i = 0; i < rawTimes.length; i++) {
+        for (int i = 0; i < rawTimes.size(); i++) {
             for (int j = 0; j < 16; j++) {
-                tempMatrix[j] = Float.parseFloat(rawData[i * 16 + j]);
+                tempMatrix[j] = rawData.get(i * 16 + j);
             }
 
             float[] transpose = new float[16];
 
             Matrix.transposeM(transpose, 0, tempMatrix, 0);
 
-            keyFrames[keyTimes.indexOf(Float.parseFloat(rawTimes[i]))].
+            keyFrames[keyTimes.indexOf(rawTimes.get(i))].
                     addJointTransform(JointTransformData.ofMatrix(jointName, transpose));
         }
     }
 
     /**********************************************************************************************/
-    private void process_scale_X(String jointName, String[] rawTimes, String[] rawData) {
-        for (int i = 0; i < rawTimes.length; i++)
-            keyFrames[keyTimes.indexOf(Float.parseFloat(rawTimes[i]))].
-                    addJointTransform(JointTransformData.ofScale(jointName, new Float[]{Float.parseFloat(rawData[i]), null, null}));
+    private void process_scale_X(String jointName, FloatArray rawTimes, FloatArray rawData) {
+        for (int i = 0; i < rawTimes.size(); i++)
+            keyFrames[keyTimes.indexOf(rawTimes.get(i))].
+                    addJointTransform(JointTransformData.ofScale(jointName, new Float[]{rawData.get(i), null, null}));
     }
 
     /**********************************************************************************************/
-    private void process_scale_Y(String jointName, String[] rawTimes, String[] rawData) {
-        for (int i = 0; i < rawTimes.length; i++) {
-            keyFrames[keyTimes.indexOf(Float.parseFloat(rawTimes[i]))].
-                    addJointTransform(JointTransformData.ofScale(jointName, new Float[]{null, Float.parseFloat(rawData[i]), null}));
+    private void process_scale_Y(String jointName, FloatArray rawTimes, FloatArray rawData) {
+        for (int i = 0; i < rawTimes.size(); i++) {
+            keyFrames[keyTimes.indexOf(rawTimes.get(i))].
+                    addJointTransform(JointTransformData.ofScale(jointName, new Float[]{null, rawData.get(i), null}));
         }
     }
 
     /**********************************************************************************************/
-    private void process_scale_Z(String jointName, String[] rawTimes, String[] rawData) {
-        for (int i = 0; i < rawTimes.length; i++) {
-            keyFrames[keyTimes.indexOf(Float.parseFloat(rawTimes[i]))].
-                    addJointTransform(JointTransformData.ofScale(jointName, new Float[]{null, null, Float.parseFloat(rawData[i])}));
+    private void process_scale_Z(String jointName, FloatArray rawTimes, FloatArray rawData) {
+        for (int i = 0; i < rawTimes.size(); i++) {
+            keyFrames[keyTimes.indexOf(rawTimes.get(i))].
+                    addJointTransform(JointTransformData.ofScale(jointName, new Float[]{null, null, rawData.get(i)}));
         }
     }
 
     /**********************************************************************************************/
-    private void process_rotation_X(String jointName, String[] rawTimes, String[] rawData) {
-        for (int i = 0; i < rawTimes.length; i++) {
-            keyFrames[keyTimes.indexOf(Float.parseFloat(rawTimes[i]))].
-                    addJointTransform(JointTransformData.ofRotation(jointName, new Float[]{Float.parseFloat(rawData[i]), null, null}));
+    private void process_rotation_X(String jointName, FloatArray rawTimes, FloatArray rawData) {
+        for (int i = 0; i < rawTimes.size(); i++) {
+            keyFrames[keyTimes.indexOf(rawTimes.get(i))].
+                    addJointTransform(JointTransformData.ofRotation(jointName, new Float[]{rawData.get(i), null, null}));
         }
     }
 
     /**********************************************************************************************/
-    private void process_rotation_Y(String jointName, String[] rawTimes, String[] rawData) {
-        for (int i = 0; i < rawTimes.length; i++) {
-            keyFrames[keyTimes.indexOf(Float.parseFloat(rawTimes[i]))].
-                    addJointTransform(JointTransformData.ofRotation(jointName, new Float[]{null, Float.parseFloat(rawData[i]), null}));
+    private void process_rotation_Y(String jointName, FloatArray rawTimes, FloatArray rawData) {
+        for (int i = 0; i < rawTimes.size(); i++) {
+            keyFrames[keyTimes.indexOf(rawTimes.get(i))].
+                    addJointTransform(JointTransformData.ofRotation(jointName, new Float[]{null, rawData.get(i), null}));
         }
     }
 
     /**********************************************************************************************/
-    private void process_rotation_Z(String jointName, String[] rawTimes, String[] rawData) {
-        for (int i = 0; i < rawTimes.length; i++) {
-            keyFrames[keyTimes.indexOf(Float.parseFloat(rawTimes[i]))].
-                    addJointTransform(JointTransformData.ofRotation(jointName, new Float[]{null, null, Float.parseFloat(rawData[i])}));
+    private void process_rotation_Z(String jointName, FloatArray rawTimes, FloatArray rawData) {
+        for (int i = 0; i < rawTimes.size(); i++) {
+            keyFrames[keyTimes.indexOf(rawTimes.get(i))].
+                    addJointTransform(JointTransformData.ofRotation(jointName, new Float[]{null, null, rawData.get(i)}));
         }
     }
 
     /**********************************************************************************************/
-    private void process_location_X(String jointName, String[] rawTimes, String[] rawData) {
-        for (int i = 0; i < rawTimes.length; i++) {
-            keyFrames[keyTimes.indexOf(Float.parseFloat(rawTimes[i]))].
-                    addJointTransform(JointTransformData.ofLocation(jointName, new Float[]{Float.parseFloat(rawData[i]), null, null}));
+    private void process_location_X(String jointName, FloatArray rawTimes, FloatArray rawData) {
+        for (int i = 0; i < rawTimes.size(); i++) {
+            keyFrames[keyTimes.indexOf(rawTimes.get(i))].
+                    addJointTransform(JointTransformData.ofLocation(jointName, new Float[]{rawData.get(i), null, null}));
         }
     }
 
     /**********************************************************************************************/
-    private void process_location_Y(String jointName, String[] rawTimes, String[] rawData) {
-        for (int i = 0; i < rawTimes.length; i++) {
-            keyFrames[keyTimes.indexOf(Float.parseFloat(rawTimes[i]))].
-                    addJointTransform(JointTransformData.ofLocation(jointName, new Float[]{null, Float.parseFloat(rawData[i]), null}));
+    private void process_location_Y(String jointName, FloatArray rawTimes, FloatArray rawData) {
+        for (int i = 0; i < rawTimes.size(); i++) {
+            keyFrames[keyTimes.indexOf(rawTimes.get(i))].
+                    addJointTransform(JointTransformData.ofLocation(jointName, new Float[]{null, rawData.get(i), null}));
         }
     }
 
     /**********************************************************************************************/
-    private void process_location_Z(String jointName, String[] rawTimes, String[] rawData) {
-        for (int i = 0; i < rawTimes.length; i++) {
-            keyFrames[keyTimes.indexOf(Float.parseFloat(rawTimes[i]))].
-                    addJointTransform(JointTransformData.ofLocation(jointName, new Float[]{null, null, Float.parseFloat(rawData[i])}));
+    private void process_location_Z(String jointName, FloatArray rawTimes, FloatArray rawData) {
+        for (int i = 0; i < rawTimes.size(); i++) {
+            keyFrames[keyTimes.indexOf(rawTimes.get(i))].
+                    addJointTransform(JointTransformData.ofLocation(jointName, new Float[]{null, null, rawData.get(i)}));
         }
     }
 }
@@ -4,28 +4,28 @@ import android.util.Log;
 
 import org.andresoviedo.android_3d_model_engine.model.Element;
 import org.andresoviedo.android_3d_model_engine.services.collada.entities.MeshData;
-import org.andresoviedo.android_3d_model_engine.services.collada.entities.Vertex;
 import org.andresoviedo.android_3d_model_engine.util.HoleCutter;
+import org.andresoviedo.util.collection.DirectFloatArray;
+import org.andresoviedo.util.collection.FloatArray;
+import org.andresoviedo.util.collection.IntArray;
 import org.andresoviedo.util.xml.XmlNode;
 
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
-import java.util.regex.Pattern;
 /**************************************************************************************************/
 public class GeometryLoader {
-    /**********************************************************************************************/
-    private static final Pattern SPACE_PATTERN = Pattern.compile("\\s+");
     /**********************************************************************************************/
     private final XmlNode geometryNode;
     /**********************************************************************************************/
-    private List<Vertex> verticesAttributes;
+    // position, texture, normal and color index of each vertex
+    private IntArray verticesAttributes;
     /**********************************************************************************************/
-    private List<float[]> vertex = new ArrayList<>();
-    private List<float[]> textures = new ArrayList<>();
-    private List<float[]> normals = new ArrayList<>();
-    private List<float[]> colors = new ArrayList<>();
+    private FloatArray vertex = new FloatArray();
+    private FloatArray textures = new FloatArray();
+    private FloatArray normals = new FloatArray();
+    private FloatArray colors = new FloatArray();
     /**********************************************************************************************/
     private final Set<String> includeGeometries = new HashSet<>();
     /**********************************************************************************************/
@@ -49,19 +49,17 @@ public class GeometryLoader {
 
         Log.i("GeometryLoader", "Loading geometry '" + geometryId + " (" + geometryName + ")'...");
 
-        final List<List<Integer>> oldElements = new ArrayList<>();
-
         final List<Element> elements = new ArrayList<>();
 
         XmlNode meshData = geometry.getChild("mesh");
 
         textureLinked = false;
 
-        verticesAttributes = new ArrayList<>();
-        vertex = new ArrayList<>();
-        textures = new ArrayList<>();
-        normals = new ArrayList<>();
-        colors = new ArrayList<>();
+        verticesAttributes = new IntArray();
+        vertex = new FloatArray();
+        textures = new FloatArray();
+        normals = new FloatArray();
+        colors = new FloatArray();
 
         loadVertices(meshData, vertex, normals, textures);
 
@@ -75,19 +73,19 @@ public class GeometryLoader {
         List<XmlNode> polys = meshData.getChildren("polylist");
         if (!polys.isEmpty()) {
             Log.d("GeometryLoader", "Loading polylist polygons... " + polys.size());
-            loadPolygon(geometryId, geometryName, polys, oldElements, elements);
+            loadPolygon(geometryId, geometryName, polys, elements);
         }
 
         List<XmlNode> triangless = meshData.getChildren("triangles");
         if (!triangless.isEmpty()) {
             Log.d("GeometryLoader", "Loading triangulated polygons... " + triangless.size());
-            loadPolygon(geometryId, geometryName, triangless, oldElements, elements);
+            loadPolygon(geometryId, geometryName, triangless, elements);
         }
 
         List<XmlNode> polygons = meshData.getChildren("polygons");
         if (!polygons.isEmpty()) {
             Log.d("GeometryLoader", "Loading polygons... " + polygons.size());
-            loadPolygon(geometryId, geometryName, polygons, oldElements, elements);
+            loadPolygon(geometryId, geometryName, polygons, elements);
         }
 
         if (polygons.isEmpty() && triangless.isEmpty() && polys.isEmpty()) {
@@ -95,22 +93,82 @@ public class GeometryLoader {
             return null;
         }
 
-        final List<int[]> indicesArray = convertIndicesListToArray(oldElements);
+        final int vertexCount = verticesAttributes.size() / 4;
+
+        Log.i("GeometryLoader", "Loaded geometry " + geometryId + ". vertices: " + vertexCount +
+                ", normals: " + normals.size() / 3 +
+                ", textures: " + textures.size() / 2 +
+                ", colors: " + colors.size() / 4);
+        Log.i("GeometryLoader", "Loaded geometry " + geometryId + ". elements: " + elements.size());
+
+        final DirectFloatArray vertexArray = new DirectFloatArray(vertexCount * 3);
+        final DirectFloatArray normalsArray = normals.isEmpty() ? null : new DirectFloatArray(vertexCount * 3);
+        final DirectFloatArray texturesArray = textures.isEmpty() ? null : new DirectFloatArray(vertexCount * 2);
+        final DirectFloatArray colorsArray = colors.isEmpty() ? null : new DirectFloatArray(vertexCount * 4);
+        final IntArray vertexIndices = new IntArray(vertexCount);
 
-        Log.i("GeometryLoader", "Loaded geometry " + geometryId + ". vertices: " + verticesAttributes.size() +
-                ", normals: " + (normals != null ? normals.size() : 0) +
-                ", textures: " + (textures != null ? textures.size() : 0) +
-                ", colors: " + (colors != null ? colors.size() : 0));
-        Log.i("GeometryLoader", "Loaded geometry " + geometryId + ". elements: " + indicesArray.size());
+        expandVertices(vertexArray, normalsArray, texturesArray, colorsArray, vertexIndices);
 
-        return new MeshData(geometryId, geometryName, vertex, normals, colors, textures, verticesAttributes, elements, null, null);
+        return new MeshData(geometryId, geometryName, vertexArray, normalsArray, colorsArray, texturesArray, vertexIndices, elements, null, null);
     }
 
     /**********************************************************************************************/
-    private void loadPolygon(String geometryId, String geometryName, List<XmlNode> polygons, List<List<Integer>> elementsOld, List<Element> elements) {
+    private void expandVertices(DirectFloatArray vertexArray, DirectFloatArray normalsArray, DirectFloatArray texturesArray,
+                                DirectFloatArray colorsArray, IntArray vertexIndices) {
+        final int[] attributes = verticesAttributes.array();
+        final int normalCount = normals.size() / 3;
+        final int textureCount = textures.size() / 2;
+        final int colorCount = colors.size() / 4;
+        for (int i = 0; i < verticesAttributes.size(); i += 4) {
+            final int positionIndex = attributes[i];
+            vertexIndices.add(positionIndex);
+            vertexArray.add(vertex.get(positionIndex * 3), vertex.get(positionIndex * 3 + 1), vertex.get(positionIndex * 3 + 2));
+
+            if (texturesArray != null) {
+                final int index = attributes[i + 1];
+                if (index >= 0 && index < textureCount) {
+                    texturesArray.add(textures.get(index * 2), 1 - textures.get(index * 2 + 1));
+                } else {
+                    // no texture in case of error
+                    texturesArray.add(0, 0);
+                }
+            }
+
+            if (normalsArray != null) {
+                final int index = attributes[i + 2];
+                if (index >= 0 && index < normalCount) {
+                    normalsArray.add(normals.get(index * 3), normals.get(index * 3 + 1), normals.get(index * 3 + 2));
+                } else {
+                    Log.e("GeometryLoader", "Wrong normal index: " + index);
+                    normalsArray.add(0, -1, 0);
+                }
+            }
+
+            if (colorsArray != null) {
+                final int index = attributes[i + 3];
+                if (index >= 0 && index < colorCount) {
+                    colorsArray.add(colors.get(index * 4), colors.get(index * 4 + 1), colors.get(index * 4 + 2), colors.get(index * 4 + 3));
+                } else {
+                    // red to warn about error
+                    colorsArray.add(1, 0, 0, 1);
+                }
+            }
+        }
+    }
+
+    /**********************************************************************************************/
+    private int addVertexAttribute(int positionIndex, int textureIndex, int normalIndex, int colorIndex) {
+        final int index = verticesAttributes.size() / 4;
+        verticesAttributes.add(positionIndex, textureIndex, normalIndex);
+        verticesAttributes.add(colorIndex);
+        return index;
+    }
+
+    /**********************************************************************************************/
+    private void loadPolygon(String geometryId, String geometryName, List<XmlNode> polygons, List<Element> elements) {
         for (XmlNode polygon : polygons) {
 
-            List<Integer> indices = new ArrayList<>();
+            IntArray indices = new IntArray();
 
             String material = polygon.getAttribute("material");
 
@@ -120,8 +178,6 @@ public class GeometryLoader {
                 continue;
             }
 
-            elementsOld.add(indices);
-
             elements.add(new Element(geometryId, indices, material));
         }
     }
@@ -150,7 +206,7 @@ public class GeometryLoader {
     }
 
     /**********************************************************************************************/
-    private void loadVertices(XmlNode meshData, List<float[]> vertex, List<float[]> normals, List<float[]> textures) {
+    private void loadVertices(XmlNode meshData, FloatArray vertex, FloatArray normals, FloatArray textures) {
         XmlNode verticesNode = meshData.getChild("vertices");
         assert verticesNode != null;
         for (XmlNode node : verticesNode.getChildren("input")) {
@@ -167,7 +223,7 @@ public class GeometryLoader {
     }
 
     /**********************************************************************************************/
-    private static void loadData(List<float[]> list, XmlNode node, XmlNode input, int size, String semantic) {
+    private static void loadData(FloatArray list, XmlNode node, XmlNode input, int size, String semantic) {
         if (input == null) return;
 
         String sourceId = input.getAttribute("source").substring(1);
@@ -186,22 +242,21 @@ public class GeometryLoader {
             stride = Integer.parseInt(technique.getChild("accessor").getAttribute("stride"));
         }
 
-        String[] floatData = SPACE_PATTERN.split(data.getData().trim().replace(',', '.'));
+        FloatArray floatData = data.getFloatData();
+        list.ensureCapacity(list.size() + (count + stride - 1) / stride * size);
         for (int i = 0; i < count; i += stride) {
-            float[] f = new float[size];
             for (int j = 0; j < size; j++) {
                 float val = 1;
                 if (j < stride) {
-                    val = Float.parseFloat(floatData[i + j]);
+                    val = floatData.get(i + j);
                 }
-                f[j] = val;
+                list.add(val);
             }
-            list.add(f);
         }
     }
 
     /**********************************************************************************************/
-    private void setupVertices(XmlNode primitive, List<Integer> indices) {
+    private void setupVertices(XmlNode primitive, IntArray indices) {
         String verticesId = null;
 
         int vertexOffset = 0;
@@ -237,9 +292,9 @@ public class GeometryLoader {
         Log.d("GeometryLoader", "Loading data for '" + primitive.getName() + "'. offsets: vertex=" + vertexOffset + ", normal=" +
                 +normalOffset + ", texture=" + texOffset + ", color=" + colorOffset);
 
-        String[] vcountList = null;
+        IntArray vcountList = null;
         if (primitive.getChild("vcount") != null) {
-            vcountList = SPACE_PATTERN.split(primitive.getChild("vcount").getData().trim());
+            vcountList = primitive.getChild("vcount").getIntData();
         }
 
         List<XmlNode> polygons = primitive.getChildren("p");
@@ -249,61 +304,41 @@ public class GeometryLoader {
             if (!polygonsWithHoles.isEmpty()) {
                 Log.d("GeometryLoader", "Found polygons with holes: " + polygonsWithHoles.size());
 
-                final int offset = verticesAttributes.size();
+                final int offset = verticesAttributes.size() / 4;
 
                 for (XmlNode polygonWithHole : polygonsWithHoles) {
                     final XmlNode polygon = polygonsWithHoles.get(0).getChild("p");
 
-                    final List<Vertex> polygonWithHolesIndices = new ArrayList<>();
-
-                    final String[] indexData = SPACE_PATTERN.split(polygon.getData().trim());
-                    for (int i = 0; i < indexData.length; i += stride) {
-                        final int positionIndex = Integer.parseInt(indexData[i + vertexOffset]);
+                    final IntArray polygonWithHolesIndices = new IntArray();
 
-                        final Vertex vertexAttribute = new Vertex(positionIndex);
-
-                        if (normalOffset >= 0) {
-                            vertexAttribute.setNormalIndex(Integer.parseInt(indexData[i + normalOffset]));
-                        }
+                    final IntArray indexData = polygon.getIntData();
+                    for (int i = 0; i < indexData.size(); i += stride) {
+                        final int positionIndex = indexData.get(i + vertexOffset);
 
-                        if (colorOffset >= 0) {
-                            vertexAttribute.setColorIndex(Integer.parseInt(indexData[i + colorOffset]));
-                        }
-
-                        if (texOffset >= 0) {
-                            vertexAttribute.setTextureIndex(Integer.parseInt(indexData[i + texOffset]));
-                        }
+                        final int normalIndex = normalOffset >= 0 ? indexData.get(i + normalOffset) : -1;
+                        final int colorIndex = colorOffset >= 0 ? indexData.get(i + colorOffset) : -1;
+                        final int textureIndex = texOffset >= 0 ? indexData.get(i + texOffset) : -1;
 
-                        this.verticesAttributes.add(vertexAttribute);
+                        final int vertexAttribute = addVertexAttribute(positionIndex, textureIndex, normalIndex, colorIndex);
 
                         polygonWithHolesIndices.add(vertexAttribute);
                     }
 
-                    final List<List<Vertex>> allHoles = new ArrayList<>();
+                    final List<IntArray> allHoles = new ArrayList<>();
 
                     for (XmlNode hole : polygonWithHole.getChildren("h")) {
 
-                        final List<Vertex> holeVertices = new ArrayList<>();
+                        final IntArray holeVertices = new IntArray();
 
-                        String[] holeData = SPACE_PATTERN.split(hole.getData().trim());
-                        for (int i = 0; i < holeData.length; i += stride) {
-                            final int positionIndex = Integer.parseInt(holeData[i + vertexOffset]);
+                        IntArray holeData = hole.getIntData();
+                        for (int i = 0; i < holeData.size(); i += stride) {
+                            final int positionIndex = holeData.get(i + vertexOffset);
 
-                            final Vertex vertexAttribute = new Vertex(positionIndex);
+                            final int normalIndex = normalOffset >= 0 ? holeData.get(i + normalOffset) : -1;
+                            final int colorIndex = colorOffset >= 0 ? holeData.get(i + colorOffset) : -1;
+                            final int textureIndex = texOffset >= 0 ? holeData.get(i + texOffset) : -1;
 
-                            if (normalOffset >= 0) {
-                                vertexAttribute.setNormalIndex(Integer.parseInt(holeData[i + normalOffset]));
-                            }
-
-                            if (colorOffset >= 0) {
-                                vertexAttribute.setColorIndex(Integer.parseInt(holeData[i + colorOffset]));
-                            }
-
-                            if (texOffset >= 0) {
-                                vertexAttribute.setTextureIndex(Integer.parseInt(holeData[i + texOffset]));
-                            }
-
-                            this.verticesAttributes.add(vertexAttribute);
+                            final int vertexAttribute = addVertexAttribute(positionIndex, textureIndex, normalIndex, colorIndex);
 
                             holeVertices.add(vertexAttribute);
                         }
@@ -314,15 +349,15 @@ public class GeometryLoader {
                     try {
 
                         final List<float[]> triangles = new ArrayList<>();
-                        for (Vertex va : polygonWithHolesIndices) {
-                            triangles.add(this.vertex.get(va.getVertexIndex()));
+                        for (int i = 0; i < polygonWithHolesIndices.size(); i++) {
+                            triangles.add(getPosition(polygonWithHolesIndices.get(i)));
                         }
 
                         final List<List<float[]>> holes = new ArrayList<>();
-                        for (List<Vertex> holeList : allHoles) {
+                        for (IntArray holeList : allHoles) {
                             final List<float[]> hole = new ArrayList<>();
-                            for (Vertex va : holeList) {
-                                hole.add(this.vertex.get(va.getVertexIndex()));
+                            for (int i = 0; i < holeList.size(); i++) {
+                                hole.add(getPosition(holeList.get(i)));
                             }
                             holes.add(hole);
                         }
@@ -340,7 +375,7 @@ public class GeometryLoader {
         }
         Log.d("GeometryLoader", "Loading " + primitive.getName() + "... " + polygons.size());
         for (XmlNode polygon : polygons) {
-            String[] indexData = SPACE_PATTERN.split(polygon.getData().trim());
+            IntArray indexData = polygon.getIntData();
             if (vcountList != null) {
                 if (false) {
                     triangulateStrippedPolygon(indices, vertexOffset, normalOffset, colorOffset, texOffset, stride, vcountList, indexData);
@@ -348,40 +383,30 @@ public class GeometryLoader {
                     triangulateFannedPolygon(indices, vertexOffset, normalOffset, colorOffset, texOffset, stride, vcountList, indexData);
                 }
             } else {
-                Log.d("GeometryLoader", "Loading faces.... " + indexData.length / 3);
-                for (int i = 0; i < indexData.length; i += stride) {
+                Log.d("GeometryLoader", "Loading faces.... " + indexData.size() / 3);
+                for (int i = 0; i < indexData.size(); i += stride) {
 
-                    final int positionIndex = Integer.parseInt(indexData[i + vertexOffset]);
-                    Vertex vertexAttribute = new Vertex(positionIndex);
+                    final int positionIndex = indexData.get(i + vertexOffset);
+                    final int normalIndex = normalOffset >= 0 ? indexData.get(i + normalOffset) : -1;
+                    final int colorIndex = colorOffset >= 0 ? indexData.get(i + colorOffset) : -1;
+                    final int textureIndex = texOffset >= 0 ? indexData.get(i + texOffset) : -1;
 
-                    if (normalOffset >= 0) {
-                        vertexAttribute.setNormalIndex(Integer.parseInt(indexData[i + normalOffset]));
-                    }
+                    final int vertexAttribute = addVertexAttribute(positionIndex, textureIndex, normalIndex, colorIndex);
 
-                    if (colorOffset >= 0) {
-                        vertexAttribute.setColorIndex(Integer.parseInt(indexData[i + colorOffset]));
-                    }
-
-                    if (texOffset >= 0) {
-                        vertexAttribute.setTextureIndex(Integer.parseInt(indexData[i + texOffset]));
-                    }
-
-                    indices.add(this.verticesAttributes.size());
-
-                    this.verticesAttributes.add(vertexAttribute);
+                    indices.add(vertexAttribute);
                 }
             }
         }
     }
 
     /**********************************************************************************************/
-    private void triangulateStrippedPolygon(List<Integer> indices, int vertexOffset, int normalOffset, int colorOffset, int texOffset, int stride, String[] vcountList, String[] indexData) {
-        Log.d("GeometryLoader", "Loading using triangle strip technique. vcount: " + vcountList.length);
+    private void triangulateStrippedPolygon(IntArray indices, int vertexOffset, int normalOffset, int colorOffset, int texOffset, int stride, IntArray vcountList, IntArray indexData) {
+        Log.d("GeometryLoader", "Loading using triangle strip technique. vcount: " + vcountList.size());
 
         int offset = 0;
         int totalFaces = 0;
-        for (String s : vcountList) {
-            int vcount = Integer.parseInt(s);
+        for (int v = 0; v < vcountList.size(); v++) {
+            int vcount = vcountList.get(v);
 
             int vcounter = 0;
             for (int faceIndex = 0; vcounter < vcount; faceIndex++, vcounter++, offset += stride) {
@@ -393,29 +418,21 @@ public class GeometryLoader {
                     totalFaces++;
                 }
 
-                final int positionIndex = Integer.parseInt(indexData[offset + vertexOffset]);
-
-                Vertex vertexAttribute = new Vertex(positionIndex);
-
-                if (normalOffset >= 0) {
-                    vertexAttribute.setNormalIndex(Integer.parseInt(indexData[offset + normalOffset]));
-                }
-
-                if (colorOffset >= 0) {
-                    vertexAttribute.setColorIndex(Integer.parseInt(indexData[offset + colorOffset]));
-                }
+                final int positionIndex = indexData.get(offset + vertexOffset);
 
+                final int normalIndex = normalOffset >= 0 ? indexData.get(offset + normalOffset) : -1;
+                final int colorIndex = colorOffset >= 0 ? indexData.get(offset + colorOffset) : -1;
+                int textureIndex = -1;
                 if (texOffset >= 0) {
-                    int textureIndex = Integer.parseInt(indexData[offset + texOffset]);
+                    textureIndex = indexData.get(offset + texOffset);
                     if (textureIndex < 0) {
                         throw new IllegalArgumentException("texture index < 0");
                     }
-                    vertexAttribute.setTextureIndex(textureIndex);
                 }
 
-                indices.add(this.verticesAttributes.size());
+                final int vertexAttribute = addVertexAttribute(positionIndex, textureIndex, normalIndex, colorIndex);
 
-                this.verticesAttributes.add(vertexAttribute);
+                indices.add(vertexAttribute);
             }
             totalFaces++;
         }
@@ -423,13 +440,13 @@ public class GeometryLoader {
     }
 
     /**********************************************************************************************/
-    private void triangulateFannedPolygon(List<Integer> indices, int vertexOffset, int normalOffset, int colorOffset, int texOffset, int stride, String[] vcountList, String[] indexData) {
-        Log.d("GeometryLoader", "Loading using fan technique. vcount: " + vcountList.length);
+    private void triangulateFannedPolygon(IntArray indices, int vertexOffset, int normalOffset, int colorOffset, int texOffset, int stride, IntArray vcountList, IntArray indexData) {
+        Log.d("GeometryLoader", "Loading using fan technique. vcount: " + vcountList.size());
 
         int offset = 0;
         int totalFaces = 0;
-        for (String s : vcountList) {
-            int vcount = Integer.parseInt(s);
+        for (int v = 0; v < vcountList.size(); v++) {
+            int vcount = vcountList.get(v);
 
             int vcounter = 0;
             int firstVectorOffset = offset;
@@ -451,28 +468,20 @@ public class GeometryLoader {
                     doClose = false;
                 }
 
-                final int positionIndex = Integer.parseInt(indexData[offset + vertexOffset]);
-                Vertex vertexAttribute = new Vertex(positionIndex);
-
-                if (normalOffset >= 0) {
-                    vertexAttribute.setNormalIndex(Integer.parseInt(indexData[offset + normalOffset]));
-                }
-
-                if (colorOffset >= 0) {
-                    vertexAttribute.setColorIndex(Integer.parseInt(indexData[offset + colorOffset]));
-                }
-
+                final int positionIndex = indexData.get(offset + vertexOffset);
+                final int normalIndex = normalOffset >= 0 ? indexData.get(offset + normalOffset) : -1;
+                final int colorIndex = colorOffset >= 0 ? indexData.get(offset + colorOffset) : -1;
+                int textureIndex = -1;
                 if (texOffset >= 0) {
-                    int textureIndex = Integer.parseInt(indexData[offset + texOffset]);
+                    textureIndex = indexData.get(offset + texOffset);
                     if (textureIndex < 0) {
                         throw new IllegalArgumentException("texture index < 0");
                     }
-                    vertexAttribute.setTextureIndex(textureIndex);
                 }
 
-                indices.add(this.verticesAttributes.size());
+                final int vertexAttribute = addVertexAttribute(positionIndex, textureIndex, normalIndex, colorIndex);
 
-                this.verticesAttributes.add(vertexAttribute);
+                indices.add(vertexAttribute);
 
             }
             totalFaces++;
@@ -481,15 +490,15 @@ public class GeometryLoader {
     }
 
     /**********************************************************************************************/
-    private void triangulateFannedPolygon(List<Integer> indices, int vertexOffset, int normalOffset, int colorOffset, int texOffset, int stride, String[] indexData) {
+    private void triangulateFannedPolygon(IntArray indices, int vertexOffset, int normalOffset, int colorOffset, int texOffset, int stride, IntArray indexData) {
 
-        Log.d("GeometryLoader", "Loading using fan technique. Indices: " + indexData.length + ", MeshObject: " + (indexData.length / stride - 2));
+        Log.d("GeometryLoader", "Loading using fan technique. Indices: " + indexData.size() + ", MeshObject: " + (indexData.size() / stride - 2));
 
         int totalFaces = 0;
 
         boolean doFan = false, doClose = false;
 
-        for (int offset = 0, faceIndex = 0; offset < indexData.length; offset += stride, faceIndex++) {
+        for (int offset = 0, faceIndex = 0; offset < indexData.size(); offset += stride, faceIndex++) {
             if (doClose) {
                 doClose = false;
             } else if (doFan) {
@@ -507,43 +516,28 @@ public class GeometryLoader {
                 totalFaces++;
             }
 
-            final int positionIndex = Integer.parseInt(indexData[offset + vertexOffset]);
-            Vertex vertexAttribute = new Vertex(positionIndex);
-
-            if (normalOffset >= 0) {
-                vertexAttribute.setNormalIndex(Integer.parseInt(indexData[offset + normalOffset]));
-            }
-
-            if (colorOffset >= 0) {
-                vertexAttribute.setColorIndex(Integer.parseInt(indexData[offset + colorOffset]));
-            }
-
+            final int positionIndex = indexData.get(offset + vertexOffset);
+            final int normalIndex = normalOffset >= 0 ? indexData.get(offset + normalOffset) : -1;
+            final int colorIndex = colorOffset >= 0 ? indexData.get(offset + colorOffset) : -1;
+            int textureIndex = -1;
             if (texOffset >= 0) {
-                int textureIndex = Integer.parseInt(indexData[offset + texOffset]);
+                textureIndex = indexData.get(offset + texOffset);
                 if (textureIndex < 0) {
                     throw new IllegalArgumentException("texture index < 0");
                 }
-                vertexAttribute.setTextureIndex(textureIndex);
             }
 
-            indices.add(this.verticesAttributes.size());
+            final int vertexAttribute = addVertexAttribute(positionIndex, textureIndex, normalIndex, colorIndex);
 
-            this.verticesAttributes.add(vertexAttribute);
+            indices.add(vertexAttribute);
 
         }
         Log.i("GeometryLoader", "Total FAN faces: " + totalFaces + ", Total indices: " + indices.size());
     }
 
     /**********************************************************************************************/
-    private List<int[]> convertIndicesListToArray(List<List<Integer>> allIndices) {
-        List<int[]> ret = new ArrayList<>();
-        for (int e = 0; e < allIndices.size(); e++) {
-            int[] indicesArray = new int[allIndices.get(e).size()];
-            for (int i = 0; i < indicesArray.length; i++) {
-                indicesArray[i] = allIndices.get(e).get(i);
-            }
-            ret.add(indicesArray);
-        }
-        return ret;
+    private float[] getPosition(int vertexAttribute) {
+        final int positionIndex = verticesAttributes.get(vertexAttribute * 4);
+        return new float[]{vertex.get(positionIndex * 3), vertex.get(positionIndex * 3 + 1), vertex.get(positionIndex * 3 + 2)};
     }
 }
@@ -7,8 +7,8 @@ import org.andresoviedo.android_3d_model_engine.services.collada.entities.JointD
 import org.andresoviedo.android_3d_model_engine.services.collada.entities.MeshData;
 import org.andresoviedo.android_3d_model_engine.services.collada.entities.SkeletonData;
 import org.andresoviedo.android_3d_model_engine.services.collada.entities.SkinningData;
-import org.andresoviedo.android_3d_model_engine.services.collada.entities.Vertex;
 import org.andresoviedo.android_3d_model_engine.services.collada.entities.VertexSkinData;
+import org.andresoviedo.util.collection.IntArray;
 import org.andresoviedo.util.math.Math3DUtils;
 import org.andresoviedo.util.xml.XmlNode;
 
@@ -64,9 +64,8 @@ public class SkinLoader {
 			try {
 				XmlNode joints = skinningData.getChild("joints");
 				XmlNode inverseBindMatrixNode = joints.getChildWithAttribute("input", "semantic", "INV_BIND_MATRIX");
-				String invMatrixString = skinningData.getChildWithAttribute("source", "id", inverseBindMatrixNode.getAttribute("source").substring(1))
-						.getChild("float_array").getData();
-				inverseBindMatrix = Math3DUtils.parseFloat(invMatrixString.trim().split("\\s+"));
+				inverseBindMatrix = skinningData.getChildWithAttribute("source", "id", inverseBindMatrixNode.getAttribute("source").substring(1))
+						.getChild("float_array").getFloatData().toArray();
 				Log.d("SkinLoader", "Inverse bind matrix: " + Math3DUtils.toString(inverseBindMatrix, 0));
 			} catch (Exception e) {
 				Log.i("SkinLoader", "No inverse bind matrix available");
@@ -107,34 +106,24 @@ public class SkinLoader {
 			return null;
 		}
 
-		String[] rawData = weightsNode.getData().trim().split("\\s+");
-		float[] weights = new float[rawData.length];
-		for (int i = 0; i < weights.length; i++) {
-			weights[i] = Float.parseFloat(rawData[i]);
-		}
-		return weights;
+		return weightsNode.getFloatData().toArray();
 	}
 
 	/**********************************************************************************************/
 	private int[] getEffectiveJointsCounts(XmlNode weightsDataNode) {
-		String[] rawData = weightsDataNode.getChild("vcount").getData().trim().split("\\s+");
-		int[] counts = new int[rawData.length];
-		for (int i = 0; i < rawData.length; i++) {
-			counts[i] = Integer.parseInt(rawData[i]);
-		}
-		return counts;
+		return weightsDataNode.getChild("vcount").getIntData().toArray();
 	}
 
 	/**********************************************************************************************/
 	private List<VertexSkinData> loadSkinData(XmlNode weightsDataNode, int[] counts, float[] weights) {
-		String[] rawData = weightsDataNode.getChild("v").getData().trim().split("\\s+");
+		IntArray rawData = weightsDataNode.getChild("v").getIntData();
 		List<VertexSkinData> skinningData = new ArrayList<VertexSkinData>();
 		int pointer = 0;
 		for (int count : counts) {
 			VertexSkinData skinData = new VertexSkinData();
 			for (int i = 0; i < count; i++) {
-				int jointId = Integer.parseInt(rawData[pointer++]);
-				int weightId = Integer.parseInt(rawData[pointer++]);
+				int jointId = rawData.get(pointer++);
+				int weightId = rawData.get(pointer++);
 				skinData.addJointEffect(jointId, weights[weightId]);
 			}
 			skinData.limitJointNumber(maxWeights);
@@ -164,60 +153,59 @@ public class SkinLoader {
 			verticesSkinData = skinningData.verticesSkinData;
 		}
 
-		for (int i = 0; i < meshData.getVerticesAttributes().size(); i++) {
+		final IntArray vertexIndices = meshData.getVertexIndices();
+
+		VertexSkinData defaultWeightsData = null;
+
+		int[] jointsArray = null;
+		float[] weightsArray = null;
+		int weightsSize = 0;
+
+		for (int i = 0; i < meshData.getVertexCount(); i++) {
 
-			Vertex vertex = meshData.getVerticesAttributes().get(i);
+			final int vertexIndex = vertexIndices != null ? vertexIndices.get(i) : i;
 
 			VertexSkinData weightsData = null;
 			if (verticesSkinData != null) {
-				weightsData = verticesSkinData.get(vertex.getVertexIndex());
+				weightsData = verticesSkinData.get(vertexIndex);
 			}
 
 			if (weightsData == null & skeletonData != null) {
-				JointData jointData = skeletonData.getHeadJoint().find(geometryId);
-				if (jointData == null) {
-					Log.v("SkinLoader", "Joint not found for " + geometryId + ". Using root joint");
-					jointData = skeletonData.getHeadJoint();
-				} else {
-					Log.v("SkinLoader", "Joint found for " + geometryId + ". Bone " + jointData.getName());
-				}
-				if (jointData != null) {
-					Log.v("SkinLoader", "vertex_weights not found. Using root joint effect");
-					weightsData = new VertexSkinData();
-					weightsData.addJointEffect(jointData.getIndex(), 1);
-					weightsData.limitJointNumber(3);
+				if (defaultWeightsData == null) {
+					JointData jointData = skeletonData.getHeadJoint().find(geometryId);
+					if (jointData == null) {
+						Log.v("SkinLoader", "Joint not found for " + geometryId + ". Using root joint");
+						jointData = skeletonData.getHeadJoint();
+					} else {
+						Log.v("SkinLoader", "Joint found for " + geometryId + ". Bone " + jointData.getName());
+					}
+					if (jointData != null) {
+						Log.v("SkinLoader", "vertex_weights not found. Using root joint effect");
+						defaultWeightsData = new VertexSkinData();
+						defaultWeightsData.addJointEffect(jointData.getIndex(), 1);
+						defaultWeightsData.limitJointNumber(3);
+					}
 				}
+				weightsData = defaultWeightsData;
 			}
 
-			vertex.setWeightsData(weightsData);
-		}
-	}
+			if (weightsData == null) {
+				continue;
+			}
 
-	/**********************************************************************************************/
-	public static void loadSkinningArrays(MeshData meshData) {
+			if (jointsArray == null) {
+				weightsSize = weightsData.jointIds.size();
+				jointsArray = new int[meshData.getVertexCount() * weightsSize];
+				weightsArray = new float[meshData.getVertexCount() * weightsSize];
+			}
 
-		Log.d("SkinLoader", "Loading skinning arrays...");
-		final String geometryId = meshData.getId();
-		final List<Vertex> vertexList = meshData.getVerticesAttributes();
-
-		if (vertexList.size() > 0 && vertexList.get(0).getWeightsData() != null) {
-			int[] jointsArray = new int[vertexList.size() * vertexList.get(0).getWeightsData().jointIds.size()];
-			float[] weightsArray = new float[vertexList.size() * vertexList.get(0).getWeightsData().weights.size()];
-
-			int gw = 0, gj = 0;
-			for (int i = 0; i < vertexList.size(); i++) {
-				Vertex currentVertex = vertexList.get(i);
-				VertexSkinData weights = currentVertex.getWeightsData();
-				if (weights != null) {
-					for (int j = 0; j < weights.jointIds.size(); j++) {
-						jointsArray[gj++] = weights.jointIds.get(j);
-					}
-					for (int w = 0; w < weights.weights.size(); w++) {
-						weightsArray[gw++] = weights.weights.get(w);
-					}
-				}
+			for (int j = 0; j < weightsSize && j < weightsData.jointIds.size(); j++) {
+				jointsArray[i * weightsSize + j] = weightsData.jointIds.get(j);
+				weightsArray[i * weightsSize + j] = weightsData.weights.get(j);
 			}
+		}
 
+		if (jointsArray != null) {
 			meshData.setJointsArray(jointsArray);
 			meshData.setWeightsArray(weightsArray);
 		}
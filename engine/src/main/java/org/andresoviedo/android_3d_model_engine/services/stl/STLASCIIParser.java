@@ -1,5 +1,6 @@
 package org.andresoviedo.android_3d_model_engine.services.stl;
 
+import org.andresoviedo.android_3d_model_engine.services.LoadScheduler;
 import org.andresoviedo.util.io.ProgressMonitorInputStream;
 
 import java.io.BufferedReader;
@@ -314,6 +315,9 @@ class STLASCIIParser extends STLParser {
 
         while (line != null) {
             line_count++;
+            if (line_count % CHECK_INTERVAL == 0) {
+                LoadScheduler.checkCancelled();
+            }
 
             if (line.indexOf("facet") >= 0) {
                 numOfFacets++;
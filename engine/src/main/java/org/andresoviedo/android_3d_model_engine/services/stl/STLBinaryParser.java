@@ -1,12 +1,20 @@
 package org.andresoviedo.android_3d_model_engine.services.stl;
 
+import org.andresoviedo.android_3d_model_engine.services.LoadScheduler;
+import org.andresoviedo.util.collection.DirectFloatArray;
 import org.andresoviedo.util.io.ProgressMonitorInputStream;
 
 import java.io.BufferedInputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 /**************************************************************************************************/
 class STLBinaryParser extends STLParser {
@@ -17,11 +25,18 @@ class STLBinaryParser extends STLParser {
     /**********************************************************************************************/
     private static int COMMENT_SIZE = 80;
     /**********************************************************************************************/
+    // facets read at once when the file can't be mapped
+    private static final int CHUNK_SIZE = 4096;
+    /**********************************************************************************************/
     private BufferedInputStream itsStream;
     /**********************************************************************************************/
     private byte[] itsReadBuffer;
     /**********************************************************************************************/
     private int[] itsDataBuffer;
+    /**********************************************************************************************/
+    // the whole file, when it could be memory mapped
+    private ByteBuffer itsData;
+    private int itsPosition;
 
     /**********************************************************************************************/
     public STLBinaryParser() {
@@ -39,13 +54,69 @@ class STLBinaryParser extends STLParser {
 
     /**********************************************************************************************/
     public void close() throws IOException {
+        itsData = null;
         if (itsStream != null) {
             itsStream.close();
         }
     }
 
+    /**********************************************************************************************/
+    static boolean isBinary(URL url) throws IOException {
+        final URLConnection connection = url.openConnection();
+        final byte[] header = new byte[HEADER_SIZE];
+        int read = 0;
+        try (InputStream stream = connection.getInputStream()) {
+            int count;
+            while (read < HEADER_SIZE && (count = stream.read(header, read, HEADER_SIZE - read)) != -1) {
+                read += count;
+            }
+        }
+        if (read < HEADER_SIZE) {
+            return false;
+        }
+
+        final File file = toFile(url);
+        final long length = file != null ? file.length() : connection.getContentLength();
+        final long facets = ByteBuffer.wrap(header, COMMENT_SIZE, 4).order(ByteOrder.LITTLE_ENDIAN).getInt() & 0xFFFFFFFFL;
+        if (length > 0 && length == HEADER_SIZE + facets * RECORD_SIZE) {
+            return true;
+        }
+
+        // ascii files start with "solid", but so do the comments of some binary files
+        int start = 0;
+        while (start < COMMENT_SIZE && Character.isWhitespace(header[start])) {
+            start++;
+        }
+        return !new String(header, start, Math.min(5, HEADER_SIZE - start), "US-ASCII").equals("solid");
+    }
+
+    /**********************************************************************************************/
+    private static File toFile(URL url) {
+        if (!"file".equals(url.getProtocol())) {
+            return null;
+        }
+        try {
+            return new File(url.toURI());
+        } catch (URISyntaxException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
     /**********************************************************************************************/
     public boolean parse(URL url) throws IllegalArgumentException, IOException {
+        final File file = toFile(url);
+        if (file != null && file.length() >= HEADER_SIZE) {
+            // a mapped buffer is indexed with ints
+            if (file.length() > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("File too big to be a binary STL: " + file.length() + " bytes");
+            }
+            try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+                itsData = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length()).order(ByteOrder.LITTLE_ENDIAN);
+            }
+            itsPosition = HEADER_SIZE;
+            return parse(itsData.capacity());
+        }
+
         InputStream stream = null;
         int length = -1;
         try {
@@ -86,12 +157,15 @@ class STLBinaryParser extends STLParser {
     /**********************************************************************************************/
     private boolean parse(int length) throws IllegalArgumentException, IOException {
         try {
-            for (int i = 0; i < COMMENT_SIZE; i++) {
-                itsStream.read();
-            }
-
             itsNumOfObjects = 1;
-            itsNumOfFacets = new int[]{LittleEndianConverter.read4ByteBlock(itsStream)};
+            if (itsData != null) {
+                itsNumOfFacets = new int[]{itsData.getInt(COMMENT_SIZE)};
+            } else {
+                for (int i = 0; i < COMMENT_SIZE; i++) {
+                    itsStream.read();
+                }
+                itsNumOfFacets = new int[]{LittleEndianConverter.read4ByteBlock(itsStream)};
+            }
             itsNames = new String[1];
 
             if (strictParsing && length != -1 && length != itsNumOfFacets[0] * RECORD_SIZE + HEADER_SIZE) {
@@ -114,6 +188,10 @@ class STLBinaryParser extends STLParser {
                     parsingMessages = new ArrayList<String>();
                 }
                 parsingMessages.add(msg);
+
+                if (itsData != null && itsData.capacity() < itsNumOfFacets[0] * (long) RECORD_SIZE + HEADER_SIZE) {
+                    itsNumOfFacets[0] = (itsData.capacity() - HEADER_SIZE) / RECORD_SIZE;
+                }
             }
         } catch (IOException e) {
             close();
@@ -124,7 +202,17 @@ class STLBinaryParser extends STLParser {
 
     /**********************************************************************************************/
     public boolean getNextFacet(double[] normal, double[][] vertices) throws IOException {
-        LittleEndianConverter.read(itsReadBuffer, itsDataBuffer, 0, 12, itsStream);
+        if (itsData != null) {
+            if (itsPosition + RECORD_SIZE > itsData.capacity()) {
+                return false;
+            }
+            for (int i = 0; i < 12; i++) {
+                itsDataBuffer[i] = itsData.getInt(itsPosition + i * 4);
+            }
+            itsPosition += RECORD_SIZE;
+        } else {
+            LittleEndianConverter.read(itsReadBuffer, itsDataBuffer, 0, 12, itsStream);
+        }
 
         boolean nan_found = false;
 
@@ -147,9 +235,79 @@ class STLBinaryParser extends STLParser {
             }
         }
 
-        itsStream.read();
-        itsStream.read();
+        if (itsData == null) {
+            itsStream.read();
+            itsStream.read();
+        }
 
         return true;
     }
+
+    /**********************************************************************************************/
+    @Override
+    int readFacets(DirectFloatArray vertices, DirectFloatArray normals) throws IOException {
+        final int total = itsNumOfFacets[0];
+        vertices.ensureCapacity(vertices.size() + total * 9);
+        normals.ensureCapacity(normals.size() + total * 9);
+
+        if (itsData != null) {
+            final int count = Math.min(total, (itsData.capacity() - itsPosition) / RECORD_SIZE);
+            for (int counter = 0; counter < count; counter += CHUNK_SIZE) {
+                LoadScheduler.checkCancelled();
+                LoadScheduler.setProgress(READ_PROGRESS * counter / count);
+
+                final int length = Math.min(count - counter, CHUNK_SIZE);
+                readFacets(itsData, itsPosition, length, vertices, normals);
+                itsPosition += length * RECORD_SIZE;
+            }
+            return count;
+        }
+
+        final byte[] chunk = new byte[CHUNK_SIZE * RECORD_SIZE];
+        final ByteBuffer buffer = ByteBuffer.wrap(chunk).order(ByteOrder.LITTLE_ENDIAN);
+        int counter = 0;
+        while (counter < total) {
+            LoadScheduler.checkCancelled();
+            LoadScheduler.setProgress(READ_PROGRESS * counter / total);
+
+            final int length = Math.min(total - counter, CHUNK_SIZE) * RECORD_SIZE;
+            int read = 0;
+            int count;
+            while (read < length && (count = itsStream.read(chunk, read, length - read)) != -1) {
+                read += count;
+            }
+            readFacets(buffer, 0, read / RECORD_SIZE, vertices, normals);
+            counter += read / RECORD_SIZE;
+            if (read < length) {
+                break;
+            }
+        }
+        return counter;
+    }
+
+    /**********************************************************************************************/
+    private static void readFacets(ByteBuffer data, int offset, int count, DirectFloatArray vertices, DirectFloatArray normals) {
+        for (int i = 0, pos = offset; i < count; i++, pos += RECORD_SIZE) {
+            float nx = data.getFloat(pos);
+            float ny = data.getFloat(pos + 4);
+            float nz = data.getFloat(pos + 8);
+            if (!isFinite(nx) || !isFinite(ny) || !isFinite(nz)) {
+                nx = 0;
+                ny = 0;
+                nz = 0;
+            }
+            normals.add(nx, ny, nz);
+            normals.add(nx, ny, nz);
+            normals.add(nx, ny, nz);
+
+            vertices.add(data.getFloat(pos + 12), data.getFloat(pos + 16), data.getFloat(pos + 20));
+            vertices.add(data.getFloat(pos + 24), data.getFloat(pos + 28), data.getFloat(pos + 32));
+            vertices.add(data.getFloat(pos + 36), data.getFloat(pos + 40), data.getFloat(pos + 44));
+        }
+    }
+
+    /**********************************************************************************************/
+    private static boolean isFinite(float value) {
+        return !Float.isNaN(value) && !Float.isInfinite(value);
+    }
 }
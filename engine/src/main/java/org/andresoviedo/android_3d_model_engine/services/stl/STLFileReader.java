@@ -1,5 +1,7 @@
 package org.andresoviedo.android_3d_model_engine.services.stl;
 
+import org.andresoviedo.util.collection.DirectFloatArray;
+
 import java.io.File;
 import java.io.IOException;
 import java.net.URL;
@@ -26,6 +28,14 @@ public class STLFileReader {
 
     /**********************************************************************************************/
     public STLFileReader(URL url) throws IllegalArgumentException, IOException {
+        // binary files are recognized by their size, so the ascii parser doesn't scan them first
+        if (STLBinaryParser.isBinary(url)) {
+            final STLBinaryParser binParser = new STLBinaryParser();
+            binParser.parse(url);
+            itsParser = binParser;
+            return;
+        }
+
         final STLASCIIParser asciiParser = new STLASCIIParser();
 
         if (asciiParser.parse(url)) {
@@ -39,6 +49,13 @@ public class STLFileReader {
 
     /**********************************************************************************************/
     public STLFileReader(URL url, boolean strict) throws IllegalArgumentException, IOException {
+        if (STLBinaryParser.isBinary(url)) {
+            final STLBinaryParser binParser = new STLBinaryParser(strict);
+            binParser.parse(url);
+            itsParser = binParser;
+            return;
+        }
+
         final STLParser asciiParser = new STLASCIIParser(strict);
 
         if (asciiParser.parse(url)) {
@@ -101,6 +118,11 @@ public class STLFileReader {
         return itsParser.getNextFacet(normal, vertices);
     }
 
+    /**********************************************************************************************/
+    public int readFacets(DirectFloatArray vertices, DirectFloatArray normals) throws IllegalArgumentException, IOException {
+        return itsParser.readFacets(vertices, normals);
+    }
+
     /**********************************************************************************************/
     public String[] getObjectNames() {
         return itsParser.getObjectNames();
@@ -6,19 +6,23 @@ import android.util.Log;
 
 import org.andresoviedo.android_3d_model_engine.model.Object3DData;
 import org.andresoviedo.android_3d_model_engine.services.LoadListener;
+import org.andresoviedo.android_3d_model_engine.services.LoadScheduler;
 import org.andresoviedo.android_3d_model_engine.services.LoaderTask;
 import org.andresoviedo.android_3d_model_engine.services.collada.entities.MeshData;
+import org.andresoviedo.android_3d_model_engine.util.VertexWelder;
+import org.andresoviedo.util.collection.DirectFloatArray;
 
 import java.io.IOException;
 import java.net.URI;
 import java.net.URL;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 /**************************************************************************************************/
 public final class STLLoaderTask extends LoaderTask {
+    /**********************************************************************************************/
+    private static final float CREASE_ANGLE = 30;
     /**********************************************************************************************/
     private STLFileReader stlFileReader;
 
@@ -45,37 +49,34 @@ public final class STLLoaderTask extends LoaderTask {
             Log.i("STLLoaderTask", "Num facets found '" + totalFaces + "' facets");
             Log.i("STLLoaderTask", "Parsing messages: " + stlFileReader.getParsingMessages());
 
-            final List<float[]> vertices = new ArrayList<>();
-            final List<float[]> normals = new ArrayList<>();
-
-            double[] normal = new double[3];
-            double[][] triangle = new double[3][3];
+            final DirectFloatArray vertices = new DirectFloatArray(totalFaces * 9);
+            final DirectFloatArray normals = new DirectFloatArray(totalFaces * 9);
 
             super.publishProgress("Loading facets...");
 
-            while (stlFileReader.getNextFacet(normal, triangle) && counter++ < totalFaces) {
+            counter = stlFileReader.readFacets(vertices, normals);
 
-                normals.add(new float[]{(float) normal[0], (float) normal[1], (float) normal[2]});
-                normals.add(new float[]{(float) normal[0], (float) normal[1], (float) normal[2]});
-                normals.add(new float[]{(float) normal[0], (float) normal[1], (float) normal[2]});
-
-                vertices.add(new float[]{(float) triangle[0][0], (float) triangle[0][1], (float) triangle[0][2]});
-                vertices.add(new float[]{(float) triangle[1][0], (float) triangle[1][1], (float) triangle[1][2]});
-                vertices.add(new float[]{(float) triangle[2][0], (float) triangle[2][1], (float) triangle[2][2]});
-            }
-
-            Log.i("STLLoaderTask", "Loaded model. Facets: " + counter + ", vertices:" + vertices.size() + ", normals: " + normals.size());
+            Log.i("STLLoaderTask", "Loaded model. Facets: " + counter + ", vertices:" + vertices.size() / 3 + ", normals: " + normals.size() / 3);
 
             final MeshData mesh = new MeshData.Builder().vertices(vertices).normals(normals).build();
 
+            LoadScheduler.checkCancelled();
             super.publishProgress("Validating data...");
 
             mesh.fixNormals();
+            LoadScheduler.setProgress(0.85f);
+
+            LoadScheduler.checkCancelled();
+            super.publishProgress("Welding vertices...");
+
+            // facets only carry a flat normal, so the curved surfaces are smoothed but the hard edges are kept
+            final MeshData welded = new VertexWelder(VertexWelder.DEFAULT_TOLERANCE, CREASE_ANGLE).weld(mesh);
 
-            Object3DData data = new Object3DData(mesh.getVertexBuffer()).setNormalsBuffer(mesh.getNormalsBuffer());
+            Object3DData data = new Object3DData(welded.getVertexBuffer()).setNormalsBuffer(welded.getNormalsBuffer());
 
-            data.setMeshData(mesh);
-            data.setDrawUsingArrays(true);
+            data.setMeshData(welded);
+            data.setElements(welded.getElements());
+            data.setDrawUsingArrays(false);
             data.setDrawMode(GLES20.GL_TRIANGLES);
             data.setId(uri.toString());
 
@@ -87,7 +88,9 @@ public final class STLLoaderTask extends LoaderTask {
             throw e;
         } finally {
             try {
-                stlFileReader.close();
+                if (stlFileReader != null) {
+                    stlFileReader.close();
+                }
             } catch (IOException e) {
                 throw e;
             }
@@ -1,5 +1,8 @@
 package org.andresoviedo.android_3d_model_engine.services.stl;
 
+import org.andresoviedo.android_3d_model_engine.services.LoadScheduler;
+import org.andresoviedo.util.collection.DirectFloatArray;
+
 import java.io.IOException;
 import java.net.URL;
 import java.util.List;
@@ -15,6 +18,11 @@ abstract class STLParser {
     protected boolean strictParsing;
     /**********************************************************************************************/
     protected List<String> parsingMessages;
+    /**********************************************************************************************/
+    // the facets (or lines) between the checks of whether the load was cancelled
+    static final int CHECK_INTERVAL = 4096;
+    // the part of the load that is the reading of the facets
+    static final float READ_PROGRESS = 0.8f;
 
     /**********************************************************************************************/
     public STLParser() {
@@ -57,4 +65,30 @@ abstract class STLParser {
 
     /**********************************************************************************************/
     abstract boolean getNextFacet(double[] normal, double[][] vertices) throws IllegalArgumentException, IOException;
+
+    /**********************************************************************************************/
+    int readFacets(DirectFloatArray vertices, DirectFloatArray normals) throws IllegalArgumentException, IOException {
+        final int total = itsNumOfFacets[0];
+
+        final double[] normal = new double[3];
+        final double[][] triangle = new double[3][3];
+
+        int counter = 0;
+        while (counter < total && getNextFacet(normal, triangle)) {
+            counter++;
+            if (counter % CHECK_INTERVAL == 0) {
+                LoadScheduler.checkCancelled();
+                LoadScheduler.setProgress(READ_PROGRESS * counter / total);
+            }
+
+            normals.add((float) normal[0], (float) normal[1], (float) normal[2]);
+            normals.add((float) normal[0], (float) normal[1], (float) normal[2]);
+            normals.add((float) normal[0], (float) normal[1], (float) normal[2]);
+
+            vertices.add((float) triangle[0][0], (float) triangle[0][1], (float) triangle[0][2]);
+            vertices.add((float) triangle[1][0], (float) triangle[1][1], (float) triangle[1][2]);
+            vertices.add((float) triangle[2][0], (float) triangle[2][1], (float) triangle[2][2]);
+        }
+        return counter;
+    }
 }
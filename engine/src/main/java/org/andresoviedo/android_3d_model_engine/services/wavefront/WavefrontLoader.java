@@ -5,14 +5,19 @@ import android.opengl.GLES20;
 import androidx.annotation.Nullable;
 import android.util.Log;
 
+import org.andresoviedo.android_3d_model_engine.model.Dimensions;
 import org.andresoviedo.android_3d_model_engine.model.Element;
 import org.andresoviedo.android_3d_model_engine.model.Material;
 import org.andresoviedo.android_3d_model_engine.model.Materials;
 import org.andresoviedo.android_3d_model_engine.model.Object3DData;
 import org.andresoviedo.android_3d_model_engine.services.LoadListener;
+import org.andresoviedo.android_3d_model_engine.services.LoadScheduler;
 import org.andresoviedo.android_3d_model_engine.services.collada.entities.MeshData;
-import org.andresoviedo.android_3d_model_engine.services.collada.entities.Vertex;
+import org.andresoviedo.android_3d_model_engine.util.VertexWelder;
 import org.andresoviedo.util.android.ContentUtils;
+import org.andresoviedo.util.collection.DirectFloatArray;
+import org.andresoviedo.util.collection.FloatArray;
+import org.andresoviedo.util.collection.IntArray;
 import org.andresoviedo.util.io.IOUtils;
 
 import java.io.BufferedReader;
@@ -20,21 +25,46 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.net.URI;
+import java.net.URLConnection;
+import java.nio.FloatBuffer;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CancellationException;
 /**************************************************************************************************/
 public class WavefrontLoader {
+    /**********************************************************************************************/
+    // the triangles of the first part of the preview. each part doubles the last one, up to the max
+    private static final int PREVIEW_MIN_TRIANGLES = 16 * 1024;
+    private static final int PREVIEW_MAX_TRIANGLES = 256 * 1024;
+    // a new object or group ends the part, if it has these at least
+    private static final int PREVIEW_GROUP_TRIANGLES = 1024;
+    /**********************************************************************************************/
+    // the lines between the checks of whether the load was cancelled
+    private static final int CHECK_LINES = 4096;
+    // the part of the load that is the parsing, if the size of the file is known
+    private static final float PARSE_PROGRESS = 0.7f;
+    // the preview is a copy of the faces, so the rest of them are only drawn once the model is loaded
+    private static final int PREVIEW_TOTAL_TRIANGLES = 1024 * 1024;
     /**********************************************************************************************/
     private final int triangulationMode;
     /**********************************************************************************************/
     private final LoadListener callback;
+    /**********************************************************************************************/
+    // whether the faces are sent to the callback while the file is parsed (see LoadListener.onLoadPreview)
+    private final boolean preview;
 
     /**********************************************************************************************/
     public WavefrontLoader(int triangulationMode, LoadListener callback) {
+        this(triangulationMode, callback, false);
+    }
+
+    /**********************************************************************************************/
+    public WavefrontLoader(int triangulationMode, LoadListener callback, boolean preview) {
         this.triangulationMode = triangulationMode;
         this.callback = callback;
+        this.preview = preview;
     }
 
     /**********************************************************************************************/
@@ -76,8 +106,9 @@ public class WavefrontLoader {
             Log.i("WavefrontLoader", "Parsing geometries... ");
             Log.i("WavefrontLoader", "--------------------------------------------------");
 
-            final InputStream is = modelURI.toURL().openStream();
-            final List<MeshData> meshes = loadModel(modelURI.toString(), is);
+            final URLConnection connection = modelURI.toURL().openConnection();
+            final InputStream is = connection.getInputStream();
+            List<MeshData> meshes = loadModel(modelURI.toString(), is, connection.getContentLength());
             is.close();
 
             final List<Object3DData> ret = new ArrayList<>();
@@ -87,11 +118,24 @@ public class WavefrontLoader {
             callback.onProgress("Processing geometries...");
 
             for (MeshData meshData : meshes) {
+                LoadScheduler.checkCancelled();
+
                 callback.onProgress("Processing normals...");
 
                 meshData.fixNormals();
 
                 meshData.validate();
+            }
+            LoadScheduler.setProgress(0.8f);
+
+            callback.onProgress("Welding vertices...");
+
+            // every face vertex is expanded, so the shared ones are merged back
+            meshes = new VertexWelder(VertexWelder.DEFAULT_TOLERANCE, 0).weld(meshes);
+            LoadScheduler.setProgress(0.9f);
+
+            for (MeshData meshData : meshes) {
+                LoadScheduler.checkCancelled();
 
                 Object3DData data3D = new Object3DData(meshData.getVertexBuffer());
 
@@ -113,6 +157,7 @@ public class WavefrontLoader {
                 loadMaterials(meshData);
 
                 ret.add(data3D);
+                LoadScheduler.setProgress(0.9f + 0.1f * ret.size() / meshes.size());
             }
 
             Log.i("WavefrontLoader", "Loaded geometries: " + ret.size());
@@ -174,248 +219,397 @@ public class WavefrontLoader {
     }
 
     /**********************************************************************************************/
-    private List<MeshData> loadModel(String id, InputStream is) {
+    // the length of the stream is -1 if it's not known
+    private List<MeshData> loadModel(String id, InputStream is, long length) {
         Log.i("WavefrontLoader", "Loading model... " + id);
 
-        BufferedReader br = null;
+        final WavefrontTokenizer tokenizer = new WavefrontTokenizer(is);
 
         try {
-            br = new BufferedReader(new InputStreamReader(is));
-
-            int lineNum = 0;
-            String line = null;
+            final FloatArray vertexList = new FloatArray(1024);
+            final FloatArray normalsList = new FloatArray(1024);
+            final FloatArray textureList = new FloatArray(1024);
 
-            final List<float[]> vertexList = new ArrayList<>();
-            final List<float[]> normalsList = new ArrayList<>();
-            final List<float[]> textureList = new ArrayList<>();
+            // vertex, texture and normal index of each face vertex
+            final IntArray verticesAttributes = new IntArray(4096);
 
-            final List<MeshData> meshes = new ArrayList<>();
-            final List<Vertex> verticesAttributes = new ArrayList<>();
+            final List<MeshData.Builder> meshes = new ArrayList<>();
 
             String mtllib = null;
 
-            final Map<String, List<Vertex>> smoothingGroups = new HashMap<>();
+            final Map<String, IntArray> smoothingGroups = new HashMap<>();
 
-            List<Vertex> currentSmoothingList = null;
+            IntArray currentSmoothingList = null;
 
             MeshData.Builder meshCurrent = new MeshData.Builder().id(id);
             Element.Builder elementCurrent = new Element.Builder().id("default");
-            List<Integer> indicesCurrent = new ArrayList<>();
+            IntArray indicesCurrent = new IntArray();
+
+            final IntArray faceCurrent = new IntArray(12);
+            final int[] faceVertex = new int[3];
 
             boolean buildNewMesh = false;
             boolean buildNewElement = false;
 
+            final Preview preview = this.preview ? new Preview(id) : null;
+
             try {
-                while (((line = br.readLine()) != null)) {
-                    lineNum++;
-                    line = line.trim();
-                    if (line.length() == 0) continue;
-                    if (line.startsWith("v ")) {
-                        parseVector(vertexList, line.substring(2).trim());
-                    } else if (line.startsWith("vn")) {
-                        parseVector(normalsList, line.substring(3).trim());
-                    } else if (line.startsWith("vt")) {
-                        parseVariableVector(textureList, line.substring(3).trim());
-                    } else if (line.charAt(0) == 'o') {
-                        if (buildNewMesh) {
-                            meshCurrent.vertices(vertexList).normals(normalsList).textures(textureList).vertexAttributes(verticesAttributes).materialFile(mtllib).addElement(elementCurrent.indices(indicesCurrent).build());
-
-                            final MeshData build = meshCurrent.build();
-                            meshes.add(build);
-
-                            Log.d("WavefrontLoader", "Loaded mesh. id:" + build.getId() + ", indices: " + indicesCurrent.size()
-                                    + ", vertices:" + vertexList.size()
-                                    + ", normals: " + normalsList.size()
-                                    + ", textures:" + textureList.size()
-                                    + ", elements: " + build.getElements());
-
-                            meshCurrent = new MeshData.Builder().id(line.substring(1).trim());
-
-                            elementCurrent = new Element.Builder();
-                            indicesCurrent = new ArrayList<>();
-                        } else {
-                            meshCurrent.id(line.substring(1).trim());
-                            buildNewMesh = true;
+                int lines = 0;
+                while (tokenizer.nextLine()) {
+                    if (++lines % CHECK_LINES == 0) {
+                        LoadScheduler.checkCancelled();
+                        if (length > 0) {
+                            LoadScheduler.setProgress(PARSE_PROGRESS * tokenizer.getBytesRead() / length);
                         }
-                    } else if (line.charAt(0) == 'g') {
-                        if (buildNewElement && indicesCurrent.size() > 0) {
-                            elementCurrent.indices(indicesCurrent);
-                            meshCurrent.addElement(elementCurrent.build());
-
-                            Log.d("WavefrontLoader", "New element. indices: " + indicesCurrent.size());
-
-                            indicesCurrent = new ArrayList<>();
-                            elementCurrent = new Element.Builder().id(line.substring(1).trim());
-                        } else {
-                            elementCurrent.id(line.substring(1).trim());
-                            buildNewElement = true;
-                        }
-                    } else if (line.startsWith("f ")) {
-                        parseFace(verticesAttributes, indicesCurrent, vertexList, normalsList, textureList, line.substring(2), currentSmoothingList);
-                    } else if (line.startsWith("mtllib ")) {
-                        mtllib = line.substring(7);
-                    } else if (line.startsWith("usemtl ")) {
-                        if (elementCurrent.getMaterialId() != null) {
+                    }
+                    switch (tokenizer.nextKeyword()) {
+                        case WavefrontTokenizer.KEYWORD_VERTEX:
+                            parseVector(tokenizer, vertexList);
+                            break;
+                        case WavefrontTokenizer.KEYWORD_NORMAL:
+                            parseVector(tokenizer, normalsList);
+                            break;
+                        case WavefrontTokenizer.KEYWORD_TEXTURE:
+                            parseVariableVector(tokenizer, textureList);
+                            break;
+                        case WavefrontTokenizer.KEYWORD_OBJECT:
+                            if (preview != null) {
+                                preview.update(vertexList, verticesAttributes, true);
+                            }
+                            if (buildNewMesh) {
+                                meshCurrent.materialFile(mtllib).addElement(elementCurrent.indices(indicesCurrent).build());
+                                meshes.add(meshCurrent);
+
+                                Log.d("WavefrontLoader", "Loaded mesh. id:" + meshCurrent.getId() + ", indices: " + indicesCurrent.size()
+                                        + ", vertices:" + vertexList.size() / 3
+                                        + ", normals: " + normalsList.size() / 3
+                                        + ", textures:" + textureList.size() / 2);
+
+                                meshCurrent = new MeshData.Builder().id(tokenizer.restOfLine());
+
+                                elementCurrent = new Element.Builder();
+                                indicesCurrent = new IntArray();
+                            } else {
+                                meshCurrent.id(tokenizer.restOfLine());
+                                buildNewMesh = true;
+                            }
+                            break;
+                        case WavefrontTokenizer.KEYWORD_GROUP:
+                            if (preview != null) {
+                                preview.update(vertexList, verticesAttributes, true);
+                            }
+                            if (buildNewElement && indicesCurrent.size() > 0) {
+                                elementCurrent.indices(indicesCurrent);
+                                meshCurrent.addElement(elementCurrent.build());
 
-                            elementCurrent.indices(indicesCurrent);
-                            meshCurrent.addElement(elementCurrent.build());
+                                Log.d("WavefrontLoader", "New element. indices: " + indicesCurrent.size());
 
-                            Log.v("WavefrontLoader", "New material: " + line);
+                                indicesCurrent = new IntArray();
+                                elementCurrent = new Element.Builder().id(tokenizer.restOfLine());
+                            } else {
+                                elementCurrent.id(tokenizer.restOfLine());
+                                buildNewElement = true;
+                            }
+                            break;
+                        case WavefrontTokenizer.KEYWORD_FACE:
+                            parseFace(tokenizer, faceCurrent, faceVertex, verticesAttributes, indicesCurrent,
+                                    vertexList.size() / 3, textureList.size() / 2, normalsList.size() / 3, currentSmoothingList);
+                            if (preview != null) {
+                                preview.update(vertexList, verticesAttributes, false);
+                            }
+                            break;
+                        case WavefrontTokenizer.KEYWORD_MTLLIB:
+                            if (!tokenizer.hasNext()) {
+                                Log.w("WavefrontLoader", "Ignoring line " + tokenizer.getLineNumber() + " : " + tokenizer.line());
+                                break;
+                            }
+                            mtllib = tokenizer.restOfLine();
+                            break;
+                        case WavefrontTokenizer.KEYWORD_USEMTL:
+                            if (!tokenizer.hasNext()) {
+                                Log.w("WavefrontLoader", "Ignoring line " + tokenizer.getLineNumber() + " : " + tokenizer.line());
+                                break;
+                            }
+                            if (elementCurrent.getMaterialId() != null) {
 
-                            indicesCurrent = new ArrayList<>();
-                            elementCurrent = new Element.Builder().id(elementCurrent.getId());
-                        }
+                                elementCurrent.indices(indicesCurrent);
+                                meshCurrent.addElement(elementCurrent.build());
 
-                        elementCurrent.materialId(line.substring(7));
-                    } else if (line.charAt(0) == 's') {
-                        final String smoothingGroupId = line.substring(1).trim();
-                        if ("0".equals(smoothingGroupId) || "off".equals(smoothingGroupId)) {
-                            currentSmoothingList = null;
-                        } else {
-                            currentSmoothingList = new ArrayList<>();
-                            smoothingGroups.put(smoothingGroupId, currentSmoothingList);
-                        }
-                    } else if (line.charAt(0) == '#') {
-                        Log.v("WavefrontLoader", line);
-                    } else
-                        Log.w("WavefrontLoader", "Ignoring line " + lineNum + " : " + line);
-                }
+                                Log.v("WavefrontLoader", "New material: " + tokenizer.line());
 
-                final Element element = elementCurrent.indices(indicesCurrent).build();
-                final MeshData meshData = meshCurrent.vertices(vertexList).normals(normalsList).textures(textureList).vertexAttributes(verticesAttributes).materialFile(mtllib).addElement(element).smoothingGroups(smoothingGroups).build();
+                                indicesCurrent = new IntArray();
+                                elementCurrent = new Element.Builder().id(elementCurrent.getId());
+                            }
 
-                Log.i("WavefrontLoader", "Loaded mesh. id:" + meshData.getId() + ", indices: " + indicesCurrent.size()
-                        + ", vertices:" + vertexList.size()
-                        + ", normals: " + normalsList.size()
-                        + ", textures:" + textureList.size()
-                        + ", elements: " + meshData.getElements());
+                            elementCurrent.materialId(tokenizer.restOfLine());
+                            break;
+                        case WavefrontTokenizer.KEYWORD_SMOOTHING:
+                            final String smoothingGroupId = tokenizer.restOfLine();
+                            if ("0".equals(smoothingGroupId) || "off".equals(smoothingGroupId)) {
+                                currentSmoothingList = null;
+                            } else {
+                                currentSmoothingList = new IntArray();
+                                smoothingGroups.put(smoothingGroupId, currentSmoothingList);
+                            }
+                            break;
+                        case WavefrontTokenizer.KEYWORD_COMMENT:
+                            break;
+                        default:
+                            Log.w("WavefrontLoader", "Ignoring line " + tokenizer.getLineNumber() + " : " + tokenizer.line());
+                    }
+                }
+
+                if (preview != null) {
+                    preview.flush(vertexList, verticesAttributes);
+                }
 
-                meshes.add(meshData);
+                meshCurrent.materialFile(mtllib).addElement(elementCurrent.indices(indicesCurrent).build());
+                meshes.add(meshCurrent);
 
-                return meshes;
+                Log.i("WavefrontLoader", "Loaded mesh. id:" + meshCurrent.getId() + ", indices: " + indicesCurrent.size()
+                        + ", vertices:" + vertexList.size() / 3
+                        + ", normals: " + normalsList.size() / 3
+                        + ", textures:" + textureList.size() / 2);
+            } catch (CancellationException e) {
+                throw e;
             } catch (Exception e) {
-                Log.e("WavefrontLoader", "Error reading line: " + lineNum + ":" + line, e);
+                Log.e("WavefrontLoader", "Error reading line: " + tokenizer.getLineNumber() + ":" + tokenizer.line(), e);
                 Log.e("WavefrontLoader", e.getMessage(), e);
                 throw new RuntimeException(e);
             }
+
+            // all the meshes share the same vertex data, since face indices are global to the file
+            final int vertexCount = verticesAttributes.size() / 3;
+            final DirectFloatArray vertices = new DirectFloatArray(vertexCount * 3);
+            final DirectFloatArray normals = new DirectFloatArray(vertexCount * 3);
+            final DirectFloatArray textures = textureList.isEmpty() ? null : new DirectFloatArray(vertexCount * 2);
+            final IntArray vertexIndices = new IntArray(vertexCount);
+            expandVertices(verticesAttributes, vertexList, normalsList, textureList, vertices, normals, textures, vertexIndices);
+
+            final List<MeshData> ret = new ArrayList<>(meshes.size());
+            for (int i = 0; i < meshes.size(); i++) {
+                final MeshData.Builder builder = meshes.get(i).vertices(vertices).normals(normals).textures(textures).vertexIndices(vertexIndices);
+                if (i == meshes.size() - 1) {
+                    builder.smoothingGroups(smoothingGroups);
+                }
+                final MeshData meshData = builder.build();
+
+                Log.d("WavefrontLoader", "Built mesh. id:" + meshData.getId() + ", elements: " + meshData.getElements());
+
+                ret.add(meshData);
+            }
+
+            return ret;
         } finally {
-            if (br != null) {
-                try {
-                    br.close();
-                } catch (IOException e) {
-                    Log.e("WavefrontLoader", e.getMessage(), e);
+            try {
+                tokenizer.close();
+            } catch (IOException e) {
+                Log.e("WavefrontLoader", e.getMessage(), e);
+            }
+        }
+    }
+
+    /**********************************************************************************************/
+    // the faces parsed so far, sent to the callback in parts as they are parsed. the parts are drawn with
+    // arrays and the normals of the faces, until the model is loaded
+    private final class Preview {
+        private final String id;
+        // of the vertices parsed so far
+        private final Dimensions bounds = new Dimensions();
+        private int boundedVertices;
+        // the face vertices already sent, and how many triangles the next part waits for
+        private int sent;
+        private int triangles;
+        private int parts;
+        private int size = PREVIEW_MIN_TRIANGLES;
+
+        private Preview(String id) {
+            this.id = id;
+        }
+
+        // on a new group, the faces parsed so far are sent even if they are not a full part
+        private void update(FloatArray vertexList, IntArray verticesAttributes, boolean group) {
+            send(vertexList, verticesAttributes, group ? Math.min(size, PREVIEW_GROUP_TRIANGLES) : size);
+        }
+
+        private void flush(FloatArray vertexList, IntArray verticesAttributes) {
+            send(vertexList, verticesAttributes, 1);
+        }
+
+        private void send(FloatArray vertexList, IntArray verticesAttributes, int minimum) {
+            final int pending = (verticesAttributes.size() / 3 - sent) / 3;
+            if (pending < minimum || triangles >= PREVIEW_TOTAL_TRIANGLES) {
+                return;
+            }
+
+            final int vertexCount = vertexList.size() / 3;
+            for (int i = boundedVertices; i < vertexCount; i++) {
+                bounds.update(vertexList.get(i * 3), vertexList.get(i * 3 + 1), vertexList.get(i * 3 + 2));
+            }
+            boundedVertices = vertexCount;
+
+            final int count = Math.min(pending, PREVIEW_TOTAL_TRIANGLES - triangles);
+            final FloatBuffer vertices = IOUtils.createFloatBuffer(count * 9);
+            final FloatBuffer normals = IOUtils.createFloatBuffer(count * 9);
+            final int[] attributes = verticesAttributes.array();
+            for (int t = 0; t < count; t++) {
+                final int a = attributes[(sent + t * 3) * 3];
+                final int b = attributes[(sent + t * 3 + 1) * 3];
+                final int c = attributes[(sent + t * 3 + 2) * 3];
+                // faces may refer to vertices that come later in the file
+                if (a < 0 || a >= vertexCount || b < 0 || b >= vertexCount || c < 0 || c >= vertexCount) {
+                    continue;
+                }
+                addTriangle(vertexList.array(), a, b, c, vertices, normals);
+            }
+            sent += pending * 3;
+            triangles += count;
+            size = Math.min(size * 2, PREVIEW_MAX_TRIANGLES);
+
+            if (vertices.position() == 0) return;
+            vertices.flip();
+            normals.flip();
+
+            final Object3DData data = new Object3DData(vertices.slice());
+            data.setNormalsBuffer(normals.slice());
+            data.setId(id + "#preview" + parts++);
+            data.setDrawMode(GLES20.GL_TRIANGLES);
+
+            final float[] min = bounds.getMin();
+            final float[] max = bounds.getMax();
+            callback.onLoadPreview(data, new Dimensions(min[0], max[0], max[1], min[1], max[2], min[2]));
+        }
+
+        private void addTriangle(float[] v, int a, int b, int c, FloatBuffer vertices, FloatBuffer normals) {
+            final float ux = v[b * 3] - v[a * 3], uy = v[b * 3 + 1] - v[a * 3 + 1], uz = v[b * 3 + 2] - v[a * 3 + 2];
+            final float vx = v[c * 3] - v[a * 3], vy = v[c * 3 + 1] - v[a * 3 + 1], vz = v[c * 3 + 2] - v[a * 3 + 2];
+            float nx = uy * vz - uz * vy, ny = uz * vx - ux * vz, nz = ux * vy - uy * vx;
+            final float length = (float) Math.sqrt(nx * nx + ny * ny + nz * nz);
+            if (length > 0) {
+                nx /= length;
+                ny /= length;
+                nz /= length;
+            }
+            vertices.put(v, a * 3, 3).put(v, b * 3, 3).put(v, c * 3, 3);
+            for (int i = 0; i < 3; i++) {
+                normals.put(nx).put(ny).put(nz);
+            }
+        }
+    }
+
+    /**********************************************************************************************/
+    private static void expandVertices(IntArray verticesAttributes, FloatArray vertexList, FloatArray normalsList, FloatArray textureList,
+                                       DirectFloatArray vertices, DirectFloatArray normals, DirectFloatArray textures, IntArray vertexIndices) {
+        final int[] attributes = verticesAttributes.array();
+        final int normalCount = normalsList.size() / 3;
+        final int textureCount = textureList.size() / 2;
+        for (int i = 0; i < verticesAttributes.size(); i += 3) {
+            final int vertexIdx = attributes[i];
+            vertexIndices.add(vertexIdx);
+            vertices.add(vertexList.get(vertexIdx * 3), vertexList.get(vertexIdx * 3 + 1), vertexList.get(vertexIdx * 3 + 2));
+
+            // missing normals are left as zero, so fixNormals() replaces them with the face normal
+            final int normalIdx = attributes[i + 2];
+            if (normalIdx >= 0 && normalIdx < normalCount) {
+                normals.add(normalsList.get(normalIdx * 3), normalsList.get(normalIdx * 3 + 1), normalsList.get(normalIdx * 3 + 2));
+            } else {
+                normals.add(0, 0, 0);
+            }
+
+            if (textures != null) {
+                final int textureIdx = attributes[i + 1];
+                if (textureIdx >= 0 && textureIdx < textureCount) {
+                    textures.add(textureList.get(textureIdx * 2), 1 - textureList.get(textureIdx * 2 + 1));
+                } else {
+                    textures.add(0, 0);
                 }
             }
         }
     }
 
     /**********************************************************************************************/
-    private void parseVector(List<float[]> vectorList, String line) {
+    private void parseVector(WavefrontTokenizer tokenizer, FloatArray vectorList) {
         try {
-            final String[] tokens = line.split(" +");
-            final float[] vector = new float[3];
-            vector[0] = Float.parseFloat(tokens[0]);
-            vector[1] = Float.parseFloat(tokens[1]);
-            vector[2] = Float.parseFloat(tokens[2]);
-            vectorList.add(vector);
+            final float x = tokenizer.nextFloat();
+            final float y = tokenizer.nextFloat();
+            final float z = tokenizer.nextFloat();
+            vectorList.add(x, y, z);
         } catch (Exception ex) {
-            Log.e("WavefrontLoader", "Error parsing vector '" + line + "': " + ex.getMessage());
-            vectorList.add(new float[3]);
+            Log.e("WavefrontLoader", "Error parsing vector '" + tokenizer.line() + "': " + ex.getMessage());
+            vectorList.add(0, 0, 0);
         }
     }
 
     /**********************************************************************************************/
-    private void parseVariableVector(List<float[]> textureList, String line) {
+    private void parseVariableVector(WavefrontTokenizer tokenizer, FloatArray textureList) {
         try {
-            final String[] tokens = line.split(" +");
-            final float[] vector = new float[2];
-            vector[0] = Float.parseFloat(tokens[0]);
-            if (tokens.length > 1) {
-                vector[1] = Float.parseFloat(tokens[1]);
-            }
-            textureList.add(vector);
+            final float u = tokenizer.nextFloat();
+            final float v = tokenizer.hasNext() ? tokenizer.nextFloat() : 0;
+            textureList.add(u, v);
         } catch (Exception ex) {
             Log.e("WavefrontLoader", ex.getMessage());
-            textureList.add(new float[2]);
+            textureList.add(0, 0);
         }
     }
 
     /**********************************************************************************************/
-    private void parseFace(List<Vertex> vertexAttributes, List<Integer> indices, List<float[]> vertexList, List<float[]> normalsList, List<float[]> texturesList, String line, List<Vertex> currentSmoothingList) {
+    private void parseFace(WavefrontTokenizer tokenizer, IntArray face, int[] faceVertex, IntArray vertexAttributes, IntArray indices,
+                           int vertexCount, int textureCount, int normalCount, IntArray currentSmoothingList) {
         try {
-            final String[] tokens;
-            if (line.contains("  ")) {
-                tokens = line.split(" +");
-            } else {
-                tokens = line.split(" ");
-            }
-
-            final int numTokens = tokens.length;
-
-            for (int i = 0, faceIndex = 0; i < numTokens; i++, faceIndex++) {
-                if (faceIndex > 2) {
-                    faceIndex = 0;
-
-                    i -= 2;
-                }
-
-                final String faceToken;
-
-                if (this.triangulationMode == GLES20.GL_TRIANGLE_FAN) {
-                    if (faceIndex == 0) {
-                        faceToken = tokens[0];
-                    } else {
-                        faceToken = tokens[i];
-                    }
-                } else {
-                    faceToken = tokens[i];
-                }
-
-                final String[] faceTokens = faceToken.split("/");
-                final int numSeps = faceTokens.length;
-
-                int vertIdx = Integer.parseInt(faceTokens[0]);
+            face.clear();
+            while (tokenizer.hasNext()) {
+                tokenizer.nextFaceVertex(faceVertex, 0);
 
+                int vertIdx = faceVertex[0];
                 if (vertIdx < 0) {
-                    vertIdx = vertexList.size() + vertIdx;
+                    vertIdx = vertexCount + vertIdx;
                 } else {
                     vertIdx--;
                 }
 
                 int textureIdx = -1;
-                if (numSeps > 1 && faceTokens[1].length() > 0) {
-                    textureIdx = Integer.parseInt(faceTokens[1]);
-                    if (textureIdx < 0) {
-                        textureIdx = texturesList.size() + textureIdx;
-                    } else {
-                        textureIdx--;
-                    }
+                if (faceVertex[1] != 0) {
+                    textureIdx = faceVertex[1] < 0 ? textureCount + faceVertex[1] : faceVertex[1] - 1;
                 }
+
                 int normalIdx = -1;
-                if (numSeps > 2 && faceTokens[2].length() > 0) {
-                    normalIdx = Integer.parseInt(faceTokens[2]);
-                    if (normalIdx < 0) {
-                        normalIdx = normalsList.size() + normalIdx;
-                    } else {
-                        normalIdx--;
-                    }
+                if (faceVertex[2] != 0) {
+                    normalIdx = faceVertex[2] < 0 ? normalCount + faceVertex[2] : faceVertex[2] - 1;
                 }
 
-                final Vertex vertexAttribute = new Vertex(vertIdx);
-                vertexAttribute.setNormalIndex(normalIdx);
-                vertexAttribute.setTextureIndex(textureIdx);
+                face.add(vertIdx, textureIdx, normalIdx);
+            }
+        } catch (NumberFormatException e) {
+            Log.e("WavefrontLoader", e.getMessage(), e);
+            return;
+        }
 
-                final int idx = vertexAttributes.size();
-                vertexAttributes.add(idx, vertexAttribute);
+        final int[] faceData = face.array();
+        final int numTokens = face.size() / 3;
 
-                indices.add(idx);
+        for (int i = 0, faceIndex = 0; i < numTokens; i++, faceIndex++) {
+            if (faceIndex > 2) {
+                faceIndex = 0;
 
-                if (currentSmoothingList != null) {
-                    currentSmoothingList.add(vertexAttribute);
-                }
+                i -= 2;
+            }
+
+            final int token;
+
+            if (this.triangulationMode == GLES20.GL_TRIANGLE_FAN && faceIndex == 0) {
+                token = 0;
+            } else {
+                token = i;
+            }
+
+            final int idx = vertexAttributes.size() / 3;
+            vertexAttributes.add(faceData[token * 3], faceData[token * 3 + 1], faceData[token * 3 + 2]);
+
+            indices.add(idx);
+
+            if (currentSmoothingList != null) {
+                currentSmoothingList.add(idx);
             }
-        } catch (NumberFormatException e) {
-            Log.e("WavefrontLoader", e.getMessage(), e);
         }
     }
-}
\ No newline at end of file
+}
@@ -20,7 +20,7 @@ public class WavefrontLoaderTask extends LoaderTask {
     @Override
     protected List<Object3DData> build() {
 
-        final WavefrontLoader wfl = new WavefrontLoader(GLES20.GL_TRIANGLE_FAN, this);
+        final WavefrontLoader wfl = new WavefrontLoader(GLES20.GL_TRIANGLE_FAN, this, true);
 
         super.publishProgress("Loading model...");
 
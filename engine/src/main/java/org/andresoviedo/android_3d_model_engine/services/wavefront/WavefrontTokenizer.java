@@ -0,0 +1,332 @@
+package org.andresoviedo.android_3d_model_engine.services.wavefront;
+
+import org.andresoviedo.util.io.FloatParser;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+/**************************************************************************************************/
+public final class WavefrontTokenizer implements Closeable {
+    /**********************************************************************************************/
+    public static final int KEYWORD_UNKNOWN = 0;
+    public static final int KEYWORD_VERTEX = 1;
+    public static final int KEYWORD_NORMAL = 2;
+    public static final int KEYWORD_TEXTURE = 3;
+    public static final int KEYWORD_FACE = 4;
+    public static final int KEYWORD_OBJECT = 5;
+    public static final int KEYWORD_GROUP = 6;
+    public static final int KEYWORD_SMOOTHING = 7;
+    public static final int KEYWORD_MTLLIB = 8;
+    public static final int KEYWORD_USEMTL = 9;
+    public static final int KEYWORD_COMMENT = 10;
+    /**********************************************************************************************/
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    /**********************************************************************************************/
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    /**********************************************************************************************/
+    private final InputStream is;
+    /**********************************************************************************************/
+    private byte[] buffer;
+    // the buffer, for the number parser
+    private final CharSequence chars = new Chars();
+    private int limit;
+    private boolean eof;
+    /**********************************************************************************************/
+    private int lineStart;
+    private int lineEnd;
+    private int position;
+    private int lineNumber;
+    // the last line ended with a '\r' at the end of the buffer
+    private boolean carriageReturn;
+    private long bytesRead;
+
+    /**********************************************************************************************/
+    public WavefrontTokenizer(InputStream is) {
+        this(is, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**********************************************************************************************/
+    public WavefrontTokenizer(InputStream is, int bufferSize) {
+        this.is = is;
+        this.buffer = new byte[Math.max(bufferSize, 16)];
+    }
+
+    /**********************************************************************************************/
+    public boolean nextLine() throws IOException {
+        int start = skipLineTerminator(lineEnd);
+        while (true) {
+            int end = findLineEnd(start);
+            while (end == limit && !eof) {
+                start = fill(start);
+                if (carriageReturn && start < limit && buffer[start] == '\n') {
+                    start++;
+                }
+                carriageReturn = false;
+                end = findLineEnd(start);
+            }
+
+            if (start >= limit) {
+                lineStart = lineEnd = position = limit;
+                return false;
+            }
+
+            lineNumber++;
+            lineStart = start;
+            lineEnd = end;
+            position = skipWhitespace(start);
+
+            if (position < lineEnd) {
+                return true;
+            }
+
+            start = skipLineTerminator(end);
+        }
+    }
+
+    /**********************************************************************************************/
+    private int skipLineTerminator(int index) {
+        if (index < limit && buffer[index] == '\r') {
+            index++;
+            // the '\n' of a "\r\n" may come with the next read. it's not another line
+            carriageReturn = index == limit;
+        }
+        if (index < limit && buffer[index] == '\n') {
+            index++;
+        }
+        return index;
+    }
+
+    /**********************************************************************************************/
+    private int findLineEnd(int index) {
+        final byte[] buffer = this.buffer;
+        final int limit = this.limit;
+        while (index < limit) {
+            final byte b = buffer[index];
+            if (b == '\n' || b == '\r') {
+                return index;
+            }
+            index++;
+        }
+        return limit;
+    }
+
+    /**********************************************************************************************/
+    private int fill(int start) throws IOException {
+        final int remaining = limit - start;
+        if (start > 0) {
+            System.arraycopy(buffer, start, buffer, 0, remaining);
+        } else if (remaining == buffer.length) {
+            final byte[] newBuffer = new byte[buffer.length << 1];
+            System.arraycopy(buffer, 0, newBuffer, 0, remaining);
+            buffer = newBuffer;
+        }
+        limit = remaining;
+        lineStart = lineEnd = position = 0;
+
+        final int read = is.read(buffer, limit, buffer.length - limit);
+        if (read < 0) {
+            eof = true;
+        } else {
+            limit += read;
+            bytesRead += read;
+        }
+        return 0;
+    }
+
+    /**********************************************************************************************/
+    private int skipWhitespace(int index) {
+        while (index < lineEnd && isWhitespace(buffer[index])) {
+            index++;
+        }
+        return index;
+    }
+
+    /**********************************************************************************************/
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\f' || b == 0x0B;
+    }
+
+    /**********************************************************************************************/
+    public int getLineNumber() {
+        return lineNumber;
+    }
+
+    /**********************************************************************************************/
+    // from the stream, so far
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    /**********************************************************************************************/
+    public int nextKeyword() {
+        final int start = position;
+        if (buffer[start] == '#') {
+            position = lineEnd;
+            return KEYWORD_COMMENT;
+        }
+
+        int end = start;
+        while (end < lineEnd && !isWhitespace(buffer[end])) {
+            end++;
+        }
+        position = skipWhitespace(end);
+
+        final int length = end - start;
+        final byte c0 = buffer[start];
+        if (length == 1) {
+            switch (c0) {
+                case 'v':
+                    return KEYWORD_VERTEX;
+                case 'f':
+                    return KEYWORD_FACE;
+                case 'o':
+                    return KEYWORD_OBJECT;
+                case 'g':
+                    return KEYWORD_GROUP;
+                case 's':
+                    return KEYWORD_SMOOTHING;
+                default:
+                    return KEYWORD_UNKNOWN;
+            }
+        } else if (length == 2 && c0 == 'v') {
+            final byte c1 = buffer[start + 1];
+            if (c1 == 'n') {
+                return KEYWORD_NORMAL;
+            } else if (c1 == 't') {
+                return KEYWORD_TEXTURE;
+            }
+        } else if (length == 6) {
+            if (matches(start, "mtllib")) {
+                return KEYWORD_MTLLIB;
+            } else if (matches(start, "usemtl")) {
+                return KEYWORD_USEMTL;
+            }
+        }
+        return KEYWORD_UNKNOWN;
+    }
+
+    /**********************************************************************************************/
+    private boolean matches(int start, String keyword) {
+        for (int i = 0; i < keyword.length(); i++) {
+            if (buffer[start + i] != keyword.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**********************************************************************************************/
+    public boolean hasNext() {
+        position = skipWhitespace(position);
+        return position < lineEnd;
+    }
+
+    /**********************************************************************************************/
+    public float nextFloat() {
+        final int start = skipWhitespace(position);
+        position = skipToken(start);
+        return FloatParser.parseFloat(chars, start, position, false);
+    }
+
+    /**********************************************************************************************/
+    public int nextFaceVertex(int[] out, int offset) {
+        final int start = skipWhitespace(position);
+        final byte[] buffer = this.buffer;
+        final int end = lineEnd;
+
+        out[offset] = 0;
+        out[offset + 1] = 0;
+        out[offset + 2] = 0;
+
+        int i = start;
+        for (int component = 0; component < 3; component++) {
+            if (i < end && buffer[i] != '/' && !isWhitespace(buffer[i])) {
+                boolean negative = false;
+                if (buffer[i] == '-' || buffer[i] == '+') {
+                    negative = buffer[i] == '-';
+                    i++;
+                }
+                final int digitsStart = i;
+                int value = 0;
+                while (i < end && buffer[i] >= '0' && buffer[i] <= '9') {
+                    value = value * 10 + (buffer[i] - '0');
+                    i++;
+                }
+                if (i == digitsStart || (i < end && buffer[i] != '/' && !isWhitespace(buffer[i]))) {
+                    position = skipToken(i);
+                    throw new NumberFormatException("Invalid face vertex at line " + lineNumber
+                            + ": '" + new String(buffer, start, position - start, UTF_8) + "'");
+                }
+                out[offset + component] = negative ? -value : value;
+            }
+            if (i < end && buffer[i] == '/') {
+                i++;
+            } else {
+                break;
+            }
+        }
+
+        position = i;
+
+        if (i > start && out[offset] == 0) {
+            throw new NumberFormatException("Missing vertex index at line " + lineNumber
+                    + ": '" + new String(buffer, start, i - start, UTF_8) + "'");
+        }
+        return i - start;
+    }
+
+    /**********************************************************************************************/
+    private int skipToken(int index) {
+        while (index < lineEnd && !isWhitespace(buffer[index])) {
+            index++;
+        }
+        return index;
+    }
+
+    /**********************************************************************************************/
+    public String restOfLine() {
+        int end = lineEnd;
+        while (end > position && isWhitespace(buffer[end - 1])) {
+            end--;
+        }
+        final String ret = new String(buffer, position, end - position, UTF_8);
+        position = lineEnd;
+        return ret;
+    }
+
+    /**********************************************************************************************/
+    public String line() {
+        return new String(buffer, lineStart, lineEnd - lineStart, UTF_8).trim();
+    }
+
+    /**********************************************************************************************/
+    @Override
+    public void close() throws IOException {
+        is.close();
+    }
+
+    /**********************************************************************************************/
+    // the bytes of the buffer as chars. the numbers are ascii
+    private final class Chars implements CharSequence {
+        @Override
+        public int length() {
+            return limit;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) (buffer[index] & 0xFF);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return new String(buffer, start, end - start, UTF_8);
+        }
+
+        @Override
+        public String toString() {
+            return new String(buffer, 0, limit, UTF_8);
+        }
+    }
+}
@@ -0,0 +1,715 @@
+package org.andresoviedo.android_3d_model_engine.util;
+
+import android.opengl.GLES20;
+import android.os.SystemClock;
+import android.util.Log;
+
+import org.andresoviedo.android_3d_model_engine.model.Element;
+import org.andresoviedo.android_3d_model_engine.model.Object3DData;
+import org.andresoviedo.android_3d_model_engine.services.collada.entities.MeshData;
+import org.andresoviedo.util.collection.IntArray;
+import org.andresoviedo.util.io.IOUtils;
+
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+/**************************************************************************************************/
+// simplifies triangle meshes by collapsing their edges, the cheapest first (quadric error metrics). a
+// vertex is always collapsed onto one of its neighbours, so a simplified mesh is just new indices to the
+// same vertices. the borders of the mesh and of its elements, and the seams of the normals and texture
+// coordinates (the vertices with the same position and different attributes) are kept: their vertices
+// only move along them
+public final class MeshSimplifier {
+    /**********************************************************************************************/
+    // triangles of each level of detail, of the ones of the previous one
+    public static final float DEFAULT_RATIO = 0.25f;
+    public static final int DEFAULT_LEVELS = 4;
+    /**********************************************************************************************/
+    // the models with less triangles are not worth it
+    private static final int MIN_TRIANGLES = 4096;
+    private static final int MIN_LEVEL_TRIANGLES = 256;
+    // a level that keeps more than this of the triangles of the previous one is not worth it either
+    private static final float MAX_LEVEL_RATIO = 0.75f;
+    /**********************************************************************************************/
+    // how much the borders and seams hold their vertices, compared to the faces
+    private static final float BORDER_WEIGHT = 4;
+    // cosine of the most a triangle can turn in a collapse
+    private static final float MIN_COS_TURN = 0.25f;
+    /**********************************************************************************************/
+    // quadric of a position: aa, ab, ac, ad, bb, bc, bd, cc, cd, dd and its weight, so the error of moving
+    // a position is the (weighted) mean of the squared distances to its planes
+    private static final int QUADRIC_SIZE = 11;
+
+    /**********************************************************************************************/
+    private final float ratio;
+    private final int maxLevels;
+
+    /**********************************************************************************************/
+    public MeshSimplifier(float ratio, int maxLevels) {
+        this.ratio = ratio;
+        this.maxLevels = maxLevels;
+    }
+
+    /**********************************************************************************************/
+    // builds the levels of detail of the object, if it is worth it: the indices of each level go to its
+    // elements, and the error of each one to the object. returns whether it did
+    public boolean build(Object3DData obj) {
+        if (obj.getDrawMode() != GLES20.GL_TRIANGLES || obj.isDrawUsingArrays() || obj.getDrawModeList() != null
+                || obj.getDrawSize() > 0 || obj.getVertexBuffer() == null || obj.getElements() == null) {
+            return false;
+        }
+        final List<Element> elements = obj.getElements();
+        final Mesh mesh = new Mesh(obj.getVertexBuffer(), elements);
+        if (mesh.triangleCount < MIN_TRIANGLES) {
+            return false;
+        }
+
+        final long start = SystemClock.uptimeMillis();
+        final IntBuffer[][] levels = new IntBuffer[elements.size()][maxLevels];
+        final float[] errors = new float[maxLevels];
+        int count = 0;
+        int triangles = mesh.triangleCount;
+        while (count < maxLevels) {
+            final int target = (int) (triangles * ratio);
+            if (target < MIN_LEVEL_TRIANGLES) break;
+
+            mesh.simplify(target);
+            if (mesh.triangleCount > triangles * MAX_LEVEL_RATIO) break;
+            triangles = mesh.triangleCount;
+
+            final int[][] indices = mesh.getIndices();
+            for (int i = 0; i < indices.length; i++) {
+                final IntBuffer buffer = IOUtils.createIntBuffer(indices[i].length);
+                buffer.put(indices[i]);
+                buffer.position(0);
+                levels[i][count] = buffer;
+            }
+            errors[count++] = mesh.getError();
+        }
+        if (count == 0) {
+            Log.i("MeshSimplifier", "Not simplified: " + obj.getId());
+            return false;
+        }
+
+        for (int i = 0; i < elements.size(); i++) {
+            elements.get(i).setLevels(Arrays.copyOf(levels[i], count));
+        }
+        // the last, so the elements have their levels when the object says it has them
+        obj.setLevelErrors(Arrays.copyOf(errors, count));
+
+        Log.i("MeshSimplifier", "Built " + count + " levels of detail for '" + obj.getId() + "' in "
+                + (SystemClock.uptimeMillis() - start) + " ms. triangles: " + mesh.originalCount + " -> "
+                + triangles + ", errors: " + Arrays.toString(obj.getLevelErrors()));
+        return true;
+    }
+
+    /**********************************************************************************************/
+    // the same mesh, with about ratio of its triangles
+    public MeshData simplify(MeshData mesh, float ratio) {
+        if (mesh.getVertices() == null || mesh.getElements() == null) {
+            return mesh;
+        }
+        final Mesh simplified = new Mesh(mesh.getVertices().asBuffer(), mesh.getElements());
+        simplified.simplify((int) (simplified.triangleCount * ratio));
+
+        final int[][] indices = simplified.getIndices();
+        final List<Element> elements = new ArrayList<>(indices.length);
+        for (int i = 0; i < indices.length; i++) {
+            final Element element = mesh.getElements().get(i);
+            final IntArray newIndices = new IntArray(indices[i].length);
+            for (int index : indices[i]) {
+                newIndices.add(index);
+            }
+            final Element newElement = new Element(element.getId(), newIndices, element.getMaterialId());
+            newElement.setMaterial(element.getMaterial());
+            elements.add(newElement);
+        }
+
+        Log.i("MeshSimplifier", "Simplified mesh '" + mesh.getId() + "'. triangles: " + simplified.originalCount
+                + " -> " + simplified.triangleCount + ", error: " + simplified.getError());
+
+        return new MeshData(mesh.getId(), mesh.getName(), mesh.getVertices(), mesh.getNormals(), mesh.getColors(),
+                mesh.getTextures(), mesh.getVertexIndices(), elements, mesh.getMaterialFile(), mesh.getSmoothingGroups());
+    }
+
+    /**********************************************************************************************/
+    // the triangles being simplified. the vertices are indexed by their first vertex with the same position
+    // (the positions) where only the position matters: the quadrics, the edges and the triangles around them
+    private static final class Mesh {
+        /******************************************************************************************/
+        private final int vertexCount;
+        // in the unit cube, so the quadrics are fine as floats
+        private final float[] positions;
+        private final float size;
+        // vertex -> first vertex with the same position
+        private final int[] position;
+        // vertex -> the one it was collapsed onto (itself, if it wasn't)
+        private final int[] remap;
+        private final float[] quadrics;
+        // the sum of the normals (by area) of the faces that collapsed on each position, so the triangles
+        // don't turn over a bit at a time
+        private final float[] normals;
+        /******************************************************************************************/
+        private final int elementCount;
+        private final int originalCount;
+        private int[] triangles;
+        private int[] triangleElements;
+        private int triangleCount;
+        // the largest (squared) error of the collapses
+        private float error;
+        /******************************************************************************************/
+        // the triangles around each position, from offsets[p] to offsets[p + 1]
+        private final int[] offsets;
+        private int[] adjacency = new int[0];
+        // the borders and seams on each position. with none it goes anywhere, with 2 it goes along them,
+        // and with any other number it stays
+        private final int[] features;
+        private boolean bordersAdded;
+        /******************************************************************************************/
+        // the edges of the mesh, once each
+        private int edgeCount;
+        private int[] edges = new int[0];
+        private boolean[] edgeFeatures = new boolean[0];
+        /******************************************************************************************/
+        // collapse candidates, from one position to the other, and their cost. and the cost the other way
+        private int candidateCount;
+        private int[] candidates = new int[0];
+        private float[] costs = new float[0];
+        private float[] reverseCosts = new float[0];
+        private long[] order = new long[0];
+        /******************************************************************************************/
+        // scratch
+        private final int[] stamps;
+        private final int[] slots;
+        private int[] neighbours = new int[16];
+        private int[] wedges = new int[16];
+        private final float[] normal = new float[3];
+        private final int[] touched;
+        private int pass;
+
+        /******************************************************************************************/
+        private Mesh(FloatBuffer vertices, List<Element> elements) {
+            this.vertexCount = vertices.capacity() / 3;
+            this.positions = new float[vertexCount * 3];
+
+            final float[] min = {Float.MAX_VALUE, Float.MAX_VALUE, Float.MAX_VALUE};
+            final float[] max = {-Float.MAX_VALUE, -Float.MAX_VALUE, -Float.MAX_VALUE};
+            for (int i = 0; i < vertexCount * 3; i += 3) {
+                for (int j = 0; j < 3; j++) {
+                    min[j] = Math.min(min[j], vertices.get(i + j));
+                    max[j] = Math.max(max[j], vertices.get(i + j));
+                }
+            }
+            final float extent = Math.max(Math.max(max[0] - min[0], max[1] - min[1]), max[2] - min[2]);
+            this.size = extent > 0 ? extent : 1;
+            for (int i = 0; i < vertexCount * 3; i += 3) {
+                for (int j = 0; j < 3; j++) {
+                    positions[i + j] = (vertices.get(i + j) - min[j]) / size;
+                }
+            }
+
+            this.position = weldPositions();
+            this.remap = new int[vertexCount];
+            for (int i = 0; i < vertexCount; i++) {
+                remap[i] = i;
+            }
+
+            this.elementCount = elements.size();
+            int capacity = 0;
+            for (int i = 0; i < elementCount; i++) {
+                capacity += getIndexCount(elements.get(i)) / 3;
+            }
+            this.triangles = new int[capacity * 3];
+            this.triangleElements = new int[capacity];
+            for (int i = 0; i < elementCount; i++) {
+                addTriangles(elements.get(i), i);
+            }
+            this.originalCount = triangleCount;
+
+            this.quadrics = new float[vertexCount * QUADRIC_SIZE];
+            this.normals = new float[vertexCount * 3];
+            addFaceQuadrics();
+
+            this.offsets = new int[vertexCount + 1];
+            this.features = new int[vertexCount];
+            this.stamps = new int[vertexCount];
+            Arrays.fill(stamps, -1);
+            this.slots = new int[vertexCount];
+            this.touched = new int[vertexCount];
+        }
+
+        /******************************************************************************************/
+        private static int getIndexCount(Element element) {
+            return element.getIndices() != null ? element.getIndices().size() : element.getIndexBuffer().capacity();
+        }
+
+        /******************************************************************************************/
+        private void addTriangles(Element element, int index) {
+            final IntArray indices = element.getIndices();
+            final IntBuffer indexBuffer = indices == null ? element.getIndexBuffer() : null;
+            final int count = getIndexCount(element) / 3 * 3;
+            for (int i = 0; i < count; i += 3) {
+                final int a = indices != null ? indices.get(i) : indexBuffer.get(i);
+                final int b = indices != null ? indices.get(i + 1) : indexBuffer.get(i + 1);
+                final int c = indices != null ? indices.get(i + 2) : indexBuffer.get(i + 2);
+                if (a < 0 || b < 0 || c < 0 || a >= vertexCount || b >= vertexCount || c >= vertexCount) continue;
+                if (position[a] == position[b] || position[b] == position[c] || position[a] == position[c]) continue;
+                triangles[triangleCount * 3] = a;
+                triangles[triangleCount * 3 + 1] = b;
+                triangles[triangleCount * 3 + 2] = c;
+                triangleElements[triangleCount++] = index;
+            }
+        }
+
+        /******************************************************************************************/
+        // the same position is the same bits. the vertex welder already merged the ones that were close
+        private int[] weldPositions() {
+            final int[] ret = new int[vertexCount];
+            final int[] table = new int[Integer.highestOneBit(Math.max(vertexCount, 8)) << 2];
+            Arrays.fill(table, -1);
+            for (int i = 0; i < vertexCount; i++) {
+                final int x = Float.floatToIntBits(positions[i * 3]);
+                final int y = Float.floatToIntBits(positions[i * 3 + 1]);
+                final int z = Float.floatToIntBits(positions[i * 3 + 2]);
+                int hash = (x * 31 + y) * 31 + z;
+                int slot = (hash ^ (hash >>> 16)) & (table.length - 1);
+                while (table[slot] != -1 && !(positions[table[slot] * 3] == positions[i * 3]
+                        && positions[table[slot] * 3 + 1] == positions[i * 3 + 1]
+                        && positions[table[slot] * 3 + 2] == positions[i * 3 + 2])) {
+                    slot = (slot + 1) & (table.length - 1);
+                }
+                if (table[slot] == -1) {
+                    table[slot] = i;
+                }
+                ret[i] = table[slot];
+            }
+            return ret;
+        }
+
+        /******************************************************************************************/
+        private void addFaceQuadrics() {
+            for (int t = 0; t < triangleCount; t++) {
+                final int a = position[triangles[t * 3]];
+                final int b = position[triangles[t * 3 + 1]];
+                final int c = position[triangles[t * 3 + 2]];
+                final float ux = positions[b * 3] - positions[a * 3];
+                final float uy = positions[b * 3 + 1] - positions[a * 3 + 1];
+                final float uz = positions[b * 3 + 2] - positions[a * 3 + 2];
+                final float vx = positions[c * 3] - positions[a * 3];
+                final float vy = positions[c * 3 + 1] - positions[a * 3 + 1];
+                final float vz = positions[c * 3 + 2] - positions[a * 3 + 2];
+                float nx = uy * vz - uz * vy;
+                float ny = uz * vx - ux * vz;
+                float nz = ux * vy - uy * vx;
+                final float length = (float) Math.sqrt(nx * nx + ny * ny + nz * nz);
+                if (length == 0) continue;
+                for (int j = 0; j < 3; j++) {
+                    final int corner = j == 0 ? a : j == 1 ? b : c;
+                    normals[corner * 3] += nx;
+                    normals[corner * 3 + 1] += ny;
+                    normals[corner * 3 + 2] += nz;
+                }
+                nx /= length;
+                ny /= length;
+                nz /= length;
+                final float d = -(nx * positions[a * 3] + ny * positions[a * 3 + 1] + nz * positions[a * 3 + 2]);
+                final float area = length / 2;
+                addQuadric(a, nx, ny, nz, d, area, area);
+                addQuadric(b, nx, ny, nz, d, area, area);
+                addQuadric(c, nx, ny, nz, d, area, area);
+            }
+        }
+
+        /******************************************************************************************/
+        // the plane through the border edge, perpendicular to its triangle, so the vertices stay on the border
+        private void addBorderQuadric(int p, int q, int triangle) {
+            int r = -1;
+            for (int j = 0; j < 3; j++) {
+                final int corner = position[triangles[triangle * 3 + j]];
+                if (corner != p && corner != q) r = corner;
+            }
+            final float ex = positions[q * 3] - positions[p * 3];
+            final float ey = positions[q * 3 + 1] - positions[p * 3 + 1];
+            final float ez = positions[q * 3 + 2] - positions[p * 3 + 2];
+            final float rx = positions[r * 3] - positions[p * 3];
+            final float ry = positions[r * 3 + 1] - positions[p * 3 + 1];
+            final float rz = positions[r * 3 + 2] - positions[p * 3 + 2];
+            // normal of the triangle, and the normal of the plane
+            final float nx = ey * rz - ez * ry, ny = ez * rx - ex * rz, nz = ex * ry - ey * rx;
+            float mx = ny * ez - nz * ey, my = nz * ex - nx * ez, mz = nx * ey - ny * ex;
+            final float length = (float) Math.sqrt(mx * mx + my * my + mz * mz);
+            if (length == 0) return;
+            mx /= length;
+            my /= length;
+            mz /= length;
+            final float d = -(mx * positions[p * 3] + my * positions[p * 3 + 1] + mz * positions[p * 3 + 2]);
+            final float weight = (ex * ex + ey * ey + ez * ez) * BORDER_WEIGHT;
+            addQuadric(p, mx, my, mz, d, weight, weight);
+            addQuadric(q, mx, my, mz, d, weight, weight);
+        }
+
+        /******************************************************************************************/
+        private void addQuadric(int p, float a, float b, float c, float d, float weight, float total) {
+            final int q = p * QUADRIC_SIZE;
+            quadrics[q] += weight * a * a;
+            quadrics[q + 1] += weight * a * b;
+            quadrics[q + 2] += weight * a * c;
+            quadrics[q + 3] += weight * a * d;
+            quadrics[q + 4] += weight * b * b;
+            quadrics[q + 5] += weight * b * c;
+            quadrics[q + 6] += weight * b * d;
+            quadrics[q + 7] += weight * c * c;
+            quadrics[q + 8] += weight * c * d;
+            quadrics[q + 9] += weight * d * d;
+            quadrics[q + 10] += total;
+        }
+
+        /******************************************************************************************/
+        // squared distance moving p to q, from the planes of both
+        private float getCost(int p, int q) {
+            final float x = positions[q * 3], y = positions[q * 3 + 1], z = positions[q * 3 + 2];
+            float ret = 0;
+            float weight = 0;
+            for (int k = 0, o = p * QUADRIC_SIZE; k < 2; k++, o = q * QUADRIC_SIZE) {
+                ret += quadrics[o] * x * x + quadrics[o + 4] * y * y + quadrics[o + 7] * z * z
+                        + 2 * (quadrics[o + 1] * x * y + quadrics[o + 2] * x * z + quadrics[o + 5] * y * z)
+                        + 2 * (quadrics[o + 3] * x + quadrics[o + 6] * y + quadrics[o + 8] * z) + quadrics[o + 9];
+                weight += quadrics[o + 10];
+            }
+            return weight > 0 ? Math.max(0, ret) / weight : Math.max(0, ret);
+        }
+
+        /******************************************************************************************/
+        // collapses edges, in passes, until there are target triangles or there is nothing more to collapse
+        void simplify(int target) {
+            while (triangleCount > target) {
+                buildAdjacency();
+                collectEdges();
+                collectCandidates();
+                if (collapse(target) == 0) break;
+                compact();
+            }
+        }
+
+        /******************************************************************************************/
+        private void buildAdjacency() {
+            Arrays.fill(offsets, 0);
+            for (int i = 0; i < triangleCount * 3; i++) {
+                offsets[position[triangles[i]] + 1]++;
+            }
+            for (int p = 0; p < vertexCount; p++) {
+                offsets[p + 1] += offsets[p];
+            }
+            if (adjacency.length < triangleCount * 3) {
+                adjacency = new int[triangleCount * 3];
+            }
+            for (int i = 0; i < triangleCount * 3; i++) {
+                adjacency[offsets[position[triangles[i]]]++] = i / 3;
+            }
+            // each offset is at the start of the next one now
+            for (int p = vertexCount; p > 0; p--) {
+                offsets[p] = offsets[p - 1];
+            }
+            offsets[0] = 0;
+        }
+
+        /******************************************************************************************/
+        // an edge is a border (or a seam) when it's not between 2 triangles with the same vertices on it and
+        // of the same element
+        private void collectEdges() {
+            Arrays.fill(features, 0);
+            edgeCount = 0;
+            for (int p = 0; p < vertexCount; p++) {
+                if (offsets[p] == offsets[p + 1]) continue;
+
+                // the neighbours after p: the position, the triangles, and the first triangle with its vertices
+                int count = 0;
+                for (int i = offsets[p]; i < offsets[p + 1]; i++) {
+                    final int t = adjacency[i];
+                    final int vp = getCorner(t, p);
+                    for (int j = 0; j < 3; j++) {
+                        final int vq = triangles[t * 3 + j];
+                        final int q = position[vq];
+                        if (q <= p) continue;
+                        if (stamps[q] != p) {
+                            stamps[q] = p;
+                            slots[q] = count;
+                            if (neighbours.length < (count + 1) * 6) {
+                                neighbours = Arrays.copyOf(neighbours, neighbours.length * 2);
+                            }
+                            neighbours[count * 6] = q;
+                            neighbours[count * 6 + 1] = 0;
+                            neighbours[count * 6 + 2] = t;
+                            neighbours[count * 6 + 3] = vp;
+                            neighbours[count * 6 + 4] = vq;
+                            neighbours[count * 6 + 5] = 0;
+                            count++;
+                        }
+                        final int n = slots[q] * 6;
+                        if (++neighbours[n + 1] > 1 && (neighbours[n + 3] != vp || neighbours[n + 4] != vq
+                                || triangleElements[neighbours[n + 2]] != triangleElements[t])) {
+                            neighbours[n + 5] = 1;
+                        }
+                    }
+                }
+
+                for (int k = 0; k < count; k++) {
+                    final int q = neighbours[k * 6];
+                    final boolean feature = neighbours[k * 6 + 1] != 2 || neighbours[k * 6 + 5] != 0;
+                    if (edges.length < (edgeCount + 1) * 2) {
+                        edges = Arrays.copyOf(edges, Math.max(64, edges.length * 2));
+                        edgeFeatures = Arrays.copyOf(edgeFeatures, edges.length / 2);
+                    }
+                    edges[edgeCount * 2] = p;
+                    edges[edgeCount * 2 + 1] = q;
+                    edgeFeatures[edgeCount++] = feature;
+                    if (feature) {
+                        features[p]++;
+                        features[q]++;
+                        if (!bordersAdded) {
+                            addBorderQuadric(p, q, neighbours[k * 6 + 2]);
+                        }
+                    }
+                }
+            }
+            Arrays.fill(stamps, -1);
+            bordersAdded = true;
+        }
+
+        /******************************************************************************************/
+        // the vertex of the triangle at the position
+        private int getCorner(int triangle, int p) {
+            for (int j = 0; j < 3; j++) {
+                if (position[triangles[triangle * 3 + j]] == p) return triangles[triangle * 3 + j];
+            }
+            return -1;
+        }
+
+        /******************************************************************************************/
+        private boolean canMove(int p, boolean feature) {
+            return features[p] == 0 || features[p] == 2 && feature;
+        }
+
+        /******************************************************************************************/
+        private void collectCandidates() {
+            if (candidates.length < edgeCount * 2) {
+                candidates = new int[edgeCount * 2];
+                costs = new float[edgeCount];
+                reverseCosts = new float[edgeCount];
+                order = new long[edgeCount];
+            }
+            candidateCount = 0;
+            for (int e = 0; e < edgeCount; e++) {
+                final int p = edges[e * 2], q = edges[e * 2 + 1];
+                final float pq = canMove(p, edgeFeatures[e]) ? getCost(p, q) : Float.MAX_VALUE;
+                final float qp = canMove(q, edgeFeatures[e]) ? getCost(q, p) : Float.MAX_VALUE;
+                if (pq == Float.MAX_VALUE && qp == Float.MAX_VALUE) continue;
+
+                // whether they can be done is checked once they are the cheapest ones
+                final int c = candidateCount++;
+                candidates[c * 2] = pq <= qp ? p : q;
+                candidates[c * 2 + 1] = pq <= qp ? q : p;
+                costs[c] = Math.min(pq, qp);
+                reverseCosts[c] = Math.max(pq, qp);
+                // the costs are positive, so their bits sort like them
+                order[c] = (long) Float.floatToIntBits(costs[c]) << 32 | c;
+            }
+            Arrays.sort(order, 0, candidateCount);
+        }
+
+        /******************************************************************************************/
+        // the cheapest collapses that don't touch each other. returns how many
+        private int collapse(int target) {
+            if (candidateCount == 0) return 0;
+            pass++;
+
+            // each collapse removes about 2 triangles. the ones that cost more wait for the next pass, where
+            // the cheaper ones that were touched by this one may go first
+            final int needed = Math.max(1, (triangleCount - target) / 2);
+            // the ones that can't be done don't count, or they would stay at the top pass after pass
+            int last = Math.min(candidateCount, needed) - 1;
+
+            int removed = 0;
+            int ret = 0;
+            for (int k = 0; k < candidateCount && triangleCount - removed > target; k++) {
+                final int c = (int) order[k];
+                final float limit = costs[(int) order[last]];
+                if (costs[c] > limit) break;
+                final int p = candidates[c * 2], q = candidates[c * 2 + 1];
+                if (touched[p] == pass || touched[q] == pass) continue;
+
+                float cost = costs[c];
+                int collapsed = collapse(p, q);
+                if (collapsed < 0 && reverseCosts[c] <= limit) {
+                    cost = reverseCosts[c];
+                    collapsed = collapse(q, p);
+                }
+                if (collapsed < 0) {
+                    last = Math.min(last + 1, candidateCount - 1);
+                    continue;
+                }
+                removed += collapsed;
+                error = Math.max(error, cost);
+                ret++;
+            }
+            return ret;
+        }
+
+        /******************************************************************************************/
+        // whether position p can move to q: each vertex at p goes to the vertex at q it shares a triangle
+        // with (so the seams stay), and none of the triangles that stay turn over. returns how many vertices
+        // move (in wedges), or -1 if it can't be done
+        private int check(int p, int q) {
+            int count = 0;
+            for (int i = offsets[p]; i < offsets[p + 1]; i++) {
+                final int t = adjacency[i];
+                final int vq = getCorner(t, q);
+                if (vq == -1) continue;
+                final int vp = getCorner(t, p);
+                final int w = indexOf(vp, count);
+                if (w == -1) {
+                    if (wedges.length < (count + 1) * 2) {
+                        wedges = Arrays.copyOf(wedges, wedges.length * 2);
+                    }
+                    wedges[count * 2] = vp;
+                    wedges[count * 2 + 1] = vq;
+                    count++;
+                } else if (wedges[w * 2 + 1] != vq) {
+                    return -1;
+                }
+            }
+
+            for (int i = offsets[p]; i < offsets[p + 1]; i++) {
+                final int t = adjacency[i];
+                if (getCorner(t, q) == -1 && (indexOf(getCorner(t, p), count) == -1 || flips(t, p, q))) {
+                    return -1;
+                }
+            }
+            return count;
+        }
+
+        /******************************************************************************************/
+        // moves position p to q. returns the triangles it removes, or -1 if it can't be done
+        private int collapse(int p, int q) {
+            final int count = check(p, q);
+            if (count == -1) return -1;
+
+            for (int w = 0; w < count; w++) {
+                remap[wedges[w * 2]] = wedges[w * 2 + 1];
+            }
+            for (int j = 0; j < QUADRIC_SIZE; j++) {
+                quadrics[q * QUADRIC_SIZE + j] += quadrics[p * QUADRIC_SIZE + j];
+            }
+            for (int j = 0; j < 3; j++) {
+                normals[q * 3 + j] += normals[p * 3 + j];
+            }
+            // the triangles around p change, so their positions wait for the next pass
+            int ret = 0;
+            for (int i = offsets[p]; i < offsets[p + 1]; i++) {
+                if (getCorner(adjacency[i], q) != -1) ret++;
+                for (int j = 0; j < 3; j++) {
+                    touched[position[triangles[adjacency[i] * 3 + j]]] = pass;
+                }
+            }
+            return ret;
+        }
+
+        /******************************************************************************************/
+        private int indexOf(int vertex, int count) {
+            for (int w = 0; w < count; w++) {
+                if (wedges[w * 2] == vertex) return w;
+            }
+            return -1;
+        }
+
+        /******************************************************************************************/
+        // whether the triangle turns too much (or degenerates) moving p to q. a bit at a time, they would
+        // turn over after a few collapses
+        private boolean flips(int triangle, int p, int q) {
+            final int a = position[triangles[triangle * 3]];
+            final int b = position[triangles[triangle * 3 + 1]];
+            final int c = position[triangles[triangle * 3 + 2]];
+            normal(a, b, c, -1, -1);
+            final float x = normal[0], y = normal[1], z = normal[2];
+            normal(a, b, c, p, q);
+            final float dot = x * normal[0] + y * normal[1] + z * normal[2];
+            final float lengths = (x * x + y * y + z * z) * (normal[0] * normal[0] + normal[1] * normal[1] + normal[2] * normal[2]);
+            return dot <= 0 || dot * dot < MIN_COS_TURN * MIN_COS_TURN * lengths
+                    || normal[0] * (normals[p * 3] + normals[q * 3]) + normal[1] * (normals[p * 3 + 1] + normals[q * 3 + 1])
+                    + normal[2] * (normals[p * 3 + 2] + normals[q * 3 + 2]) <= 0;
+        }
+
+        /******************************************************************************************/
+        // of the triangle, with position p at q
+        private void normal(int a, int b, int c, int p, int q) {
+            if (a == p) a = q;
+            if (b == p) b = q;
+            if (c == p) c = q;
+            final float ux = positions[b * 3] - positions[a * 3];
+            final float uy = positions[b * 3 + 1] - positions[a * 3 + 1];
+            final float uz = positions[b * 3 + 2] - positions[a * 3 + 2];
+            final float vx = positions[c * 3] - positions[a * 3];
+            final float vy = positions[c * 3 + 1] - positions[a * 3 + 1];
+            final float vz = positions[c * 3 + 2] - positions[a * 3 + 2];
+            normal[0] = uy * vz - uz * vy;
+            normal[1] = uz * vx - ux * vz;
+            normal[2] = ux * vy - uy * vx;
+        }
+
+        /******************************************************************************************/
+        // the triangles with their new vertices, without the ones that collapsed
+        private void compact() {
+            int count = 0;
+            for (int t = 0; t < triangleCount; t++) {
+                final int a = resolve(triangles[t * 3]);
+                final int b = resolve(triangles[t * 3 + 1]);
+                final int c = resolve(triangles[t * 3 + 2]);
+                if (position[a] == position[b] || position[b] == position[c] || position[a] == position[c]) continue;
+                triangles[count * 3] = a;
+                triangles[count * 3 + 1] = b;
+                triangles[count * 3 + 2] = c;
+                triangleElements[count++] = triangleElements[t];
+            }
+            triangleCount = count;
+        }
+
+        /******************************************************************************************/
+        private int resolve(int vertex) {
+            while (remap[vertex] != vertex) {
+                vertex = remap[vertex];
+            }
+            return vertex;
+        }
+
+        /******************************************************************************************/
+        // of the model, in its units
+        float getError() {
+            return (float) Math.sqrt(error) * size;
+        }
+
+        /******************************************************************************************/
+        // of each element
+        int[][] getIndices() {
+            final int[] counts = new int[elementCount];
+            for (int t = 0; t < triangleCount; t++) {
+                counts[triangleElements[t]] += 3;
+            }
+            final int[][] ret = new int[elementCount][];
+            for (int i = 0; i < elementCount; i++) {
+                ret[i] = new int[counts[i]];
+                counts[i] = 0;
+            }
+            for (int t = 0; t < triangleCount; t++) {
+                final int[] indices = ret[triangleElements[t]];
+                final int offset = counts[triangleElements[t]];
+                indices[offset] = triangles[t * 3];
+                indices[offset + 1] = triangles[t * 3 + 1];
+                indices[offset + 2] = triangles[t * 3 + 2];
+                counts[triangleElements[t]] += 3;
+            }
+            return ret;
+        }
+    }
+}
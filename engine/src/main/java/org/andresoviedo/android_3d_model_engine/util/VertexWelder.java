@@ -0,0 +1,302 @@
+package org.andresoviedo.android_3d_model_engine.util;
+
+import android.util.Log;
+
+import org.andresoviedo.android_3d_model_engine.model.Element;
+import org.andresoviedo.android_3d_model_engine.services.collada.entities.MeshData;
+import org.andresoviedo.util.collection.DirectFloatArray;
+import org.andresoviedo.util.collection.IntArray;
+import org.andresoviedo.util.math.Math3DUtils;
+
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+/**************************************************************************************************/
+public final class VertexWelder {
+    /**********************************************************************************************/
+    // positions closer than this fraction of the model size are the same vertex
+    public static final float DEFAULT_TOLERANCE = 1e-6f;
+    /**********************************************************************************************/
+    // normals closer than this (1 - cos) are the same normal, even with no crease angle
+    private static final float NORMAL_TOLERANCE = 1e-6f;
+
+    /**********************************************************************************************/
+    private static final class Welded {
+        private final int[] remap;
+        private final DirectFloatArray vertices;
+        private final DirectFloatArray normals;
+        private final DirectFloatArray colors;
+        private final DirectFloatArray textures;
+        private final IntArray vertexIndices;
+
+        private Welded(int[] remap, DirectFloatArray vertices, DirectFloatArray normals, DirectFloatArray colors,
+                       DirectFloatArray textures, IntArray vertexIndices) {
+            this.remap = remap;
+            this.vertices = vertices;
+            this.normals = normals;
+            this.colors = colors;
+            this.textures = textures;
+            this.vertexIndices = vertexIndices;
+        }
+    }
+
+    /**********************************************************************************************/
+    private final float tolerance;
+    /**********************************************************************************************/
+    // vertices whose normals are within the crease angle are welded and get the mean normal
+    private final float creaseAngle;
+    private final float creaseCos;
+
+    /**********************************************************************************************/
+    public VertexWelder(float tolerance, float creaseAngle) {
+        this.tolerance = tolerance;
+        this.creaseAngle = creaseAngle;
+        this.creaseCos = (float) Math.cos(Math.toRadians(creaseAngle)) - NORMAL_TOLERANCE;
+    }
+
+    /**********************************************************************************************/
+    public MeshData weld(MeshData mesh) {
+        return weld(Collections.singletonList(mesh)).get(0);
+    }
+
+    /**********************************************************************************************/
+    public List<MeshData> weld(List<MeshData> meshes) {
+        final List<MeshData> ret = new ArrayList<>(meshes.size());
+
+        // meshes sharing the same vertex data (i.e. wavefront objects) are welded only once
+        DirectFloatArray previous = null;
+        Welded welded = null;
+
+        for (MeshData mesh : meshes) {
+            if (mesh.getJointsArray() != null || mesh.getVertices() == null || mesh.getVertices().isEmpty()) {
+                ret.add(mesh);
+                continue;
+            }
+            if (mesh.getVertices() != previous) {
+                welded = weldVertices(mesh);
+                previous = mesh.getVertices();
+            }
+            ret.add(build(mesh, welded));
+        }
+        return ret;
+    }
+
+    /**********************************************************************************************/
+    private Welded weldVertices(MeshData mesh) {
+        final int vertexCount = mesh.getVertexCount();
+
+        final FloatBuffer vertices = mesh.getVertices().asBuffer();
+        final FloatBuffer normals = mesh.getNormals() != null && mesh.getNormals().size() == vertexCount * 3 ?
+                mesh.getNormals().asBuffer() : null;
+        final FloatBuffer colors = mesh.getColors() != null && mesh.getColors().size() == vertexCount * 4 ?
+                mesh.getColors().asBuffer() : null;
+        final FloatBuffer textures = mesh.getTextures() != null && mesh.getTextures().size() == vertexCount * 2 ?
+                mesh.getTextures().asBuffer() : null;
+
+        final float[] min = {Float.MAX_VALUE, Float.MAX_VALUE, Float.MAX_VALUE};
+        float size = 0;
+        for (int i = 0; i < vertexCount * 3; i += 3) {
+            for (int j = 0; j < 3; j++) {
+                min[j] = Math.min(min[j], vertices.get(i + j));
+            }
+        }
+        for (int i = 0; i < vertexCount * 3; i += 3) {
+            for (int j = 0; j < 3; j++) {
+                size = Math.max(size, vertices.get(i + j) - min[j]);
+            }
+        }
+        final float scale = size > 0 ? 1 / (size * tolerance) : 0;
+
+        // quantized position, texture and color of each welded vertex
+        final int stride = 3 + (textures != null ? 2 : 0) + (colors != null ? 4 : 0);
+        final int[] key = new int[stride];
+        final IntArray keys = new IntArray(vertexCount / 2 * stride);
+        final IntArray first = new IntArray(vertexCount / 2);
+
+        // open addressing hash table of welded vertices. it grows to keep the load under 1/2
+        int[] table = new int[Integer.highestOneBit(Math.max(vertexCount / 2, 16)) << 1];
+        Arrays.fill(table, -1);
+
+        final int[] remap = new int[vertexCount];
+        for (int i = 0; i < vertexCount; i++) {
+            int k = 0;
+            for (int j = 0; j < 3; j++) {
+                key[k++] = Math.round((vertices.get(i * 3 + j) - min[j]) * scale);
+            }
+            if (textures != null) {
+                key[k++] = Float.floatToIntBits(textures.get(i * 2));
+                key[k++] = Float.floatToIntBits(textures.get(i * 2 + 1));
+            }
+            if (colors != null) {
+                for (int j = 0; j < 4; j++) {
+                    key[k++] = Float.floatToIntBits(colors.get(i * 4 + j));
+                }
+            }
+
+            int slot = hash(key, 0, stride) & (table.length - 1);
+            // the same position may have several welded vertices, one for each side of a crease
+            while (table[slot] != -1 && !(equals(keys.array(), table[slot] * stride, key, stride)
+                    && (normals == null || isSameNormal(normals, i, first.get(table[slot]))))) {
+                slot = (slot + 1) & (table.length - 1);
+            }
+            int welded = table[slot];
+            if (welded == -1) {
+                welded = first.size();
+                table[slot] = welded;
+                first.add(i);
+                for (int j = 0; j < stride; j++) {
+                    keys.add(key[j]);
+                }
+                if (first.size() * 2 > table.length) {
+                    table = rehash(keys.array(), first.size(), stride, table.length << 1);
+                }
+            }
+            remap[i] = welded;
+        }
+
+        final int count = first.size();
+        final DirectFloatArray newVertices = new DirectFloatArray(count * 3);
+        final DirectFloatArray newNormals = normals != null ? new DirectFloatArray(count * 3) : null;
+        final DirectFloatArray newColors = colors != null ? new DirectFloatArray(count * 4) : null;
+        final DirectFloatArray newTextures = textures != null ? new DirectFloatArray(count * 2) : null;
+        final IntArray newVertexIndices = mesh.getVertexIndices() != null ? new IntArray(count) : null;
+
+        for (int i = 0; i < count; i++) {
+            final int idx = first.get(i);
+            newVertices.add(vertices.get(idx * 3), vertices.get(idx * 3 + 1), vertices.get(idx * 3 + 2));
+            if (newNormals != null) {
+                newNormals.add(normals.get(idx * 3), normals.get(idx * 3 + 1), normals.get(idx * 3 + 2));
+            }
+            if (newColors != null) {
+                newColors.add(colors.get(idx * 4), colors.get(idx * 4 + 1), colors.get(idx * 4 + 2), colors.get(idx * 4 + 3));
+            }
+            if (newTextures != null) {
+                newTextures.add(textures.get(idx * 2), textures.get(idx * 2 + 1));
+            }
+            if (newVertexIndices != null) {
+                newVertexIndices.add(mesh.getVertexIndices().get(idx));
+            }
+        }
+
+        if (newNormals != null && creaseAngle > 0) {
+            averageNormals(normals, remap, newNormals);
+        }
+
+        Log.i("VertexWelder", "Welded vertices. Total: " + vertexCount + ", welded: " + count);
+
+        return new Welded(remap, newVertices, newNormals, newColors, newTextures, newVertexIndices);
+    }
+
+    /**********************************************************************************************/
+    private static void averageNormals(FloatBuffer normals, int[] remap, DirectFloatArray newNormals) {
+        final float[] sum = new float[newNormals.size()];
+        for (int i = 0; i < remap.length; i++) {
+            for (int j = 0; j < 3; j++) {
+                sum[remap[i] * 3 + j] += normals.get(i * 3 + j);
+            }
+        }
+        for (int i = 0; i < sum.length; i += 3) {
+            final float length = Math3DUtils.length(sum[i], sum[i + 1], sum[i + 2]);
+            if (length == 0) continue;
+            newNormals.set(i, sum[i] / length);
+            newNormals.set(i + 1, sum[i + 1] / length);
+            newNormals.set(i + 2, sum[i + 2] / length);
+        }
+    }
+
+    /**********************************************************************************************/
+    private boolean isSameNormal(FloatBuffer normals, int index1, int index2) {
+        final float x1 = normals.get(index1 * 3), y1 = normals.get(index1 * 3 + 1), z1 = normals.get(index1 * 3 + 2);
+        final float x2 = normals.get(index2 * 3), y2 = normals.get(index2 * 3 + 1), z2 = normals.get(index2 * 3 + 2);
+        final float length = Math3DUtils.length(x1, y1, z1) * Math3DUtils.length(x2, y2, z2);
+        if (length == 0) {
+            return x1 == x2 && y1 == y2 && z1 == z2;
+        }
+        return (x1 * x2 + y1 * y2 + z1 * z2) / length >= creaseCos;
+    }
+
+    /**********************************************************************************************/
+    private static int[] rehash(int[] keys, int count, int stride, int tableSize) {
+        final int[] ret = new int[tableSize];
+        Arrays.fill(ret, -1);
+        for (int i = 0; i < count; i++) {
+            int slot = hash(keys, i * stride, stride) & (tableSize - 1);
+            while (ret[slot] != -1) {
+                slot = (slot + 1) & (tableSize - 1);
+            }
+            ret[slot] = i;
+        }
+        return ret;
+    }
+
+    /**********************************************************************************************/
+    private static int hash(int[] key, int offset, int stride) {
+        int hash = 0;
+        for (int i = 0; i < stride; i++) {
+            hash = 31 * hash + key[offset + i];
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    /**********************************************************************************************/
+    private static boolean equals(int[] keys, int offset, int[] key, int stride) {
+        for (int i = 0; i < stride; i++) {
+            if (keys[offset + i] != key[i]) return false;
+        }
+        return true;
+    }
+
+    /**********************************************************************************************/
+    private static MeshData build(MeshData mesh, Welded welded) {
+        final List<Element> elements = new ArrayList<>();
+        if (mesh.getElements() == null) {
+            // arrays mode: every vertex is drawn in order
+            final IntArray indices = new IntArray(welded.remap.length);
+            for (int i = 0; i < welded.remap.length; i++) {
+                indices.add(welded.remap[i]);
+            }
+            elements.add(new Element("default", indices, null));
+        } else {
+            for (Element element : mesh.getElements()) {
+                final IntArray indices;
+                if (element.getIndices() != null) {
+                    indices = remap(element.getIndices(), welded.remap);
+                } else {
+                    final IntBuffer indexBuffer = element.getIndexBuffer();
+                    indices = new IntArray(indexBuffer.capacity());
+                    for (int i = 0; i < indexBuffer.capacity(); i++) {
+                        indices.add(welded.remap[indexBuffer.get(i)]);
+                    }
+                }
+                final Element newElement = new Element(element.getId(), indices, element.getMaterialId());
+                newElement.setMaterial(element.getMaterial());
+                elements.add(newElement);
+            }
+        }
+
+        Map<String, IntArray> smoothingGroups = null;
+        if (mesh.getSmoothingGroups() != null) {
+            smoothingGroups = new HashMap<>();
+            for (Map.Entry<String, IntArray> group : mesh.getSmoothingGroups().entrySet()) {
+                smoothingGroups.put(group.getKey(), remap(group.getValue(), welded.remap));
+            }
+        }
+
+        return new MeshData(mesh.getId(), mesh.getName(), welded.vertices, welded.normals, welded.colors, welded.textures,
+                welded.vertexIndices, elements, mesh.getMaterialFile(), smoothingGroups);
+    }
+
+    /**********************************************************************************************/
+    private static IntArray remap(IntArray indices, int[] remap) {
+        final IntArray ret = new IntArray(indices.size());
+        for (int i = 0; i < indices.size(); i++) {
+            ret.add(remap[indices.get(i)]);
+        }
+        return ret;
+    }
+}
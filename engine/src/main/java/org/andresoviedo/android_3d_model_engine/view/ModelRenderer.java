@@ -8,10 +8,14 @@ import android.os.SystemClock;
 import android.util.Log;
 
 import org.andresoviedo.android_3d_model_engine.animation.Animator;
+import org.andresoviedo.android_3d_model_engine.collision.Frustum;
+import org.andresoviedo.android_3d_model_engine.drawer.RenderQueue;
 import org.andresoviedo.android_3d_model_engine.drawer.Renderer;
 import org.andresoviedo.android_3d_model_engine.drawer.RendererFactory;
+import org.andresoviedo.android_3d_model_engine.drawer.TextureLoader;
 import org.andresoviedo.android_3d_model_engine.model.AnimatedModel;
 import org.andresoviedo.android_3d_model_engine.model.Camera;
+import org.andresoviedo.android_3d_model_engine.model.Dimensions;
 import org.andresoviedo.android_3d_model_engine.model.Element;
 import org.andresoviedo.android_3d_model_engine.model.Object3DData;
 import org.andresoviedo.android_3d_model_engine.objects.Axis;
@@ -28,7 +32,6 @@ import org.andresoviedo.util.android.ContentUtils;
 import org.andresoviedo.util.android.GLUtil;
 import org.andresoviedo.util.event.EventListener;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.EventObject;
@@ -73,15 +76,39 @@ public class ModelRenderer implements GLSurfaceView.Renderer {
     public static class FPSEvent extends EventObject {
 
         private final int fps;
+        // of the last frame
+        private final int drawnObjects;
+        private final int culledObjects;
+        private final int culledElements;
 
         public FPSEvent(Object source, int fps) {
+            this(source, fps, 0, 0, 0);
+        }
+
+        public FPSEvent(Object source, int fps, int drawnObjects, int culledObjects, int culledElements) {
             super(source);
             this.fps = fps;
+            this.drawnObjects = drawnObjects;
+            this.culledObjects = culledObjects;
+            this.culledElements = culledElements;
         }
 
         public int getFps() {
             return fps;
         }
+
+        public int getDrawnObjects() {
+            return drawnObjects;
+        }
+
+        // out of the view
+        public int getCulledObjects() {
+            return culledObjects;
+        }
+
+        public int getCulledElements() {
+            return culledElements;
+        }
     }
 
     /**********************************************************************************************/
@@ -106,6 +133,13 @@ public class ModelRenderer implements GLSurfaceView.Renderer {
     private static final float[] COLOR_HALF_TRANSPARENT = {1f, 1f, 1f, 0.5f};
     private static final float[] COLOR_ALMOST_TRANSPARENT = {1f, 1f, 1f, 0.1f};
     /**********************************************************************************************/
+    // the dimensions of animated models are the ones of the bind pose. the poses may go out of them by
+    // this much of the largest one, on every side
+    private static final float POSE_MARGIN = 0.5f;
+    /**********************************************************************************************/
+    // the coarsest level of detail whose error is less than this on the screen is drawn
+    private static final float LEVEL_ERROR_PIXELS = 1f;
+    /**********************************************************************************************/
     private final float[] backgroundColor;
     /**********************************************************************************************/
     private final SceneLoader scene;
@@ -126,9 +160,22 @@ public class ModelRenderer implements GLSurfaceView.Renderer {
     private int framesPerSecond = 0;
     private int framesPerSecondCounter = 0;
     /**********************************************************************************************/
-    private Map<Object3DData, Object3DData> wireframes = new HashMap<>();
+    // of the eye being drawn
+    private final Frustum frustum = new Frustum();
+    private final float[] cullingMatrix = new float[16];
+    private final float[] cullingMin = new float[3];
+    private final float[] cullingMax = new float[3];
+    private final float[] levelPoint = new float[8];
+    /**********************************************************************************************/
+    // in this frame, and in the last one
+    private int drawnObjects;
+    private int culledObjects;
+    private int culledElements;
+    private int lastDrawnObjects;
+    private int lastCulledObjects;
+    private int lastCulledElements;
     /**********************************************************************************************/
-    private Map<Object, Integer> textures = new HashMap<>();
+    private Map<Object3DData, Object3DData> wireframes = new HashMap<>();
     /**********************************************************************************************/
     private Map<Object3DData, Object3DData> boundingBoxes = new HashMap<>();
     /**********************************************************************************************/
@@ -266,6 +313,8 @@ public class ModelRenderer implements GLSurfaceView.Renderer {
 
         GLES20.glEnable(GLES20.GL_SCISSOR_TEST);
 
+        drawer.onSurfaceCreated();
+
         AndroidUtils.fireEvent(listeners, new ViewEvent(this, ViewEvent.Code.SURFACE_CREATED, 0, 0));
 
         ContentUtils.setThreadActivity(main.getContext());
@@ -301,6 +350,13 @@ public class ModelRenderer implements GLSurfaceView.Renderer {
             return;
         }
 
+        drawer.nextFrame();
+
+        lastDrawnObjects = drawnObjects;
+        lastCulledObjects = culledObjects;
+        lastCulledElements = culledElements;
+        drawnObjects = culledObjects = culledElements = 0;
+
         try {
 
             GLES20.glViewport(0, 0, width, height);
@@ -363,6 +419,11 @@ public class ModelRenderer implements GLSurfaceView.Renderer {
                 camera.setChanged(false);
             }
 
+            if (!scene.isStereoscopic()) {
+                scene.animate(viewMatrix, projectionMatrix, height);
+            } else {
+                scene.animate(viewMatrixLeft, projectionMatrixLeft, height);
+            }
 
             if (!scene.isStereoscopic()) {
                 this.onDrawFrame(viewMatrix, projectionMatrix, viewProjectionMatrix, lightPosInWorldSpace, colorMask, cameraPosInWorldSpace);
@@ -404,10 +465,12 @@ public class ModelRenderer implements GLSurfaceView.Renderer {
     private void onDrawFrame(float[] viewMatrix, float[] projectionMatrix, float[] viewProjectionMatrix, float[] lightPosInWorldSpace, float[] colorMask, float[] cameraPosInWorldSpace) {
         final Camera camera = scene.getCamera();
 
+        frustum.set(viewProjectionMatrix);
+
         int skyBoxId = isUseskyBoxId;
         if (skyBoxId == -3) {
             for (int i = 0; i < extras.size(); i++) {
-                drawObject(viewMatrix, projectionMatrix, lightPosInWorldSpace, colorMask, cameraPosInWorldSpace, false, false, false, false, false, extras, i);
+                drawObject(viewMatrix, projectionMatrix, lightPosInWorldSpace, colorMask, cameraPosInWorldSpace, false, false, false, false, false, extras, i, true);
             }
         } else if (skyBoxId == -2) {
             GLES20.glClearColor(backgroundColor[0], backgroundColor[1], backgroundColor[2], backgroundColor[3]);
@@ -478,15 +541,26 @@ public class ModelRenderer implements GLSurfaceView.Renderer {
 
         List<Object3DData> objects = scene.getObjects();
 
+        // the objects are queued, and drawn sorted by shader and texture
+        final RenderQueue renderQueue = drawer.getRenderQueue();
+
         for (int i = 0; i < objects.size(); i++) {
-            drawObject(viewMatrix, projectionMatrix, lightPosInWorldSpace, colorMask, cameraPosInWorldSpace, doAnimation, drawLighting, drawWireframe, drawTextures, drawColors, objects, i);
+            drawObject(viewMatrix, projectionMatrix, lightPosInWorldSpace, colorMask, cameraPosInWorldSpace, doAnimation, drawLighting, drawWireframe, drawTextures, drawColors, objects, i, true);
         }
 
+        // the model that is still being loaded
+        final List<Object3DData> previews = scene.getPreviews();
+        for (int i = 0; i < previews.size(); i++) {
+            drawObject(viewMatrix, projectionMatrix, lightPosInWorldSpace, colorMask, cameraPosInWorldSpace, doAnimation, drawLighting, drawWireframe, drawTextures, drawColors, previews, i, true);
+        }
+        renderQueue.flush(projectionMatrix, viewMatrix, lightPosInWorldSpace, colorMask, cameraPosInWorldSpace);
+
         List<Object3DData> guiObjects = scene.getGUIObjects();
 
         for (int i = 0; i < guiObjects.size(); i++) {
-            drawObject(viewMatrix, projectionMatrix, lightPosInWorldSpace, colorMask, cameraPosInWorldSpace, doAnimation, drawLighting, drawWireframe, drawTextures, drawColors, guiObjects, i);
+            drawObject(viewMatrix, projectionMatrix, lightPosInWorldSpace, colorMask, cameraPosInWorldSpace, doAnimation, drawLighting, drawWireframe, drawTextures, drawColors, guiObjects, i, false);
         }
+        renderQueue.flush(projectionMatrix, viewMatrix, lightPosInWorldSpace, colorMask, cameraPosInWorldSpace);
 
         if (framesPerSecondTime == -1) {
             framesPerSecondTime = SystemClock.elapsedRealtime();
@@ -495,7 +569,8 @@ public class ModelRenderer implements GLSurfaceView.Renderer {
             framesPerSecond = framesPerSecondCounter;
             framesPerSecondCounter = 1;
             framesPerSecondTime = SystemClock.elapsedRealtime();
-            AndroidUtils.fireEvent(listeners, new FPSEvent(this, framesPerSecond));
+            AndroidUtils.fireEvent(listeners, new FPSEvent(this, framesPerSecond, lastDrawnObjects, lastCulledObjects,
+                    lastCulledElements));
         } else {
             framesPerSecondCounter++;
         }
@@ -504,7 +579,7 @@ public class ModelRenderer implements GLSurfaceView.Renderer {
     }
 
     /**********************************************************************************************/
-    private void drawObject(float[] viewMatrix, float[] projectionMatrix, float[] lightPosInWorldSpace, float[] colorMask, float[] cameraPosInWorldSpace, boolean doAnimation, boolean drawLighting, boolean drawWireframe, boolean drawTextures, boolean drawColors, List<Object3DData> objects, int i) {
+    private void drawObject(float[] viewMatrix, float[] projectionMatrix, float[] lightPosInWorldSpace, float[] colorMask, float[] cameraPosInWorldSpace, boolean doAnimation, boolean drawLighting, boolean drawWireframe, boolean drawTextures, boolean drawColors, List<Object3DData> objects, int i, boolean culling) {
         Object3DData objData = null;
 
         try {
@@ -513,6 +588,17 @@ public class ModelRenderer implements GLSurfaceView.Renderer {
                 return;
             }
 
+            // the GUI is drawn with its own view, so it's neither culled nor counted
+            if (culling) {
+                if (!isInView(objData)) {
+                    culledObjects++;
+                    return;
+                }
+                drawnObjects++;
+            }
+
+            objData.setLevel(getLevel(objData, viewMatrix, projectionMatrix));
+
             if (!infoLogged.containsKey(objData.getId())) {
                 Log.i("ModelRenderer", "Drawing model: " + objData.getId() + ", " + objData.getClass().getSimpleName());
                 infoLogged.put(objData.getId(), true);
@@ -530,10 +616,15 @@ public class ModelRenderer implements GLSurfaceView.Renderer {
 
             boolean changed = objData.isChanged();
             objData.setChanged(false);
+            if (changed) {
+                drawer.invalidate(objData);
+            }
 
-            Integer textureId = null;
+            int textureId = -1;
 
+            // the textures are decoded in the background, and a white pixel is drawn until they are uploaded
             if (drawTextures) {
+                final TextureLoader textures = drawer.getTextures();
                 if (objData.getElements() != null) {
 
                     for (int e = 0; e < objData.getElements().size(); e++) {
@@ -543,41 +634,24 @@ public class ModelRenderer implements GLSurfaceView.Renderer {
                             continue;
                         }
 
-                        textureId = textures.get(element.getMaterial().getTextureData());
-                        if (textureId != null) {
-                            continue;
-                        }
-
-                        Log.i("ModelRenderer", "Loading material texture for element... '" + element);
-                        textureId = GLUtil.loadTexture(element.getMaterial().getTextureData());
+                        final boolean requested = textures.contains(element.getMaterial().getTextureData());
+                        textureId = textures.getTexture(element.getMaterial());
                         element.getMaterial().setTextureId(textureId);
 
-                        textures.put(element.getMaterial().getTextureData(), textureId);
-
-                        Log.i("ModelRenderer", "Loaded material texture for element. id: " + textureId);
-
-                        objData.setTextureData(element.getMaterial().getTextureData());
+                        if (!requested) {
+                            Log.i("ModelRenderer", "Loading material texture for element... '" + element);
+                            objData.setTextureData(element.getMaterial().getTextureData());
+                        }
                     }
-                } else {
-                    textureId = textures.get(objData.getTextureData());
-
-                    if (textureId == null && objData.getTextureData() != null) {
+                } else if (objData.getTextureData() != null) {
+                    if (!textures.contains(objData.getTextureData())) {
                         Log.i("ModelRenderer", "Loading texture for obj: '" + objData.getId() + "'... bytes: " + objData.getTextureData().length);
-                        ByteArrayInputStream textureIs = new ByteArrayInputStream(objData.getTextureData());
-                        textureId = GLUtil.loadTexture(textureIs);
-                        textureIs.close();
-                        textures.put(objData.getTextureData(), textureId);
-                        objData.getMaterial().setTextureId(textureId);
-
-                        Log.i("ModelRenderer", "Loaded texture OK. id: " + textureId);
                     }
+                    textureId = textures.getTexture(objData.getMaterial());
+                    objData.getMaterial().setTextureId(textureId);
                 }
             }
 
-            if (textureId == null) {
-                textureId = -1;
-            }
-
             if (objData.getDrawMode() == GLES20.GL_POINTS) {
                 Renderer basicDrawer = drawer.getBasicShader();
                 basicDrawer.draw(objData, projectionMatrix, viewMatrix, GLES20.GL_POINTS, lightPosInWorldSpace, cameraPosInWorldSpace);
@@ -632,7 +706,7 @@ public class ModelRenderer implements GLSurfaceView.Renderer {
 
                         infoLogged.put(objData.getId() + "render", true);
                     }
-                    drawerObject.draw(objData, projectionMatrix, viewMatrix, textureId, lightPosInWorldSpace, colorMask, cameraPosInWorldSpace);
+                    culledElements += drawer.getRenderQueue().add(drawerObject, objData, textureId, viewMatrix, culling ? frustum : null);
                     objData.render(drawer, lightPosInWorldSpace, colorMask);
                 }
             }
@@ -667,6 +741,58 @@ public class ModelRenderer implements GLSurfaceView.Renderer {
         }
     }
 
+    /**********************************************************************************************/
+    private boolean isInView(Object3DData obj) {
+        final Dimensions dimensions = obj.getDimensions();
+        if (!(obj instanceof AnimatedModel)) {
+            return frustum.intersectsBox(dimensions.getMin(), dimensions.getMax(), obj.getModelMatrix());
+        }
+
+        final float margin = dimensions.getLargest() * POSE_MARGIN;
+        for (int i = 0; i < 3; i++) {
+            cullingMin[i] = dimensions.getMin()[i] - margin;
+            cullingMax[i] = dimensions.getMax()[i] + margin;
+        }
+        Matrix.multiplyMM(cullingMatrix, 0, obj.getModelMatrix(), 0, ((AnimatedModel) obj).getBindShapeMatrix(), 0);
+        return frustum.intersectsBox(cullingMin, cullingMax, cullingMatrix);
+    }
+
+    /**********************************************************************************************/
+    // the level of detail to draw, from the size on the screen of a unit of the model where it's nearest
+    // to the camera
+    private int getLevel(Object3DData obj, float[] viewMatrix, float[] projectionMatrix) {
+        final float[] errors = obj.getLevelErrors();
+        if (errors == null) {
+            return 0;
+        }
+
+        final Dimensions dimensions = obj.getDimensions();
+        final float[] center = dimensions.getCenter();
+        levelPoint[4] = center[0];
+        levelPoint[5] = center[1];
+        levelPoint[6] = center[2];
+        levelPoint[7] = 1;
+        final float[] modelMatrix = obj.getModelMatrix();
+        Matrix.multiplyMV(levelPoint, 0, modelMatrix, 0, levelPoint, 4);
+        Matrix.multiplyMV(levelPoint, 4, viewMatrix, 0, levelPoint, 0);
+
+        final float scale = Math.max(Math.max(Matrix.length(modelMatrix[0], modelMatrix[1], modelMatrix[2]),
+                Matrix.length(modelMatrix[4], modelMatrix[5], modelMatrix[6])),
+                Matrix.length(modelMatrix[8], modelMatrix[9], modelMatrix[10]));
+        final float radius = Matrix.length(dimensions.getWidth(), dimensions.getHeight(), dimensions.getDepth()) / 2;
+        final float distance = -levelPoint[6] - radius * scale;
+        if (distance <= near) {
+            return 0;
+        }
+        final float pixelsPerUnit = scale * projectionMatrix[5] / distance * height / 2;
+
+        int ret = 0;
+        while (ret < errors.length && errors[ret] * pixelsPerUnit <= LEVEL_ERROR_PIXELS) {
+            ret++;
+        }
+        return ret;
+    }
+
     /**********************************************************************************************/
     private void drawBoundingBox(float[] viewMatrix, float[] projectionMatrix, float[] lightPosInWorldSpace, float[] colorMask, float[] cameraPosInWorldSpace, Object3DData objData, boolean changed) {
         Object3DData boundingBoxData = boundingBoxes.get(objData);
@@ -0,0 +1,131 @@
+package org.andresoviedo.util.collection;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+/**************************************************************************************************/
+public final class DirectFloatArray {
+    /**********************************************************************************************/
+    private static final int DEFAULT_CAPACITY = 16;
+    /**********************************************************************************************/
+    private FloatBuffer data;
+    private int size;
+
+    /**********************************************************************************************/
+    public DirectFloatArray() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**********************************************************************************************/
+    public DirectFloatArray(int capacity) {
+        this.data = allocate(Math.max(capacity, 1));
+    }
+
+    /**********************************************************************************************/
+    private static FloatBuffer allocate(int capacity) {
+        return ByteBuffer.allocateDirect(capacity * 4).order(ByteOrder.nativeOrder()).asFloatBuffer();
+    }
+
+    /**********************************************************************************************/
+    public void add(float value) {
+        if (size == data.capacity()) {
+            grow(size + 1);
+        }
+        data.put(size++, value);
+    }
+
+    /**********************************************************************************************/
+    public void add(float x, float y) {
+        if (size + 2 > data.capacity()) {
+            grow(size + 2);
+        }
+        data.put(size++, x);
+        data.put(size++, y);
+    }
+
+    /**********************************************************************************************/
+    public void add(float x, float y, float z) {
+        if (size + 3 > data.capacity()) {
+            grow(size + 3);
+        }
+        data.put(size++, x);
+        data.put(size++, y);
+        data.put(size++, z);
+    }
+
+    /**********************************************************************************************/
+    public void add(float x, float y, float z, float w) {
+        if (size + 4 > data.capacity()) {
+            grow(size + 4);
+        }
+        data.put(size++, x);
+        data.put(size++, y);
+        data.put(size++, z);
+        data.put(size++, w);
+    }
+
+    /**********************************************************************************************/
+    public float get(int index) {
+        if (index >= size) throw new IndexOutOfBoundsException("index: " + index + ", size: " + size);
+        return data.get(index);
+    }
+
+    /**********************************************************************************************/
+    public void set(int index, float value) {
+        if (index >= size) throw new IndexOutOfBoundsException("index: " + index + ", size: " + size);
+        data.put(index, value);
+    }
+
+    /**********************************************************************************************/
+    public int size() {
+        return size;
+    }
+
+    /**********************************************************************************************/
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**********************************************************************************************/
+    public void clear() {
+        size = 0;
+    }
+
+    /**********************************************************************************************/
+    public void ensureCapacity(int capacity) {
+        if (capacity > data.capacity()) {
+            grow(capacity);
+        }
+    }
+
+    /**********************************************************************************************/
+    private void grow(int minCapacity) {
+        int capacity = data.capacity() << 1;
+        if (capacity < minCapacity) {
+            capacity = minCapacity;
+        }
+        final FloatBuffer newData = allocate(capacity);
+        final FloatBuffer oldData = data.duplicate();
+        oldData.position(0);
+        oldData.limit(size);
+        newData.put(oldData);
+        newData.position(0);
+        data = newData;
+    }
+
+    /**********************************************************************************************/
+    public FloatBuffer asBuffer() {
+        // view of [0, size) sharing the same native memory. it's only valid until the next growth
+        final FloatBuffer view = data.duplicate();
+        view.position(0);
+        view.limit(size);
+        return view.slice();
+    }
+
+    /**********************************************************************************************/
+    public float[] toArray() {
+        final float[] ret = new float[size];
+        asBuffer().get(ret);
+        return ret;
+    }
+}
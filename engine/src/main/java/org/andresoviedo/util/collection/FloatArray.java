@@ -0,0 +1,101 @@
+package org.andresoviedo.util.collection;
+
+import java.util.Arrays;
+/**************************************************************************************************/
+public final class FloatArray {
+    /**********************************************************************************************/
+    private static final int DEFAULT_CAPACITY = 16;
+    /**********************************************************************************************/
+    private float[] data;
+    private int size;
+
+    /**********************************************************************************************/
+    public FloatArray() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**********************************************************************************************/
+    public FloatArray(int capacity) {
+        this.data = new float[Math.max(capacity, 1)];
+    }
+
+    /**********************************************************************************************/
+    public void add(float value) {
+        if (size == data.length) {
+            grow(size + 1);
+        }
+        data[size++] = value;
+    }
+
+    /**********************************************************************************************/
+    public void add(float x, float y) {
+        if (size + 2 > data.length) {
+            grow(size + 2);
+        }
+        data[size++] = x;
+        data[size++] = y;
+    }
+
+    /**********************************************************************************************/
+    public void add(float x, float y, float z) {
+        if (size + 3 > data.length) {
+            grow(size + 3);
+        }
+        data[size++] = x;
+        data[size++] = y;
+        data[size++] = z;
+    }
+
+    /**********************************************************************************************/
+    public float get(int index) {
+        if (index >= size) throw new IndexOutOfBoundsException("index: " + index + ", size: " + size);
+        return data[index];
+    }
+
+    /**********************************************************************************************/
+    public void set(int index, float value) {
+        if (index >= size) throw new IndexOutOfBoundsException("index: " + index + ", size: " + size);
+        data[index] = value;
+    }
+
+    /**********************************************************************************************/
+    public int size() {
+        return size;
+    }
+
+    /**********************************************************************************************/
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**********************************************************************************************/
+    public void clear() {
+        size = 0;
+    }
+
+    /**********************************************************************************************/
+    public void ensureCapacity(int capacity) {
+        if (capacity > data.length) {
+            grow(capacity);
+        }
+    }
+
+    /**********************************************************************************************/
+    private void grow(int minCapacity) {
+        int capacity = data.length << 1;
+        if (capacity < minCapacity) {
+            capacity = minCapacity;
+        }
+        data = Arrays.copyOf(data, capacity);
+    }
+
+    /**********************************************************************************************/
+    public float[] array() {
+        return data;
+    }
+
+    /**********************************************************************************************/
+    public float[] toArray() {
+        return Arrays.copyOf(data, size);
+    }
+}
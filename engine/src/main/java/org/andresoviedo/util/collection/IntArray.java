@@ -0,0 +1,124 @@
+package org.andresoviedo.util.collection;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+/**************************************************************************************************/
+public final class IntArray {
+    /**********************************************************************************************/
+    private static final int DEFAULT_CAPACITY = 16;
+    /**********************************************************************************************/
+    private int[] data;
+    private int size;
+
+    /**********************************************************************************************/
+    public IntArray() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**********************************************************************************************/
+    public IntArray(int capacity) {
+        this.data = new int[Math.max(capacity, 1)];
+    }
+
+    /**********************************************************************************************/
+    public void add(int value) {
+        if (size == data.length) {
+            grow(size + 1);
+        }
+        data[size++] = value;
+    }
+
+    /**********************************************************************************************/
+    public void add(int x, int y) {
+        if (size + 2 > data.length) {
+            grow(size + 2);
+        }
+        data[size++] = x;
+        data[size++] = y;
+    }
+
+    /**********************************************************************************************/
+    public void add(int x, int y, int z) {
+        if (size + 3 > data.length) {
+            grow(size + 3);
+        }
+        data[size++] = x;
+        data[size++] = y;
+        data[size++] = z;
+    }
+
+    /**********************************************************************************************/
+    public int get(int index) {
+        if (index >= size) throw new IndexOutOfBoundsException("index: " + index + ", size: " + size);
+        return data[index];
+    }
+
+    /**********************************************************************************************/
+    public void set(int index, int value) {
+        if (index >= size) throw new IndexOutOfBoundsException("index: " + index + ", size: " + size);
+        data[index] = value;
+    }
+
+    /**********************************************************************************************/
+    public int size() {
+        return size;
+    }
+
+    /**********************************************************************************************/
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**********************************************************************************************/
+    public void clear() {
+        size = 0;
+    }
+
+    /**********************************************************************************************/
+    public void ensureCapacity(int capacity) {
+        if (capacity > data.length) {
+            grow(capacity);
+        }
+    }
+
+    /**********************************************************************************************/
+    private void grow(int minCapacity) {
+        int capacity = data.length << 1;
+        if (capacity < minCapacity) {
+            capacity = minCapacity;
+        }
+        data = Arrays.copyOf(data, capacity);
+    }
+
+    /**********************************************************************************************/
+    public int[] array() {
+        return data;
+    }
+
+    /**********************************************************************************************/
+    public int[] toArray() {
+        return Arrays.copyOf(data, size);
+    }
+
+    /**********************************************************************************************/
+    public List<Integer> asList() {
+        return new ListView();
+    }
+
+    /**********************************************************************************************/
+    private final class ListView extends AbstractList<Integer> implements RandomAccess {
+        /******************************************************************************************/
+        @Override
+        public Integer get(int index) {
+            return IntArray.this.get(index);
+        }
+
+        /******************************************************************************************/
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package org.andresoviedo.util.io;
+/**************************************************************************************************/
+// parses the decimal numbers of the model files without creating a String for each of them. the
+// mantissa is read into a long and scaled once, which is exact for the usual short numbers
+public final class FloatParser {
+    /**********************************************************************************************/
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    /**********************************************************************************************/
+    private static final int MAX_MANTISSA_DIGITS = 18;
+
+    /**********************************************************************************************/
+    private FloatParser() {
+    }
+
+    /**********************************************************************************************/
+    // the number is the whole of text[start, end). with comma, ',' is taken as the decimal separator too
+    public static float parseFloat(CharSequence text, int start, int end, boolean comma) {
+        int i = start;
+        boolean negative = false;
+        if (i < end && (text.charAt(i) == '-' || text.charAt(i) == '+')) {
+            negative = text.charAt(i) == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int exponent = 0;
+        int digits = 0;
+        int significant = 0;
+
+        char c;
+        while (i < end && (c = text.charAt(i)) >= '0' && c <= '9') {
+            if (significant < MAX_MANTISSA_DIGITS) {
+                mantissa = mantissa * 10 + (c - '0');
+                if (mantissa != 0) significant++;
+            } else {
+                exponent++;
+            }
+            digits++;
+            i++;
+        }
+
+        if (i < end && (text.charAt(i) == '.' || (comma && text.charAt(i) == ','))) {
+            i++;
+            while (i < end && (c = text.charAt(i)) >= '0' && c <= '9') {
+                if (significant < MAX_MANTISSA_DIGITS) {
+                    mantissa = mantissa * 10 + (c - '0');
+                    if (mantissa != 0) significant++;
+                    exponent--;
+                }
+                digits++;
+                i++;
+            }
+        }
+
+        if (digits > 0 && i < end && (text.charAt(i) == 'e' || text.charAt(i) == 'E')) {
+            int j = i + 1;
+            boolean negativeExponent = false;
+            if (j < end && (text.charAt(j) == '-' || text.charAt(j) == '+')) {
+                negativeExponent = text.charAt(j) == '-';
+                j++;
+            }
+            if (j < end && (c = text.charAt(j)) >= '0' && c <= '9') {
+                int value = 0;
+                while (j < end && (c = text.charAt(j)) >= '0' && c <= '9') {
+                    if (value < 10000) {
+                        value = value * 10 + (c - '0');
+                    }
+                    j++;
+                }
+                exponent += negativeExponent ? -value : value;
+                i = j;
+            }
+        }
+
+        if (digits == 0 || i != end) {
+            // not a plain decimal number (i.e. "nan", "inf", "1.0f"), let the platform decide
+            final String number = text.subSequence(start, end).toString();
+            return Float.parseFloat(comma ? number.replace(',', '.') : number);
+        }
+
+        double value = mantissa;
+        if (mantissa != 0 && exponent != 0) {
+            if (exponent > 0 && exponent < POWERS_OF_TEN.length) {
+                value *= POWERS_OF_TEN[exponent];
+            } else if (exponent < 0 && -exponent < POWERS_OF_TEN.length) {
+                value /= POWERS_OF_TEN[-exponent];
+            } else {
+                value *= Math.pow(10, exponent);
+            }
+        }
+        return (float) (negative ? -value : value);
+    }
+}
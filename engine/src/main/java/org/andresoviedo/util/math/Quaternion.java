@@ -20,6 +20,26 @@ public class Quaternion {
         this.w = w;
     }
 
+    /**********************************************************************************************/
+    public float getX() {
+        return x;
+    }
+
+    /**********************************************************************************************/
+    public float getY() {
+        return y;
+    }
+
+    /**********************************************************************************************/
+    public float getZ() {
+        return z;
+    }
+
+    /**********************************************************************************************/
+    public float getW() {
+        return w;
+    }
+
     /**********************************************************************************************/
     public void normalize() {
         float mag = (float) Math.sqrt(w * w + x * x + y * y + z * z);
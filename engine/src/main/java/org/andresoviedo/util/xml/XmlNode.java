@@ -2,6 +2,9 @@ package org.andresoviedo.util.xml;
 
 import androidx.annotation.NonNull;
 
+import org.andresoviedo.util.collection.FloatArray;
+import org.andresoviedo.util.collection.IntArray;
+
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -16,6 +19,10 @@ public final class XmlNode {
 	/**********************************************************************************************/
 	private String data;
 	/**********************************************************************************************/
+	// numeric payload of array nodes (float_array, p, vcount...), parsed while streaming
+	private FloatArray floatData;
+	private IntArray intData;
+	/**********************************************************************************************/
 	private Map<String, List<XmlNode>> childNodes;
 
 	/**********************************************************************************************/
@@ -33,6 +40,16 @@ public final class XmlNode {
 		return data;
 	}
 
+	/**********************************************************************************************/
+	public FloatArray getFloatData() {
+		return floatData;
+	}
+
+	/**********************************************************************************************/
+	public IntArray getIntData() {
+		return intData;
+	}
+
 	/**********************************************************************************************/
 	public String getAttribute(String attr) {
 		if (attributes != null) {
@@ -134,4 +151,14 @@ public final class XmlNode {
 	protected void setData(String data) {
 		this.data = data;
 	}
+
+	/**********************************************************************************************/
+	protected void setFloatData(FloatArray floatData) {
+		this.floatData = floatData;
+	}
+
+	/**********************************************************************************************/
+	protected void setIntData(IntArray intData) {
+		this.intData = intData;
+	}
 }
@@ -2,13 +2,25 @@ package org.andresoviedo.util.xml;
 
 import android.util.Xml;
 
+import org.andresoviedo.util.collection.FloatArray;
+import org.andresoviedo.util.collection.IntArray;
+import org.andresoviedo.util.io.FloatParser;
 import org.xmlpull.v1.XmlPullParser;
 import org.xmlpull.v1.XmlPullParserException;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
 /**************************************************************************************************/
 public class XmlParser {
+	/**********************************************************************************************/
+	// nodes whose text is a list of numbers. these are parsed straight into primitive arrays
+	// so the DOM never holds the (potentially huge) text nor its split tokens
+	private static final Set<String> FLOAT_ARRAYS = new HashSet<>(Arrays.asList("float_array"));
+	private static final Set<String> INT_ARRAYS = new HashSet<>(Arrays.asList("int_array", "p", "vcount", "v", "h"));
+
 	/**********************************************************************************************/
 	public static XmlNode parse(InputStream in) {
 		try {
@@ -57,9 +69,103 @@ public class XmlParser {
 			} else if (eventType == XmlPullParser.END_TAG) {
 				return;
 			} else if (eventType == XmlPullParser.TEXT) {
-				parentNode.setData(xpp.getText());
+				if (FLOAT_ARRAYS.contains(parentNode.getName())) {
+					loadFloats(parentNode, xpp.getText());
+				} else if (INT_ARRAYS.contains(parentNode.getName())) {
+					loadInts(parentNode, xpp.getText());
+				} else {
+					parentNode.setData(xpp.getText());
+				}
 			}
 			eventType = xpp.next();
 		}
 	}
+
+	/**********************************************************************************************/
+	private static void loadFloats(XmlNode node, String text) {
+		FloatArray data = node.getFloatData();
+		if (data == null) {
+			data = new FloatArray(getCount(node));
+			node.setFloatData(data);
+		}
+
+		final int length = text.length();
+		int i = skipWhitespace(text, 0, length);
+		while (i < length) {
+			int end = i;
+			while (end < length && !isWhitespace(text.charAt(end))) {
+				end++;
+			}
+			// some exporters write the decimal separator of the current locale
+			data.add(FloatParser.parseFloat(text, i, end, true));
+			i = skipWhitespace(text, end, length);
+		}
+	}
+
+	/**********************************************************************************************/
+	private static void loadInts(XmlNode node, String text) {
+		IntArray data = node.getIntData();
+		if (data == null) {
+			data = new IntArray(getCount(node));
+			node.setIntData(data);
+		}
+
+		final int length = text.length();
+		int i = skipWhitespace(text, 0, length);
+		while (i < length) {
+			int end = i;
+			while (end < length && !isWhitespace(text.charAt(end))) {
+				end++;
+			}
+			data.add(parseInt(text, i, end));
+			i = skipWhitespace(text, end, length);
+		}
+	}
+
+	/**********************************************************************************************/
+	private static int getCount(XmlNode node) {
+		final String count = node.getAttribute("count");
+		if (count == null) return 0;
+		try {
+			return Math.max(Integer.parseInt(count), 0);
+		} catch (NumberFormatException e) {
+			return 0;
+		}
+	}
+
+	/**********************************************************************************************/
+	private static int skipWhitespace(String text, int i, int length) {
+		while (i < length && isWhitespace(text.charAt(i))) {
+			i++;
+		}
+		return i;
+	}
+
+	/**********************************************************************************************/
+	private static boolean isWhitespace(char c) {
+		return c == ' ' || c == '\n' || c == '\r' || c == '\t';
+	}
+
+	/**********************************************************************************************/
+	private static int parseInt(String text, int start, int end) {
+		int i = start;
+		boolean negative = false;
+		if (i < end && (text.charAt(i) == '-' || text.charAt(i) == '+')) {
+			negative = text.charAt(i) == '-';
+			i++;
+		}
+		if (i == end || end - i > 9) {
+			return Integer.parseInt(text.substring(start, end));
+		}
+
+		int value = 0;
+		for (; i < end; i++) {
+			final char c = text.charAt(i);
+			if (c < '0' || c > '9') {
+				return Integer.parseInt(text.substring(start, end));
+			}
+			value = value * 10 + (c - '0');
+		}
+		return negative ? -value : value;
+	}
 }